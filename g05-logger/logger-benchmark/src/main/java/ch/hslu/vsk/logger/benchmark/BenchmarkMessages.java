@@ -0,0 +1,51 @@
+package ch.hslu.vsk.logger.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+
+/**
+ * Creates the log messages used by the benchmarks, so all benchmarks measure comparable payloads.
+ */
+final class BenchmarkMessages {
+
+    /**
+     * The client name of the benchmark messages.
+     */
+    static final String CLIENT_NAME = "benchmark-client";
+
+    private BenchmarkMessages() {
+        // Utility class
+    }
+
+    /**
+     * Creates a log message with a realistic payload of about 100 characters.
+     *
+     * @param index The number of the message, part of its text.
+     * @return The log message.
+     */
+    static LogMessage create(final int index) {
+        Instant occurredAt = Instant.parse("2024-11-05T10:15:30.123456789Z").plusMillis(index);
+        LogLevel level = LogLevel.values()[index % LogLevel.values().length];
+        return new LogMessage(occurredAt.plusMillis(3), occurredAt, CLIENT_NAME, level,
+                "Request " + index + " processed by worker-7 in 12 ms (status=OK, user=\"alice\", items=42)");
+    }
+
+    /**
+     * Creates the given number of log messages.
+     *
+     * @param index The number of the first message.
+     * @param count The number of messages.
+     * @return The log messages, numbered from {@code index}.
+     */
+    static List<LogMessage> create(final int index, final int count) {
+        List<LogMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(create(index + i));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,140 @@
+package ch.hslu.vsk.logger.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import ch.hslu.vsk.logger.common.LogMessageBatch;
+import ch.hslu.vsk.logger.common.network.Compression;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the CPU/bandwidth trade-off of the {@link Compression} of batches on a connection: the time to encode
+ * and decode a batch per message, and the bytes on the wire. Batches are written in the compact format, as on a
+ * connection. The {@link WireBytes} counters report the bytes written in an iteration with and without
+ * compression; their ratio is the compression ratio.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    /**
+     * Number of messages per batch, as sent by default.
+     */
+    private static final int BATCH_SIZE = 512;
+
+    @Param
+    public Compression compression;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * 1024);
+    private NetworkMessageOutputStream outputStream;
+    private LogMessageBatch batch;
+    private byte[] encoded;
+    private int uncompressedSize;
+
+    /**
+     * The bytes written in an iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireBytes {
+
+        /**
+         * Bytes written with the compression of the trial.
+         */
+        public long written;
+
+        /**
+         * Bytes which would have been written without compression.
+         */
+        public long uncompressed;
+
+        /**
+         * Resets the counters for the next iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.written = 0;
+            this.uncompressed = 0;
+        }
+    }
+
+    /**
+     * Creates the batch and encodes it once with and without compression. The first encoding also announces the
+     * client, which is not part of the measured encodings.
+     *
+     * @throws IOException never, the batch is written to memory.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        this.batch = new LogMessageBatch(BenchmarkMessages.create(0, BATCH_SIZE));
+
+        NetworkMessageOutputStream uncompressed = new NetworkMessageOutputStream(this.bytes, true);
+        uncompressed.writeObject(this.batch);
+        this.bytes.reset();
+        uncompressed.writeObject(this.batch);
+        this.uncompressedSize = this.bytes.size();
+
+        this.outputStream = new NetworkMessageOutputStream(this.bytes, true);
+        this.outputStream.setCompression(this.compression);
+        this.bytes.reset();
+        this.outputStream.writeObject(this.batch);
+        this.encoded = this.bytes.toByteArray();
+    }
+
+    /**
+     * Encodes a batch, as the sender thread of a client does.
+     *
+     * @param wireBytes The counters of the written bytes.
+     * @return The number of written bytes.
+     * @throws IOException never, the batch is written to memory.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int encode(final WireBytes wireBytes) throws IOException {
+        this.bytes.reset();
+        this.outputStream.writeObject(this.batch);
+        wireBytes.written += this.bytes.size();
+        wireBytes.uncompressed += this.uncompressedSize;
+        return this.bytes.size();
+    }
+
+    /**
+     * Decodes a batch, including the announcement of its client, as the server does.
+     *
+     * @return The decoded batch.
+     * @throws IOException if the batch is malformed.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public NetworkTransferable decode() throws IOException {
+        try (NetworkMessageInputStream inputStream = new NetworkMessageInputStream(new ByteArrayInputStream(this.encoded))) {
+            NetworkTransferable frame = inputStream.nextObject();
+            while (!(frame instanceof LogMessageBatch)) {
+                frame = inputStream.nextObject();
+            }
+            return frame;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ch.hslu.vsk.logger.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.formatter.LogMessageFormat;
+import ch.hslu.vsk.logger.common.formatter.LogMessageFormatter;
+import ch.hslu.vsk.logger.common.formatter.LogMessageFormatterFactory;
+import ch.hslu.vsk.logger.common.formatter.Utf8LogMessageFormatter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link LogMessageFormatter#serialize(LogMessage)} and {@link LogMessageFormatter#parse(String)}
+ * of every {@link LogMessageFormat}. Replaces the timing loops of {@code SpeedTestingTest}.
+ * {@link #formatTo()} measures the bytes written by the server: formatters which are not a
+ * {@link Utf8LogMessageFormatter} serialize and encode the message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatterBenchmark {
+
+    @Param({"COMPETITION", "SPEED_FORMAT", "HUMAN_READABLE", "JSON", "XML"})
+    public LogMessageFormat format;
+
+    private LogMessageFormatter formatter;
+    private LogMessage message;
+    private String serialized;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    /**
+     * Creates the formatter and the message of the trial.
+     */
+    @Setup
+    public void setUp() {
+        this.formatter = LogMessageFormatterFactory.createFormatter(this.format);
+        this.message = BenchmarkMessages.create(1);
+        this.serialized = this.formatter.serialize(this.message);
+    }
+
+    /**
+     * Formats a message.
+     *
+     * @return The formatted message.
+     */
+    @Benchmark
+    public String serialize() {
+        return this.formatter.serialize(this.message);
+    }
+
+    /**
+     * Parses a formatted message.
+     *
+     * @return The parsed message.
+     */
+    @Benchmark
+    public LogMessage parse() {
+        return this.formatter.parse(this.serialized);
+    }
+
+    /**
+     * Formats a message into UTF-8 bytes.
+     *
+     * @return The buffer containing the formatted message.
+     */
+    @Benchmark
+    public ByteBuffer formatTo() {
+        this.buffer.clear();
+        if (this.formatter instanceof Utf8LogMessageFormatter utf8) {
+            utf8.formatTo(this.message, this.buffer);
+        } else {
+            this.buffer.put(this.formatter.serialize(this.message).getBytes(StandardCharsets.UTF_8));
+        }
+        return this.buffer;
+    }
+}
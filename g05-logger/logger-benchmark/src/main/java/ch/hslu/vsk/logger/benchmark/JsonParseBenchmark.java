@@ -0,0 +1,88 @@
+package ch.hslu.vsk.logger.benchmark;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.formatter.JSONLogMessageFormatter;
+import ch.hslu.vsk.logger.common.util.InstantSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the single-pass tokenizer of {@link JSONLogMessageFormatter#parse(String)} with the regular expressions
+ * it replaced, which are kept here as {@link #parseWithRegex(String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonParseBenchmark {
+
+    private final JSONLogMessageFormatter formatter = new JSONLogMessageFormatter();
+    private String line;
+
+    /**
+     * Formats the message of the trial.
+     */
+    @Setup
+    public void setUp() {
+        this.line = this.formatter.serialize(BenchmarkMessages.create(1));
+    }
+
+    /**
+     * Parses a line with the tokenizer.
+     *
+     * @return The parsed message.
+     */
+    @Benchmark
+    public LogMessage tokenizer() {
+        return this.formatter.parse(this.line);
+    }
+
+    /**
+     * Parses a line with the regular expressions.
+     *
+     * @return The parsed message.
+     */
+    @Benchmark
+    public LogMessage regex() {
+        return parseWithRegex(this.line);
+    }
+
+    /**
+     * The previous implementation of {@link JSONLogMessageFormatter#parse(String)}.
+     *
+     * @param totalMessage The JSON-formatted string to parse.
+     * @return The parsed message.
+     */
+    static LogMessage parseWithRegex(final String totalMessage) {
+        for (String key : new String[] {"receivedAt", "timestamp", "clientName", "logLevel", "message"}) {
+            if (!totalMessage.contains(key)) {
+                throw new IllegalArgumentException("The JSON string does not contain a " + key + " attribute.");
+            }
+        }
+
+        String receivedAtString = totalMessage.replaceAll(".*\"receivedAt\":\\s*\"([^\"]+)\".*", "$1");
+        String timestampString = totalMessage.replaceAll(".*\"timestamp\":\\s*\"([^\"]+)\".*", "$1");
+        String clientNameString = totalMessage.replaceAll(".*\"clientName\":\\s*\"([^\"]+)\".*", "$1");
+        String logLevelString = totalMessage.replaceAll(".*\"logLevel\":\\s*\"([^\"]+)\".*", "$1");
+        String messageString = totalMessage.replaceAll(".*\"message\":\\s*\"((?:\\\\\"|[^\"])+)\".*", "$1");
+        messageString = messageString.replace("\\\"", "\"");
+
+        Instant receivedAt = InstantSerializer.parseInstant(receivedAtString);
+        Instant timestamp = InstantSerializer.parseInstant(timestampString);
+        return new LogMessage(receivedAt, timestamp, clientNameString, LogLevel.valueOf(logLevelString), messageString);
+    }
+}
@@ -0,0 +1,178 @@
+package ch.hslu.vsk.logger.benchmark;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.adapter.LogAdapter;
+import ch.hslu.vsk.logger.common.adapter.StringPersistorLogAdapter;
+import ch.hslu.vsk.logger.common.formatter.LogMessageFormat;
+import ch.hslu.vsk.logger.common.formatter.LogMessageFormatterFactory;
+import ch.hslu.vsk.logger.component.LoggerComponent;
+import ch.hslu.vsk.logger.component.cache.InternalCacheStrategy;
+import ch.hslu.vsk.logger.component.sendQueues.BatchingLogMessageSendQueue;
+import ch.hslu.vsk.logger.server.network.NioIngestServer;
+import ch.hslu.vsk.stringpersistor.impl.GroupCommitStringPersistor;
+import ch.hslu.vsk.stringpersistor.impl.StringPersistorFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the end-to-end throughput from a {@link LoggerComponent} to the server on the loopback interface.
+ * An invocation logs a burst of messages and waits until the server has saved all of them, so the result is the
+ * sustained number of messages per second through the send queue, the wire format, the ingest engine and (with
+ * {@code sink=file}) the group commit to a log file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoopbackThroughputBenchmark {
+
+    /**
+     * Number of messages logged per invocation.
+     */
+    private static final int BURST_SIZE = 10_000;
+
+    /**
+     * Maximum time an invocation waits for the server to save the burst.
+     */
+    private static final long BURST_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(30);
+
+    @Param({"discard", "file"})
+    public String sink;
+
+    private final AtomicLong saved = new AtomicLong();
+    private Path directory;
+    private GroupCommitStringPersistor persistor;
+    private NioIngestServer server;
+    private BatchingLogMessageSendQueue sendQueue;
+    private LoggerComponent logger;
+    private String message;
+    private long sent;
+
+    /**
+     * Starts the server and connects the logger component.
+     *
+     * @throws IOException if the server could not be started or the log file could not be created.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        LogAdapter delegate = null;
+        if ("file".equals(this.sink)) {
+            this.directory = Files.createTempDirectory("logger-benchmark");
+            Path file = Files.createFile(this.directory.resolve("benchmark.log"));
+            StringPersistorFile stringPersistorFile = new StringPersistorFile();
+            stringPersistorFile.setFile(file);
+            this.persistor = new GroupCommitStringPersistor(stringPersistorFile);
+            delegate = new StringPersistorLogAdapter(this.persistor,
+                    LogMessageFormatterFactory.createFormatter(LogMessageFormat.COMPETITION));
+        }
+
+        this.server = new NioIngestServer(InetAddress.getLoopbackAddress(), 0, 50, new CountingLogAdapter(delegate), 1);
+        Thread acceptor = new Thread(this.server, "benchmark-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        this.sendQueue = new BatchingLogMessageSendQueue(new InternalCacheStrategy(),
+                InetAddress.getLoopbackAddress().getHostAddress(), this.server.getLocalAddress().getPort());
+        this.logger = new LoggerComponent(this.sendQueue, BenchmarkMessages.CLIENT_NAME);
+        this.message = BenchmarkMessages.create(1).getMessage();
+    }
+
+    /**
+     * Disconnects the logger component, stops the server and deletes the log file.
+     *
+     * @throws IOException if the log file could not be deleted.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        this.sendQueue.close();
+        this.server.close();
+        if (this.persistor != null) {
+            this.persistor.close();
+            try (Stream<Path> paths = Files.walk(this.directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Logs a burst of messages and waits until the server has saved all of them.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public void logBurst() throws InterruptedException {
+        for (int i = 0; i < BURST_SIZE; i++) {
+            this.logger.log(LogLevel.INFO, this.message);
+        }
+        this.sent += BURST_SIZE;
+
+        long deadline = System.nanoTime() + BURST_TIMEOUT_NS;
+        while (this.saved.get() < this.sent) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Server did not receive the burst in time");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * A {@link LogAdapter} which counts the saved messages and optionally hands them to another adapter.
+     */
+    private final class CountingLogAdapter implements LogAdapter {
+
+        private final LogAdapter delegate;
+
+        /**
+         * Creates a new counting adapter.
+         *
+         * @param delegate The adapter the messages are handed to, or {@code null} to discard them.
+         */
+        CountingLogAdapter(final LogAdapter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean saveLogMessage(final LogMessage message) {
+            return this.saveLogMessages(List.of(message));
+        }
+
+        @Override
+        public boolean saveLogMessages(final List<LogMessage> messages) {
+            boolean saved = this.delegate == null || this.delegate.saveLogMessages(messages);
+            LoopbackThroughputBenchmark.this.saved.addAndGet(messages.size());
+            return saved;
+        }
+
+        @Override
+        public List<LogMessage> loadLogMessages(final int count) {
+            return this.delegate == null ? List.of() : this.delegate.loadLogMessages(count);
+        }
+    }
+}
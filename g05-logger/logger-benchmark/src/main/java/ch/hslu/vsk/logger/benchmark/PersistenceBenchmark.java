@@ -0,0 +1,164 @@
+package ch.hslu.vsk.logger.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+import ch.hslu.vsk.stringpersistor.ext.BulkStringPersistor;
+import ch.hslu.vsk.stringpersistor.impl.Durability;
+import ch.hslu.vsk.stringpersistor.impl.SegmentedMappedStringPersistor;
+import ch.hslu.vsk.stringpersistor.impl.StringPersistorFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the string persistors: single {@code save} calls, bulk {@code saveAll} calls (reported per line)
+ * and reading with {@code get}, for the {@link StringPersistorFile} and the {@link SegmentedMappedStringPersistor}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    /**
+     * Number of lines per {@code saveAll} call.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Number of lines read by a {@code get} call.
+     */
+    private static final int READ_COUNT = 1_000;
+
+    /**
+     * A persistor writing into a temporary directory, deleted after the trial.
+     */
+    @State(Scope.Thread)
+    public static class PersistorState {
+
+        @Param({"file", "segmented"})
+        public String storage;
+
+        @Param({"FLUSH"})
+        public Durability durability;
+
+        Path directory;
+        BulkStringPersistor persistor;
+        String line;
+        List<PersistedString> batch;
+
+        /**
+         * Opens the persistor in a new temporary directory.
+         *
+         * @throws IOException if the directory could not be created.
+         */
+        @Setup
+        public void setUp() throws IOException {
+            this.directory = Files.createTempDirectory("logger-benchmark");
+            Path file = this.directory.resolve("benchmark.log");
+            if ("segmented".equals(this.storage)) {
+                SegmentedMappedStringPersistor segments = new SegmentedMappedStringPersistor();
+                segments.setDurability(this.durability);
+                this.persistor = segments;
+            } else {
+                Files.createFile(file);
+                StringPersistorFile stringPersistorFile = new StringPersistorFile();
+                stringPersistorFile.setDurability(this.durability);
+                this.persistor = stringPersistorFile;
+            }
+            this.persistor.setFile(file);
+
+            this.line = BenchmarkMessages.create(1).toString();
+            this.batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                this.batch.add(new PersistedString(Instant.now(), this.line));
+            }
+        }
+
+        /**
+         * Closes the persistor and deletes the temporary directory.
+         *
+         * @throws Exception if the persistor could not be closed or the directory could not be deleted.
+         */
+        @TearDown
+        public void tearDown() throws Exception {
+            if (this.persistor instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+            try (Stream<Path> paths = Files.walk(this.directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * A persistor which already contains lines to read.
+     */
+    @State(Scope.Thread)
+    public static class FilledPersistorState extends PersistorState {
+
+        /**
+         * Fills the persistor with lines.
+         */
+        @Setup
+        public void fill() {
+            for (int i = 0; i < 4 * READ_COUNT / BATCH_SIZE + 1; i++) {
+                this.persistor.saveAll(this.batch);
+            }
+        }
+    }
+
+    /**
+     * Saves a single line.
+     *
+     * @param state The persistor.
+     */
+    @Benchmark
+    public void save(final PersistorState state) {
+        state.persistor.save(Instant.now(), state.line);
+    }
+
+    /**
+     * Saves a batch of lines with a single commit.
+     *
+     * @param state The persistor.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void saveAll(final PersistorState state) {
+        state.persistor.saveAll(state.batch);
+    }
+
+    /**
+     * Reads the first lines.
+     *
+     * @param state The filled persistor.
+     * @return The read lines.
+     */
+    @Benchmark
+    public List<PersistedString> get(final FilledPersistorState state) {
+        return state.persistor.get(READ_COUNT);
+    }
+}
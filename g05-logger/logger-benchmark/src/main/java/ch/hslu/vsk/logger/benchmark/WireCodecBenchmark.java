@@ -0,0 +1,165 @@
+package ch.hslu.vsk.logger.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the wire codec: {@link LogMessage#serialize(NetworkMessageOutputStream)} and the decoding with
+ * {@link NetworkMessageInputStream#nextObject()}, for single messages and for {@link LogMessageBatch}es, in the
+ * self-contained and in the compact format. Batch results are reported per message; the returned byte counts
+ * show the size on the wire.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireCodecBenchmark {
+
+    /**
+     * Number of messages per batch.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+    private final NetworkMessageOutputStream outputStream = new NetworkMessageOutputStream(this.bytes);
+    private final NetworkMessageOutputStream compactOutputStream = new NetworkMessageOutputStream(this.bytes, true);
+
+    private LogMessage message;
+    private LogMessageBatch batch;
+    private byte[] serializedMessage;
+    private byte[] serializedBatch;
+    private byte[] compactBatch;
+
+    /**
+     * Creates and serializes the messages of the trial.
+     *
+     * @throws IOException never, the messages are written to memory.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        this.message = BenchmarkMessages.create(1);
+        List<LogMessage> messages = BenchmarkMessages.create(0, BATCH_SIZE);
+        this.batch = new LogMessageBatch(messages);
+        this.serializedMessage = this.serialize(this.message);
+        this.serializedBatch = this.serialize(this.batch);
+
+        // The client handshake is part of the decoded frames, but not of the measured encoding
+        this.bytes.reset();
+        this.compactOutputStream.writeObject(this.batch);
+        this.compactBatch = this.bytes.toByteArray();
+    }
+
+    /**
+     * Serializes an object into the reused output buffer.
+     *
+     * @param object The object to serialize.
+     * @return The serialized bytes.
+     * @throws IOException never, the object is written to memory.
+     */
+    private byte[] serialize(final NetworkTransferable object) throws IOException {
+        this.bytes.reset();
+        object.serialize(this.outputStream);
+        this.outputStream.flush();
+        return this.bytes.toByteArray();
+    }
+
+    /**
+     * Serializes a single message.
+     *
+     * @return The number of written bytes.
+     * @throws IOException never, the message is written to memory.
+     */
+    @Benchmark
+    public int serializeMessage() throws IOException {
+        this.bytes.reset();
+        this.message.serialize(this.outputStream);
+        return this.bytes.size();
+    }
+
+    /**
+     * Decodes a single message.
+     *
+     * @return The decoded message.
+     * @throws IOException if the message is malformed.
+     */
+    @Benchmark
+    public NetworkTransferable deserializeMessage() throws IOException {
+        return new NetworkMessageInputStream(new ByteArrayInputStream(this.serializedMessage)).nextObject();
+    }
+
+    /**
+     * Serializes a batch of messages.
+     *
+     * @return The number of written bytes.
+     * @throws IOException never, the batch is written to memory.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int serializeBatch() throws IOException {
+        this.bytes.reset();
+        this.batch.serialize(this.outputStream);
+        return this.bytes.size();
+    }
+
+    /**
+     * Decodes a batch of messages.
+     *
+     * @return The decoded batch.
+     * @throws IOException if the batch is malformed.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public NetworkTransferable deserializeBatch() throws IOException {
+        return new NetworkMessageInputStream(new ByteArrayInputStream(this.serializedBatch)).nextObject();
+    }
+
+    /**
+     * Serializes a batch of messages in the compact format.
+     *
+     * @return The number of written bytes.
+     * @throws IOException never, the batch is written to memory.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int serializeCompactBatch() throws IOException {
+        this.bytes.reset();
+        this.compactOutputStream.writeObject(this.batch);
+        return this.bytes.size();
+    }
+
+    /**
+     * Decodes a batch of messages in the compact format, including the client handshake.
+     *
+     * @return The decoded batch.
+     * @throws IOException if the batch is malformed.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public NetworkTransferable deserializeCompactBatch() throws IOException {
+        NetworkMessageInputStream inputStream = new NetworkMessageInputStream(new ByteArrayInputStream(this.compactBatch));
+        inputStream.nextObject();
+        return inputStream.nextObject();
+    }
+}
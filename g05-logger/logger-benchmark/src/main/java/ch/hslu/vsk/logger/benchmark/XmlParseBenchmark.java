@@ -0,0 +1,142 @@
+package ch.hslu.vsk.logger.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.formatter.XMLLogMessageFormatter;
+import ch.hslu.vsk.logger.common.formatter.XMLLogMessageReader;
+import ch.hslu.vsk.logger.common.util.InstantSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the {@link XMLLogMessageReader} with the substring search it replaced, which is kept here as
+ * {@link #parseWithSubstrings(String)}: once for a single line and once for a log file as written by the string
+ * persistor ({@code <timestamp>,<record>} per line), read from a character stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlParseBenchmark {
+
+    /**
+     * Number of records in the log file.
+     */
+    private static final int RECORDS = 10_000;
+
+    private final XMLLogMessageFormatter formatter = new XMLLogMessageFormatter();
+    private String line;
+    private String file;
+
+    /**
+     * Formats the line and the log file of the trial.
+     */
+    @Setup
+    public void setUp() {
+        this.line = this.formatter.serialize(BenchmarkMessages.create(1));
+
+        StringBuilder lines = new StringBuilder();
+        for (LogMessage message : BenchmarkMessages.create(0, RECORDS)) {
+            lines.append(message.getReceivedAtServer()).append(',').append(this.formatter.serialize(message))
+                    .append(System.lineSeparator());
+        }
+        this.file = lines.toString();
+    }
+
+    /**
+     * Parses a line with the reader.
+     *
+     * @return The parsed message.
+     */
+    @Benchmark
+    public LogMessage reader() {
+        return this.formatter.parse(this.line);
+    }
+
+    /**
+     * Parses a line with the substring search.
+     *
+     * @return The parsed message.
+     */
+    @Benchmark
+    public LogMessage substrings() {
+        return parseWithSubstrings(this.line);
+    }
+
+    /**
+     * Reads all records of the log file with the reader.
+     *
+     * @param blackhole Consumes the parsed messages.
+     * @throws IOException never.
+     */
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void readerFile(final Blackhole blackhole) throws IOException {
+        try (XMLLogMessageReader reader = new XMLLogMessageReader(new StringReader(this.file))) {
+            LogMessage message;
+            while ((message = reader.next()) != null) {
+                blackhole.consume(message);
+            }
+        }
+    }
+
+    /**
+     * Reads all records of the log file line by line with the substring search.
+     *
+     * @param blackhole Consumes the parsed messages.
+     * @throws IOException never.
+     */
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void substringsFile(final Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new StringReader(this.file))) {
+            String fileLine;
+            while ((fileLine = reader.readLine()) != null) {
+                blackhole.consume(parseWithSubstrings(fileLine.substring(fileLine.indexOf(',') + 1)));
+            }
+        }
+    }
+
+    /**
+     * The previous implementation of {@link XMLLogMessageFormatter#parse(String)}.
+     *
+     * @param message The XML formatted log message to parse.
+     * @return The parsed message.
+     */
+    static LogMessage parseWithSubstrings(final String message) {
+        for (String element : new String[] {"receivedAt", "timestamp", "clientName", "logLevel", "message"}) {
+            if (!message.contains("<" + element + ">") || !message.contains("</" + element + ">")) {
+                throw new IllegalArgumentException("The xml string does not contain a " + element + " attribute.");
+            }
+        }
+
+        String timestampServerString = message.substring(message.indexOf("<receivedAt>") + 12, message.indexOf("</receivedAt>"));
+        String timestampString = message.substring(message.indexOf("<timestamp>") + 11, message.indexOf("</timestamp>"));
+        String clientName = message.substring(message.indexOf("<clientName>") + 12, message.indexOf("</clientName>"));
+        String logLevelString = message.substring(message.indexOf("<logLevel>") + 10, message.indexOf("</logLevel>"));
+        String messageString = message.substring(message.indexOf("<message>") + 9, message.indexOf("</message>"));
+
+        Instant timestampServer = InstantSerializer.parseInstant(timestampServerString);
+        Instant timestamp = InstantSerializer.parseInstant(timestampString);
+        messageString = messageString.replace("&lt;", "<").replace("&gt;", ">");
+        return new LogMessage(timestampServer, timestamp, clientName, LogLevel.valueOf(logLevelString), messageString);
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright 2024 Roland Gisler, HSLU Informatik, Switzerland
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * VSK Logger JMH Benchmarks.
+ * <p>
+ * Build the benchmarks with {@code mvn -Pbenchmarks -pl logger-benchmark -am package} and run them with
+ * {@code java -jar logger-benchmark/target/g05-loggerbenchmark.jar -rf json -rff results.json}. The JSON results
+ * of two builds can be compared with any JMH result viewer. A single benchmark class is selected with a regular
+ * expression, e.g. {@code java -jar g05-loggerbenchmark.jar FormatterBenchmark}.
+ * </p>
+ */
+package ch.hslu.vsk.logger.benchmark;
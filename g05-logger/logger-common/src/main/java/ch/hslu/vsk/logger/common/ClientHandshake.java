@@ -0,0 +1,139 @@
+package ch.hslu.vsk.logger.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import ch.hslu.vsk.logger.common.network.ClientNameTable;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import ch.hslu.vsk.logger.common.network.VarInt;
+
+/**
+ * Announces the name of a client on a connection once, so the following compact log message frames only refer to
+ * the client by its ID.
+ * <p>
+ * The frame consists of the serial version UID, the client ID and the client name, each as a variable-length
+ * integer (see {@link VarInt}) followed by the UTF-8 bytes of the name. The IDs of a connection start at 0 and are
+ * assigned consecutively; the receiver keeps them in a {@link ClientNameTable}.
+ * </p>
+ */
+public final class ClientHandshake implements NetworkTransferable {
+
+	/**
+	 * The unique identifier for serialization.
+	 */
+	public static final short serialVersionUID = 4;
+
+	/**
+	 * The maximum length of a client name in bytes.
+	 */
+	public static final int MAX_NAME_LENGTH = 64 * 1024;
+
+	private final int clientId;
+	private final String clientName;
+
+	/**
+	 * Constructs a new {@code ClientHandshake}.
+	 *
+	 * @param clientId   The ID the client is referred to by on this connection; must not be negative.
+	 * @param clientName The name of the client; must not be null.
+	 */
+	public ClientHandshake(final int clientId, final String clientName) {
+		if (clientId < 0) {
+			throw new IllegalArgumentException("Client ID must not be negative.");
+		}
+		if (clientName == null) {
+			throw new IllegalArgumentException("Client name must not be null.");
+		}
+		this.clientId = clientId;
+		this.clientName = clientName;
+	}
+
+	/**
+	 * Retrieves the ID the client is referred to by.
+	 *
+	 * @return The client ID.
+	 */
+	public int getClientId() {
+		return this.clientId;
+	}
+
+	/**
+	 * Retrieves the name of the client.
+	 *
+	 * @return The client name.
+	 */
+	public String getClientName() {
+		return this.clientName;
+	}
+
+	/**
+	 * Serializes this {@code ClientHandshake} into a {@link NetworkMessageOutputStream}.
+	 *
+	 * @param outputStream The output stream to write the serialized data to.
+	 * @throws IOException If an I/O error occurs during serialization.
+	 */
+	@Override
+	public void serialize(final NetworkMessageOutputStream outputStream) throws IOException {
+		outputStream.writeShort(serialVersionUID);
+		VarInt.writeInt(outputStream, this.clientId);
+		byte[] nameBytes = this.clientName.getBytes(StandardCharsets.UTF_8);
+		VarInt.writeInt(outputStream, nameBytes.length);
+		outputStream.write(nameBytes);
+	}
+
+	/**
+	 * Deserializes a {@code ClientHandshake} from a {@link NetworkMessageInputStream}.
+	 *
+	 * @param inputStream The input stream to read the serialized data from.
+	 * @return A new {@code ClientHandshake} instance constructed from the deserialized data.
+	 * @throws IOException If an I/O error occurs during deserialization or the frame is malformed.
+	 */
+	public static ClientHandshake deserialize(final NetworkMessageInputStream inputStream) throws IOException {
+		int clientId = VarInt.readInt(inputStream);
+		if (clientId < 0) {
+			throw new IOException("Invalid client ID: " + clientId);
+		}
+		byte[] nameBytes = new byte[readNameLength(inputStream)];
+		inputStream.readFully(nameBytes);
+		return new ClientHandshake(clientId, new String(nameBytes, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Skips the body of a serialized {@code ClientHandshake} without decoding it.
+	 *
+	 * @param inputStream The input stream to skip the serialized data in.
+	 * @throws IOException If an I/O error occurs or the frame is malformed.
+	 */
+	public static void skip(final NetworkMessageInputStream inputStream) throws IOException {
+		int clientId = VarInt.readInt(inputStream);
+		if (clientId < 0) {
+			throw new IOException("Invalid client ID: " + clientId);
+		}
+		inputStream.skipNBytes(readNameLength(inputStream));
+	}
+
+	/**
+	 * Reads and validates the length of the client name.
+	 *
+	 * @param inputStream The input stream to read from.
+	 * @return The length in bytes.
+	 * @throws IOException If an I/O error occurs or the length is invalid.
+	 */
+	private static int readNameLength(final NetworkMessageInputStream inputStream) throws IOException {
+		int length = VarInt.readInt(inputStream);
+		if (length < 0 || length > MAX_NAME_LENGTH) {
+			throw new IOException("Invalid client name length: " + length);
+		}
+		return length;
+	}
+
+	@Override
+	public String toString() {
+		return "ClientHandshake{"
+				+ "clientId=" + clientId
+				+ ", clientName='" + clientName + '\''
+				+ '}';
+	}
+}
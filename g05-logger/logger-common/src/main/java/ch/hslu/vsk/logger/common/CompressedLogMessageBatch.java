@@ -0,0 +1,174 @@
+package ch.hslu.vsk.logger.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import ch.hslu.vsk.logger.common.network.Compression;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import ch.hslu.vsk.logger.common.network.VarInt;
+
+/**
+ * The compressed frame of a {@link LogMessageBatch}, sent on connections which have negotiated a
+ * {@link Compression} with a {@link CompressionHandshake}. It is decoded into a {@link LogMessageBatch}.
+ * <p>
+ * The frame consists of the serial version UID, the ID of the compression as a single byte and the following
+ * values as variable-length integers (see {@link VarInt}): the number of messages, the length of the uncompressed
+ * and the length of the compressed data, followed by the compressed data. The uncompressed data are the frames
+ * which would have been sent without compression: a {@link LogMessageBatch} in any format, preceded by the
+ * {@link ClientHandshake}s of clients which have not been announced before. The number of messages allows the
+ * frame to be skipped without decompressing it.
+ * </p>
+ */
+public final class CompressedLogMessageBatch {
+
+	/**
+	 * The unique identifier for serialization.
+	 */
+	public static final short serialVersionUID = 8;
+
+	/**
+	 * The maximum length of the uncompressed data of a frame.
+	 */
+	public static final int MAX_UNCOMPRESSED_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Private constructor to prevent instantiation of this utility class.
+	 */
+	private CompressedLogMessageBatch() {
+		// Prevent instantiation
+	}
+
+	/**
+	 * Writes a compressed frame.
+	 *
+	 * @param outputStream     The output stream to write the frame to.
+	 * @param compression      The compression the data was compressed with; must not be {@link Compression#NONE}.
+	 * @param count            The number of messages contained in the data.
+	 * @param uncompressedSize The length of the uncompressed data.
+	 * @param compressed       The buffer containing the compressed data.
+	 * @param compressedSize   The length of the compressed data in the buffer.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static void serialize(final NetworkMessageOutputStream outputStream, final Compression compression,
+								 final int count, final int uncompressedSize, final byte[] compressed,
+								 final int compressedSize) throws IOException {
+		if (compression == Compression.NONE) {
+			throw new IllegalArgumentException("Compression must not be NONE.");
+		}
+		outputStream.writeShort(serialVersionUID);
+		outputStream.writeByte(compression.getId());
+		VarInt.writeInt(outputStream, count);
+		VarInt.writeInt(outputStream, uncompressedSize);
+		VarInt.writeInt(outputStream, compressedSize);
+		outputStream.write(compressed, 0, compressedSize);
+	}
+
+	/**
+	 * Deserializes a compressed frame (everything after the serial version UID) into a {@link LogMessageBatch}.
+	 * Announced clients are registered in the client names of the stream.
+	 *
+	 * @param inputStream The input stream to read the serialized data from.
+	 * @param inflater    The inflater to decompress the data with; it is reset before use.
+	 * @return The decoded batch.
+	 * @throws IOException If an I/O error occurs or the frame is malformed.
+	 */
+	public static LogMessageBatch deserialize(final NetworkMessageInputStream inputStream, final Inflater inflater)
+			throws IOException {
+
+		// Header
+		if (Compression.fromId(inputStream.readUnsignedByte()) == Compression.NONE) {
+			throw new IOException("Unknown compression");
+		}
+		int count = readCount(inputStream);
+		int uncompressedSize = readSize(inputStream);
+		byte[] compressed = new byte[readSize(inputStream)];
+		inputStream.readFully(compressed);
+
+		// Decompress
+		byte[] uncompressed = new byte[uncompressedSize];
+		inflater.reset();
+		inflater.setInput(compressed);
+		try {
+			int length = 0;
+			while (length < uncompressedSize && !inflater.finished() && !inflater.needsInput()) {
+				length += inflater.inflate(uncompressed, length, uncompressedSize - length);
+			}
+			if (length != uncompressedSize || !inflater.finished()) {
+				throw new IOException("Compressed data does not match the uncompressed size");
+			}
+		} catch (DataFormatException ex) {
+			throw new IOException("Invalid compressed data: " + ex.getMessage(), ex);
+		}
+
+		// Decode the contained frames with the client names of the connection
+		NetworkMessageInputStream frames = new NetworkMessageInputStream(new ByteArrayInputStream(uncompressed));
+		frames.setClientNames(inputStream.getClientNames());
+		List<LogMessage> messages = new ArrayList<>(count);
+		while (frames.available() > 0) {
+			NetworkTransferable frame = frames.nextObject();
+			if (frame instanceof LogMessageBatch batch) {
+				messages.addAll(batch.getMessages());
+			} else if (frame instanceof LogMessage message) {
+				messages.add(message);
+			} else if (!(frame instanceof ClientHandshake)) {
+				throw new IOException("A compressed batch must only contain log messages.");
+			}
+		}
+		if (messages.size() != count) {
+			throw new IOException("Expected " + count + " messages, but found " + messages.size());
+		}
+
+		return new LogMessageBatch(messages);
+	}
+
+	/**
+	 * Skips the body of a compressed frame without decompressing it.
+	 *
+	 * @param inputStream The input stream to skip the serialized data in.
+	 * @return The number of messages contained in the skipped frame.
+	 * @throws IOException If an I/O error occurs or the frame is malformed.
+	 */
+	public static int skip(final NetworkMessageInputStream inputStream) throws IOException {
+		inputStream.skipNBytes(1);
+		int count = readCount(inputStream);
+		readSize(inputStream);
+		inputStream.skipNBytes(readSize(inputStream));
+		return count;
+	}
+
+	/**
+	 * Reads and validates the number of messages.
+	 *
+	 * @param inputStream The input stream to read from.
+	 * @return The number of messages.
+	 * @throws IOException If an I/O error occurs or the number is invalid.
+	 */
+	private static int readCount(final NetworkMessageInputStream inputStream) throws IOException {
+		int count = VarInt.readInt(inputStream);
+		if (count < 0 || count > LogMessageBatch.MAX_BATCH_SIZE) {
+			throw new IOException("Invalid batch size: " + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Reads and validates the length of the compressed or uncompressed data.
+	 *
+	 * @param inputStream The input stream to read from.
+	 * @return The length in bytes.
+	 * @throws IOException If an I/O error occurs or the length is invalid.
+	 */
+	private static int readSize(final NetworkMessageInputStream inputStream) throws IOException {
+		int size = VarInt.readInt(inputStream);
+		if (size < 0 || size > MAX_UNCOMPRESSED_SIZE) {
+			throw new IOException("Invalid compressed batch size: " + size);
+		}
+		return size;
+	}
+}
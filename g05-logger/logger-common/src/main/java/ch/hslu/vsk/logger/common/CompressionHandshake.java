@@ -0,0 +1,95 @@
+package ch.hslu.vsk.logger.common;
+
+import java.io.IOException;
+
+import ch.hslu.vsk.logger.common.network.Compression;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+
+/**
+ * Negotiates the {@link Compression} of a connection. The client offers a compression right after connecting and
+ * waits for the reply of the server, which either accepts the offered compression or answers with
+ * {@link Compression#NONE}. Both sides send uncompressed frames until the negotiation is complete.
+ * <p>
+ * The frame consists of the serial version UID and the ID of the compression as a single byte.
+ * </p>
+ */
+public final class CompressionHandshake implements NetworkTransferable {
+
+	/**
+	 * The unique identifier for serialization.
+	 */
+	public static final short serialVersionUID = 7;
+
+	private final Compression compression;
+
+	/**
+	 * Constructs a new {@code CompressionHandshake}.
+	 *
+	 * @param compression The offered or accepted compression; must not be null.
+	 */
+	public CompressionHandshake(final Compression compression) {
+		if (compression == null) {
+			throw new IllegalArgumentException("Compression must not be null.");
+		}
+		this.compression = compression;
+	}
+
+	/**
+	 * Retrieves the offered or accepted compression.
+	 *
+	 * @return The compression.
+	 */
+	public Compression getCompression() {
+		return this.compression;
+	}
+
+	/**
+	 * Creates the reply of a server which supports all known compressions. An offer of an unknown compression has
+	 * already been decoded as {@link Compression#NONE}.
+	 *
+	 * @return The reply accepting the offered compression.
+	 */
+	public CompressionHandshake accept() {
+		return new CompressionHandshake(this.compression);
+	}
+
+	/**
+	 * Serializes this {@code CompressionHandshake} into a {@link NetworkMessageOutputStream}.
+	 *
+	 * @param outputStream The output stream to write the serialized data to.
+	 * @throws IOException If an I/O error occurs during serialization.
+	 */
+	@Override
+	public void serialize(final NetworkMessageOutputStream outputStream) throws IOException {
+		outputStream.writeShort(serialVersionUID);
+		outputStream.writeByte(this.compression.getId());
+	}
+
+	/**
+	 * Deserializes a {@code CompressionHandshake} from a {@link NetworkMessageInputStream}.
+	 *
+	 * @param inputStream The input stream to read the serialized data from.
+	 * @return A new {@code CompressionHandshake} instance constructed from the deserialized data.
+	 * @throws IOException If an I/O error occurs during deserialization.
+	 */
+	public static CompressionHandshake deserialize(final NetworkMessageInputStream inputStream) throws IOException {
+		return new CompressionHandshake(Compression.fromId(inputStream.readUnsignedByte()));
+	}
+
+	/**
+	 * Skips the body of a serialized {@code CompressionHandshake} without decoding it.
+	 *
+	 * @param inputStream The input stream to skip the serialized data in.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public static void skip(final NetworkMessageInputStream inputStream) throws IOException {
+		inputStream.skipNBytes(1);
+	}
+
+	@Override
+	public String toString() {
+		return "CompressionHandshake{compression=" + compression + '}';
+	}
+}
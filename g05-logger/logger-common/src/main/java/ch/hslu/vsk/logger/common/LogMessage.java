@@ -12,7 +12,9 @@ import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
 import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
 import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import ch.hslu.vsk.logger.common.network.VarInt;
 import ch.hslu.vsk.logger.common.util.EnumSerializer;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 
 /**
  * Represents a log message that can be transmitted over the network between client and server.
@@ -22,30 +24,89 @@ import ch.hslu.vsk.logger.common.util.EnumSerializer;
 public final class LogMessage implements NetworkTransferable {
 
 	/**
-	 * The unique identifier for serialization.
+	 * The unique identifier for serialization of version 1: the timestamp in milliseconds, no sequence number.
+	 * Still decoded, so cached messages and older clients keep working.
 	 */
 	public static final short serialVersionUID = 1;
 
+	/**
+	 * The unique identifier for serialization of version 2: the timestamp in seconds and nanoseconds and the
+	 * sequence number of the message. Written by {@link #serialize(NetworkMessageOutputStream)}.
+	 */
+	public static final short SERIAL_VERSION_UID_V2 = 3;
+
+	/**
+	 * The unique identifier for serialization of the compact format, which is only used on connections: single
+	 * byte log level, variable-length integers and the client referred to by an ID announced with a
+	 * {@link ClientHandshake}. See {@link #serializeCompact(NetworkMessageOutputStream, int)}.
+	 */
+	public static final short COMPACT_SERIAL_VERSION_UID = 5;
+
+	/**
+	 * The unique identifier for serialization of version 3: version 2 followed by the number of occurrences and the
+	 * time from the first to the last occurrence of a collapsed message. Written by
+	 * {@link #serialize(NetworkMessageOutputStream)} for messages which occurred more than once only, so messages
+	 * which are not collapsed stay readable by servers which only know version 2.
+	 */
+	public static final short SERIAL_VERSION_UID_V3 = 9;
+
+	/**
+	 * The sequence number of a message without one, e.g. a message decoded from version 1.
+	 */
+	public static final long NO_SEQUENCE_NUMBER = -1;
+
+	/**
+	 * The maximum length of a message or client name in bytes which is accepted when a frame is decoded, so a
+	 * corrupt or hostile length prefix cannot make the reader allocate an arbitrarily large array.
+	 */
+	public static final int MAX_MESSAGE_LENGTH = CompressedLogMessageBatch.MAX_UNCOMPRESSED_SIZE;
+
 	/**
 	 * The serializer used to serialize the log level
 	 */
 	private static final EnumSerializer<LogLevel> LOG_LEVEL_SERIALIZER = new EnumSerializer<>(LogLevel.class);
 
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+	/**
+	 * The timestamp when the log message was created, in nanoseconds since the epoch.
+	 * Kept as a primitive so creating and decoding a message does not allocate an {@link Instant}.
+	 */
+	private long timestamp;
+
+	/**
+	 * The timestamp when the server received the log message, in nanoseconds since the epoch,
+	 * or {@link EpochClock#NOT_SET}.
+	 */
+	private long receivedAtServer;
+
+	/**
+	 * The number of the message within its client, increasing with every message, or {@link #NO_SEQUENCE_NUMBER}.
+	 */
+	private long sequenceNumber;
+
 	/**
-	 * The timestamp when the log message was created.
+	 * The number of times the message occurred, if identical messages have been collapsed into this one.
 	 */
-	private Instant timestamp;
+	private int occurrences = 1;
 
 	/**
-	 * The timestamp when the server received the log message.
+	 * The timestamp of the last occurrence of the message, in nanoseconds since the epoch. Equal to
+	 * {@link #timestamp}, the first occurrence, unless identical messages have been collapsed into this one.
 	 */
-	private Instant receivedAtServer;
+	private long lastTimestamp;
 
 	/**
-	 * The content of the log message.
+	 * The content of the log message. Decoded lazily from {@link #messageUtf8} for received messages; the decoding
+	 * is idempotent, so a race between two threads decoding it at the same time is harmless.
 	 */
 	private String message;
 
+	/**
+	 * The UTF-8 encoded content of a received log message, or {@code null} for a message created from a string.
+	 */
+	private final byte[] messageUtf8;
+
 	/**
 	 * The name of the client that sent the log message.
 	 */
@@ -67,11 +128,7 @@ public final class LogMessage implements NetworkTransferable {
 	 * @param message          The content of the log message.
 	 */
 	public LogMessage(final Instant serverReceivedAt, final Instant occurredAt, final String clientName, final LogLevel logLevel, final String message) {
-		this.timestamp = occurredAt;
-		this.receivedAtServer = serverReceivedAt;
-		this.message = message;
-		this.clientName = clientName;
-		this.logLevel = logLevel;
+		this(EpochClock.toEpochNanos(serverReceivedAt), EpochClock.toEpochNanos(occurredAt), clientName, logLevel, message);
 	}
 
 	/**
@@ -88,21 +145,192 @@ public final class LogMessage implements NetworkTransferable {
 	}
 
 	/**
-	 * Retrieves the timestamp when the log message was created.
+	 * Constructs a {@code LogMessage} with timestamps in nanoseconds since the epoch.
+	 *
+	 * @param serverReceivedAtNanos The timestamp when the server received the message, or {@link EpochClock#NOT_SET}.
+	 * @param occurredAtNanos       The timestamp when the log message was created.
+	 * @param clientName            The name of the client sending the log message.
+	 * @param logLevel              The severity level of the log message.
+	 * @param message               The content of the log message.
+	 */
+	public LogMessage(final long serverReceivedAtNanos, final long occurredAtNanos, final String clientName, final LogLevel logLevel, final String message) {
+		this(serverReceivedAtNanos, occurredAtNanos, clientName, NO_SEQUENCE_NUMBER, logLevel, message);
+	}
+
+	/**
+	 * Constructs a {@code LogMessage} with its creation timestamp in nanoseconds since the epoch and the sequence
+	 * number of the message within its client.
 	 *
-	 * @return The creation timestamp of the log message.
+	 * @param occurredAtNanos The timestamp when the log message was created.
+	 * @param clientName      The name of the client sending the log message.
+	 * @param sequenceNumber  The number of the message within its client, or {@link #NO_SEQUENCE_NUMBER}.
+	 * @param logLevel        The severity level of the log message.
+	 * @param message         The content of the log message.
+	 */
+	public LogMessage(final long occurredAtNanos, final String clientName, final long sequenceNumber, final LogLevel logLevel, final String message) {
+		this(EpochClock.NOT_SET, occurredAtNanos, clientName, sequenceNumber, logLevel, message);
+	}
+
+	/**
+	 * Constructs a {@code LogMessage} with all details specified.
+	 *
+	 * @param serverReceivedAtNanos The timestamp when the server received the message, or {@link EpochClock#NOT_SET}.
+	 * @param occurredAtNanos       The timestamp when the log message was created.
+	 * @param clientName            The name of the client sending the log message.
+	 * @param sequenceNumber        The number of the message within its client, or {@link #NO_SEQUENCE_NUMBER}.
+	 * @param logLevel              The severity level of the log message.
+	 * @param message               The content of the log message.
+	 */
+	private LogMessage(final long serverReceivedAtNanos, final long occurredAtNanos, final String clientName,
+					   final long sequenceNumber, final LogLevel logLevel, final String message) {
+		this.timestamp = occurredAtNanos;
+		this.lastTimestamp = occurredAtNanos;
+		this.receivedAtServer = serverReceivedAtNanos;
+		this.sequenceNumber = sequenceNumber;
+		this.message = message;
+		this.messageUtf8 = null;
+		this.clientName = clientName;
+		this.logLevel = logLevel;
+	}
+
+	/**
+	 * Constructs a received {@code LogMessage} whose content is decoded when it is first needed.
+	 *
+	 * @param occurredAtNanos The timestamp when the log message was created.
+	 * @param clientName      The name of the client sending the log message.
+	 * @param sequenceNumber  The number of the message within its client, or {@link #NO_SEQUENCE_NUMBER}.
+	 * @param logLevel        The severity level of the log message.
+	 * @param messageUtf8     The UTF-8 encoded content of the log message; not copied.
+	 */
+	private LogMessage(final long occurredAtNanos, final String clientName, final long sequenceNumber,
+					   final LogLevel logLevel, final byte[] messageUtf8) {
+		this.timestamp = occurredAtNanos;
+		this.lastTimestamp = occurredAtNanos;
+		this.receivedAtServer = EpochClock.NOT_SET;
+		this.sequenceNumber = sequenceNumber;
+		this.message = null;
+		this.messageUtf8 = messageUtf8;
+		this.clientName = clientName;
+		this.logLevel = logLevel;
+	}
+
+	/**
+	 * Constructs a {@code LogMessage} with its creation timestamp in nanoseconds since the epoch, e.g. from
+	 * {@link EpochClock#nowNanos()}.
+	 *
+	 * @param occurredAtNanos The timestamp when the log message was created.
+	 * @param clientName      The name of the client sending the log message.
+	 * @param logLevel        The severity level of the log message.
+	 * @param message         The content of the log message.
+	 */
+	public LogMessage(final long occurredAtNanos, final String clientName, final LogLevel logLevel, final String message) {
+		this(EpochClock.NOT_SET, occurredAtNanos, clientName, logLevel, message);
+	}
+
+	/**
+	 * Retrieves the timestamp when the log message was created. The {@link Instant} is created on every call.
+	 *
+	 * @return The creation timestamp of the log message, or {@code null} if not set.
 	 */
 	public Instant getTimestamp() {
+		return EpochClock.toInstant(this.timestamp);
+	}
+
+	/**
+	 * Retrieves the timestamp when the log message was created, without allocating an {@link Instant}.
+	 *
+	 * @return The creation timestamp in nanoseconds since the epoch, or {@link EpochClock#NOT_SET}.
+	 */
+	public long getTimestampNanos() {
 		return this.timestamp;
 	}
 
 	/**
-	 * Retrieves the content of the log message.
+	 * Retrieves the number of the message within its client. Messages of the same client with the same timestamp
+	 * can be ordered by it.
+	 *
+	 * @return The sequence number, or {@link #NO_SEQUENCE_NUMBER} if the message has none.
+	 */
+	public long getSequenceNumber() {
+		return this.sequenceNumber;
+	}
+
+	/**
+	 * Retrieves the number of times the message occurred. Identical messages which occurred within a short time
+	 * can be collapsed into one message, whose timestamp is the first occurrence.
+	 *
+	 * @return The number of occurrences, 1 for a message which has not been collapsed.
+	 */
+	public int getOccurrences() {
+		return this.occurrences;
+	}
+
+	/**
+	 * Retrieves the timestamp of the last occurrence of the message. The {@link Instant} is created on every call.
+	 *
+	 * @return The timestamp of the last occurrence; the creation timestamp for a message which has not been
+	 *         collapsed, or {@code null} if not set.
+	 */
+	public Instant getLastTimestamp() {
+		return EpochClock.toInstant(this.lastTimestamp);
+	}
+
+	/**
+	 * Retrieves the timestamp of the last occurrence of the message, without allocating an {@link Instant}.
+	 *
+	 * @return The timestamp of the last occurrence in nanoseconds since the epoch; the creation timestamp for a
+	 *         message which has not been collapsed.
+	 */
+	public long getLastTimestampNanos() {
+		return this.lastTimestamp;
+	}
+
+	/**
+	 * Records that the message occurred several times, e.g. when identical messages are collapsed into this one.
+	 *
+	 * @param occurrences         The number of times the message occurred; must be at least 1.
+	 * @param lastOccurredAtNanos The timestamp of the last occurrence in nanoseconds since the epoch; must not be
+	 *                            before the creation timestamp.
+	 * @throws IllegalArgumentException if one of the arguments is invalid.
+	 */
+	public void setOccurrences(final int occurrences, final long lastOccurredAtNanos) {
+		if (occurrences < 1) {
+			throw new IllegalArgumentException("Occurrences must be at least 1");
+		}
+		if (lastOccurredAtNanos < this.timestamp) {
+			throw new IllegalArgumentException("Last occurrence must not be before the first one");
+		}
+		this.occurrences = occurrences;
+		this.lastTimestamp = lastOccurredAtNanos;
+	}
+
+	/**
+	 * Retrieves the content of the log message. The content of a received message is decoded on the first call.
 	 *
 	 * @return The log message content.
 	 */
 	public String getMessage() {
-		return this.message;
+		String decoded = this.message;
+		if (decoded == null && this.messageUtf8 != null) {
+			decoded = new String(this.messageUtf8, StandardCharsets.UTF_8);
+			this.message = decoded;
+		}
+		return decoded;
+	}
+
+	/**
+	 * Retrieves the UTF-8 encoded content of the log message. For a received message, these are the bytes read
+	 * from the wire, so a formatter writing UTF-8 can copy them without decoding the message; for other messages,
+	 * the content is encoded on every call.
+	 *
+	 * @return The UTF-8 encoded content, or {@code null} if the message has no content. The array must not be
+	 *         modified.
+	 */
+	public byte[] getMessageUtf8() {
+		if (this.messageUtf8 != null) {
+			return this.messageUtf8;
+		}
+		return this.message != null ? this.message.getBytes(StandardCharsets.UTF_8) : null;
 	}
 
 	/**
@@ -129,15 +357,33 @@ public final class LogMessage implements NetworkTransferable {
 	 * @param receivedAt The server reception timestamp to set.
 	 */
 	public void setReceivedAtServer(final Instant receivedAt) {
-		this.receivedAtServer = receivedAt;
+		this.receivedAtServer = EpochClock.toEpochNanos(receivedAt);
 	}
 
 	/**
-	 * Retrieves the timestamp when the server received the log message.
+	 * Sets the timestamp when the server received the log message, without allocating an {@link Instant}.
+	 *
+	 * @param receivedAtNanos The server reception timestamp in nanoseconds since the epoch.
+	 */
+	public void setReceivedAtServerNanos(final long receivedAtNanos) {
+		this.receivedAtServer = receivedAtNanos;
+	}
+
+	/**
+	 * Retrieves the timestamp when the server received the log message. The {@link Instant} is created on every call.
 	 *
 	 * @return The server reception timestamp, or {@code null} if not set.
 	 */
 	public Instant getReceivedAtServer() {
+		return EpochClock.toInstant(this.receivedAtServer);
+	}
+
+	/**
+	 * Retrieves the timestamp when the server received the log message, without allocating an {@link Instant}.
+	 *
+	 * @return The server reception timestamp in nanoseconds since the epoch, or {@link EpochClock#NOT_SET}.
+	 */
+	public long getReceivedAtServerNanos() {
 		return this.receivedAtServer;
 	}
 
@@ -152,19 +398,25 @@ public final class LogMessage implements NetworkTransferable {
 		LocalDateTime dateTime = LocalDateTime.ofInstant(this.getTimestamp(), ZoneId.of("UTC"));
 		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
 
-		return dateTime.format(formatter) + " [" + this.logLevel.name() + "] " + this.message;
+		return dateTime.format(formatter) + " [" + this.logLevel.name() + "] " + this.getMessage();
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(timestamp, clientName, message, logLevel);
+		// Consistent with equals, which deliberately compares the timestamps with millisecond precision only
+		return Objects.hash(EpochClock.toEpochMillis(this.timestamp), clientName, this.getMessage(), logLevel);
 	}
 
 
 	/**
 	 * Compares this {@code LogMessage} to another object for equality.
-	 * Two {@code LogMessage} instances are considered equal if they have the same timestamp,
-	 * client name, message content, and log level.
+	 * Two {@code LogMessage} instances are considered equal if they have the same timestamp, client name, message
+	 * content, and log level.
+	 * <p>
+	 * The timestamps are compared with millisecond precision only, although they are kept in nanoseconds: version 1
+	 * of the wire format transfers milliseconds and the text formats store a tenth of a millisecond, so a message
+	 * must stay equal to its copy read back from any of them. Two messages whose timestamps differ by less than a
+	 * millisecond within the same millisecond are therefore equal.
 	 *
 	 * @param other The object to compare with.
 	 * @return {@code true} if the objects are equal; {@code false} otherwise.
@@ -179,15 +431,18 @@ public final class LogMessage implements NetworkTransferable {
 			return false;
 		}
 
-		return logMessage.getTimestamp().toEpochMilli() == this.getTimestamp().toEpochMilli()
+		return EpochClock.toEpochMillis(logMessage.timestamp) == EpochClock.toEpochMillis(this.timestamp)
 				&& logMessage.getClientName().equals(this.getClientName())
 				&& logMessage.getMessage().equals(this.getMessage())
 				&& logMessage.getLogLevel().equals(this.getLogLevel());
 	}
 
 	/**
-	 * Serializes this {@code LogMessage} into a {@link NetworkMessageOutputStream}.
-	 * The serialization format includes the serial version UID, log level, timestamps, client name, and message content.
+	 * Serializes this {@code LogMessage} into a {@link NetworkMessageOutputStream} using version 2 of the format,
+	 * or version 3 if the message occurred more than once.
+	 * The serialization format includes the serial version UID, log level, timestamp (seconds and nanoseconds),
+	 * sequence number, the occurrences and the nanoseconds until the last occurrence (version 3 only), client name,
+	 * and message content.
 	 *
 	 * @param outputStream The output stream to write the serialized data to.
 	 * @throws IOException If an I/O error occurs during serialization.
@@ -196,13 +451,24 @@ public final class LogMessage implements NetworkTransferable {
 	public void serialize(final NetworkMessageOutputStream outputStream) throws IOException {
 		
 		// Serial version
-		outputStream.writeShort(serialVersionUID);
+		boolean collapsed = this.occurrences > 1;
+		outputStream.writeShort(collapsed ? SERIAL_VERSION_UID_V3 : SERIAL_VERSION_UID_V2);
 
 		// LogLevel
 		LOG_LEVEL_SERIALIZER.write(outputStream, logLevel);
 
 		// Timestamp
-		outputStream.writeLong(this.timestamp.toEpochMilli());
+		outputStream.writeLong(Math.floorDiv(this.timestamp, NANOS_PER_SECOND));
+		outputStream.writeInt((int) Math.floorMod(this.timestamp, NANOS_PER_SECOND));
+
+		// Sequence number
+		outputStream.writeLong(this.sequenceNumber);
+
+		// Occurrences
+		if (collapsed) {
+			outputStream.writeInt(this.occurrences);
+			outputStream.writeLong(this.lastTimestamp - this.timestamp);
+		}
 
 		// ClientName
 		byte[] clientNameBytes = this.clientName.getBytes(StandardCharsets.UTF_8);
@@ -210,45 +476,309 @@ public final class LogMessage implements NetworkTransferable {
 		outputStream.write(clientNameBytes);
 
 		// Message
-		byte[] messageBytes = this.message.getBytes(StandardCharsets.UTF_8);
+		byte[] messageBytes = this.getMessageUtf8();
 		outputStream.writeInt(messageBytes.length);
 		outputStream.write(messageBytes);
 	}
 
 	/**
-	 * Deserializes a {@code LogMessage} from a {@link NetworkMessageInputStream}.
-	 * The deserialization process reads the log level, timestamp, client name, and message content from the input stream.
+	 * Serializes this {@code LogMessage} into a {@link NetworkMessageOutputStream} using the compact format.
+	 * The client must have been announced on the stream with a {@link ClientHandshake} before, so the frame is
+	 * only valid on this connection and must not be cached. The compact format has no occurrences, so a message
+	 * which occurred more than once has to be {@link #serialize(NetworkMessageOutputStream) serialized} instead.
+	 * <p>
+	 * The frame consists of the serial version UID, the log level as a single byte and the following values as
+	 * variable-length integers (see {@link VarInt}): the seconds and nanoseconds of the timestamp, the sequence
+	 * number plus one, the client ID and the length of the UTF-8 encoded message, followed by the message. A short
+	 * message therefore takes about half the bytes of a version 2 frame.
+	 * </p>
+	 *
+	 * @param outputStream The output stream to write the serialized data to.
+	 * @param clientId     The ID of the client of this message on the connection.
+	 * @throws IOException If an I/O error occurs during serialization.
+	 */
+	public void serializeCompact(final NetworkMessageOutputStream outputStream, final int clientId) throws IOException {
+		outputStream.writeShort(COMPACT_SERIAL_VERSION_UID);
+		this.serializeCompactBody(outputStream, clientId);
+	}
+
+	/**
+	 * Serializes this {@code LogMessage} in the compact format without the serial version UID.
+	 *
+	 * @param outputStream The output stream to write the serialized data to.
+	 * @param clientId     The ID of the client of this message on the connection.
+	 * @throws IOException If an I/O error occurs during serialization.
+	 */
+	void serializeCompactBody(final NetworkMessageOutputStream outputStream, final int clientId) throws IOException {
+
+		// LogLevel
+		LOG_LEVEL_SERIALIZER.writeByte(outputStream, logLevel);
+
+		// Timestamp
+		VarInt.writeSignedLong(outputStream, Math.floorDiv(this.timestamp, NANOS_PER_SECOND));
+		VarInt.writeInt(outputStream, (int) Math.floorMod(this.timestamp, NANOS_PER_SECOND));
+
+		// Sequence number, shifted so that NO_SEQUENCE_NUMBER takes a single byte
+		VarInt.writeLong(outputStream, this.sequenceNumber - NO_SEQUENCE_NUMBER);
+
+		// Client
+		VarInt.writeInt(outputStream, clientId);
+
+		// Message
+		byte[] messageBytes = this.getMessageUtf8();
+		VarInt.writeInt(outputStream, messageBytes.length);
+		outputStream.write(messageBytes);
+	}
+
+	/**
+	 * Deserializes a {@code LogMessage} of the compact format (everything after the serial version UID). The client
+	 * name is looked up in the {@link NetworkMessageInputStream#getClientNames() client names} of the stream.
 	 *
 	 * @param inputStream The input stream to read the serialized data from.
 	 * @return A new {@code LogMessage} instance constructed from the deserialized data.
-	 * @throws IOException              If an I/O error occurs during deserialization.
-	 * @throws IllegalArgumentException If the log level value is unknown or invalid.
+	 * @throws IOException If an I/O error occurs, the frame is malformed or the client ID is unknown.
 	 */
-	public static LogMessage deserialize(final NetworkMessageInputStream inputStream) throws IOException {
+	public static LogMessage deserializeCompact(final NetworkMessageInputStream inputStream) throws IOException {
 
 		// Get the log level
-		LogLevel logLevel = LOG_LEVEL_SERIALIZER.read(inputStream);
+		LogLevel logLevel = readCompactLogLevel(inputStream);
+
+		// Read timestamp and sequence number
+		long timestamp = toTimestamp(VarInt.readSignedLong(inputStream), VarInt.readInt(inputStream));
+		long sequenceNumber = VarInt.readLong(inputStream) + NO_SEQUENCE_NUMBER;
+
+		// Look up the client name and read the message, which is decoded when it is needed
+		String clientName = inputStream.getClientNames().get(VarInt.readInt(inputStream));
+		byte[] messageBytes = new byte[readCompactLength(inputStream, MAX_MESSAGE_LENGTH)];
+		inputStream.readFully(messageBytes);
+
+		return new LogMessage(timestamp, clientName, sequenceNumber, logLevel, messageBytes);
+	}
+
+	/**
+	 * Skips the body of a compact {@code LogMessage} frame (everything after the serial version UID) without
+	 * decoding it.
+	 *
+	 * @param inputStream The input stream to skip the serialized data in.
+	 * @throws IOException If an I/O error occurs or the frame is malformed.
+	 */
+	public static void skipCompact(final NetworkMessageInputStream inputStream) throws IOException {
+
+		// Log level, timestamp, sequence number and client ID
+		readCompactLogLevel(inputStream);
+		for (int i = 0; i < 4; i++) {
+			VarInt.skip(inputStream);
+		}
+
+		// Message
+		inputStream.skipNBytes(readCompactLength(inputStream, MAX_MESSAGE_LENGTH));
+	}
+
+	/**
+	 * Converts a decoded timestamp to nanoseconds since the epoch.
+	 *
+	 * @param seconds The seconds since the epoch.
+	 * @param nanos   The nanoseconds within the second.
+	 * @return The timestamp in nanoseconds since the epoch.
+	 * @throws IOException If the nanoseconds are out of range or the timestamp does not fit into nanoseconds.
+	 */
+	private static long toTimestamp(final long seconds, final int nanos) throws IOException {
+		if (nanos < 0 || nanos >= NANOS_PER_SECOND) {
+			throw new IOException("Invalid nanoseconds: " + nanos);
+		}
+		try {
+			return Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), nanos);
+		} catch (ArithmeticException ex) {
+			throw new IOException("Invalid timestamp: " + seconds + " s", ex);
+		}
+	}
+
+	/**
+	 * Reads and validates the single byte log level of the compact format.
+	 *
+	 * @param inputStream The input stream to read from.
+	 * @return The log level.
+	 * @throws IOException If an I/O error occurs or the log level is missing or unknown.
+	 */
+	private static LogLevel readCompactLogLevel(final NetworkMessageInputStream inputStream) throws IOException {
+		LogLevel logLevel;
+		try {
+			logLevel = LOG_LEVEL_SERIALIZER.readByte(inputStream);
+		} catch (IllegalArgumentException ex) {
+			throw new IOException("Invalid log level", ex);
+		}
 		if (logLevel == null) {
-			throw new IllegalArgumentException("Unknown log level");
+			throw new IOException("Missing log level");
+		}
+		return logLevel;
+	}
+
+	/**
+	 * Reads and validates a variable-length string length of the compact format.
+	 *
+	 * @param inputStream The input stream to read from.
+	 * @param maxLength   The maximum accepted length in bytes.
+	 * @return The length in bytes.
+	 * @throws IOException If an I/O error occurs or the length is negative or exceeds the maximum.
+	 */
+	private static int readCompactLength(final NetworkMessageInputStream inputStream, final int maxLength)
+			throws IOException {
+		int length = VarInt.readInt(inputStream);
+		if (length < 0 || length > maxLength) {
+			throw new IOException("Invalid string length: " + length);
 		}
+		return length;
+	}
 
-		// Read timestamp
-		long timestampMs = inputStream.readLong();
-		Instant timestamp = Instant.ofEpochMilli(timestampMs);
+	/**
+	 * Checks whether a serial version UID identifies a self-contained {@code LogMessage} frame of any version.
+	 *
+	 * @param serialVersionId The serial version UID read from the stream.
+	 * @return {@code true} for {@link #serialVersionUID}, {@link #SERIAL_VERSION_UID_V2} and
+	 *         {@link #SERIAL_VERSION_UID_V3}.
+	 */
+	public static boolean isLogMessage(final int serialVersionId) {
+		return serialVersionId == serialVersionUID || serialVersionId == SERIAL_VERSION_UID_V2
+				|| serialVersionId == SERIAL_VERSION_UID_V3;
+	}
 
-		// Read client name
-		int clientNameLength = inputStream.readInt();
-		byte[] clientNameBytes = new byte[clientNameLength];
-		inputStream.readFully(clientNameBytes);
-		String clientName = new String(clientNameBytes, StandardCharsets.UTF_8);
+	/**
+	 * Deserializes a {@code LogMessage} of version 1 from a {@link NetworkMessageInputStream}.
+	 *
+	 * @param inputStream The input stream to read the serialized data from.
+	 * @return A new {@code LogMessage} instance constructed from the deserialized data.
+	 * @throws IOException If an I/O error occurs during deserialization or the frame is malformed.
+	 */
+	public static LogMessage deserialize(final NetworkMessageInputStream inputStream) throws IOException {
+		return deserialize(inputStream, serialVersionUID);
+	}
+
+	/**
+	 * Deserializes a {@code LogMessage} from a {@link NetworkMessageInputStream}.
+	 * The deserialization process reads the log level, timestamp, sequence number (version 2 and 3), occurrences
+	 * (version 3 only), client name, and message content from the input stream.
+	 *
+	 * @param inputStream     The input stream to read the serialized data from.
+	 * @param serialVersionId The serial version UID of the frame, which has already been read.
+	 * @return A new {@code LogMessage} instance constructed from the deserialized data.
+	 * @throws IOException If an I/O error occurs during deserialization, the frame is malformed or the version is
+	 *                     unknown.
+	 */
+	public static LogMessage deserialize(final NetworkMessageInputStream inputStream, final int serialVersionId) throws IOException {
+
+		// Get the log level
+		LogLevel logLevel = readLogLevel(inputStream);
+
+		// Read timestamp and sequence number
+		long timestamp;
+		long sequenceNumber;
+		int occurrences = 1;
+		long lastTimestamp = 0;
+		if (serialVersionId == SERIAL_VERSION_UID_V2 || serialVersionId == SERIAL_VERSION_UID_V3) {
+			timestamp = toTimestamp(inputStream.readLong(), inputStream.readInt());
+			sequenceNumber = inputStream.readLong();
+			if (serialVersionId == SERIAL_VERSION_UID_V3) {
+				occurrences = inputStream.readInt();
+				long duration = inputStream.readLong();
+				if (occurrences < 1 || duration < 0 || timestamp > Long.MAX_VALUE - duration) {
+					throw new IOException("Invalid occurrences: " + occurrences + " within " + duration + " ns");
+				}
+				lastTimestamp = timestamp + duration;
+			}
+		} else if (serialVersionId == serialVersionUID) {
+			long millis = inputStream.readLong();
+			timestamp = toTimestamp(Math.floorDiv(millis, 1_000L), (int) Math.floorMod(millis, 1_000L) * 1_000_000);
+			sequenceNumber = NO_SEQUENCE_NUMBER;
+		} else {
+			throw new IOException("Unknown serial version ID: " + serialVersionId);
+		}
 
-		// Read message
-		int messageLength = inputStream.readInt();
-		byte[] messageBytes = new byte[messageLength];
+		// Read the client name through the cache of the connection and the message, which is decoded when it is
+		// needed
+		String clientName = inputStream.readClientName(readLength(inputStream, MAX_MESSAGE_LENGTH));
+		byte[] messageBytes = new byte[readLength(inputStream, MAX_MESSAGE_LENGTH)];
 		inputStream.readFully(messageBytes);
-		String message = new String(messageBytes, StandardCharsets.UTF_8);
 
+		LogMessage message = new LogMessage(timestamp, clientName, sequenceNumber, logLevel, messageBytes);
+		if (occurrences > 1) {
+			message.setOccurrences(occurrences, lastTimestamp);
+		}
+		return message;
+	}
+
+	/**
+	 * Reads and validates the log level.
+	 *
+	 * @param inputStream The input stream to read from.
+	 * @return The log level.
+	 * @throws IOException If an I/O error occurs or the log level is missing or unknown.
+	 */
+	private static LogLevel readLogLevel(final NetworkMessageInputStream inputStream) throws IOException {
+		LogLevel logLevel;
+		try {
+			logLevel = LOG_LEVEL_SERIALIZER.read(inputStream);
+		} catch (IllegalArgumentException ex) {
+			throw new IOException("Invalid log level", ex);
+		}
+		if (logLevel == null) {
+			throw new IOException("Missing log level");
+		}
+		return logLevel;
+	}
+
+	/**
+	 * Reads and validates the length prefix of a string.
+	 *
+	 * @param inputStream The input stream to read from.
+	 * @param maxLength   The maximum accepted length in bytes.
+	 * @return The length in bytes.
+	 * @throws IOException If an I/O error occurs or the length is negative or exceeds the maximum.
+	 */
+	private static int readLength(final NetworkMessageInputStream inputStream, final int maxLength)
+			throws IOException {
+		int length = inputStream.readInt();
+		if (length < 0 || length > maxLength) {
+			throw new IOException("Invalid string length: " + length);
+		}
+		return length;
+	}
+
+	/**
+	 * Skips the body of a serialized {@code LogMessage} of version 1 without decoding it.
+	 *
+	 * @param inputStream The input stream to skip the serialized data in.
+	 * @throws IOException If an I/O error occurs or the frame is malformed.
+	 */
+	public static void skip(final NetworkMessageInputStream inputStream) throws IOException {
+		skip(inputStream, serialVersionUID);
+	}
+
+	/**
+	 * Skips the body of a serialized {@code LogMessage} (everything after the serial version UID) without
+	 * decoding it.
+	 *
+	 * @param inputStream     The input stream to skip the serialized data in.
+	 * @param serialVersionId The serial version UID of the frame, which has already been read.
+	 * @throws IOException If an I/O error occurs, the frame is malformed or the version is unknown.
+	 */
+	public static void skip(final NetworkMessageInputStream inputStream, final int serialVersionId) throws IOException {
+
+		// Log level, timestamp, sequence number and occurrences
+		if (serialVersionId == SERIAL_VERSION_UID_V2) {
+			readLogLevel(inputStream);
+			inputStream.skipNBytes(Long.BYTES + Integer.BYTES + Long.BYTES);
+		} else if (serialVersionId == SERIAL_VERSION_UID_V3) {
+			readLogLevel(inputStream);
+			inputStream.skipNBytes(Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES);
+		} else if (serialVersionId == serialVersionUID) {
+			readLogLevel(inputStream);
+			inputStream.skipNBytes(Long.BYTES);
+		} else {
+			throw new IOException("Unknown serial version ID: " + serialVersionId);
+		}
 
-		return new LogMessage(timestamp, clientName, logLevel, message);
+		// Client name and message
+		inputStream.skipNBytes(readLength(inputStream, MAX_MESSAGE_LENGTH));
+		inputStream.skipNBytes(readLength(inputStream, MAX_MESSAGE_LENGTH));
 	}
 }
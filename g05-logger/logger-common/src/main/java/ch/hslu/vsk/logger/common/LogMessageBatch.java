@@ -0,0 +1,219 @@
+package ch.hslu.vsk.logger.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import ch.hslu.vsk.logger.common.network.VarInt;
+
+/**
+ * A batch of {@link LogMessage}s that is transmitted as a single frame.
+ * <p>
+ * The frame consists of the serial version UID, the number of messages (as a single length prefix) and the
+ * serialized messages. Sending a batch instead of single messages allows the sender to flush the stream
+ * only once for many messages and allows the receiver to process the whole batch at once.
+ * </p>
+ */
+public final class LogMessageBatch implements NetworkTransferable {
+
+	/**
+	 * The unique identifier for serialization.
+	 */
+	public static final short serialVersionUID = 2;
+
+	/**
+	 * The unique identifier for serialization of the compact format, see
+	 * {@link #serializeCompact(NetworkMessageOutputStream, int[])}.
+	 */
+	public static final short COMPACT_SERIAL_VERSION_UID = 6;
+
+	/**
+	 * The maximum number of messages a received batch may contain.
+	 */
+	public static final int MAX_BATCH_SIZE = 65_536;
+
+	/**
+	 * The messages contained in this batch.
+	 */
+	private final List<LogMessage> messages;
+
+	/**
+	 * Constructs a new {@code LogMessageBatch} containing the given messages.
+	 *
+	 * @param messages The messages of the batch; must not be null and must not contain more than
+	 *                 {@link #MAX_BATCH_SIZE} messages.
+	 */
+	public LogMessageBatch(final List<LogMessage> messages) {
+		if (messages == null) {
+			throw new IllegalArgumentException("Messages must not be null.");
+		}
+		if (messages.size() > MAX_BATCH_SIZE) {
+			throw new IllegalArgumentException("A batch must not contain more than " + MAX_BATCH_SIZE + " messages.");
+		}
+		this.messages = List.copyOf(messages);
+	}
+
+	/**
+	 * Retrieves the messages contained in this batch.
+	 *
+	 * @return An unmodifiable list of the messages in this batch.
+	 */
+	public List<LogMessage> getMessages() {
+		return this.messages;
+	}
+
+	/**
+	 * Retrieves the number of messages contained in this batch.
+	 *
+	 * @return The number of messages.
+	 */
+	public int size() {
+		return this.messages.size();
+	}
+
+	/**
+	 * Serializes this {@code LogMessageBatch} into a {@link NetworkMessageOutputStream}.
+	 * The serialization format includes the serial version UID, the number of messages and the serialized messages.
+	 *
+	 * @param outputStream The output stream to write the serialized data to.
+	 * @throws IOException If an I/O error occurs during serialization.
+	 */
+	@Override
+	public void serialize(final NetworkMessageOutputStream outputStream) throws IOException {
+
+		// Serial version
+		outputStream.writeShort(serialVersionUID);
+
+		// Length prefix
+		outputStream.writeInt(this.messages.size());
+
+		// Messages
+		for (LogMessage message : this.messages) {
+			message.serialize(outputStream);
+		}
+	}
+
+	/**
+	 * Serializes this {@code LogMessageBatch} into a {@link NetworkMessageOutputStream} using the compact format:
+	 * the serial version UID, the number of messages as a variable-length integer and the compact bodies of the
+	 * messages (see {@link LogMessage#serializeCompact(NetworkMessageOutputStream, int)}) without their own serial
+	 * version UIDs. The clients must have been announced on the stream with {@link ClientHandshake}s before.
+	 *
+	 * @param outputStream The output stream to write the serialized data to.
+	 * @param clientIds    The client ID of every message of the batch, in the same order.
+	 * @throws IOException If an I/O error occurs during serialization.
+	 */
+	public void serializeCompact(final NetworkMessageOutputStream outputStream, final int[] clientIds) throws IOException {
+		if (clientIds.length != this.messages.size()) {
+			throw new IllegalArgumentException("A client ID is required for every message.");
+		}
+
+		outputStream.writeShort(COMPACT_SERIAL_VERSION_UID);
+		VarInt.writeInt(outputStream, this.messages.size());
+		for (int i = 0; i < clientIds.length; i++) {
+			this.messages.get(i).serializeCompactBody(outputStream, clientIds[i]);
+		}
+	}
+
+	/**
+	 * Deserializes a {@code LogMessageBatch} of the compact format (everything after the serial version UID).
+	 *
+	 * @param inputStream The input stream to read the serialized data from.
+	 * @return A new {@code LogMessageBatch} instance constructed from the deserialized data.
+	 * @throws IOException If an I/O error occurs during deserialization or the frame is malformed.
+	 */
+	public static LogMessageBatch deserializeCompact(final NetworkMessageInputStream inputStream) throws IOException {
+		int count = readCompactCount(inputStream);
+		List<LogMessage> messages = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			messages.add(LogMessage.deserializeCompact(inputStream));
+		}
+		return new LogMessageBatch(messages);
+	}
+
+	/**
+	 * Skips the body of a compact {@code LogMessageBatch} frame without decoding the contained messages.
+	 *
+	 * @param inputStream The input stream to skip the serialized data in.
+	 * @return The number of messages contained in the skipped batch.
+	 * @throws IOException If an I/O error occurs or the frame is malformed.
+	 */
+	public static int skipCompact(final NetworkMessageInputStream inputStream) throws IOException {
+		int count = readCompactCount(inputStream);
+		for (int i = 0; i < count; i++) {
+			LogMessage.skipCompact(inputStream);
+		}
+		return count;
+	}
+
+	/**
+	 * Reads and validates the number of messages of a compact batch.
+	 *
+	 * @param inputStream The input stream to read from.
+	 * @return The number of messages.
+	 * @throws IOException If an I/O error occurs or the number is invalid.
+	 */
+	private static int readCompactCount(final NetworkMessageInputStream inputStream) throws IOException {
+		int count = VarInt.readInt(inputStream);
+		if (count < 0 || count > MAX_BATCH_SIZE) {
+			throw new IOException("Invalid batch size: " + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Deserializes a {@code LogMessageBatch} from a {@link NetworkMessageInputStream}.
+	 *
+	 * @param inputStream The input stream to read the serialized data from.
+	 * @return A new {@code LogMessageBatch} instance constructed from the deserialized data.
+	 * @throws IOException If an I/O error occurs during deserialization or the frame is malformed.
+	 */
+	public static LogMessageBatch deserialize(final NetworkMessageInputStream inputStream) throws IOException {
+
+		// Read the length prefix
+		int count = inputStream.readInt();
+		if (count < 0 || count > MAX_BATCH_SIZE) {
+			throw new IOException("Invalid batch size: " + count);
+		}
+
+		// Read the messages
+		List<LogMessage> messages = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			if (!(inputStream.nextObject() instanceof LogMessage message)) {
+				throw new IOException("A batch must only contain log messages.");
+			}
+			messages.add(message);
+		}
+
+		return new LogMessageBatch(messages);
+	}
+
+	/**
+	 * Skips the body of a serialized {@code LogMessageBatch} (everything after the serial version UID) without
+	 * decoding the contained messages.
+	 *
+	 * @param inputStream The input stream to skip the serialized data in.
+	 * @return The number of messages contained in the skipped batch.
+	 * @throws IOException If an I/O error occurs or the frame is malformed.
+	 */
+	public static int skip(final NetworkMessageInputStream inputStream) throws IOException {
+
+		int count = inputStream.readInt();
+		if (count < 0 || count > MAX_BATCH_SIZE) {
+			throw new IOException("Invalid batch size: " + count);
+		}
+
+		for (int i = 0; i < count; i++) {
+			int serialVersionId = inputStream.readShort();
+			if (!LogMessage.isLogMessage(serialVersionId)) {
+				throw new IOException("A batch must only contain log messages.");
+			}
+			LogMessage.skip(inputStream, serialVersionId);
+		}
+
+		return count;
+	}
+}
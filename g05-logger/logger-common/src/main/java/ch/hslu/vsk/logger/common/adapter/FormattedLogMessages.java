@@ -0,0 +1,264 @@
+package ch.hslu.vsk.logger.common.adapter;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+
+/**
+ * Log messages which have been formatted by a {@link StringPersistorLogAdapter} and not yet saved, so formatting
+ * and writing can be done by different threads: the messages are formatted with
+ * {@link StringPersistorLogAdapter#format(java.util.List, FormattedLogMessages)} and saved with
+ * {@link StringPersistorLogAdapter#saveFormatted(FormattedLogMessages)}.
+ * <p>
+ * Depending on the formatter and the persistor of the adapter, the messages are kept either as UTF-8 encoded
+ * lines in a byte buffer or as strings, together with the keys they are indexed with. The buffers grow with the
+ * largest batch and are reused after {@link #clear()}. This class is not thread-safe.
+ * </p>
+ */
+public final class FormattedLogMessages {
+
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    private static final int INITIAL_COUNT = 256;
+
+    // The time the messages are saved with, taken when the first message was formatted
+    private Instant savedAt;
+
+    // Whether the messages are kept in the buffer (with their end offsets) or as strings
+    private boolean encoded;
+    private ByteBuffer buffer;
+    private int[] lineEnds;
+    private PersistedString[] lines;
+
+    private String[][] keys = new String[INITIAL_COUNT][];
+    private int count;
+    private int skipped;
+
+    /**
+     * Returns the number of formatted messages.
+     *
+     * @return the number of messages which can be saved.
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Returns the number of messages which could not be formatted and are skipped.
+     *
+     * @return the number of skipped messages.
+     */
+    public int getSkipped() {
+        return this.skipped;
+    }
+
+    /**
+     * Appends the messages of another batch, which has been formatted by the same adapter, after the messages of
+     * this batch. The other batch is not changed.
+     *
+     * @param other the messages to append; must not be null.
+     * @throws IllegalArgumentException if the other batch is null or has been formatted differently.
+     */
+    public void addAll(final FormattedLogMessages other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Formatted messages must not be null");
+        }
+        if (other.count == 0) {
+            this.skipped += other.skipped;
+            return;
+        }
+        if (this.count == 0) {
+            this.start(other.encoded, other.savedAt);
+        } else if (this.encoded != other.encoded) {
+            throw new IllegalArgumentException("Formatted messages must be formatted by the same adapter");
+        }
+
+        int total = this.count + other.count;
+        String[][] allKeys = this.keys(total);
+        System.arraycopy(other.keys, 0, allKeys, this.count, other.count);
+        if (this.encoded) {
+            int[] ends = this.lineEnds(total);
+            int offset = this.buffer.position();
+            ByteBuffer source = other.buffer.duplicate().flip();
+            while (this.buffer.remaining() < source.remaining()) {
+                this.grow();
+            }
+            this.buffer.put(source);
+            for (int i = 0; i < other.count; i++) {
+                ends[this.count + i] = offset + other.lineEnds[i];
+            }
+        } else {
+            PersistedString[] allLines = this.lines(total);
+            System.arraycopy(other.lines, 0, allLines, this.count, other.count);
+        }
+        this.count = total;
+        this.skipped += other.skipped;
+    }
+
+    /**
+     * Removes all messages, so the buffers can be reused for the next batch.
+     */
+    public void clear() {
+        if (this.lines != null) {
+            Arrays.fill(this.lines, 0, this.count, null);
+        }
+        Arrays.fill(this.keys, 0, this.count, null);
+        if (this.buffer != null) {
+            this.buffer.clear();
+        }
+        this.savedAt = null;
+        this.count = 0;
+        this.skipped = 0;
+    }
+
+    /**
+     * Prepares an empty batch for messages.
+     *
+     * @param encodedLines whether the messages are kept as UTF-8 encoded lines.
+     * @param timestamp    the time the messages are saved with.
+     */
+    void start(final boolean encodedLines, final Instant timestamp) {
+        this.encoded = encodedLines;
+        this.savedAt = timestamp;
+        if (encodedLines && this.buffer == null) {
+            this.buffer = ByteBuffer.allocate(INITIAL_SIZE);
+            this.lineEnds = new int[INITIAL_COUNT];
+        } else if (!encodedLines && this.lines == null) {
+            this.lines = new PersistedString[INITIAL_COUNT];
+        }
+    }
+
+    /**
+     * Returns whether the messages are kept as UTF-8 encoded lines.
+     *
+     * @return {@code true} if the messages are encoded into the buffer.
+     */
+    boolean isEncoded() {
+        return this.encoded;
+    }
+
+    /**
+     * Returns the time the messages are saved with.
+     *
+     * @return the timestamp of the messages.
+     */
+    Instant getSavedAt() {
+        return this.savedAt;
+    }
+
+    /**
+     * Returns the buffer the encoded messages are written to, positioned after the last message.
+     *
+     * @return the buffer.
+     */
+    ByteBuffer buffer() {
+        return this.buffer;
+    }
+
+    /**
+     * Replaces the buffer with one of twice the size which contains the encoded messages.
+     *
+     * @return the new buffer, positioned after the encoded messages.
+     */
+    ByteBuffer grow() {
+        ByteBuffer larger = ByteBuffer.allocate(this.buffer.capacity() * 2);
+        this.buffer = larger.put(this.buffer.flip());
+        return this.buffer;
+    }
+
+    /**
+     * Adds an encoded message which has been written to the buffer.
+     *
+     * @param messageKeys the keys of the message, or {@code null}.
+     */
+    void addEncoded(final String[] messageKeys) {
+        this.lineEnds(this.count + 1)[this.count] = this.buffer.position();
+        this.keys(this.count + 1)[this.count++] = messageKeys;
+    }
+
+    /**
+     * Adds a message formatted as a string.
+     *
+     * @param line        the formatted message.
+     * @param messageKeys the keys of the message, or {@code null}.
+     */
+    void addLine(final String line, final String[] messageKeys) {
+        this.lines(this.count + 1)[this.count] = new PersistedString(this.savedAt, line);
+        this.keys(this.count + 1)[this.count++] = messageKeys;
+    }
+
+    /**
+     * Counts a message which could not be formatted.
+     */
+    void skip() {
+        this.skipped++;
+    }
+
+    /**
+     * Returns the end offsets of the encoded messages in the buffer.
+     *
+     * @return an array with at least {@link #size()} elements.
+     */
+    int[] lineEnds() {
+        return this.lineEnds;
+    }
+
+    /**
+     * Returns the messages formatted as strings.
+     *
+     * @return an array with at least {@link #size()} elements.
+     */
+    PersistedString[] lines() {
+        return this.lines;
+    }
+
+    /**
+     * Returns the keys of the messages.
+     *
+     * @return an array with at least {@link #size()} elements, which are {@code null} for messages without keys.
+     */
+    String[][] keys() {
+        return this.keys;
+    }
+
+    /**
+     * Returns the array for the end offsets of the given number of messages, enlarged if necessary.
+     *
+     * @param size the number of messages.
+     * @return an array with at least {@code size} elements.
+     */
+    private int[] lineEnds(final int size) {
+        if (this.lineEnds.length < size) {
+            this.lineEnds = Arrays.copyOf(this.lineEnds, Math.max(size, this.lineEnds.length * 2));
+        }
+        return this.lineEnds;
+    }
+
+    /**
+     * Returns the array for the strings of the given number of messages, enlarged if necessary.
+     *
+     * @param size the number of messages.
+     * @return an array with at least {@code size} elements.
+     */
+    private PersistedString[] lines(final int size) {
+        if (this.lines.length < size) {
+            this.lines = Arrays.copyOf(this.lines, Math.max(size, this.lines.length * 2));
+        }
+        return this.lines;
+    }
+
+    /**
+     * Returns the array for the keys of the given number of messages, enlarged if necessary.
+     *
+     * @param size the number of messages.
+     * @return an array with at least {@code size} elements.
+     */
+    private String[][] keys(final int size) {
+        if (this.keys.length < size) {
+            this.keys = Arrays.copyOf(this.keys, Math.max(size, this.keys.length * 2));
+        }
+        return this.keys;
+    }
+}
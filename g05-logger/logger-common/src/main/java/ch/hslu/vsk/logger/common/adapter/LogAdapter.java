@@ -1,7 +1,10 @@
 package ch.hslu.vsk.logger.common.adapter;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
+import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
 
 /**
@@ -18,6 +21,21 @@ public interface LogAdapter {
      */
     boolean saveLogMessage(LogMessage message);
 
+    /**
+     * Saves multiple {@link LogMessage} objects at once.
+     * The default implementation saves the messages one by one using {@link #saveLogMessage(LogMessage)}.
+     *
+     * @param messages the {@link LogMessage} objects to save; must not be null.
+     * @return {@code true} if all messages were successfully saved, {@code false} otherwise.
+     */
+    default boolean saveLogMessages(final List<LogMessage> messages) {
+        boolean savedAll = true;
+        for (LogMessage message : messages) {
+            savedAll &= this.saveLogMessage(message);
+        }
+        return savedAll;
+    }
+
     /**
      * Loads and parses log messages from a source into a list of {@link LogMessage} objects.
      *
@@ -25,5 +43,71 @@ public interface LogAdapter {
      * @return a list of {@link LogMessage} objects parsed from the source.
      */
     List<LogMessage> loadLogMessages(int count);
+
+    /**
+     * Loads the most recent log messages from the source.
+     * The default implementation loads all messages with {@link #loadLogMessages(int)} and keeps the last ones;
+     * implementations reading from a store which supports it read only the end of the store.
+     *
+     * @param count the maximum number of log messages to load; must be greater than 0.
+     * @return a list of the newest {@link LogMessage} objects, oldest first.
+     */
+    default List<LogMessage> loadLastLogMessages(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be greater than 0.");
+        }
+        List<LogMessage> messages = this.loadLogMessages(Integer.MAX_VALUE);
+        return messages.subList(Math.max(0, messages.size() - count), messages.size());
+    }
+
+    /**
+     * Returns all log messages of the source, oldest first, as a stream which has to be closed.
+     * The default implementation loads all messages with {@link #loadLogMessages(int)}; implementations reading
+     * from a store which supports it parse the messages lazily while the stream is consumed.
+     *
+     * @return a stream of the log messages parsed from the source.
+     */
+    default Stream<LogMessage> streamLogMessages() {
+        return this.loadLogMessages(Integer.MAX_VALUE).stream();
+    }
+
+    /**
+     * Loads the log messages which were stored between {@code from} and {@code to} (both inclusive), oldest first.
+     * The default implementation filters {@link #streamLogMessages()} by the time the server received the
+     * messages; implementations reading from a store with an index of the storage times read only the regions of
+     * the store which may contain such messages.
+     *
+     * @param from the start of the time range; must not be null.
+     * @param to   the end of the time range; must not be null and not before {@code from}.
+     * @return a list of the {@link LogMessage} objects stored in the time range.
+     */
+    default List<LogMessage> loadLogMessages(final Instant from, final Instant to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Time range must not be null and must not end before it starts.");
+        }
+        try (Stream<LogMessage> messages = this.streamLogMessages()) {
+            return messages.filter(message -> message.getReceivedAtServer() != null
+                            && !message.getReceivedAtServer().isBefore(from)
+                            && !message.getReceivedAtServer().isAfter(to))
+                    .toList();
+        }
+    }
+
+    /**
+     * Loads the log messages of a client and/or with a log level, oldest first.
+     * The default implementation filters {@link #streamLogMessages()}; implementations reading from a store with
+     * an index of the clients and levels read only the matching messages.
+     *
+     * @param clientName the name of the client, or {@code null} for messages of all clients.
+     * @param level      the log level, or {@code null} for messages of all levels.
+     * @return a list of the matching {@link LogMessage} objects.
+     */
+    default List<LogMessage> loadLogMessages(final String clientName, final LogLevel level) {
+        try (Stream<LogMessage> messages = this.streamLogMessages()) {
+            return messages.filter(message -> (clientName == null || clientName.equals(message.getClientName()))
+                            && (level == null || level == message.getLogLevel()))
+                    .toList();
+        }
+    }
 }
 
@@ -1,28 +1,75 @@
 package ch.hslu.vsk.logger.common.adapter;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
 import ch.hslu.vsk.logger.common.formatter.LogMessageFormatter;
+import ch.hslu.vsk.logger.common.formatter.Utf8LogMessageFormatter;
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
 import ch.hslu.vsk.stringpersistor.api.StringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.BulkStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.IndexedStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.StreamingStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.TailableStringPersistor;
 
 /**
  * A thread-safe adapter for persisting log messages using a {@link StringPersistor}.
+ * <p>
+ * If the persistor is a {@link BulkStringPersistor}, which is thread-safe by contract, writes are passed
+ * through without taking the adapter's lock and {@link #saveLogMessages(List)} is committed as one bulk write.
+ * If the formatter is additionally a {@link Utf8LogMessageFormatter}, the messages of such a write are formatted
+ * into a byte buffer of the calling thread and handed to the persistor as bytes, so no strings are created.
+ * Formatting and saving can also be done separately with {@link #format(List, FormattedLogMessages)} and
+ * {@link #saveFormatted(FormattedLogMessages)}, e.g. to format on several threads and save on one.
+ * </p>
+ * <p>
+ * If the persistor is a {@link StreamingStringPersistor}, messages are read from a lazily parsed stream over a
+ * snapshot of the store without taking the lock, so reading (e.g. exporting the log of a running server) does
+ * not block saving. If it is a {@link TailableStringPersistor}, the most recent messages are read from the end
+ * of the store. Messages of a time range are read with {@link StreamingStringPersistor#stream(Instant, Instant)},
+ * which uses the index of the timestamps of the persistor if it maintains one (e.g. a
+ * {@code StringPersistorFile} with an enabled time index).
+ * </p>
+ * <p>
+ * If the persistor is an {@link IndexedStringPersistor}, every message is saved with the name of its client and its
+ * level as keys, so {@link #loadLogMessages(String, LogLevel)} only reads the messages of the requested client
+ * and level if the persistor maintains an index of the keys.
+ * </p>
  */
 public final class StringPersistorLogAdapter implements LogAdapter {
 
 	private static final Logger LOGGER = LogManager.getLogger(StringPersistorLogAdapter.class);
 
+    private static final String CLIENT_KEY_PREFIX = "client=";
+    private static final String LEVEL_KEY_PREFIX = "level=";
+    private static final LogLevel[] LEVELS = LogLevel.values();
+
     private final StringPersistor stringPersistor;
     private final LogMessageFormatter formatter;
+    private final BulkStringPersistor bulkPersistor;
+    private final StreamingStringPersistor streamingPersistor;
+    private final TailableStringPersistor tailablePersistor;
+    private final IndexedStringPersistor indexedPersistor;
+    // The keys of the messages of a client, by the ordinal of their level
+    private final Map<String, String[][]> keysByClient = new ConcurrentHashMap<>();
+    private final Utf8LogMessageFormatter utf8Formatter;
+    private final ThreadLocal<FormattedLogMessages> formattedMessages =
+            ThreadLocal.withInitial(FormattedLogMessages::new);
     private final Lock lock = new ReentrantLock();
 
     /**
@@ -38,6 +85,11 @@ public final class StringPersistorLogAdapter implements LogAdapter {
 
         this.stringPersistor = stringPersistor;
         this.formatter = formatter;
+        this.bulkPersistor = stringPersistor instanceof BulkStringPersistor bulk ? bulk : null;
+        this.streamingPersistor = stringPersistor instanceof StreamingStringPersistor streaming ? streaming : null;
+        this.tailablePersistor = stringPersistor instanceof TailableStringPersistor tailable ? tailable : null;
+        this.indexedPersistor = stringPersistor instanceof IndexedStringPersistor indexed ? indexed : null;
+        this.utf8Formatter = formatter instanceof Utf8LogMessageFormatter utf8 ? utf8 : null;
     }
 
     /**
@@ -52,9 +104,37 @@ public final class StringPersistorLogAdapter implements LogAdapter {
             return false;
         }
 
+        String serializedMessage;
+        try {
+            serializedMessage = formatter.serialize(logMessage);
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Failed to format LogMessage", e);
+            return false;
+        }
+
+        if (this.indexedPersistor != null) {
+            try {
+                this.indexedPersistor.saveAll(List.of(new PersistedString(Instant.now(), serializedMessage)),
+                        Collections.singletonList(this.keysOf(logMessage)));
+                return true;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                LOGGER.error("Failed to save LogMessage", e);
+                return false;
+            }
+        }
+
+        if (this.bulkPersistor != null) {
+            try {
+                this.bulkPersistor.save(Instant.now(), serializedMessage);
+                return true;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                LOGGER.error("Failed to save LogMessage", e);
+                return false;
+            }
+        }
+
+        lock.lock();
         try {
-            String serializedMessage = formatter.serialize(logMessage);
-        	lock.lock();
             stringPersistor.save(Instant.now(), serializedMessage);
             return true;
         } catch (IllegalArgumentException | IllegalStateException e) {
@@ -65,6 +145,161 @@ public final class StringPersistorLogAdapter implements LogAdapter {
         }
     }
 
+    /**
+     * Saves multiple {@link LogMessage} objects. The messages are formatted outside of any lock and, if the
+     * persistor supports it, committed with a single bulk write. {@code null} entries and entries which cannot be
+     * formatted are skipped.
+     *
+     * @param messages the {@link LogMessage} objects to save; must not be null.
+     * @return {@code true} if all messages were successfully saved, {@code false} otherwise.
+     */
+    @Override
+    public boolean saveLogMessages(final List<LogMessage> messages) {
+        if (messages == null) {
+            return false;
+        }
+
+        FormattedLogMessages formatted = this.formattedMessages.get();
+        try {
+            this.format(messages, formatted);
+            return this.saveFormatted(formatted);
+        } finally {
+            formatted.clear();
+        }
+    }
+
+    /**
+     * Formats log messages and appends them to a batch, which can be saved later, possibly by another thread,
+     * with {@link #saveFormatted(FormattedLogMessages)}. If the persistor is a {@link BulkStringPersistor} and the
+     * formatter a {@link Utf8LogMessageFormatter}, the messages are encoded into the buffer of the batch, so no
+     * strings are created. The messages are saved with the time the first message of the batch was formatted.
+     * {@code null} entries and entries which cannot be formatted are skipped. The formatter is not locked, so
+     * several threads can format into different batches at the same time.
+     *
+     * @param messages  the {@link LogMessage} objects to format; must not be null.
+     * @param formatted the batch to append the formatted messages to; must not be null and must only contain
+     *                  messages formatted by this adapter.
+     * @throws IllegalArgumentException if an argument is null.
+     */
+    public void format(final List<LogMessage> messages, final FormattedLogMessages formatted) {
+        if (messages == null || formatted == null) {
+            throw new IllegalArgumentException("Messages and formatted messages must not be null.");
+        }
+        if (formatted.size() == 0) {
+            formatted.start(this.bulkPersistor != null && this.utf8Formatter != null, Instant.now());
+        }
+
+        for (LogMessage message : messages) {
+            if (message == null) {
+                formatted.skip();
+                continue;
+            }
+            try {
+                if (formatted.isEncoded()) {
+                    this.encode(message, formatted);
+                } else {
+                    formatted.addLine(this.formatter.serialize(message), this.keysOf(message));
+                }
+            } catch (IllegalArgumentException e) {
+                formatted.skip();
+                LOGGER.error("Failed to format LogMessage", e);
+            }
+        }
+    }
+
+    /**
+     * Saves a batch of formatted log messages and commits it with a single bulk write if the persistor supports
+     * it. The batch is not cleared.
+     *
+     * @param formatted the messages formatted with {@link #format(List, FormattedLogMessages)}; must not be null.
+     * @return {@code true} if all messages of the batch were formatted and saved, {@code false} otherwise.
+     */
+    public boolean saveFormatted(final FormattedLogMessages formatted) {
+        if (formatted == null) {
+            return false;
+        }
+        boolean skippedMessages = formatted.getSkipped() > 0;
+        if (formatted.size() == 0) {
+            return !skippedMessages;
+        }
+
+        int count = formatted.size();
+        if (formatted.isEncoded()) {
+            try {
+                ByteBuffer lines = formatted.buffer().duplicate().flip();
+                if (this.indexedPersistor != null) {
+                    this.indexedPersistor.saveAllUtf8(formatted.getSavedAt(), lines, formatted.lineEnds(), count,
+                            formatted.keys());
+                } else {
+                    this.bulkPersistor.saveAllUtf8(formatted.getSavedAt(), lines, formatted.lineEnds(), count);
+                }
+                return !skippedMessages;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                LOGGER.error("Failed to save LogMessages", e);
+                return false;
+            }
+        }
+
+        List<PersistedString> lines = Arrays.asList(formatted.lines()).subList(0, count);
+        if (this.indexedPersistor != null) {
+            try {
+                this.indexedPersistor.saveAll(lines, Arrays.asList(formatted.keys()).subList(0, count));
+                return !skippedMessages;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                LOGGER.error("Failed to save LogMessages", e);
+                return false;
+            }
+        }
+
+        if (this.bulkPersistor != null) {
+            try {
+                this.bulkPersistor.saveAll(lines);
+                return !skippedMessages;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                LOGGER.error("Failed to save LogMessages", e);
+                return false;
+            }
+        }
+
+        lock.lock();
+        try {
+            for (PersistedString line : lines) {
+                stringPersistor.save(line.getTimestamp(), line.getPayload());
+            }
+            return !skippedMessages;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            LOGGER.error("Failed to save LogMessages", e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encodes a message into the buffer of a batch, enlarging the buffer if the message does not fit.
+     *
+     * @param message   the {@link LogMessage} to encode.
+     * @param formatted the batch.
+     * @throws IllegalArgumentException if the message cannot be formatted.
+     */
+    private void encode(final LogMessage message, final FormattedLogMessages formatted) {
+        ByteBuffer buffer = formatted.buffer();
+        int start = buffer.position();
+        while (true) {
+            try {
+                this.utf8Formatter.formatTo(message, buffer);
+                break;
+            } catch (BufferOverflowException e) {
+                buffer.position(start);
+                buffer = formatted.grow();
+            } catch (IllegalArgumentException e) {
+                buffer.position(start);
+                throw e;
+            }
+        }
+        formatted.addEncoded(this.keysOf(message));
+    }
+
     /**
      * Loads the specified number of log messages, deserializing them into {@link LogMessage} objects.
      * Any lines that fail to parse are skipped.
@@ -78,17 +313,19 @@ public final class StringPersistorLogAdapter implements LogAdapter {
             throw new IllegalArgumentException("Count must be greater than 0.");
         }
 
+        if (this.streamingPersistor != null) {
+            try (Stream<LogMessage> messages = this.streamLogMessages()) {
+                return messages.limit(count).toList();
+            } catch (Throwable ex) {
+                LOGGER.error("Error while reading log messages", ex);
+                return Collections.emptyList();
+            }
+        }
+
         lock.lock();
         try {
             return stringPersistor.get(count).parallelStream()
-                    .map(line -> {
-                        try {
-                            return formatter.parse(line.getPayload());
-                        } catch (IllegalArgumentException e) {
-                            // Skip lines that fail to parse
-                            return null;
-                        }
-                    })
+                    .map(this::parse)
                     .filter(Objects::nonNull) // Remove null entries
                     .toList();
 		} catch (Throwable ex) {
@@ -98,4 +335,165 @@ public final class StringPersistorLogAdapter implements LogAdapter {
             lock.unlock();
         }
     }
+
+    /**
+     * Loads the most recent log messages. If the persistor is a {@link TailableStringPersistor}, only the newest
+     * lines are read, without taking the lock of the adapter, so the cost depends on {@code count} and not on the
+     * size of the store. Any lines that fail to parse are skipped.
+     *
+     * @param count the maximum number of log messages to load; must be greater than 0.
+     * @return a list of the newest successfully parsed {@link LogMessage} objects, oldest first.
+     */
+    @Override
+    public List<LogMessage> loadLastLogMessages(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be greater than 0.");
+        }
+
+        if (this.tailablePersistor != null) {
+            try {
+                return this.tailablePersistor.getLast(count).stream()
+                        .map(this::parse)
+                        .filter(Objects::nonNull)
+                        .toList();
+            } catch (Throwable ex) {
+                LOGGER.error("Error while reading log messages", ex);
+                return Collections.emptyList();
+            }
+        }
+        return LogAdapter.super.loadLastLogMessages(count);
+    }
+
+    /**
+     * Loads the log messages which were saved between {@code from} and {@code to} (both inclusive), using the
+     * timestamps the adapter stored with the messages. If the persistor is a {@link StreamingStringPersistor}, the
+     * lines are selected by the persistor without taking the lock of the adapter; otherwise all messages are
+     * loaded and filtered by the time the server received them. Any lines that fail to parse are skipped.
+     *
+     * @param from the start of the time range; must not be null.
+     * @param to   the end of the time range; must not be null and not before {@code from}.
+     * @return a list of the successfully parsed {@link LogMessage} objects saved in the time range, oldest first.
+     */
+    @Override
+    public List<LogMessage> loadLogMessages(final Instant from, final Instant to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Time range must not be null and must not end before it starts.");
+        }
+        if (this.streamingPersistor == null) {
+            return LogAdapter.super.loadLogMessages(from, to);
+        }
+
+        try (Stream<PersistedString> lines = this.streamingPersistor.stream(from, to)) {
+            return lines.map(this::parse)
+                    .filter(Objects::nonNull)
+                    .toList();
+        } catch (Throwable ex) {
+            LOGGER.error("Error while reading log messages", ex);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Loads the log messages of a client and/or with a log level. If the persistor maintains an index of the
+     * keys of the messages, only the messages saved with the keys of the client and the level are read, without
+     * taking the lock of the adapter; otherwise all messages are read and filtered. Any lines that fail to parse
+     * are skipped.
+     *
+     * @param clientName the name of the client, or {@code null} for messages of all clients.
+     * @param level      the log level, or {@code null} for messages of all levels.
+     * @return a list of the matching successfully parsed {@link LogMessage} objects, oldest first.
+     */
+    @Override
+    public List<LogMessage> loadLogMessages(final String clientName, final LogLevel level) {
+        if (this.indexedPersistor == null || !this.indexedPersistor.isKeyIndexed()
+                || clientName == null && level == null) {
+            return LogAdapter.super.loadLogMessages(clientName, level);
+        }
+
+        String[] keys;
+        if (clientName == null) {
+            keys = new String[] {LEVEL_KEY_PREFIX + level.name()};
+        } else if (level == null) {
+            keys = new String[] {CLIENT_KEY_PREFIX + clientName};
+        } else {
+            keys = this.keysOf(clientName, level);
+        }
+        try (Stream<PersistedString> lines = this.indexedPersistor.streamMatching(keys)) {
+            // Lines saved without the index are candidates as well
+            return lines.map(this::parse)
+                    .filter(message -> message != null
+                            && (clientName == null || clientName.equals(message.getClientName()))
+                            && (level == null || level == message.getLogLevel()))
+                    .toList();
+        } catch (Throwable ex) {
+            LOGGER.error("Error while reading log messages", ex);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Returns the keys a message is indexed with: the name of its client and its level.
+     *
+     * @param message the message.
+     * @return the keys of the message, or {@code null} if it has no client or level; the array is shared and must
+     *         not be modified.
+     */
+    private String[] keysOf(final LogMessage message) {
+        if (message.getClientName() == null || message.getLogLevel() == null) {
+            return null;
+        }
+        return this.keysOf(message.getClientName(), message.getLogLevel());
+    }
+
+    /**
+     * Returns the keys of the messages of a client with a level. The arrays are cached, so indexing a message
+     * does not allocate.
+     *
+     * @param clientName the name of the client.
+     * @param level      the level.
+     * @return the keys; the array is shared and must not be modified.
+     */
+    private String[] keysOf(final String clientName, final LogLevel level) {
+        String[][] keys = this.keysByClient.computeIfAbsent(clientName, name -> {
+            String[][] levels = new String[LEVELS.length][];
+            for (LogLevel each : LEVELS) {
+                levels[each.ordinal()] = new String[] {CLIENT_KEY_PREFIX + name, LEVEL_KEY_PREFIX + each.name()};
+            }
+            return levels;
+        });
+        return keys[level.ordinal()];
+    }
+
+    /**
+     * Returns all log messages of the persistor as a stream. If the persistor is a
+     * {@link StreamingStringPersistor}, the lines are read and parsed while the stream is consumed, without taking
+     * the lock of the adapter; otherwise all messages are loaded first. Any lines that fail to parse are skipped.
+     *
+     * @return a stream of the successfully parsed {@link LogMessage} objects; has to be closed.
+     * @throws IllegalStateException if the persistor could not be read.
+     */
+    @Override
+    public Stream<LogMessage> streamLogMessages() {
+        if (this.streamingPersistor == null) {
+            return this.loadLogMessages(Integer.MAX_VALUE).stream();
+        }
+        return this.streamingPersistor.stream()
+                .map(this::parse)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Parses a persisted line.
+     *
+     * @param line the persisted line.
+     * @return the parsed {@link LogMessage}, or {@code null} if the line could not be parsed.
+     */
+    private LogMessage parse(final PersistedString line) {
+        try {
+            return formatter.parse(line.getPayload());
+        } catch (IllegalArgumentException e) {
+            // Skip lines that fail to parse
+            return null;
+        }
+    }
 }
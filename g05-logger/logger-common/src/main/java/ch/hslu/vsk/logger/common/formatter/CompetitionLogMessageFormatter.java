@@ -1,11 +1,15 @@
 package ch.hslu.vsk.logger.common.formatter;
 
 import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import ch.hslu.vsk.logger.common.util.InstantSerializer;
 
+import java.time.DateTimeException;
 import java.time.Instant;
 
 /**
@@ -14,7 +18,9 @@ import java.time.Instant;
  */
 public class CompetitionLogMessageFormatter implements LogMessageFormatter {
 
-	
+	// The suffix of a message which occurred more than once, e.g. " (repeated 5 times, last at 2024-12-05 10:15:31.1234)"
+	private static final Pattern REPEATED = Pattern.compile(" \\(repeated (\\d+) times, last at ([^)]+)\\)$");
+
 	/**
 	 * Serializes a {@link LogMessage} into a human-readable string.
 	 * The format used is: 
@@ -22,6 +28,7 @@ public class CompetitionLogMessageFormatter implements LogMessageFormatter {
 	 * - Log level (upper case)
 	 * - Client name
 	 * - Log message content
+	 * - " (repeated N times, last at T)" if the message occurred N &gt; 1 times, the last time at T
 	 * 
 	 * @param message The {@link LogMessage} to serialize
 	 * @return A formatted string representation of the log message
@@ -44,6 +51,13 @@ public class CompetitionLogMessageFormatter implements LogMessageFormatter {
 		   	.append(message.getClientName())
 		   	.append(' ')
 		   	.append(message.getMessage());
+		if (message.getOccurrences() > 1) {
+			builder.append(" (repeated ")
+				.append(message.getOccurrences())
+				.append(" times, last at ")
+				.append(InstantSerializer.stringifyInstant(message.getLastTimestamp()))
+				.append(')');
+		}
 
 		return builder.toString();
 	}
@@ -56,6 +70,7 @@ public class CompetitionLogMessageFormatter implements LogMessageFormatter {
 	 * - Log level (upper case)
 	 * - Client name
 	 * - Log message content
+	 * - optionally " (repeated N times, last at T)", which is read as the occurrences of the message
 	 * 
 	 * @param message The string to parse into a {@link LogMessage}
 	 * @return The parsed {@link LogMessage} object
@@ -83,6 +98,18 @@ public class CompetitionLogMessageFormatter implements LogMessageFormatter {
 			String clientName = parts[3]; // Extract client name
 			String messageContent = parts[4]; // Extract message content
 
+			// Read the occurrences of a collapsed message
+			Matcher repeated = REPEATED.matcher(messageContent);
+			if (repeated.find()) {
+				Instant lastTimestamp = parseLastTimestamp(repeated.group(2));
+				if (lastTimestamp != null) {
+					LogMessage logMessage = new LogMessage(timestamp, clientName, logLevel,
+							messageContent.substring(0, repeated.start()));
+					logMessage.setOccurrences(Integer.parseInt(repeated.group(1)), EpochClock.toEpochNanos(lastTimestamp));
+					return logMessage;
+				}
+			}
+
 			// Create and return the LogMessage
 			return new LogMessage(timestamp, clientName, logLevel, messageContent);
 		} catch (Exception e) {
@@ -90,4 +117,18 @@ public class CompetitionLogMessageFormatter implements LogMessageFormatter {
 		}
 	}
 
+	/**
+	 * Parses the timestamp of the last occurrence of a collapsed message.
+	 *
+	 * @param lastTimestamp The timestamp of the suffix.
+	 * @return The timestamp, or {@code null} if the suffix is part of the message text and not a timestamp.
+	 */
+	private static Instant parseLastTimestamp(final String lastTimestamp) {
+		try {
+			return InstantSerializer.parseInstant(lastTimestamp);
+		} catch (DateTimeException e) {
+			return null;
+		}
+	}
+
 }
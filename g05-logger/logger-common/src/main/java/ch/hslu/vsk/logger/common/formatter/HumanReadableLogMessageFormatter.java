@@ -5,12 +5,14 @@ import java.time.Instant;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import ch.hslu.vsk.logger.common.util.InstantSerializer;
 
 /**
  * A formatter for log messages that converts them to and from a human-readable format.
  * This formatter represents log message fields in a structured text format with clear labels
- * and values, making it easy to read and debug.
+ * and values, making it easy to read and debug. A message which occurred more than once additionally gets the
+ * number of its occurrences and the timestamp of its last occurrence before its text.
  */
 public final class HumanReadableLogMessageFormatter implements LogMessageFormatter {
 
@@ -18,6 +20,8 @@ public final class HumanReadableLogMessageFormatter implements LogMessageFormatt
     private static final String TIMESTAMP_LABEL = "Timestamp: [";
     private static final String CLIENT_NAME_LABEL = "Client-Name: [";
     private static final String LOG_LEVEL_LABEL = "Log-Level: [";
+    private static final String OCCURRENCES_LABEL = "Occurrences: [";
+    private static final String LAST_TIMESTAMP_LABEL = "Last-Timestamp: [";
     private static final String MESSAGE_LABEL = "Message: [";
 	/**
 	 * Creates a new formatter that can convert {@link LogMessage}s to a human readable format and convert them back
@@ -41,10 +45,16 @@ public final class HumanReadableLogMessageFormatter implements LogMessageFormatt
             throw new IllegalArgumentException("LogMessage cannot be null");
         }
 
+        String occurrences = "";
+        if (message.getOccurrences() > 1) {
+            occurrences = OCCURRENCES_LABEL + message.getOccurrences() + "]\n" +
+                    LAST_TIMESTAMP_LABEL + InstantSerializer.stringifyInstant(message.getLastTimestamp()) + "]\n";
+        }
         return RECEIVED_AT_LABEL + InstantSerializer.stringifyInstant(message.getReceivedAtServer()) + "]\n" +
                 TIMESTAMP_LABEL + InstantSerializer.stringifyInstant(message.getTimestamp()) + "]\n" +
                 CLIENT_NAME_LABEL + message.getClientName() + "]\n" +
                 LOG_LEVEL_LABEL + message.getLogLevel() + "]\n" +
+                occurrences +
                 MESSAGE_LABEL + message.getMessage() + "]";
     }
 
@@ -56,8 +66,11 @@ public final class HumanReadableLogMessageFormatter implements LogMessageFormatt
      * Timestamp: [timestamp]
      * Client-Name: [client-name]
      * Log-Level: [log-level]
+     * Occurrences: [occurrences]
+     * Last-Timestamp: [timestamp]
      * Message: [message]
      * </pre>
+     * The occurrences and the last timestamp are optional.
      * 
      * @param message The human-readable log message string to parse.
      * @return A {@link LogMessage} object created from the parsed string.
@@ -82,11 +95,26 @@ public final class HumanReadableLogMessageFormatter implements LogMessageFormatt
             message.indexOf(TIMESTAMP_LABEL) + 12, message.indexOf("]\nClient-Name:"));
         String clientNameString = message.substring(
             message.indexOf(CLIENT_NAME_LABEL) + 14, message.indexOf("]\nLog-Level:"));
-        String logLevelString = message.substring(
-            message.indexOf(LOG_LEVEL_LABEL) + 12, message.indexOf("]\nMessage:"));
+        int logLevelStart = message.indexOf(LOG_LEVEL_LABEL) + 12;
+        String logLevelString = message.substring(logLevelStart, message.indexOf("]\n", logLevelStart));
+        int messageStart = message.indexOf("]\n" + MESSAGE_LABEL) + 2;
         String messageString = message.substring(
             message.indexOf(MESSAGE_LABEL) + 10, message.length() - 1);
 
+        // The occurrences are only read from the fields before the message
+        String occurrencesString = null;
+        String lastTimestampString = null;
+        int occurrencesStart = message.indexOf("]\n" + OCCURRENCES_LABEL);
+        if (occurrencesStart >= 0 && occurrencesStart < messageStart) {
+            occurrencesStart += 2 + OCCURRENCES_LABEL.length();
+            occurrencesString = message.substring(occurrencesStart, message.indexOf("]\n", occurrencesStart));
+            int lastTimestampStart = message.indexOf(LAST_TIMESTAMP_LABEL, occurrencesStart);
+            if (lastTimestampStart >= 0 && lastTimestampStart < messageStart) {
+                lastTimestampStart += LAST_TIMESTAMP_LABEL.length();
+                lastTimestampString = message.substring(lastTimestampStart, message.indexOf("]\n", lastTimestampStart));
+            }
+        }
+
         try {
             // Parse field values into appropriate data types
             Instant receivedAtServerTimestamp = InstantSerializer.parseInstant(receivedAtServerTimestampString);
@@ -94,7 +122,14 @@ public final class HumanReadableLogMessageFormatter implements LogMessageFormatt
             LogLevel logLevel = LogLevel.valueOf(logLevelString);
 
             // Create and return a new LogMessage object
-            return new LogMessage(receivedAtServerTimestamp, timeStamp, clientNameString, logLevel, messageString);
+            LogMessage logMessage = new LogMessage(receivedAtServerTimestamp, timeStamp, clientNameString, logLevel,
+                    messageString);
+            if (occurrencesString != null) {
+                Instant lastTimestamp = lastTimestampString != null
+                        ? InstantSerializer.parseInstant(lastTimestampString) : timeStamp;
+                logMessage.setOccurrences(Integer.parseInt(occurrencesString), EpochClock.toEpochNanos(lastTimestamp));
+            }
+            return logMessage;
         } catch (DateTimeException ex) {
             throw new IllegalArgumentException("Invalid timestamp format", ex);
         }
@@ -2,6 +2,7 @@ package ch.hslu.vsk.logger.common.formatter;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import ch.hslu.vsk.logger.common.util.InstantSerializer;
 
 import java.time.Instant;
@@ -11,9 +12,28 @@ import java.time.format.DateTimeParseException;
 /**
  * This class formats {@link LogMessage} objects into JSON and parses JSON strings back into {@link LogMessage} objects.
  * The JSON format provides a structured representation of log messages that can be easily read by systems and humans.
+ * <p>
+ * Parsing is done in a single pass over the line by a hand-written tokenizer, which only creates the strings of the
+ * resulting fields. Lines written before backslashes were escaped are still read: an unknown escape sequence is
+ * kept as it is.
+ * </p>
  */
 public class JSONLogMessageFormatter implements LogMessageFormatter {
 
+    private static final String RECEIVED_AT = "receivedAt";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String CLIENT_NAME = "clientName";
+    private static final String LOG_LEVEL = "logLevel";
+    private static final String MESSAGE = "message";
+    private static final String OCCURRENCES = "occurrences";
+    private static final String LAST_TIMESTAMP = "lastTimestamp";
+    private static final String[] FIELDS = {RECEIVED_AT, TIMESTAMP, CLIENT_NAME, LOG_LEVEL, MESSAGE, OCCURRENCES,
+            LAST_TIMESTAMP};
+
+    private static final LogLevel[] LOG_LEVELS = LogLevel.values();
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
 	/**
 	 * Creates a new formatter that can convert {@link LogMessage}s to JSON and convert them back
 	 */
@@ -30,7 +50,10 @@ public class JSONLogMessageFormatter implements LogMessageFormatter {
      *     <li>clientName: The name of the client that sent the log message.</li>
      *     <li>logLevel: The log level (e.g., INFO, ERROR).</li>
      *     <li>message: The log message content.</li>
+     *     <li>occurrences and lastTimestamp: The number of times the message occurred and the timestamp of its last
+     *     occurrence, only for a message which occurred more than once.</li>
      * </ul>
+     * Quotes, backslashes and control characters in the client name and the message are escaped.
      * 
      * @param message The {@link LogMessage} object to serialize.
      * @return A JSON-formatted string representation of the log message.
@@ -39,18 +62,28 @@ public class JSONLogMessageFormatter implements LogMessageFormatter {
     public String serialize(final LogMessage message) {
         String receivedAtFormatted = InstantSerializer.stringifyInstant(message.getReceivedAtServer());
         String timestampFormatted = InstantSerializer.stringifyInstant(message.getTimestamp());
-        String logLevel = message.getLogLevel().toString();
-        String messageString = message.getMessage().replace("\"", "\\\"");
-        return "{\"receivedAt\": \"" + receivedAtFormatted + "\", " +
-               "\"timestamp\": \"" + timestampFormatted + "\", " +
-               "\"clientName\": \"" + message.getClientName() + "\", " +
-               "\"logLevel\": \"" + logLevel + "\", " +
-               "\"message\": \"" + messageString + "\"}";
+        String messageString = message.getMessage();
+
+        StringBuilder json = new StringBuilder(96 + (messageString != null ? messageString.length() : 4));
+        json.append("{\"receivedAt\": \"").append(receivedAtFormatted).append("\", ");
+        json.append("\"timestamp\": \"").append(timestampFormatted).append("\", ");
+        json.append("\"clientName\": \"");
+        appendEscaped(json, message.getClientName());
+        json.append("\", \"logLevel\": \"").append(message.getLogLevel()).append("\", ");
+        json.append("\"message\": \"");
+        appendEscaped(json, messageString);
+        json.append('"');
+        if (message.getOccurrences() > 1) {
+            json.append(", \"occurrences\": ").append(message.getOccurrences());
+            json.append(", \"lastTimestamp\": \"")
+                    .append(InstantSerializer.stringifyInstant(message.getLastTimestamp())).append('"');
+        }
+        return json.append('}').toString();
     }
 
     /**
      * Parses a JSON-formatted string into a {@link LogMessage} object.
-     * The input string must contain the following attributes:
+     * The input string must be a JSON object containing the following attributes as strings:
      * <ul>
      *     <li>receivedAt: The timestamp when the message was received at the server.</li>
      *     <li>timestamp: The original timestamp of the log message.</li>
@@ -58,6 +91,8 @@ public class JSONLogMessageFormatter implements LogMessageFormatter {
      *     <li>logLevel: The log level (e.g., INFO, ERROR).</li>
      *     <li>message: The log message content.</li>
      * </ul>
+     * The optional attributes occurrences (a number) and lastTimestamp are read as well. Other attributes with
+     * string, number or literal values are ignored.
      * 
      * If any of these attributes are missing, an {@link IllegalArgumentException} is thrown.
      * 
@@ -67,53 +102,307 @@ public class JSONLogMessageFormatter implements LogMessageFormatter {
      */
     @Override
     public LogMessage parse(final String totalMessage) {
-        if (!checkIfContainsAttribute(totalMessage, "receivedAt")) {
+        if (totalMessage == null) {
+            throw new IllegalArgumentException("The JSON string must not be null.");
+        }
+
+        String receivedAtString = null;
+        String timestampString = null;
+        String clientName = null;
+        LogLevel logLevel = null;
+        String messageString = null;
+        String occurrencesString = null;
+        String lastTimestampString = null;
+
+        int position = expect(totalMessage, skipWhitespace(totalMessage, 0), '{');
+        position = skipWhitespace(totalMessage, position);
+        boolean first = true;
+        while (position >= totalMessage.length() || totalMessage.charAt(position) != '}') {
+            if (!first) {
+                position = skipWhitespace(totalMessage, expect(totalMessage, position, ','));
+            }
+            first = false;
+
+            // Key
+            int keyEnd = stringEnd(totalMessage, expect(totalMessage, position, '"'));
+            String key = fieldName(totalMessage, position + 1, keyEnd - 1);
+            position = skipWhitespace(totalMessage, keyEnd);
+            position = skipWhitespace(totalMessage, expect(totalMessage, position, ':'));
+
+            // Value
+            if (key == null) {
+                position = skipWhitespace(totalMessage, skipValue(totalMessage, position));
+                continue;
+            }
+            if (key.equals(OCCURRENCES)) {
+                int valueEnd = skipValue(totalMessage, position);
+                occurrencesString = totalMessage.substring(position, valueEnd);
+                position = skipWhitespace(totalMessage, valueEnd);
+                continue;
+            }
+            int valueEnd = stringEnd(totalMessage, expect(totalMessage, position, '"'));
+            int valueStart = position + 1;
+            switch (key) {
+                case RECEIVED_AT -> receivedAtString = decodeString(totalMessage, valueStart, valueEnd - 1);
+                case TIMESTAMP -> timestampString = decodeString(totalMessage, valueStart, valueEnd - 1);
+                case CLIENT_NAME -> clientName = decodeString(totalMessage, valueStart, valueEnd - 1);
+                case LOG_LEVEL -> logLevel = parseLogLevel(totalMessage, valueStart, valueEnd - 1);
+                case LAST_TIMESTAMP -> lastTimestampString = decodeString(totalMessage, valueStart, valueEnd - 1);
+                default -> messageString = decodeString(totalMessage, valueStart, valueEnd - 1);
+            }
+            position = skipWhitespace(totalMessage, valueEnd);
+        }
+        if (skipWhitespace(totalMessage, position + 1) != totalMessage.length()) {
+            throw new IllegalArgumentException("Unexpected content after the JSON object at position " + (position + 1));
+        }
+
+        if (receivedAtString == null) {
             throw new IllegalArgumentException("The JSON string does not contain a receivedAt attribute.");
         }
-        if (!checkIfContainsAttribute(totalMessage, "timestamp")) {
+        if (timestampString == null) {
             throw new IllegalArgumentException("The JSON string does not contain a timestamp attribute.");
         }
-        if (!checkIfContainsAttribute(totalMessage, "clientName")) {
+        if (clientName == null) {
             throw new IllegalArgumentException("The JSON string does not contain a clientName attribute.");
         }
-        if (!checkIfContainsAttribute(totalMessage, "logLevel")) {
+        if (logLevel == null) {
             throw new IllegalArgumentException("The JSON string does not contain a logLevel attribute.");
         }
-        if (!checkIfContainsAttribute(totalMessage, "message")) {
+        if (messageString == null) {
             throw new IllegalArgumentException("The JSON string does not contain a message attribute.");
         }
 
-        String receivedAtString = totalMessage.replaceAll(".*\"receivedAt\":\\s*\"([^\"]+)\".*", "$1");
-        String timestampString = totalMessage.replaceAll(".*\"timestamp\":\\s*\"([^\"]+)\".*", "$1");
-        String clientNameString = totalMessage.replaceAll(".*\"clientName\":\\s*\"([^\"]+)\".*", "$1");
-        String logLevelString = totalMessage.replaceAll(".*\"logLevel\":\\s*\"([^\"]+)\".*", "$1");
-        String messageString = totalMessage.replaceAll(".*\"message\":\\s*\"((?:\\\\\"|[^\"])+)\".*", "$1");
-
-        messageString = messageString.replace("\\\"", "\"");
-
         try {
             Instant receivedAt = InstantSerializer.parseInstant(receivedAtString);
             Instant timestamp = InstantSerializer.parseInstant(timestampString);
-            LogLevel logLevel = LogLevel.valueOf(logLevelString);
 
-            return new LogMessage(receivedAt, timestamp, clientNameString, logLevel, messageString);
+            LogMessage logMessage = new LogMessage(receivedAt, timestamp, clientName, logLevel, messageString);
+            if (occurrencesString != null) {
+                Instant lastTimestamp = lastTimestampString != null
+                        ? InstantSerializer.parseInstant(lastTimestampString) : timestamp;
+                logMessage.setOccurrences(Integer.parseInt(occurrencesString), EpochClock.toEpochNanos(lastTimestamp));
+            }
+            return logMessage;
         } catch (DateTimeParseException ex) {
-            throw new IllegalArgumentException("Failed to parse the receivedAt or timestamp fields", ex);
+            throw new IllegalArgumentException("Failed to parse the receivedAt, timestamp or lastTimestamp fields", ex);
         }
     }
 
     /**
-     * Checks if a JSON-formatted string contains a specific key.
-     * 
-     * @param json The JSON string to check.
-     * @param key The key to check for.
-     * @return True if the key is present in the JSON string, false otherwise.
+     * Appends a string as the content of a JSON string, escaping quotes, backslashes and control characters.
+     *
+     * @param json The builder to append to.
+     * @param value The string to append; {@code null} is appended as "null".
      */
-    private boolean checkIfContainsAttribute(String json, String key) {
-        try {
-            return json.contains(key);
-        } catch (StringIndexOutOfBoundsException e) {
-            return false;
+    private static void appendEscaped(final StringBuilder json, final String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '"' && c != '\\' && c >= 0x20) {
+                continue;
+            }
+            json.append(value, start, i).append('\\');
+            switch (c) {
+                case '"', '\\' -> json.append(c);
+                case '\n' -> json.append('n');
+                case '\r' -> json.append('r');
+                case '\t' -> json.append('t');
+                case '\b' -> json.append('b');
+                case '\f' -> json.append('f');
+                default -> json.append("u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        json.append(value, start, value.length());
+    }
+
+    /**
+     * Skips whitespace.
+     *
+     * @param json The JSON string.
+     * @param position The position to start at.
+     * @return The position of the next character which is not whitespace.
+     */
+    private static int skipWhitespace(final String json, final int position) {
+        int i = position;
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Checks that the character at the position is the expected one.
+     *
+     * @param json The JSON string.
+     * @param position The position of the character.
+     * @param expected The expected character.
+     * @return The position after the character.
+     * @throws IllegalArgumentException If the character is missing or a different one.
+     */
+    private static int expect(final String json, final int position, final char expected) {
+        if (position >= json.length() || json.charAt(position) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at position " + position
+                    + " of the JSON string.");
+        }
+        return position + 1;
+    }
+
+    /**
+     * Finds the end of a string.
+     *
+     * @param json The JSON string.
+     * @param position The position after the opening quote.
+     * @return The position after the closing quote.
+     * @throws IllegalArgumentException If the string is not terminated.
+     */
+    private static int stringEnd(final String json, final int position) {
+        for (int i = position; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string at position " + (position - 1) + " of the JSON string.");
+    }
+
+    /**
+     * Skips the value of an attribute which is not read.
+     *
+     * @param json The JSON string.
+     * @param position The position of the value.
+     * @return The position after the value.
+     * @throws IllegalArgumentException If the value is an object, an array or missing.
+     */
+    private static int skipValue(final String json, final int position) {
+        if (position < json.length() && json.charAt(position) == '"') {
+            return stringEnd(json, position + 1);
+        }
+        int i = position;
+        while (i < json.length()) {
+            char c = json.charAt(i);
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Nested values are not supported at position " + i
+                        + " of the JSON string.");
+            }
+            if (c == ',' || c == '}' || Character.isWhitespace(c)) {
+                break;
+            }
+            i++;
+        }
+        if (i == position) {
+            throw new IllegalArgumentException("Missing value at position " + position + " of the JSON string.");
+        }
+        return i;
+    }
+
+    /**
+     * Identifies an attribute of a log message by its name, without creating a string for unescaped names.
+     *
+     * @param json The JSON string.
+     * @param start The start of the name (after the opening quote).
+     * @param end The end of the name (the closing quote).
+     * @return The constant of the attribute, or {@code null} for other attributes.
+     */
+    private static String fieldName(final String json, final int start, final int end) {
+        String name = json.indexOf('\\', start, end) < 0 ? null : decodeString(json, start, end);
+        for (String field : FIELDS) {
+            if (name != null ? name.equals(field)
+                    : end - start == field.length() && json.regionMatches(start, field, 0, field.length())) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses a log level by comparing the name with the log levels in place.
+     *
+     * @param json The JSON string.
+     * @param start The start of the value (after the opening quote).
+     * @param end The end of the value (the closing quote).
+     * @return The log level.
+     * @throws IllegalArgumentException If the value is not the name of a log level.
+     */
+    private static LogLevel parseLogLevel(final String json, final int start, final int end) {
+        for (LogLevel level : LOG_LEVELS) {
+            String name = level.name();
+            if (end - start == name.length() && json.regionMatches(start, name, 0, name.length())) {
+                return level;
+            }
+        }
+        return LogLevel.valueOf(decodeString(json, start, end));
+    }
+
+    /**
+     * Decodes the content of a string. A string without escape sequences is returned as a substring.
+     *
+     * @param json The JSON string.
+     * @param start The start of the content (after the opening quote).
+     * @param end The end of the content (the closing quote).
+     * @return The decoded string.
+     * @throws IllegalArgumentException If a unicode escape sequence is invalid.
+     */
+    private static String decodeString(final String json, final int start, final int end) {
+        int escape = json.indexOf('\\', start, end);
+        if (escape < 0) {
+            return json.substring(start, end);
+        }
+
+        StringBuilder decoded = new StringBuilder(end - start);
+        int i = start;
+        while (escape >= 0) {
+            decoded.append(json, i, escape);
+            char c = json.charAt(escape + 1);
+            i = escape + 2;
+            switch (c) {
+                case '"', '\\', '/' -> decoded.append(c);
+                case 'n' -> decoded.append('\n');
+                case 'r' -> decoded.append('\r');
+                case 't' -> decoded.append('\t');
+                case 'b' -> decoded.append('\b');
+                case 'f' -> decoded.append('\f');
+                case 'u' -> {
+                    decoded.append(parseUnicodeEscape(json, i, end));
+                    i += 4;
+                }
+                // Written before backslashes were escaped
+                default -> decoded.append('\\').append(c);
+            }
+            escape = json.indexOf('\\', i, end);
+        }
+        return decoded.append(json, i, end).toString();
+    }
+
+    /**
+     * Parses the four hex digits of a unicode escape sequence.
+     *
+     * @param json The JSON string.
+     * @param position The position of the first digit.
+     * @param end The end of the string content.
+     * @return The escaped character.
+     * @throws IllegalArgumentException If there are less than four hex digits.
+     */
+    private static char parseUnicodeEscape(final String json, final int position, final int end) {
+        if (position + 4 > end) {
+            throw new IllegalArgumentException("Invalid unicode escape at position " + (position - 2)
+                    + " of the JSON string.");
+        }
+        int value = 0;
+        for (int i = position; i < position + 4; i++) {
+            int digit = Character.digit(json.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid unicode escape at position " + (position - 2)
+                        + " of the JSON string.");
+            }
+            value = value * 16 + digit;
         }
+        return (char) value;
     }
 }
@@ -2,8 +2,12 @@ package ch.hslu.vsk.logger.common.formatter;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import ch.hslu.vsk.logger.common.util.InstantSerializer;
+import ch.hslu.vsk.logger.common.util.TimestampWriter;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 
@@ -11,10 +15,34 @@ import java.time.format.DateTimeParseException;
  * This class formats log messages as quickly as possible.
  * The actual format is not important, as long as the formatting process is fast.
  * Three pipe symbols ("|||") are used as delimiters to ensure speed while still being resistant to errors.
+ * A message which occurred more than once additionally gets an Occurrences and a Last-Timestamp field before
+ * its message.
+ * <p>
+ * {@link #formatTo(LogMessage, ByteBuffer)} writes the same format without creating any strings: the field names
+ * and log levels are encoded once, the timestamps are written by {@link TimestampWriter} and the content of a
+ * received message is copied as received.
+ * </p>
  */
-public class SpeedFormatter implements LogMessageFormatter {
+public class SpeedFormatter implements Utf8LogMessageFormatter {
 
     private static final String DELIMITER = " ||| ";
+
+    private static final byte[] RECEIVED_AT = ascii("ReceivedAt: ");
+    private static final byte[] TIMESTAMP = ascii(DELIMITER + "Timestamp: ");
+    private static final byte[] CLIENT_NAME = ascii(DELIMITER + "Client-Name: ");
+    private static final byte[] LOG_LEVEL = ascii(DELIMITER + "Log-Level: ");
+    private static final byte[] OCCURRENCES = ascii(DELIMITER + "Occurrences: ");
+    private static final byte[] LAST_TIMESTAMP = ascii(DELIMITER + "Last-Timestamp: ");
+    private static final byte[] MESSAGE = ascii(DELIMITER + "Message: ");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[][] LOG_LEVELS = new byte[LogLevel.values().length][];
+
+    static {
+        for (LogLevel level : LogLevel.values()) {
+            LOG_LEVELS[level.ordinal()] = ascii(level.toString());
+        }
+    }
+
 	/**
 	 * Creates a new formatter that can serialize and deserialize {@link LogMessage}s fast.
 	 */
@@ -25,7 +53,8 @@ public class SpeedFormatter implements LogMessageFormatter {
     /**
      * Serializes a {@code LogMessage} into a string representation.
      * The format includes the following fields: ReceivedAt, Timestamp, Client-Name, Log-Level, and Message,
-     * with each field separated by " ||| ".
+     * with each field separated by " ||| ". The fields Occurrences and Last-Timestamp are added before the message
+     * if the message occurred more than once.
      *
      * @param message The {@code LogMessage} to be serialized.
      * @return A string representation of the log message.
@@ -34,13 +63,52 @@ public class SpeedFormatter implements LogMessageFormatter {
     public String serialize(final LogMessage message) {
         String receivedAtFormatted = InstantSerializer.stringifyInstant(message.getReceivedAtServer());
         String timestampFormatted = InstantSerializer.stringifyInstant(message.getTimestamp());
-        return "ReceivedAt: " + receivedAtFormatted + DELIMITER +"Timestamp: " + timestampFormatted + DELIMITER + "Client-Name: " + message.getClientName() + DELIMITER + "Log-Level: " + message.getLogLevel() + DELIMITER + "Message: " + message.getMessage();
+        String occurrences = "";
+        if (message.getOccurrences() > 1) {
+            occurrences = DELIMITER + "Occurrences: " + message.getOccurrences() + DELIMITER + "Last-Timestamp: "
+                    + InstantSerializer.stringifyInstant(message.getLastTimestamp());
+        }
+        return "ReceivedAt: " + receivedAtFormatted + DELIMITER +"Timestamp: " + timestampFormatted + DELIMITER + "Client-Name: " + message.getClientName() + DELIMITER + "Log-Level: " + message.getLogLevel() + occurrences + DELIMITER + "Message: " + message.getMessage();
+    }
+
+    /**
+     * Writes the representation of {@link #serialize(LogMessage)} as UTF-8 bytes at the position of the buffer.
+     *
+     * @param message The {@code LogMessage} to be formatted.
+     * @param target  The buffer to write to.
+     * @throws java.nio.BufferOverflowException If the buffer does not have enough space left.
+     * @throws IllegalArgumentException         If the message is null.
+     */
+    @Override
+    public void formatTo(final LogMessage message, final ByteBuffer target) {
+        if (message == null) {
+            throw new IllegalArgumentException("LogMessage must not be null");
+        }
+
+        target.put(RECEIVED_AT);
+        TimestampWriter.write(message.getReceivedAtServerNanos(), target);
+        target.put(TIMESTAMP);
+        TimestampWriter.write(message.getTimestampNanos(), target);
+        target.put(CLIENT_NAME);
+        putUtf8(message.getClientName(), target);
+        target.put(LOG_LEVEL);
+        target.put(message.getLogLevel() != null ? LOG_LEVELS[message.getLogLevel().ordinal()] : NULL);
+        if (message.getOccurrences() > 1) {
+            target.put(OCCURRENCES);
+            putDecimal(message.getOccurrences(), target);
+            target.put(LAST_TIMESTAMP);
+            TimestampWriter.write(message.getLastTimestampNanos(), target);
+        }
+        target.put(MESSAGE);
+        byte[] content = message.getMessageUtf8();
+        target.put(content != null ? content : NULL);
     }
 
     /**
      * Parses a log message string and converts it into a {@code LogMessage} object.
      * The format of the message is expected to be:
-     * "ReceivedAt: value ||| Timestamp: value ||| Client-Name: value ||| Log-Level: value ||| Message: value".
+     * "ReceivedAt: value ||| Timestamp: value ||| Client-Name: value ||| Log-Level: value ||| Message: value",
+     * optionally with "Occurrences: value ||| Last-Timestamp: value" before the message.
      * The method throws an {@code IllegalArgumentException} if the format is invalid or if there are parsing errors.
      *
      * @param message The string representation of the log message to be parsed.
@@ -65,7 +133,18 @@ public class SpeedFormatter implements LogMessageFormatter {
             Instant receivedAt = InstantSerializer.parseInstant(receivedAtServer);
             Instant timestamp = InstantSerializer.parseInstant(timestampStr);
 
-            return new LogMessage(receivedAt, timestamp, clientName, LogLevel.valueOf(logLevel), logMessage);
+            LogMessage parsed = new LogMessage(receivedAt, timestamp, clientName, LogLevel.valueOf(logLevel), logMessage);
+            // The occurrences are only read from the fields before the message
+            int occurrencesIndex = message.indexOf("Occurrences: ", logLevelIndex);
+            if (occurrencesIndex >= 0 && occurrencesIndex < messageIndex) {
+                occurrencesIndex += "Occurrences: ".length();
+                int lastTimestampIndex = getIndexOfField("Last-Timestamp", message);
+                String occurrences = message.substring(occurrencesIndex, message.indexOf(DELIMITER, occurrencesIndex));
+                String lastTimestamp = message.substring(lastTimestampIndex, message.indexOf(DELIMITER, lastTimestampIndex));
+                parsed.setOccurrences(Integer.parseInt(occurrences),
+                        EpochClock.toEpochNanos(InstantSerializer.parseInstant(lastTimestamp)));
+            }
+            return parsed;
         } catch (StringIndexOutOfBoundsException ex) {
             throw new IllegalArgumentException("Invalid format", ex);
         } catch (DateTimeParseException ex) {
@@ -89,4 +168,51 @@ public class SpeedFormatter implements LogMessageFormatter {
         }
         return index + field.length() + 2;
     }
+
+    /**
+     * Writes a string as UTF-8 bytes. ASCII strings, such as most client names, are written without allocating.
+     *
+     * @param value  The string to write; {@code null} is written as "null".
+     * @param target The buffer to write to.
+     */
+    private static void putUtf8(final String value, final ByteBuffer target) {
+        if (value == null) {
+            target.put(NULL);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                target.put(value.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            target.put((byte) c);
+        }
+    }
+
+    /**
+     * Writes a positive number as ASCII digits.
+     *
+     * @param value  The number.
+     * @param target The buffer to write to.
+     */
+    private static void putDecimal(final int value, final ByteBuffer target) {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            target.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Encodes a constant part of the format.
+     *
+     * @param value The constant.
+     * @return The ASCII bytes of the constant.
+     */
+    private static byte[] ascii(final String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
 }
@@ -0,0 +1,25 @@
+package ch.hslu.vsk.logger.common.formatter;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import ch.hslu.vsk.logger.common.LogMessage;
+
+/**
+ * A {@link LogMessageFormatter} that can also write the serialized representation of a log message directly as
+ * UTF-8 bytes, without creating an intermediate {@link String}. It is used on the write path of the server when
+ * the persistor accepts encoded lines.
+ */
+public interface Utf8LogMessageFormatter extends LogMessageFormatter {
+
+    /**
+     * Writes the UTF-8 encoding of {@link #serialize(LogMessage)} at the position of the buffer.
+     *
+     * @param message the {@link LogMessage} to format; must not be null.
+     * @param target  the buffer to write to.
+     * @throws BufferOverflowException  if the buffer does not have enough space left; the position of the buffer
+     *                                  is undefined in this case, so the caller has to reset it.
+     * @throws IllegalArgumentException if the provided {@link LogMessage} is invalid or null.
+     */
+    void formatTo(LogMessage message, ByteBuffer target);
+}
@@ -1,17 +1,59 @@
 package ch.hslu.vsk.logger.common.formatter;
 
-import java.time.Instant;
-import java.time.format.DateTimeParseException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
 import ch.hslu.vsk.logger.common.util.InstantSerializer;
+import ch.hslu.vsk.logger.common.util.TimestampWriter;
 
 /**
  * This class formats {@code LogMessage} objects into XML format and parses XML-formatted strings back into
  * {@code LogMessage} objects.
+ * <p>
+ * The text of the client name and the message is escaped: {@code &}, {@code <} and {@code >} as entities, tabs
+ * and line breaks as character references (so every record stays on one line) and other control characters,
+ * which XML 1.0 cannot represent, as U+FFFD. Records are parsed with an {@link XMLLogMessageReader}, which can
+ * also read a whole log file record by record. Every thread parses with its own reader, whose buffers are reused
+ * for all lines it parses.
+ * </p>
+ * <p>
+ * A message which occurred more than once additionally gets an {@code occurrences} and a {@code lastTimestamp}
+ * element after its message; the timestamp is the first occurrence.
+ * </p>
  */
-public class XMLLogMessageFormatter implements LogMessageFormatter {
+public class XMLLogMessageFormatter implements Utf8LogMessageFormatter {
+
+    private static final byte[] RECEIVED_AT = ascii("<logMessage><receivedAt>");
+    private static final byte[] TIMESTAMP = ascii("</receivedAt><timestamp>");
+    private static final byte[] CLIENT_NAME = ascii("</timestamp><clientName>");
+    private static final byte[] LOG_LEVEL = ascii("</clientName><logLevel>");
+    private static final byte[] MESSAGE = ascii("</logLevel><message>");
+    private static final byte[] END = ascii("</message></logMessage>");
+    private static final byte[] OCCURRENCES = ascii("</message><occurrences>");
+    private static final byte[] LAST_TIMESTAMP = ascii("</occurrences><lastTimestamp>");
+    private static final byte[] COLLAPSED_END = ascii("</lastTimestamp></logMessage>");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[][] LOG_LEVELS = new byte[LogLevel.values().length][];
+
+    /**
+     * The replacement of control characters which cannot be represented in XML 1.0, as UTF-8.
+     */
+    private static final byte[] REPLACEMENT_CHARACTER = "\uFFFD".getBytes(StandardCharsets.UTF_8);
+
+    private final ThreadLocal<XMLLogMessageReader> readers =
+            ThreadLocal.withInitial(() -> new XMLLogMessageReader(Reader.nullReader()));
+
+    static {
+        for (LogLevel level : LogLevel.values()) {
+            LOG_LEVELS[level.ordinal()] = ascii(level.toString());
+        }
+    }
 
 	/**
 	 * Creates a new formatter that can convert {@link LogMessage}s to XML and convert them back
@@ -23,7 +65,8 @@ public class XMLLogMessageFormatter implements LogMessageFormatter {
     /**
      * Converts a {@code LogMessage} object into a string in XML format.
      * The fields of the log message, including receivedAt, timestamp, clientName, logLevel, and message,
-     * are formatted into an XML structure. Special characters in the message are escaped to ensure valid XML.
+     * are formatted into an XML structure. Special characters in the client name and the message are escaped to
+     * ensure valid XML.
      * 
      * @param message The {@code LogMessage} object to format into XML.
      * @return The formatted log message as a string in XML format.
@@ -32,84 +75,221 @@ public class XMLLogMessageFormatter implements LogMessageFormatter {
     public String serialize(final LogMessage message) {
         String receivedAtFormatted = InstantSerializer.stringifyInstant(message.getReceivedAtServer());
         String timestampFormatted = InstantSerializer.stringifyInstant(message.getTimestamp());
-
-        // Escape special characters in the message to ensure valid XML
-        String messageString = message.getMessage().replace("<", "&lt;").replace(">", "&gt;");
+        String messageString = message.getMessage();
 
         // Generate XML string representation of the log message
-        return "<logMessage>" +
-               "<receivedAt>" + receivedAtFormatted + "</receivedAt>" +
-               "<timestamp>" + timestampFormatted + "</timestamp>" +
-               "<clientName>" + message.getClientName() + "</clientName>" +
-               "<logLevel>" + message.getLogLevel() + "</logLevel>" +
-               "<message>" + messageString + "</message>" +
-               "</logMessage>";
+        StringBuilder xml = new StringBuilder(192 + (messageString != null ? messageString.length() : 4));
+        xml.append("<logMessage><receivedAt>").append(receivedAtFormatted).append("</receivedAt>");
+        xml.append("<timestamp>").append(timestampFormatted).append("</timestamp>");
+        xml.append("<clientName>");
+        appendEscaped(xml, message.getClientName());
+        xml.append("</clientName><logLevel>").append(message.getLogLevel()).append("</logLevel>");
+        xml.append("<message>");
+        appendEscaped(xml, messageString);
+        xml.append("</message>");
+        if (message.getOccurrences() > 1) {
+            xml.append("<occurrences>").append(message.getOccurrences()).append("</occurrences>");
+            xml.append("<lastTimestamp>").append(InstantSerializer.stringifyInstant(message.getLastTimestamp()))
+                    .append("</lastTimestamp>");
+        }
+        return xml.append("</logMessage>").toString();
+    }
+
+    /**
+     * Writes the representation of {@link #serialize(LogMessage)} as UTF-8 bytes at the position of the buffer.
+     * The content of a received message is escaped byte by byte, without decoding it.
+     *
+     * @param message The {@code LogMessage} to be formatted.
+     * @param target  The buffer to write to.
+     * @throws java.nio.BufferOverflowException If the buffer does not have enough space left.
+     * @throws IllegalArgumentException         If the message is null.
+     */
+    @Override
+    public void formatTo(final LogMessage message, final ByteBuffer target) {
+        if (message == null) {
+            throw new IllegalArgumentException("LogMessage must not be null");
+        }
+
+        target.put(RECEIVED_AT);
+        TimestampWriter.write(message.getReceivedAtServerNanos(), target);
+        target.put(TIMESTAMP);
+        TimestampWriter.write(message.getTimestampNanos(), target);
+        target.put(CLIENT_NAME);
+        putEscaped(message.getClientName(), target);
+        target.put(LOG_LEVEL);
+        target.put(message.getLogLevel() != null ? LOG_LEVELS[message.getLogLevel().ordinal()] : NULL);
+        target.put(MESSAGE);
+        byte[] content = message.getMessageUtf8();
+        putEscaped(content != null ? content : NULL, target);
+        if (message.getOccurrences() > 1) {
+            target.put(OCCURRENCES);
+            putDecimal(message.getOccurrences(), target);
+            target.put(LAST_TIMESTAMP);
+            TimestampWriter.write(message.getLastTimestampNanos(), target);
+            target.put(COLLAPSED_END);
+        } else {
+            target.put(END);
+        }
     }
 
     /**
      * Converts an XML formatted string into a {@code LogMessage} object.
-     * This method checks that the XML string contains all required attributes: receivedAt, timestamp, clientName,
-     * logLevel, and message. If any attribute is missing or the format is invalid, an exception is thrown.
+     * The string must contain exactly one {@code logMessage} element with all required elements: receivedAt,
+     * timestamp, clientName, logLevel, and message. If any element is missing or the format is invalid, an
+     * exception is thrown.
      * 
      * @param message The XML formatted log message to parse.
      * @return The parsed {@code LogMessage} object.
-     * @throws IllegalArgumentException If the XML string does not contain the required attributes or if the format is invalid.
-     * @throws DateTimeParseException If there is an error parsing the timestamp or receivedAt date values.
+     * @throws IllegalArgumentException If the XML string does not contain the required elements or if the format is invalid.
      */
     @Override
     public LogMessage parse(final String message) {
-        // Check that the message contains all necessary attributes
-        if (!checkIfContainsAttribute(message, "receivedAt")) {
-            throw new IllegalArgumentException("The xml string does not contain a receivedAt attribute.");
+        if (message == null) {
+            throw new IllegalArgumentException("The xml string must not be null.");
+        }
+
+        XMLLogMessageReader reader = this.readers.get();
+        reader.reset(new StringReader(message));
+        try {
+            LogMessage parsed = reader.next();
+            if (parsed == null) {
+                throw new IllegalArgumentException("The xml string does not contain a logMessage element.");
+            }
+            reader.expectEnd();
+            return parsed;
+        } catch (IOException ex) {
+            // A StringReader does not fail
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Appends a string as XML text.
+     *
+     * @param xml The builder to append to.
+     * @param value The string to append; {@code null} is appended as "null".
+     */
+    private static void appendEscaped(final StringBuilder xml, final String value) {
+        if (value == null) {
+            xml.append("null");
+            return;
         }
-        if (!checkIfContainsAttribute(message, "timestamp")) {
-            throw new IllegalArgumentException("The xml string does not contain a timestamp attribute.");
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '&' && c != '<' && c != '>') {
+                continue;
+            }
+            xml.append(value, start, i).append(escape(c));
+            start = i + 1;
         }
-        if (!checkIfContainsAttribute(message, "clientName")) {
-            throw new IllegalArgumentException("The xml string does not contain a clientName attribute.");
+        xml.append(value, start, value.length());
+    }
+
+    /**
+     * Writes a string as XML text. Client names are usually ASCII, so they are written char by char without
+     * encoding them first.
+     *
+     * @param value The string to write; {@code null} is written as "null".
+     * @param target The buffer to write to.
+     */
+    private static void putEscaped(final String value, final ByteBuffer target) {
+        if (value == null) {
+            target.put(NULL);
+            return;
         }
-        if (!checkIfContainsAttribute(message, "logLevel")) {
-            throw new IllegalArgumentException("The xml string does not contain a logLevel attribute.");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                putEscaped(value.substring(i).getBytes(StandardCharsets.UTF_8), target);
+                return;
+            }
+            if (c >= 0x20 && c != '&' && c != '<' && c != '>') {
+                target.put((byte) c);
+            } else {
+                putEscape(escape(c), target);
+            }
         }
-        if (!checkIfContainsAttribute(message, "message")) {
-            throw new IllegalArgumentException("The xml string does not contain a message attribute.");
+    }
+
+    /**
+     * Writes UTF-8 encoded text as XML text. Bytes of multi-byte characters are never below 0x80, so the text can
+     * be escaped byte by byte.
+     *
+     * @param value The UTF-8 encoded text.
+     * @param target The buffer to write to.
+     */
+    private static void putEscaped(final byte[] value, final ByteBuffer target) {
+        int start = 0;
+        for (int i = 0; i < value.length; i++) {
+            byte b = value[i];
+            if ((b >= 0x20 || b < 0) && b != '&' && b != '<' && b != '>') {
+                continue;
+            }
+            target.put(value, start, i - start);
+            putEscape(escape((char) b), target);
+            start = i + 1;
         }
+        target.put(value, start, value.length - start);
+    }
 
-        // Extract the values from the XML message
-        try {
-            String timestampServerString = message.substring(message.indexOf("<receivedAt>") + 12, message.indexOf("</receivedAt>"));
-            String timestampString = message.substring(message.indexOf("<timestamp>") + 11, message.indexOf("</timestamp>"));
-            String clientName = message.substring(message.indexOf("<clientName>") + 12, message.indexOf("</clientName>"));
-            String logLevelString = message.substring(message.indexOf("<logLevel>") + 10, message.indexOf("</logLevel>"));
-            String messageString = message.substring(message.indexOf("<message>") + 9, message.indexOf("</message>"));
-
-            // Parse the timestamps
-            Instant timestampServer = InstantSerializer.parseInstant(timestampServerString);
-            Instant timestamp = InstantSerializer.parseInstant(timestampString);
-
-            // Unescape the special characters in the message
-            messageString = messageString.replace("&lt;", "<").replace("&gt;", ">");
-
-            // Convert the log level string to the LogLevel enum
-            LogLevel logLevel = LogLevel.valueOf(logLevelString);
-
-            // Return the LogMessage object
-            return new LogMessage(timestampServer, timestamp, clientName, logLevel, messageString);
-        } catch (StringIndexOutOfBoundsException ex) {
-            throw new IllegalArgumentException("Invalid format", ex);
-        } catch (DateTimeParseException ex) {
-            throw new IllegalArgumentException("Invalid date format", ex);
+    /**
+     * Writes a positive number as ASCII digits.
+     *
+     * @param value The number.
+     * @param target The buffer to write to.
+     */
+    private static void putDecimal(final int value, final ByteBuffer target) {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            target.put((byte) ('0' + value / divisor % 10));
         }
     }
 
     /**
-     * Checks if the XML string contains the specified attribute.
-     * 
-     * @param xml The XML string to check.
-     * @param attribute The name of the attribute to look for.
-     * @return {@code true} if the attribute is present in the XML string, {@code false} otherwise.
+     * Writes the result of {@link #escape(char)}.
+     *
+     * @param escaped The escaped character.
+     * @param target The buffer to write to.
+     */
+    private static void putEscape(final String escaped, final ByteBuffer target) {
+        if (escaped.length() == 1) {
+            target.put(REPLACEMENT_CHARACTER);
+            return;
+        }
+        for (int i = 0; i < escaped.length(); i++) {
+            target.put((byte) escaped.charAt(i));
+        }
+    }
+
+    /**
+     * Returns the escaped form of a character which cannot be written as it is.
+     *
+     * @param c A special character or a control character.
+     * @return The entity or character reference, or U+FFFD for characters which XML 1.0 cannot represent.
+     */
+    private static String escape(final char c) {
+        return switch (c) {
+            case '&' -> "&amp;";
+            case '<' -> "&lt;";
+            case '>' -> "&gt;";
+            case '\t' -> "&#9;";
+            case '\n' -> "&#10;";
+            case '\r' -> "&#13;";
+            default -> "\uFFFD";
+        };
+    }
+
+    /**
+     * Encodes a constant part of the format.
+     *
+     * @param value The constant.
+     * @return The ASCII bytes of the constant.
      */
-    private boolean checkIfContainsAttribute(String xml, String attribute) {
-        return xml.contains("<" + attribute + ">") && xml.contains("</" + attribute + ">");
+    private static byte[] ascii(final String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
     }
 }
@@ -0,0 +1,570 @@
+package ch.hslu.vsk.logger.common.formatter;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
+import ch.hslu.vsk.logger.common.util.InstantSerializer;
+
+/**
+ * Reads the {@code <logMessage>} records written by {@link XMLLogMessageFormatter} from a character stream, one
+ * record at a time.
+ * <p>
+ * The reader is a hand-written scanner over a fixed buffer, so a log file of any size can be read without
+ * materializing its lines: everything between two records (e.g. the timestamps and line breaks of a persistor
+ * file) is skipped. The elements of a record may be in any order and separated by whitespace; other elements
+ * are ignored; the {@code occurrences} and {@code lastTimestamp} of a collapsed message are optional. The
+ * predefined entities and character references are decoded. A {@code &} which does not start a
+ * known entity is kept as it is, so lines written before ampersands were escaped can still be read.
+ * </p>
+ * <p>
+ * A malformed record is reported with an {@link IllegalArgumentException}; the next call to {@link #next()}
+ * continues with the following record. This class is not thread-safe.
+ * </p>
+ */
+public final class XMLLogMessageReader implements Closeable {
+
+    private static final String RECORD = "logMessage";
+    private static final String RECEIVED_AT = "receivedAt";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String CLIENT_NAME = "clientName";
+    private static final String LOG_LEVEL = "logLevel";
+    private static final String MESSAGE = "message";
+    private static final String OCCURRENCES = "occurrences";
+    private static final String LAST_TIMESTAMP = "lastTimestamp";
+
+    private static final String RECORD_START = "<" + RECORD + ">";
+
+    private static final String[] FIELDS = {RECEIVED_AT, TIMESTAMP, CLIENT_NAME, LOG_LEVEL, MESSAGE, OCCURRENCES,
+            LAST_TIMESTAMP};
+
+    private static final LogLevel[] LOG_LEVELS = LogLevel.values();
+
+    /**
+     * Default size of the character buffer.
+     */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Maximum length of an entity name or character reference, without {@code &} and {@code ;}.
+     */
+    private static final int MAX_ENTITY_LENGTH = 8;
+
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    private Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    private final StringBuilder name = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Creates a reader for the records of a character stream.
+     *
+     * @param reader The stream to read from; closed by {@link #close()}.
+     */
+    public XMLLogMessageReader(final Reader reader) {
+        this(reader, BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a reader with a buffer of the given size.
+     *
+     * @param reader The stream to read from.
+     * @param bufferSize The size of the character buffer; at least the length of an entity or a start tag.
+     */
+    XMLLogMessageReader(final Reader reader, final int bufferSize) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader must not be null");
+        }
+        this.reader = reader;
+        this.buffer = new char[Math.max(bufferSize, Math.max(MAX_ENTITY_LENGTH + 2, RECORD_START.length()))];
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The log message of the record, or {@code null} if the stream contains no further records.
+     * @throws IOException If the stream could not be read.
+     * @throws IllegalArgumentException If the record is malformed or a required element is missing.
+     */
+    public LogMessage next() throws IOException {
+        if (!this.skipToRecord()) {
+            return null;
+        }
+        try {
+            return this.readRecord();
+        } catch (EOFException ex) {
+            throw new IllegalArgumentException("Incomplete " + RECORD + " record", ex);
+        }
+    }
+
+    /**
+     * Checks that the stream contains nothing but whitespace after the last record.
+     *
+     * @throws IOException If the stream could not be read.
+     * @throws IllegalArgumentException If the stream contains further content.
+     */
+    void expectEnd() throws IOException {
+        int c = this.skipWhitespace();
+        if (c >= 0) {
+            throw new IllegalArgumentException("Unexpected content after the " + RECORD + " record: '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Continues with another stream, reusing the buffers of this reader. The previous stream is not closed and
+     * anything still buffered from it is discarded.
+     *
+     * @param reader The stream to read from.
+     */
+    void reset(final Reader reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader must not be null");
+        }
+        this.reader = reader;
+        this.position = 0;
+        this.limit = 0;
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException If the stream could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * Skips all content up to and including the next {@code <logMessage>} tag.
+     *
+     * @return {@code false} if the end of the stream was reached.
+     * @throws IOException If the stream could not be read.
+     */
+    private boolean skipToRecord() throws IOException {
+        while (true) {
+            while (this.position < this.limit && this.buffer[this.position] != '<') {
+                this.position++;
+            }
+            int c = this.read();
+            if (c < 0) {
+                return false;
+            }
+            if (c == '<' && this.readName() == '>' && this.isName(RECORD)) {
+                this.position++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads the elements of a record up to and including its end tag.
+     *
+     * @return The log message of the record.
+     * @throws IOException If the stream could not be read or ends within the record.
+     */
+    private LogMessage readRecord() throws IOException {
+        String receivedAt = null;
+        String timestamp = null;
+        String clientName = null;
+        LogLevel logLevel = null;
+        String message = null;
+        String occurrences = null;
+        String lastTimestamp = null;
+
+        while (true) {
+            this.skipWhitespace();
+            this.checkNotAtRecord();
+            this.expect('<');
+            if (this.peek() == '/') {
+                this.position++;
+                this.expectEndTag(RECORD);
+                break;
+            }
+
+            int end = this.readName();
+            boolean empty = end == '/';
+            if (empty) {
+                this.position++;
+            }
+            this.expect('>');
+            String field = this.field();
+            this.text.setLength(0);
+            if (!empty) {
+                this.readText();
+                this.expectEndTag(field != null ? field : this.name.toString());
+            }
+
+            if (field == null) {
+                continue;
+            }
+            switch (field) {
+                case RECEIVED_AT -> receivedAt = this.text.toString();
+                case TIMESTAMP -> timestamp = this.text.toString();
+                case CLIENT_NAME -> clientName = this.text.toString();
+                case LOG_LEVEL -> logLevel = this.logLevel();
+                case OCCURRENCES -> occurrences = this.text.toString();
+                case LAST_TIMESTAMP -> lastTimestamp = this.text.toString();
+                default -> message = this.text.toString();
+            }
+        }
+
+        if (receivedAt == null) {
+            throw new IllegalArgumentException("The xml string does not contain a receivedAt attribute.");
+        }
+        if (timestamp == null) {
+            throw new IllegalArgumentException("The xml string does not contain a timestamp attribute.");
+        }
+        if (clientName == null) {
+            throw new IllegalArgumentException("The xml string does not contain a clientName attribute.");
+        }
+        if (logLevel == null) {
+            throw new IllegalArgumentException("The xml string does not contain a logLevel attribute.");
+        }
+        if (message == null) {
+            throw new IllegalArgumentException("The xml string does not contain a message attribute.");
+        }
+
+        Instant receivedAtServer = InstantSerializer.parseInstant(receivedAt);
+        Instant occurredAt = InstantSerializer.parseInstant(timestamp);
+        LogMessage logMessage = new LogMessage(receivedAtServer, occurredAt, clientName, logLevel, message);
+        if (occurrences != null) {
+            Instant lastOccurredAt = lastTimestamp != null ? InstantSerializer.parseInstant(lastTimestamp) : occurredAt;
+            logMessage.setOccurrences(parseOccurrences(occurrences), EpochClock.toEpochNanos(lastOccurredAt));
+        }
+        return logMessage;
+    }
+
+    /**
+     * Parses the number of occurrences of a collapsed message.
+     *
+     * @param occurrences The text of the element.
+     * @return The number of occurrences.
+     * @throws IllegalArgumentException If the text is not a number of at least 1.
+     */
+    private static int parseOccurrences(final String occurrences) {
+        try {
+            return Integer.parseInt(occurrences.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid occurrences: " + occurrences, ex);
+        }
+    }
+
+    /**
+     * Checks that the next characters are not the start tag of a record. A record which is cut off (e.g. by a
+     * crash while writing a log file) is reported without consuming the start of the following record, so the
+     * next call to {@link #next()} can read it.
+     *
+     * @throws IOException If the stream could not be read.
+     * @throws IllegalArgumentException If the next characters are {@code <logMessage>}.
+     */
+    private void checkNotAtRecord() throws IOException {
+        this.fill(RECORD_START.length());
+        if (this.limit - this.position >= RECORD_START.length()
+                && this.matches(this.position, RECORD_START.length(), RECORD_START)) {
+            throw new IllegalArgumentException("Incomplete " + RECORD + " record");
+        }
+    }
+
+    /**
+     * Reads a tag name into {@link #name}. The position is left at the character after the name.
+     *
+     * @return The character after the name, or -1 at the end of the stream.
+     * @throws IOException If the stream could not be read.
+     */
+    private int readName() throws IOException {
+        this.name.setLength(0);
+        while (true) {
+            int start = this.position;
+            while (this.position < this.limit && !isNameEnd(this.buffer[this.position])) {
+                this.position++;
+            }
+            this.name.append(this.buffer, start, this.position - start);
+            int c = this.peek();
+            if (c < 0 || isNameEnd((char) c)) {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a character ends a tag name.
+     *
+     * @param c The character.
+     * @return {@code true} for {@code >}, {@code /}, {@code <} and whitespace.
+     */
+    private static boolean isNameEnd(final char c) {
+        return c == '>' || c == '/' || c == '<' || c <= ' ' && Character.isWhitespace(c);
+    }
+
+    /**
+     * Reads an end tag after its {@code </}.
+     *
+     * @param expected The name of the element being closed.
+     * @throws IOException If the stream could not be read.
+     * @throws IllegalArgumentException If the end tag does not match.
+     */
+    private void expectEndTag(final String expected) throws IOException {
+        this.readName();
+        if (!this.isName(expected)) {
+            throw new IllegalArgumentException("Expected </" + expected + "> but found </" + this.name + ">");
+        }
+        this.skipWhitespace();
+        this.expect('>');
+    }
+
+    /**
+     * Reads the text of an element into {@link #text} and decodes its entities. The position is left after the
+     * {@code </} of the end tag.
+     *
+     * @throws IOException If the stream could not be read.
+     */
+    private void readText() throws IOException {
+        while (true) {
+            // Copy runs of plain characters in bulk
+            int start = this.position;
+            while (this.position < this.limit) {
+                char c = this.buffer[this.position];
+                if (c == '<' || c == '&') {
+                    break;
+                }
+                this.position++;
+            }
+            this.text.append(this.buffer, start, this.position - start);
+            if (this.position == this.limit) {
+                if (!this.fill(1)) {
+                    throw new EOFException();
+                }
+                continue;
+            }
+
+            if (this.buffer[this.position] == '<') {
+                this.checkNotAtRecord();
+                this.fill(2);
+                if (this.limit - this.position < 2 || this.buffer[this.position + 1] != '/') {
+                    throw new IllegalArgumentException("Unexpected element in the text of <" + this.name + ">");
+                }
+                this.position += 2;
+                return;
+            }
+            this.position++;
+            this.readEntity();
+        }
+    }
+
+    /**
+     * Decodes an entity or character reference after its {@code &}. An unknown or unterminated entity is kept
+     * as it is.
+     *
+     * @throws IOException If the stream could not be read.
+     */
+    private void readEntity() throws IOException {
+        this.fill(MAX_ENTITY_LENGTH + 1);
+        int end = this.position;
+        while (end < this.limit && end - this.position <= MAX_ENTITY_LENGTH && this.buffer[end] != ';') {
+            end++;
+        }
+        int decoded = end < this.limit && this.buffer[end] == ';' ? this.decodeEntity(this.position, end) : -1;
+        if (decoded < 0) {
+            this.text.append('&');
+            return;
+        }
+        this.text.appendCodePoint(decoded);
+        this.position = end + 1;
+    }
+
+    /**
+     * Decodes the entity between {@code start} and {@code end} in the buffer.
+     *
+     * @param start The start of the entity name (after {@code &}).
+     * @param end The position of the {@code ;}.
+     * @return The decoded code point, or -1 if the entity is unknown.
+     */
+    private int decodeEntity(final int start, final int end) {
+        int length = end - start;
+        if (length >= 2 && this.buffer[start] == '#') {
+            boolean hex = this.buffer[start + 1] == 'x';
+            int digits = start + (hex ? 2 : 1);
+            if (digits == end) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = digits; i < end; i++) {
+                int digit = Character.digit(this.buffer[i], hex ? 16 : 10);
+                if (digit < 0) {
+                    return -1;
+                }
+                value = value * (hex ? 16 : 10) + digit;
+            }
+            return Character.isValidCodePoint(value) ? value : REPLACEMENT_CHARACTER;
+        }
+        if (this.matches(start, length, "lt")) {
+            return '<';
+        }
+        if (this.matches(start, length, "gt")) {
+            return '>';
+        }
+        if (this.matches(start, length, "amp")) {
+            return '&';
+        }
+        if (this.matches(start, length, "quot")) {
+            return '"';
+        }
+        if (this.matches(start, length, "apos")) {
+            return '\'';
+        }
+        return -1;
+    }
+
+    /**
+     * Compares a range of the buffer with a string.
+     *
+     * @param start The start of the range.
+     * @param length The length of the range.
+     * @param value The string to compare with.
+     * @return {@code true} if the range contains the string.
+     */
+    private boolean matches(final int start, final int length, final String value) {
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.buffer[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Identifies the element in {@link #name}.
+     *
+     * @return The constant of the element, or {@code null} for elements which are ignored.
+     */
+    private String field() {
+        for (String field : FIELDS) {
+            if (this.isName(field)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether {@link #name} contains the given name.
+     *
+     * @param expected The name.
+     * @return {@code true} if the names are equal.
+     */
+    private boolean isName(final String expected) {
+        return this.name.length() == expected.length() && expected.contentEquals(this.name);
+    }
+
+    /**
+     * Parses the log level in {@link #text} without creating a string.
+     *
+     * @return The log level.
+     * @throws IllegalArgumentException If the text is not the name of a log level.
+     */
+    private LogLevel logLevel() {
+        for (LogLevel level : LOG_LEVELS) {
+            if (level.name().contentEquals(this.text)) {
+                return level;
+            }
+        }
+        return LogLevel.valueOf(this.text.toString());
+    }
+
+    /**
+     * Skips whitespace.
+     *
+     * @return The next character, which is not consumed, or -1 at the end of the stream.
+     * @throws IOException If the stream could not be read.
+     */
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            int c = this.peek();
+            if (c < 0 || !Character.isWhitespace(c)) {
+                return c;
+            }
+            this.position++;
+        }
+    }
+
+    /**
+     * Consumes the given character.
+     *
+     * @param expected The expected character.
+     * @throws IOException If the stream could not be read or ends before the character.
+     * @throws IllegalArgumentException If the next character is a different one.
+     */
+    private void expect(final char expected) throws IOException {
+        int c = this.read();
+        if (c < 0) {
+            throw new EOFException();
+        }
+        if (c != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' but found '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Returns the next character without consuming it.
+     *
+     * @return The next character, or -1 at the end of the stream.
+     * @throws IOException If the stream could not be read.
+     */
+    private int peek() throws IOException {
+        if (this.position >= this.limit && !this.fill(1)) {
+            return -1;
+        }
+        return this.buffer[this.position];
+    }
+
+    /**
+     * Consumes the next character.
+     *
+     * @return The next character, or -1 at the end of the stream.
+     * @throws IOException If the stream could not be read.
+     */
+    private int read() throws IOException {
+        int c = this.peek();
+        if (c >= 0) {
+            this.position++;
+        }
+        return c;
+    }
+
+    /**
+     * Makes sure that at least {@code count} characters are buffered, unless the stream ends before.
+     *
+     * @param count The number of characters; at most the size of the buffer.
+     * @return {@code true} if at least one character is buffered.
+     * @throws IOException If the stream could not be read.
+     */
+    private boolean fill(final int count) throws IOException {
+        if (this.limit - this.position >= count) {
+            return true;
+        }
+        System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+        this.limit -= this.position;
+        this.position = 0;
+        while (this.limit < count) {
+            int read = this.reader.read(this.buffer, this.limit, this.buffer.length - this.limit);
+            if (read < 0) {
+                break;
+            }
+            this.limit += read;
+        }
+        return this.limit > 0;
+    }
+}
@@ -0,0 +1,73 @@
+package ch.hslu.vsk.logger.common.network;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+
+/**
+ * An {@link InputStream} that reads from a {@link ByteBuffer} without copying it.
+ * The buffer can be exchanged with {@link #setBuffer(ByteBuffer)}, so a single stream (and a single
+ * {@link NetworkMessageInputStream} on top of it) can be reused to decode the frames of many buffers.
+ * Reading advances the position of the buffer; the end of the buffer is reported as the end of the stream.
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+public final class ByteBufferInputStream extends InputStream {
+
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a new {@code ByteBufferInputStream} without a buffer. {@link #setBuffer(ByteBuffer)} has to be
+     * called before reading.
+     */
+    public ByteBufferInputStream() {
+        this.buffer = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * Sets the buffer to read from. The stream reads from the current position up to the limit of the buffer.
+     *
+     * @param buffer The buffer to read from; must not be null.
+     * @throws IllegalArgumentException if {@code buffer} is {@code null}.
+     */
+    public void setBuffer(final ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer must not be null");
+        }
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        if (!this.buffer.hasRemaining()) {
+            return -1;
+        }
+        return this.buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int count = Math.min(length, this.buffer.remaining());
+        if (count == 0) {
+            return -1;
+        }
+        this.buffer.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public long skip(final long n) {
+        int count = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+        this.buffer.position(this.buffer.position() + count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return this.buffer.remaining();
+    }
+}
@@ -0,0 +1,105 @@
+package ch.hslu.vsk.logger.common.network;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The client names announced on a single connection with {@link ch.hslu.vsk.logger.common.ClientHandshake} frames.
+ * Compact log message frames refer to their client by the index in this table.
+ * <p>
+ * The IDs of a connection are assigned consecutively starting at 0, so the table is a plain list. Its size is
+ * limited to {@link #MAX_CLIENT_NAMES}; a sender with more client names falls back to self-contained frames.
+ * </p>
+ * <p>
+ * The table also caches the names of the last few clients read from self-contained frames (see
+ * {@link #intern(byte[], int, int)}), since a connection usually carries the messages of a single client.
+ * </p>
+ */
+public final class ClientNameTable {
+
+    /**
+     * The maximum number of client names per connection.
+     */
+    public static final int MAX_CLIENT_NAMES = 4_096;
+
+    /**
+     * The number of client names cached for self-contained frames.
+     */
+    static final int CACHED_NAMES = 8;
+
+    private final List<String> names = new ArrayList<>();
+    private final byte[][] cachedBytes = new byte[CACHED_NAMES][];
+    private final String[] cachedNames = new String[CACHED_NAMES];
+    private int nextCacheSlot;
+
+    /**
+     * Registers the name of the next client ID.
+     *
+     * @param id The ID of the client; must be the next free ID.
+     * @param name The name of the client.
+     * @throws IOException if the ID is not the next free ID or the table is full.
+     */
+    public void register(final int id, final String name) throws IOException {
+        if (id != this.names.size()) {
+            throw new IOException("Unexpected client ID " + id + ", expected " + this.names.size());
+        }
+        if (id >= MAX_CLIENT_NAMES) {
+            throw new IOException("Too many client names on one connection");
+        }
+        this.names.add(name);
+    }
+
+    /**
+     * Retrieves the name of a client.
+     *
+     * @param id The ID of the client.
+     * @return The name of the client.
+     * @throws IOException if no client with this ID has been registered.
+     */
+    public String get(final int id) throws IOException {
+        if (id < 0 || id >= this.names.size()) {
+            throw new IOException("Unknown client ID: " + id);
+        }
+        return this.names.get(id);
+    }
+
+    /**
+     * Retrieves the number of registered client names.
+     *
+     * @return The number of client names.
+     */
+    public int size() {
+        return this.names.size();
+    }
+
+    /**
+     * Returns the client name encoded in the given UTF-8 bytes. A cached string is returned if the same name has
+     * been read recently, so the messages of a client share one string and no string is decoded per message.
+     * The least recently added name is replaced when the cache is full.
+     *
+     * @param bytes The buffer containing the UTF-8 encoded name; it is not retained.
+     * @param offset The offset of the name in the buffer.
+     * @param length The length of the name in bytes.
+     * @return The client name.
+     */
+    public String intern(final byte[] bytes, final int offset, final int length) {
+        for (int i = 0; i < CACHED_NAMES; i++) {
+            byte[] cached = this.cachedBytes[i];
+            if (cached == null) {
+                break;
+            }
+            if (Arrays.equals(cached, 0, cached.length, bytes, offset, offset + length)) {
+                return this.cachedNames[i];
+            }
+        }
+
+        String name = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        this.cachedBytes[this.nextCacheSlot] = Arrays.copyOfRange(bytes, offset, offset + length);
+        this.cachedNames[this.nextCacheSlot] = name;
+        this.nextCacheSlot = (this.nextCacheSlot + 1) % CACHED_NAMES;
+        return name;
+    }
+}
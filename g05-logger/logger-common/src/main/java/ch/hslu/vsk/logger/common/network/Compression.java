@@ -0,0 +1,70 @@
+package ch.hslu.vsk.logger.common.network;
+
+import java.util.zip.Deflater;
+
+/**
+ * The compression of {@link ch.hslu.vsk.logger.common.LogMessageBatch}es on a connection, negotiated with a
+ * {@link ch.hslu.vsk.logger.common.CompressionHandshake} when the connection is established.
+ * <p>
+ * Every batch is compressed on its own with deflate (see {@link Deflater}), so a batch can be decoded without the
+ * previous ones. {@link #DEFLATE_FAST} costs the least CPU on the client, {@link #DEFLATE} gives the best ratio.
+ * </p>
+ */
+public enum Compression {
+
+    /**
+     * Batches are sent uncompressed.
+     */
+    NONE(0, Deflater.NO_COMPRESSION),
+
+    /**
+     * Batches are compressed with deflate at the fastest level.
+     */
+    DEFLATE_FAST(1, Deflater.BEST_SPEED),
+
+    /**
+     * Batches are compressed with deflate at the default level.
+     */
+    DEFLATE(2, Deflater.DEFAULT_COMPRESSION);
+
+    private final int id;
+    private final int level;
+
+    Compression(final int id, final int level) {
+        this.id = id;
+        this.level = level;
+    }
+
+    /**
+     * Retrieves the ID of the compression on the wire.
+     *
+     * @return The ID.
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Retrieves the deflate level of the compression.
+     *
+     * @return The level for {@link Deflater#Deflater(int)}.
+     */
+    public int getLevel() {
+        return this.level;
+    }
+
+    /**
+     * Returns the compression with the given ID.
+     *
+     * @param id The ID read from the wire.
+     * @return The compression, or {@link #NONE} if the ID is unknown, e.g. offered by a newer client.
+     */
+    public static Compression fromId(final int id) {
+        for (Compression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+}
@@ -3,17 +3,35 @@ package ch.hslu.vsk.logger.common.network;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.zip.Inflater;
 
+import ch.hslu.vsk.logger.common.ClientHandshake;
+import ch.hslu.vsk.logger.common.CompressedLogMessageBatch;
+import ch.hslu.vsk.logger.common.CompressionHandshake;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
 
 
 /**
  * This class is used to receive {@code NetworkTransferable} objects from an {@link InputStream}.
  * It extends {@link DataInputStream} to provide methods for reading objects that implement the 
  * {@code NetworkTransferable} interface.
+ * <p>
+ * The client names announced with {@link ClientHandshake}s are kept in a {@link ClientNameTable}, which is used to
+ * decode the compact log message frames following them. A stream reading from a single connection can use its own
+ * table; a stream shared by several connections must be given the table of the connection it is reading.
+ * </p>
+ * <p>
+ * A {@link CompressedLogMessageBatch} is decompressed and returned as a {@link LogMessageBatch}. Every compressed
+ * frame is independent of the previous ones, so the stream can be shared by several connections.
+ * </p>
  */
 public class NetworkMessageInputStream extends DataInputStream {
 
+    private ClientNameTable clientNames = new ClientNameTable();
+    private Inflater inflater;
+    private byte[] nameBuffer = new byte[64];
+
     /**
      * Constructs a new {@code NetworkMessageInputStream} using the provided {@link InputStream}.
      * This enables reading network messages as objects from the stream.
@@ -24,8 +42,50 @@ public class NetworkMessageInputStream extends DataInputStream {
         super(inputStream);
     }
 
+    /**
+     * Retrieves the client names used to decode compact log message frames.
+     *
+     * @return The client names of the connection being read.
+     */
+    public ClientNameTable getClientNames() {
+        return this.clientNames;
+    }
+
+    /**
+     * Sets the client names used to decode compact log message frames, e.g. when the stream is shared by several
+     * connections.
+     *
+     * @param clientNames The client names of the connection being read; must not be null.
+     */
+    public void setClientNames(final ClientNameTable clientNames) {
+        if (clientNames == null) {
+            throw new IllegalArgumentException("Client names must not be null");
+        }
+        this.clientNames = clientNames;
+    }
+
+    /**
+     * Reads a UTF-8 encoded client name into a buffer reused by this stream and returns it through the cache of
+     * the current {@link ClientNameTable}, so repeated names do not allocate.
+     *
+     * @param length The length of the name in bytes.
+     * @return The client name.
+     * @throws IOException If an I/O error occurs or the length is negative.
+     */
+    public String readClientName(final int length) throws IOException {
+        if (length < 0) {
+            throw new IOException("Invalid client name length: " + length);
+        }
+        if (this.nameBuffer.length < length) {
+            this.nameBuffer = new byte[Math.max(length, this.nameBuffer.length * 2)];
+        }
+        this.readFully(this.nameBuffer, 0, length);
+        return this.clientNames.intern(this.nameBuffer, 0, length);
+    }
+
     /**
      * Reads the next {@code NetworkTransferable} object from the input stream.
+     * A {@link ClientHandshake} is returned as well, after its client name has been registered.
      * This method reads the serial version identifier to determine the type of object
      * and deserializes it accordingly.
      *
@@ -39,12 +99,89 @@ public class NetworkMessageInputStream extends DataInputStream {
         int serialVersionId = this.readShort();
 
         // Check if the serialVersionId matches the expected type
-        if (serialVersionId == LogMessage.serialVersionUID) {
-            return LogMessage.deserialize(this);
+        if (LogMessage.isLogMessage(serialVersionId)) {
+            return LogMessage.deserialize(this, serialVersionId);
+        }
+        if (serialVersionId == LogMessageBatch.serialVersionUID) {
+            return LogMessageBatch.deserialize(this);
+        }
+        if (serialVersionId == LogMessage.COMPACT_SERIAL_VERSION_UID) {
+            return LogMessage.deserializeCompact(this);
+        }
+        if (serialVersionId == LogMessageBatch.COMPACT_SERIAL_VERSION_UID) {
+            return LogMessageBatch.deserializeCompact(this);
+        }
+        if (serialVersionId == ClientHandshake.serialVersionUID) {
+            ClientHandshake handshake = ClientHandshake.deserialize(this);
+            this.clientNames.register(handshake.getClientId(), handshake.getClientName());
+            return handshake;
+        }
+        if (serialVersionId == CompressedLogMessageBatch.serialVersionUID) {
+            if (this.inflater == null) {
+                this.inflater = new Inflater();
+            }
+            return CompressedLogMessageBatch.deserialize(this, this.inflater);
+        }
+        if (serialVersionId == CompressionHandshake.serialVersionUID) {
+            return CompressionHandshake.deserialize(this);
         }
 
         // Return null if no matching type is found
         return null;
     }
 
+    /**
+     * Skips the next {@code NetworkTransferable} object in the input stream without decoding it. The client name
+     * of a skipped {@link ClientHandshake} is not registered.
+     *
+     * @return The number of log messages contained in the skipped object.
+     * @throws IOException If an I/O error occurs, or the object is malformed or of an unknown type.
+     */
+    public int skipObject() throws IOException {
+
+        // Read the serial version ID from the stream
+        int serialVersionId = this.readShort();
+
+        if (LogMessage.isLogMessage(serialVersionId)) {
+            LogMessage.skip(this, serialVersionId);
+            return 1;
+        }
+        if (serialVersionId == LogMessageBatch.serialVersionUID) {
+            return LogMessageBatch.skip(this);
+        }
+        if (serialVersionId == LogMessage.COMPACT_SERIAL_VERSION_UID) {
+            LogMessage.skipCompact(this);
+            return 1;
+        }
+        if (serialVersionId == LogMessageBatch.COMPACT_SERIAL_VERSION_UID) {
+            return LogMessageBatch.skipCompact(this);
+        }
+        if (serialVersionId == ClientHandshake.serialVersionUID) {
+            ClientHandshake.skip(this);
+            return 0;
+        }
+        if (serialVersionId == CompressedLogMessageBatch.serialVersionUID) {
+            return CompressedLogMessageBatch.skip(this);
+        }
+        if (serialVersionId == CompressionHandshake.serialVersionUID) {
+            CompressionHandshake.skip(this);
+            return 0;
+        }
+
+        throw new IOException("Unknown serial version ID: " + serialVersionId);
+    }
+
+    /**
+     * Ends the decompressor of this stream and closes the underlying stream.
+     *
+     * @throws IOException If the underlying stream could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.inflater != null) {
+            this.inflater.end();
+            this.inflater = null;
+        }
+        super.close();
+    }
 }
@@ -1,17 +1,49 @@
 package ch.hslu.vsk.logger.common.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
 
+import ch.hslu.vsk.logger.common.ClientHandshake;
+import ch.hslu.vsk.logger.common.CompressedLogMessageBatch;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
 
 /**
  * This class can be used to send {@code NetworkTransferable} objects over an {@link OutputStream}.
  * It extends {@link DataOutputStream} to provide the functionality of serializing and writing network 
  * transferable objects to the output stream.
+ * <p>
+ * In compact mode, {@link LogMessage}s and {@link LogMessageBatch}es are written in their compact format: the name
+ * of every client is announced once with a {@link ClientHandshake} and the messages refer to it by its ID. The
+ * frames are then only valid on this stream, so compact mode is meant for connections, not for caches.
+ * </p>
+ * <p>
+ * With a {@link Compression} other than {@link Compression#NONE}, every {@link LogMessageBatch} is written as a
+ * {@link CompressedLogMessageBatch}. Batches smaller than {@link #MIN_COMPRESSED_SIZE} bytes, and batches which do not
+ * get smaller, are written uncompressed.
+ * </p>
  */
 public class NetworkMessageOutputStream extends DataOutputStream {
 
+    /**
+     * Minimum size of an uncompressed batch for it to be compressed.
+     */
+    public static final int MIN_COMPRESSED_SIZE = 256;
+
+    private final boolean compact;
+    private final Map<String, Integer> clientIds = new HashMap<>();
+
+    private Compression compression = Compression.NONE;
+    private Deflater deflater;
+    private FrameBuffer uncompressed;
+    private NetworkMessageOutputStream uncompressedStream;
+    private byte[] compressed;
+
     /**
      * Creates a new {@code NetworkMessageOutputStream} for the given {@link OutputStream}.
      * This constructor initializes the stream with the provided output stream, allowing the writing of 
@@ -20,7 +52,52 @@ public class NetworkMessageOutputStream extends DataOutputStream {
      * @param outputStream The {@link OutputStream} to which the data will be written.
      */
     public NetworkMessageOutputStream(final OutputStream outputStream) {
+        this(outputStream, false);
+    }
+
+    /**
+     * Creates a new {@code NetworkMessageOutputStream} for the given {@link OutputStream}.
+     *
+     * @param outputStream The {@link OutputStream} to which the data will be written.
+     * @param compact Whether log messages are written in the compact format by {@link #writeObject}.
+     */
+    public NetworkMessageOutputStream(final OutputStream outputStream, final boolean compact) {
         super(outputStream);
+        this.compact = compact;
+    }
+
+    /**
+     * Checks whether log messages are written in the compact format.
+     *
+     * @return {@code true} in compact mode.
+     */
+    public boolean isCompact() {
+        return this.compact;
+    }
+
+    /**
+     * Sets the compression of the batches written by {@link #writeObject}, e.g. after it has been negotiated.
+     *
+     * @param compression The compression; must not be null.
+     */
+    public void setCompression(final Compression compression) {
+        if (compression == null) {
+            throw new IllegalArgumentException("Compression must not be null");
+        }
+        if (compression != this.compression && this.deflater != null) {
+            this.deflater.end();
+            this.deflater = null;
+        }
+        this.compression = compression;
+    }
+
+    /**
+     * Retrieves the compression of the batches written by {@link #writeObject}.
+     *
+     * @return The compression.
+     */
+    public Compression getCompression() {
+        return this.compression;
     }
 
     /**
@@ -34,9 +111,177 @@ public class NetworkMessageOutputStream extends DataOutputStream {
      */
     public void writeObject(final NetworkTransferable object) throws IOException {
         // Serialize the object and send it
-        object.serialize(this);
+        if (this.compression != Compression.NONE && object instanceof LogMessageBatch batch) {
+            this.writeCompressed(batch);
+        } else if (this.compact && object instanceof LogMessage message) {
+            this.writeCompact(this, message);
+        } else if (this.compact && object instanceof LogMessageBatch batch) {
+            this.writeCompact(this, batch);
+        } else {
+            object.serialize(this);
+        }
 
         // Flush the output stream to ensure all data is written
         this.flush();
     }
+
+    /**
+     * Ends the compressor of this stream and closes the underlying stream.
+     *
+     * @throws IOException If the underlying stream could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.deflater != null) {
+            this.deflater.end();
+            this.deflater = null;
+        }
+        super.close();
+    }
+
+    /**
+     * Writes a batch as a {@link CompressedLogMessageBatch}. The batch, including the handshakes of new clients,
+     * is first written to a buffer, which is then compressed.
+     *
+     * @param batch The batch to write.
+     * @throws IOException If the batch could not be written.
+     */
+    private void writeCompressed(final LogMessageBatch batch) throws IOException {
+        if (this.uncompressed == null) {
+            this.uncompressed = new FrameBuffer();
+            this.uncompressedStream = new NetworkMessageOutputStream(this.uncompressed);
+        }
+        this.uncompressed.reset();
+        if (this.compact) {
+            this.writeCompact(this.uncompressedStream, batch);
+        } else {
+            batch.serialize(this.uncompressedStream);
+        }
+        this.uncompressedStream.flush();
+
+        int size = this.uncompressed.size();
+        byte[] data = this.uncompressed.array();
+        if (size >= MIN_COMPRESSED_SIZE) {
+            int compressedSize = this.compress(data, size);
+            if (compressedSize > 0) {
+                CompressedLogMessageBatch.serialize(this, this.compression, batch.size(), size,
+                        this.compressed, compressedSize);
+                return;
+            }
+        }
+        this.write(data, 0, size);
+    }
+
+    /**
+     * Compresses data into the compression buffer of this stream.
+     *
+     * @param data The data to compress.
+     * @param size The length of the data.
+     * @return The length of the compressed data, or 0 if it is not smaller than the data.
+     */
+    private int compress(final byte[] data, final int size) {
+        if (this.deflater == null) {
+            this.deflater = new Deflater(this.compression.getLevel());
+        }
+        if (this.compressed == null || this.compressed.length < size) {
+            this.compressed = new byte[size];
+        }
+
+        this.deflater.reset();
+        this.deflater.setInput(data, 0, size);
+        this.deflater.finish();
+        int compressedSize = 0;
+        while (!this.deflater.finished() && compressedSize < size) {
+            compressedSize += this.deflater.deflate(this.compressed, compressedSize, size - compressedSize);
+        }
+        return this.deflater.finished() && compressedSize < size ? compressedSize : 0;
+    }
+
+    /**
+     * Writes a message in the compact format, or self-contained if its client cannot be announced or it occurred
+     * more than once, which the compact format cannot represent.
+     *
+     * @param target The stream to write the message and the handshake of a new client to.
+     * @param message The message to write.
+     * @throws IOException If the message could not be written.
+     */
+    private void writeCompact(final NetworkMessageOutputStream target, final LogMessage message) throws IOException {
+        int clientId = message.getOccurrences() > 1 ? -1 : this.clientId(target, message.getClientName());
+        if (clientId < 0) {
+            message.serialize(target);
+        } else {
+            message.serializeCompact(target, clientId);
+        }
+    }
+
+    /**
+     * Writes a batch in the compact format, or self-contained if one of its clients cannot be announced or one of
+     * its messages occurred more than once.
+     *
+     * @param target The stream to write the batch and the handshakes of new clients to.
+     * @param batch The batch to write.
+     * @throws IOException If the batch could not be written.
+     */
+    private void writeCompact(final NetworkMessageOutputStream target, final LogMessageBatch batch) throws IOException {
+        for (LogMessage message : batch.getMessages()) {
+            if (message.getOccurrences() > 1) {
+                batch.serialize(target);
+                return;
+            }
+        }
+        int[] ids = new int[batch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = this.clientId(target, batch.getMessages().get(i).getClientName());
+            if (ids[i] < 0) {
+                batch.serialize(target);
+                return;
+            }
+        }
+        batch.serializeCompact(target, ids);
+    }
+
+    /**
+     * Returns the ID of a client on this stream and announces the client with a {@link ClientHandshake} when it is
+     * seen for the first time.
+     *
+     * @param target The stream to write the handshake to.
+     * @param clientName The name of the client.
+     * @return The ID of the client, or -1 if the client cannot be announced (no name, name too long or too many
+     *         clients on this stream).
+     * @throws IOException If the handshake could not be written.
+     */
+    private int clientId(final NetworkMessageOutputStream target, final String clientName) throws IOException {
+        if (clientName == null) {
+            return -1;
+        }
+        Integer id = this.clientIds.get(clientName);
+        if (id != null) {
+            return id;
+        }
+
+        // A UTF-8 encoded char takes at most 3 bytes
+        if (this.clientIds.size() >= ClientNameTable.MAX_CLIENT_NAMES
+                || clientName.length() > ClientHandshake.MAX_NAME_LENGTH / 3) {
+            return -1;
+        }
+        id = this.clientIds.size();
+        new ClientHandshake(id, clientName).serialize(target);
+        this.clientIds.put(clientName, id);
+        return id;
+    }
+
+    /**
+     * A {@link ByteArrayOutputStream} which gives access to its buffer without copying it.
+     */
+    private static final class FrameBuffer extends ByteArrayOutputStream {
+
+        /**
+         * Returns the buffer; only the first {@link #size()} bytes are valid.
+         *
+         * @return The buffer.
+         */
+        byte[] array() {
+            return this.buf;
+        }
+    }
 }
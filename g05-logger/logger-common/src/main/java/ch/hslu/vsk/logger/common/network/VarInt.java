@@ -0,0 +1,135 @@
+package ch.hslu.vsk.logger.common.network;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Reads and writes variable-length integers as used by the compact wire format.
+ * <p>
+ * A value is written in groups of 7 bits, least significant group first; the highest bit of every byte is set if
+ * further bytes follow. Small values therefore take a single byte, an {@code int} at most 5 bytes and a
+ * {@code long} at most 10 bytes. Signed values which may be negative are zig-zag encoded first, so small negative
+ * values are short as well.
+ * </p>
+ */
+public final class VarInt {
+
+    private static final int MAX_INT_BYTES = 5;
+    private static final int MAX_LONG_BYTES = 10;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private VarInt() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Writes an {@code int} as an unsigned variable-length integer.
+     *
+     * @param output The output to write to.
+     * @param value The value; negative values take 5 bytes.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void writeInt(final DataOutput output, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    /**
+     * Writes a {@code long} as an unsigned variable-length integer.
+     *
+     * @param output The output to write to.
+     * @param value The value; negative values take 10 bytes.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void writeLong(final DataOutput output, final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            output.writeByte((int) (remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte((int) remaining);
+    }
+
+    /**
+     * Writes a signed {@code long} zig-zag encoded as a variable-length integer.
+     *
+     * @param output The output to write to.
+     * @param value The value.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static void writeSignedLong(final DataOutput output, final long value) throws IOException {
+        writeLong(output, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Reads an unsigned variable-length {@code int}.
+     *
+     * @param input The input to read from.
+     * @return The value.
+     * @throws IOException if an I/O error occurs or the value is longer than 5 bytes.
+     */
+    public static int readInt(final DataInput input) throws IOException {
+        int value = 0;
+        for (int i = 0; i < MAX_INT_BYTES; i++) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+    /**
+     * Reads an unsigned variable-length {@code long}.
+     *
+     * @param input The input to read from.
+     * @return The value.
+     * @throws IOException if an I/O error occurs or the value is longer than 10 bytes.
+     */
+    public static long readLong(final DataInput input) throws IOException {
+        long value = 0;
+        for (int i = 0; i < MAX_LONG_BYTES; i++) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+    /**
+     * Reads a zig-zag encoded signed variable-length {@code long}.
+     *
+     * @param input The input to read from.
+     * @return The value.
+     * @throws IOException if an I/O error occurs or the value is longer than 10 bytes.
+     */
+    public static long readSignedLong(final DataInput input) throws IOException {
+        long encoded = readLong(input);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    /**
+     * Skips a variable-length integer of any type.
+     *
+     * @param input The input to read from.
+     * @throws IOException if an I/O error occurs or the value is longer than 10 bytes.
+     */
+    public static void skip(final DataInput input) throws IOException {
+        for (int i = 0; i < MAX_LONG_BYTES; i++) {
+            if ((input.readUnsignedByte() & 0x80) == 0) {
+                return;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
@@ -63,4 +63,41 @@ public class EnumSerializer<T extends Enum<?>> {
         }
         return enumConstants[ordinal]; // Return the corresponding enum constant
     }
+
+    /**
+     * Serializes the specified enum value to a {@link DataOutputStream} as a single byte.
+     * Only usable for enums with at most 127 constants.
+     *
+     * @param output the {@code DataOutputStream} to write the serialized data to.
+     * @param object the enum value to serialize, or {@code null}.
+     * @throws IOException if an I/O error occurs while writing to the stream.
+     * @throws IllegalStateException if the enum has too many constants to be written as a byte.
+     */
+    public void writeByte(DataOutputStream output, T object) throws IOException {
+        if (enumConstants.length > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many enum constants to be written as a byte: " + enumConstants.length);
+        }
+        output.writeByte(object == null ? -1 : object.ordinal());
+    }
+
+    /**
+     * Deserializes an enum value written by {@link #writeByte(DataOutputStream, Enum)} from a {@link DataInputStream}.
+     *
+     * @param input the {@code DataInputStream} to read the serialized data from.
+     * @return the deserialized enum value, or {@code null} if the input indicates a null value.
+     * @throws IOException              if an I/O error occurs while reading from the stream.
+     * @throws IllegalArgumentException if the read ordinal value is invalid.
+     */
+    public T readByte(DataInputStream input) throws IOException {
+        int ordinal = input.readByte();
+        if (ordinal == -1) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= enumConstants.length) {
+            throw new IllegalArgumentException(
+                "Invalid ordinal for enum: " + ordinal + ". Must be between 0 and " + (enumConstants.length - 1)
+            );
+        }
+        return enumConstants[ordinal];
+    }
 }
@@ -0,0 +1,122 @@
+package ch.hslu.vsk.logger.common.util;
+
+import java.time.Instant;
+
+/**
+ * A wall clock that returns the current time as nanoseconds since the epoch without allocating an
+ * {@link Instant} per call, and conversions between epoch nanoseconds and {@link Instant}s.
+ * <p>
+ * The clock is anchored to {@link Instant#now()} and advanced with {@link System#nanoTime()}. It is re-anchored
+ * once per second, so adjustments of the system clock are picked up after at most one second.
+ * </p>
+ * This class is thread-safe.
+ */
+public final class EpochClock {
+
+    /**
+     * Marker for a timestamp that is not set, e.g. a server reception time of a message that has not been
+     * received yet. Corresponds to a {@code null} {@link Instant}.
+     */
+    public static final long NOT_SET = Long.MIN_VALUE;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    /**
+     * Interval after which the clock is re-anchored to the system clock.
+     */
+    private static final long ANCHOR_INTERVAL_NANOS = NANOS_PER_SECOND;
+
+    private static volatile Anchor anchor = Anchor.now();
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private EpochClock() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Returns the current time in nanoseconds since the epoch.
+     *
+     * @return The current epoch nanoseconds.
+     */
+    public static long nowNanos() {
+        Anchor current = anchor;
+        long elapsed = System.nanoTime() - current.nanoTime;
+        if (elapsed >= ANCHOR_INTERVAL_NANOS || elapsed < 0) {
+            current = Anchor.now();
+            anchor = current;
+            elapsed = System.nanoTime() - current.nanoTime;
+        }
+        return current.epochNanos + elapsed;
+    }
+
+    /**
+     * Converts an {@link Instant} to nanoseconds since the epoch.
+     *
+     * @param instant The instant to convert; can be null.
+     * @return The epoch nanoseconds, or {@link #NOT_SET} if {@code instant} is null.
+     * @throws ArithmeticException if the instant is outside the range of epoch nanoseconds
+     *                             (years 1677 to 2262).
+     */
+    public static long toEpochNanos(final Instant instant) {
+        if (instant == null) {
+            return NOT_SET;
+        }
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+    }
+
+    /**
+     * Converts nanoseconds since the epoch to an {@link Instant}.
+     *
+     * @param epochNanos The epoch nanoseconds.
+     * @return The instant, or {@code null} if {@code epochNanos} is {@link #NOT_SET}.
+     */
+    public static Instant toInstant(final long epochNanos) {
+        if (epochNanos == NOT_SET) {
+            return null;
+        }
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+                Math.floorMod(epochNanos, NANOS_PER_SECOND));
+    }
+
+    /**
+     * Converts nanoseconds since the epoch to milliseconds since the epoch (rounded down).
+     *
+     * @param epochNanos The epoch nanoseconds.
+     * @return The epoch milliseconds.
+     */
+    public static long toEpochMillis(final long epochNanos) {
+        return Math.floorDiv(epochNanos, NANOS_PER_MILLI);
+    }
+
+    /**
+     * Converts milliseconds since the epoch to nanoseconds since the epoch.
+     *
+     * @param epochMillis The epoch milliseconds.
+     * @return The epoch nanoseconds.
+     */
+    public static long fromEpochMillis(final long epochMillis) {
+        return epochMillis * NANOS_PER_MILLI;
+    }
+
+    /**
+     * A point in time both as epoch nanoseconds and as {@link System#nanoTime()}.
+     *
+     * @param epochNanos The epoch nanoseconds of the anchor.
+     * @param nanoTime The {@link System#nanoTime()} of the anchor.
+     */
+    private record Anchor(long epochNanos, long nanoTime) {
+
+        /**
+         * Creates an anchor for the current time.
+         *
+         * @return The anchor.
+         */
+        static Anchor now() {
+            long nanoTime = System.nanoTime();
+            return new Anchor(toEpochNanos(Instant.now()), nanoTime);
+        }
+    }
+}
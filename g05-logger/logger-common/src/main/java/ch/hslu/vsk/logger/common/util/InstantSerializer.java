@@ -1,6 +1,8 @@
 package ch.hslu.vsk.logger.common.util;
 
+import java.time.DateTimeException;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -22,6 +24,14 @@ public final class InstantSerializer {
             .ofPattern("yyyy-MM-dd HH:mm:ss.SSSS")
             .withZone(ZoneId.of("UTC"));
 
+    /**
+     * The length of a formatted timestamp with a four digit year.
+     */
+    private static final int FORMATTED_LENGTH = "yyyy-MM-dd HH:mm:ss.SSSS".length();
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int NANOS_PER_FRACTION = 100_000;
+
     /**
      * Private constructor to prevent instantiation of this utility class.
      */
@@ -45,6 +55,8 @@ public final class InstantSerializer {
 
     /**
      * Parses a string representation of an {@link Instant} back into an {@link Instant} object.
+     * Timestamps with a four digit year are parsed digit by digit; other strings go through the
+     * {@link DateTimeFormatter}.
      *
      * @param serialized the string representation of the {@link Instant}; can be "NULL" or a valid formatted string.
      * @return the parsed {@link Instant}, or null if the input is "NULL" or if parsing fails.
@@ -53,11 +65,67 @@ public final class InstantSerializer {
         if ("NULL".equals(serialized)) {
             return null;
         }
+        Instant parsed = parseFormatted(serialized);
+        if (parsed != null) {
+            return parsed;
+        }
         try {
             return Instant.from(TIMESTAMP_FORMATTER.parse(serialized));
         } catch (DateTimeParseException ex) {
             return null; // Parsing failed, return null
         }
     }
-}
 
+    /**
+     * Parses a timestamp of the format "yyyy-MM-dd HH:mm:ss.SSSS" without the {@link DateTimeFormatter}.
+     *
+     * @param serialized the string to parse; can be null.
+     * @return the parsed {@link Instant}, or null if the string is not a valid timestamp of this format.
+     */
+    private static Instant parseFormatted(final String serialized) {
+        if (serialized == null || serialized.length() != FORMATTED_LENGTH
+                || serialized.charAt(4) != '-' || serialized.charAt(7) != '-' || serialized.charAt(10) != ' '
+                || serialized.charAt(13) != ':' || serialized.charAt(16) != ':' || serialized.charAt(19) != '.') {
+            return null;
+        }
+        int year = digits(serialized, 0, 4);
+        int month = digits(serialized, 5, 7);
+        int day = digits(serialized, 8, 10);
+        int hour = digits(serialized, 11, 13);
+        int minute = digits(serialized, 14, 16);
+        int second = digits(serialized, 17, 19);
+        int fraction = digits(serialized, 20, 24);
+        if (year < 1 || month < 0 || day < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 59 || fraction < 0) {
+            return null;
+        }
+
+        try {
+            long epochDay = LocalDate.of(year, month, day).toEpochDay();
+            return Instant.ofEpochSecond(epochDay * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second,
+                    (long) fraction * NANOS_PER_FRACTION);
+        } catch (DateTimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a run of decimal digits.
+     *
+     * @param value the string containing the digits.
+     * @param start the position of the first digit.
+     * @param end the position after the last digit.
+     * @return the parsed number, or -1 if a character is not a digit.
+     */
+    private static int digits(final String value, final int start, final int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
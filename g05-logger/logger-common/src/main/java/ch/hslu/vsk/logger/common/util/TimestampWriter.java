@@ -0,0 +1,100 @@
+package ch.hslu.vsk.logger.common.util;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Writes epoch nanosecond timestamps in the format of {@link InstantSerializer} ("yyyy-MM-dd HH:mm:ss.SSSS", UTC)
+ * as ASCII bytes into a {@link ByteBuffer}, without creating any objects per timestamp.
+ * <p>
+ * The date and time up to the seconds is formatted with {@link InstantSerializer} once per second and cached;
+ * only the fraction of the second is written digit by digit. The cache holds a few recent seconds, so the
+ * timestamps of a message (sent and received) which lie in different seconds do not evict each other.
+ * </p>
+ * This class is thread-safe: the cache entries are immutable, so a racing update only costs a cache miss.
+ */
+public final class TimestampWriter {
+
+    private static final byte[] NULL = "NULL".getBytes(StandardCharsets.US_ASCII);
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * Number of nanoseconds per digit of the fraction ("SSSS" = 100 microseconds).
+     */
+    private static final int NANOS_PER_FRACTION = 100_000;
+
+    private static final int FRACTION_DIGITS = 4;
+
+    /**
+     * Number of cached seconds; must be a power of two.
+     */
+    private static final int CACHE_SIZE = 4;
+
+    private static final CachedSecond[] CACHE = new CachedSecond[CACHE_SIZE];
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private TimestampWriter() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Writes a timestamp at the position of the buffer.
+     *
+     * @param epochNanos The timestamp in nanoseconds since the epoch, or {@link EpochClock#NOT_SET}.
+     * @param target The buffer to write to.
+     * @throws BufferOverflowException if the buffer does not have enough space left.
+     */
+    public static void write(final long epochNanos, final ByteBuffer target) {
+        if (epochNanos == EpochClock.NOT_SET) {
+            target.put(NULL);
+            return;
+        }
+
+        long epochSecond = Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+        int fraction = (int) Math.floorMod(epochNanos, NANOS_PER_SECOND) / NANOS_PER_FRACTION;
+
+        int slot = (int) (epochSecond & (CACHE_SIZE - 1));
+        CachedSecond cached = CACHE[slot];
+        if (cached == null || cached.epochSecond() != epochSecond) {
+            cached = CachedSecond.of(epochSecond);
+            CACHE[slot] = cached;
+        }
+
+        target.put(cached.prefix());
+        int position = target.position();
+        if (target.remaining() < FRACTION_DIGITS) {
+            throw new BufferOverflowException();
+        }
+        for (int i = FRACTION_DIGITS - 1; i >= 0; i--) {
+            target.put(position + i, (byte) ('0' + fraction % 10));
+            fraction /= 10;
+        }
+        target.position(position + FRACTION_DIGITS);
+    }
+
+    /**
+     * A formatted second: the date and time including the decimal point, e.g. "2024-11-05 13:37:42.".
+     *
+     * @param epochSecond The second since the epoch.
+     * @param prefix The ASCII bytes of the formatted second.
+     */
+    private record CachedSecond(long epochSecond, byte[] prefix) {
+
+        /**
+         * Formats a second.
+         *
+         * @param epochSecond The second since the epoch.
+         * @return The formatted second.
+         */
+        static CachedSecond of(final long epochSecond) {
+            String formatted = InstantSerializer.stringifyInstant(Instant.ofEpochSecond(epochSecond));
+            String prefix = formatted.substring(0, formatted.length() - FRACTION_DIGITS);
+            return new CachedSecond(epochSecond, prefix.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
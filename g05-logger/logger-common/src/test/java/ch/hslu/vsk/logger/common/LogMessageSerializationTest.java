@@ -1,18 +1,24 @@
 package ch.hslu.vsk.logger.common;
 
 import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.network.Compression;
 import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
 import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 
 import org.junit.jupiter.api.Test;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 class LogMessageSerializationTest {
 
@@ -44,4 +50,446 @@ class LogMessageSerializationTest {
 		}
 	}
 
+	/**
+	 * Test that a batch of messages can be serialized and then deserialized correctly.
+	 */
+	@Test
+	void testBatchSerializationAndDeserialization() throws IOException {
+
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			messages.add(new LogMessage(Instant.now(), "Client Name", LogLevel.WARNING, "Message " + i));
+		}
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		new NetworkMessageOutputStream(byteArrayOutputStream).writeObject(new LogMessageBatch(messages));
+
+		NetworkMessageInputStream networkMessageInputStream =
+				new NetworkMessageInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+		Object deserialized = networkMessageInputStream.nextObject();
+
+		assertThat(deserialized).isInstanceOf(LogMessageBatch.class);
+		assertThat(((LogMessageBatch) deserialized).getMessages()).containsExactlyElementsOf(messages);
+	}
+
+	/**
+	 * Test that a batch frame with an invalid length prefix is rejected.
+	 */
+	@Test
+	void testBatchWithInvalidSize() throws IOException {
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream);
+		networkMessageOutputStream.writeShort(LogMessageBatch.serialVersionUID);
+		networkMessageOutputStream.writeInt(-1);
+		networkMessageOutputStream.flush();
+
+		NetworkMessageInputStream networkMessageInputStream =
+				new NetworkMessageInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+
+		assertThatThrownBy(networkMessageInputStream::nextObject).isInstanceOf(IOException.class);
+	}
+
+	/**
+	 * Test that a message frame with an unknown log level is rejected as malformed when it is decoded and when it
+	 * is skipped, in the self-contained and in the compact format.
+	 */
+	@Test
+	void testMessageWithInvalidLogLevel() throws IOException {
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream);
+		new LogMessage(Instant.now(), "Client Name", LogLevel.INFO, "Some message").serialize(networkMessageOutputStream);
+		networkMessageOutputStream.flush();
+		byte[] frame = byteArrayOutputStream.toByteArray();
+		frame[Short.BYTES + Integer.BYTES - 1] = 42;
+
+		assertThatThrownBy(new NetworkMessageInputStream(new ByteArrayInputStream(frame))::nextObject)
+				.isInstanceOf(IOException.class);
+		assertThatThrownBy(new NetworkMessageInputStream(new ByteArrayInputStream(frame))::skipObject)
+				.isInstanceOf(IOException.class);
+
+		byteArrayOutputStream.reset();
+		new LogMessage(Instant.now(), "Client Name", LogLevel.INFO, "Some message").serializeCompact(networkMessageOutputStream, 0);
+		networkMessageOutputStream.flush();
+		byte[] compactFrame = byteArrayOutputStream.toByteArray();
+		compactFrame[Short.BYTES] = 42;
+
+		assertThatThrownBy(new NetworkMessageInputStream(new ByteArrayInputStream(compactFrame))::skipObject)
+				.isInstanceOf(IOException.class);
+	}
+
+	/**
+	 * Test that a message frame with a huge length prefix is rejected before the message is allocated.
+	 */
+	@Test
+	void testMessageWithOversizedLength() throws IOException {
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream);
+		networkMessageOutputStream.writeShort(LogMessage.SERIAL_VERSION_UID_V2);
+		networkMessageOutputStream.writeInt(LogLevel.INFO.ordinal());
+		networkMessageOutputStream.writeLong(0);
+		networkMessageOutputStream.writeInt(0);
+		networkMessageOutputStream.writeLong(1);
+		networkMessageOutputStream.writeInt(1);
+		networkMessageOutputStream.writeByte('A');
+		networkMessageOutputStream.writeInt(Integer.MAX_VALUE);
+		networkMessageOutputStream.flush();
+		byte[] frame = byteArrayOutputStream.toByteArray();
+
+		assertThatThrownBy(new NetworkMessageInputStream(new ByteArrayInputStream(frame))::nextObject)
+				.isInstanceOf(IOException.class).hasMessageContaining("Invalid string length");
+		assertThatThrownBy(new NetworkMessageInputStream(new ByteArrayInputStream(frame))::skipObject)
+				.isInstanceOf(IOException.class).hasMessageContaining("Invalid string length");
+	}
+
+	/**
+	 * Test that a message frame with a timestamp that does not fit into epoch nanoseconds or with out of range
+	 * nanoseconds is rejected, in version 2 and in version 1.
+	 */
+	@Test
+	void testMessageWithInvalidTimestamp() throws IOException {
+
+		long[][] timestamps = {{Long.MAX_VALUE, 0}, {Long.MIN_VALUE, 0}, {0, 1_000_000_000}, {0, -1}};
+		for (long[] timestamp : timestamps) {
+			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+			NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream);
+			networkMessageOutputStream.writeShort(LogMessage.SERIAL_VERSION_UID_V2);
+			networkMessageOutputStream.writeInt(LogLevel.INFO.ordinal());
+			networkMessageOutputStream.writeLong(timestamp[0]);
+			networkMessageOutputStream.writeInt((int) timestamp[1]);
+			networkMessageOutputStream.writeLong(1);
+			networkMessageOutputStream.writeInt(1);
+			networkMessageOutputStream.writeByte('A');
+			networkMessageOutputStream.writeInt(1);
+			networkMessageOutputStream.writeByte('B');
+			networkMessageOutputStream.flush();
+			byte[] frame = byteArrayOutputStream.toByteArray();
+
+			assertThatThrownBy(new NetworkMessageInputStream(new ByteArrayInputStream(frame))::nextObject)
+					.isInstanceOf(IOException.class).hasMessageContaining("Invalid");
+		}
+
+		byte[] frame = writeVersion1(Instant.ofEpochMilli(Long.MAX_VALUE), "Old Client", "Old message");
+
+		assertThatThrownBy(new NetworkMessageInputStream(new ByteArrayInputStream(frame))::nextObject)
+				.isInstanceOf(IOException.class).hasMessageContaining("Invalid timestamp");
+	}
+
+	/**
+	 * Test that the timestamps are kept as epoch nanoseconds, that equality compares them with millisecond precision
+	 * and that equal messages have equal hash codes.
+	 */
+	@Test
+	void testTimestampsAndHashCode() {
+
+		Instant occurredAt = Instant.parse("2024-11-28T22:11:56.719904812Z");
+		LogMessage message = new LogMessage(occurredAt, "Client Name", LogLevel.INFO, "Some message");
+		LogMessage sameMillisecond = new LogMessage(occurredAt.plusNanos(50_000), "Client Name", LogLevel.INFO, "Some message");
+
+		assertThat(message.getTimestamp()).isEqualTo(occurredAt);
+		assertThat(message.getReceivedAtServer()).isNull();
+		assertThat(sameMillisecond).isEqualTo(message);
+		assertThat(sameMillisecond.hashCode()).isEqualTo(message.hashCode());
+		assertThat(new LogMessage(occurredAt.plusMillis(1), "Client Name", LogLevel.INFO, "Some message"))
+				.isNotEqualTo(message);
+
+		message.setReceivedAtServerNanos(EpochClock.toEpochNanos(occurredAt) + 1);
+		assertThat(message.getReceivedAtServer()).isEqualTo(occurredAt.plusNanos(1));
+	}
+
+	/**
+	 * Test that version 2 keeps the nanoseconds of the timestamp and the sequence number.
+	 */
+	@Test
+	void testVersion2KeepsNanosAndSequenceNumber() throws IOException {
+
+		long occurredAt = EpochClock.toEpochNanos(Instant.parse("2024-11-28T22:11:56.719904812Z"));
+		LogMessage message = new LogMessage(occurredAt, "Client Name", 42, LogLevel.DEBUG, "Some message");
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		new NetworkMessageOutputStream(byteArrayOutputStream).writeObject(message);
+		byte[] frame = byteArrayOutputStream.toByteArray();
+
+		NetworkMessageInputStream networkMessageInputStream = new NetworkMessageInputStream(new ByteArrayInputStream(frame));
+		LogMessage deserialized = (LogMessage) networkMessageInputStream.nextObject();
+
+		assertThat(frame[1]).isEqualTo((byte) LogMessage.SERIAL_VERSION_UID_V2);
+		assertThat(deserialized.getTimestampNanos()).isEqualTo(occurredAt);
+		assertThat(deserialized.getSequenceNumber()).isEqualTo(42);
+		assertThat(deserialized.getClientName()).isEqualTo("Client Name");
+		assertThat(deserialized.getLogLevel()).isEqualTo(LogLevel.DEBUG);
+		assertThat(deserialized.getMessage()).isEqualTo("Some message");
+
+		assertThat(new NetworkMessageInputStream(new ByteArrayInputStream(frame)).skipObject()).isEqualTo(1);
+	}
+
+	/**
+	 * Test that version 3 keeps the occurrences of a collapsed message, also on a stream in the compact format.
+	 */
+	@Test
+	void testVersion3KeepsOccurrences() throws IOException {
+
+		long occurredAt = EpochClock.toEpochNanos(Instant.parse("2024-11-28T22:11:56.719904812Z"));
+		LogMessage collapsed = new LogMessage(occurredAt, "Client Name", 42, LogLevel.ERROR, "Connection lost");
+		collapsed.setOccurrences(1_000, occurredAt + 2_500_000_000L);
+		LogMessage single = new LogMessage(occurredAt, "Client Name", 43, LogLevel.ERROR, "Connection restored");
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream, true);
+		networkMessageOutputStream.writeObject(collapsed);
+		int singleFrameSize = byteArrayOutputStream.size();
+		networkMessageOutputStream.writeObject(new LogMessageBatch(List.of(single, collapsed)));
+		byte[] frames = byteArrayOutputStream.toByteArray();
+
+		NetworkMessageInputStream networkMessageInputStream = new NetworkMessageInputStream(new ByteArrayInputStream(frames));
+		LogMessage deserialized = (LogMessage) networkMessageInputStream.nextObject();
+		List<LogMessage> batch = ((LogMessageBatch) networkMessageInputStream.nextObject()).getMessages();
+
+		assertThat(frames[1]).isEqualTo((byte) LogMessage.SERIAL_VERSION_UID_V3);
+		assertThat(frames[singleFrameSize + 1]).isEqualTo((byte) LogMessageBatch.serialVersionUID);
+		for (LogMessage message : List.of(deserialized, batch.get(1))) {
+			assertThat(message).isEqualTo(collapsed);
+			assertThat(message.getSequenceNumber()).isEqualTo(42);
+			assertThat(message.getOccurrences()).isEqualTo(1_000);
+			assertThat(message.getLastTimestampNanos()).isEqualTo(occurredAt + 2_500_000_000L);
+		}
+		assertThat(batch.get(0).getOccurrences()).isEqualTo(1);
+		assertThat(batch.get(0).getLastTimestampNanos()).isEqualTo(occurredAt);
+
+		networkMessageInputStream = new NetworkMessageInputStream(new ByteArrayInputStream(frames));
+		assertThat(networkMessageInputStream.skipObject() + networkMessageInputStream.skipObject()).isEqualTo(3);
+		assertThat(networkMessageInputStream.available()).isZero();
+	}
+
+	/**
+	 * Test that frames of version 1, e.g. from older clients or caches, can still be decoded and skipped.
+	 */
+	@Test
+	void testVersion1IsStillDecoded() throws IOException {
+
+		Instant occurredAt = Instant.parse("2024-11-28T22:11:56.719Z");
+		byte[] frame = writeVersion1(occurredAt, "Old Client", "Old message");
+
+		NetworkMessageInputStream networkMessageInputStream = new NetworkMessageInputStream(new ByteArrayInputStream(frame));
+		LogMessage deserialized = (LogMessage) networkMessageInputStream.nextObject();
+
+		assertThat(deserialized.getTimestamp()).isEqualTo(occurredAt);
+		assertThat(deserialized.getSequenceNumber()).isEqualTo(LogMessage.NO_SEQUENCE_NUMBER);
+		assertThat(deserialized.getClientName()).isEqualTo("Old Client");
+		assertThat(deserialized.getLogLevel()).isEqualTo(LogLevel.WARNING);
+		assertThat(deserialized.getMessage()).isEqualTo("Old message");
+
+		assertThat(new NetworkMessageInputStream(new ByteArrayInputStream(frame)).skipObject()).isEqualTo(1);
+	}
+
+	/**
+	 * Test that received messages share the client name and keep their UTF-8 encoded content.
+	 */
+	@Test
+	void testClientNamesAreSharedAndContentIsKeptEncoded() throws IOException {
+
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			messages.add(new LogMessage(EpochClock.nowNanos(), i % 2 == 0 ? "Client Ä" : "Client B", i, LogLevel.INFO, "Grüsse " + i + " \u20ac"));
+		}
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		new NetworkMessageOutputStream(byteArrayOutputStream).writeObject(new LogMessageBatch(messages));
+		NetworkMessageInputStream networkMessageInputStream =
+				new NetworkMessageInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+		List<LogMessage> received = ((LogMessageBatch) networkMessageInputStream.nextObject()).getMessages();
+
+		assertThat(received).containsExactlyElementsOf(messages);
+		for (int i = 0; i < received.size(); i++) {
+			assertThat(received.get(i).getClientName()).isSameAs(received.get(i % 2).getClientName());
+			assertThat(received.get(i).getMessageUtf8()).isEqualTo(messages.get(i).getMessage().getBytes(StandardCharsets.UTF_8));
+		}
+
+		// Forwarding a received message writes the bytes it was received with
+		ByteArrayOutputStream forwarded = new ByteArrayOutputStream();
+		received.get(0).serialize(new NetworkMessageOutputStream(forwarded));
+		ByteArrayOutputStream original = new ByteArrayOutputStream();
+		messages.get(0).serialize(new NetworkMessageOutputStream(original));
+		assertThat(forwarded.toByteArray()).isEqualTo(original.toByteArray());
+	}
+
+	/**
+	 * Test that a batch may contain messages of both versions.
+	 */
+	@Test
+	void testBatchWithBothVersions() throws IOException {
+
+		Instant occurredAt = Instant.parse("2024-11-28T22:11:56.719Z");
+		LogMessage current = new LogMessage(EpochClock.toEpochNanos(occurredAt) + 123, "New Client", 7, LogLevel.INFO, "New message");
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream);
+		networkMessageOutputStream.writeShort(LogMessageBatch.serialVersionUID);
+		networkMessageOutputStream.writeInt(2);
+		networkMessageOutputStream.write(writeVersion1(occurredAt, "Old Client", "Old message"));
+		current.serialize(networkMessageOutputStream);
+		networkMessageOutputStream.flush();
+		byte[] frame = byteArrayOutputStream.toByteArray();
+
+		LogMessageBatch batch = (LogMessageBatch) new NetworkMessageInputStream(new ByteArrayInputStream(frame)).nextObject();
+
+		assertThat(batch.getMessages()).hasSize(2);
+		assertThat(batch.getMessages().get(0).getClientName()).isEqualTo("Old Client");
+		assertThat(batch.getMessages().get(1).getTimestampNanos()).isEqualTo(current.getTimestampNanos());
+		assertThat(batch.getMessages().get(1).getSequenceNumber()).isEqualTo(7);
+		assertThat(new NetworkMessageInputStream(new ByteArrayInputStream(frame)).skipObject()).isEqualTo(2);
+	}
+
+	/**
+	 * Writes a log message frame of version 1 with the log level {@link LogLevel#WARNING}.
+	 */
+	private static byte[] writeVersion1(final Instant occurredAt, final String clientName, final String message) throws IOException {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream);
+		networkMessageOutputStream.writeShort(LogMessage.serialVersionUID);
+		networkMessageOutputStream.writeInt(LogLevel.WARNING.ordinal());
+		networkMessageOutputStream.writeLong(occurredAt.toEpochMilli());
+		byte[] clientNameBytes = clientName.getBytes(StandardCharsets.UTF_8);
+		networkMessageOutputStream.writeInt(clientNameBytes.length);
+		networkMessageOutputStream.write(clientNameBytes);
+		byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+		networkMessageOutputStream.writeInt(messageBytes.length);
+		networkMessageOutputStream.write(messageBytes);
+		networkMessageOutputStream.flush();
+		return byteArrayOutputStream.toByteArray();
+	}
+
+	/**
+	 * Test that the compact format announces every client once and keeps all values of the messages.
+	 */
+	@Test
+	void testCompactFormat() throws IOException {
+
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			messages.add(new LogMessage(EpochClock.nowNanos(), i % 3 == 0 ? "Client A" : "Client B", i, LogLevel.INFO, "Message " + i));
+		}
+		messages.add(new LogMessage(-1_500_000_001L, "Client B", LogMessage.NO_SEQUENCE_NUMBER, LogLevel.ERROR, "Before 1970"));
+
+		ByteArrayOutputStream compactBytes = new ByteArrayOutputStream();
+		NetworkMessageOutputStream compactStream = new NetworkMessageOutputStream(compactBytes, true);
+		compactStream.writeObject(messages.get(0));
+		compactStream.writeObject(new LogMessageBatch(messages.subList(1, messages.size())));
+
+		ByteArrayOutputStream fullBytes = new ByteArrayOutputStream();
+		NetworkMessageOutputStream fullStream = new NetworkMessageOutputStream(fullBytes);
+		fullStream.writeObject(messages.get(0));
+		fullStream.writeObject(new LogMessageBatch(messages.subList(1, messages.size())));
+
+		NetworkMessageInputStream networkMessageInputStream =
+				new NetworkMessageInputStream(new ByteArrayInputStream(compactBytes.toByteArray()));
+		List<Object> frames = new ArrayList<>();
+		while (networkMessageInputStream.available() > 0) {
+			frames.add(networkMessageInputStream.nextObject());
+		}
+
+		assertThat(frames).hasSize(4);
+		assertThat(frames.get(0)).isInstanceOf(ClientHandshake.class);
+		assertThat(frames.get(2)).isInstanceOf(ClientHandshake.class);
+		List<LogMessage> received = new ArrayList<>();
+		received.add((LogMessage) frames.get(1));
+		received.addAll(((LogMessageBatch) frames.get(3)).getMessages());
+		assertThat(received).containsExactlyElementsOf(messages);
+		for (int i = 0; i < messages.size(); i++) {
+			assertThat(received.get(i).getTimestampNanos()).isEqualTo(messages.get(i).getTimestampNanos());
+			assertThat(received.get(i).getSequenceNumber()).isEqualTo(messages.get(i).getSequenceNumber());
+		}
+		assertThat(compactBytes.size()).isLessThan(fullBytes.size() * 6 / 10);
+
+		networkMessageInputStream = new NetworkMessageInputStream(new ByteArrayInputStream(compactBytes.toByteArray()));
+		int skipped = 0;
+		while (networkMessageInputStream.available() > 0) {
+			skipped += networkMessageInputStream.skipObject();
+		}
+		assertThat(skipped).isEqualTo(messages.size());
+	}
+
+	/**
+	 * Test that a compact message of a client which has not been announced is rejected.
+	 */
+	@Test
+	void testCompactFormatWithUnknownClient() throws IOException {
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream);
+		new LogMessage(Instant.now(), "Client Name", LogLevel.INFO, "Some message").serializeCompact(networkMessageOutputStream, 0);
+		networkMessageOutputStream.flush();
+
+		NetworkMessageInputStream networkMessageInputStream =
+				new NetworkMessageInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()));
+
+		assertThatThrownBy(networkMessageInputStream::nextObject).isInstanceOf(IOException.class);
+	}
+
+	/**
+	 * Test that compressed batches are decoded and skipped, and that small batches are sent uncompressed.
+	 */
+	@Test
+	void testCompressedBatches() throws IOException {
+
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			messages.add(new LogMessage(EpochClock.nowNanos(), "Client " + (i % 2), i, LogLevel.INFO, "Request " + (i % 7) + " done"));
+		}
+
+		for (boolean compact : new boolean[] {false, true}) {
+			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+			NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream, compact);
+			networkMessageOutputStream.setCompression(Compression.DEFLATE);
+			networkMessageOutputStream.writeObject(new LogMessageBatch(messages.subList(0, 299)));
+			int compressedSize = byteArrayOutputStream.size();
+			networkMessageOutputStream.writeObject(new LogMessageBatch(messages.subList(299, 300)));
+			byte[] frames = byteArrayOutputStream.toByteArray();
+
+			assertThat(frames[1]).isEqualTo((byte) CompressedLogMessageBatch.serialVersionUID);
+			assertThat(frames[compressedSize + 1]).isNotEqualTo((byte) CompressedLogMessageBatch.serialVersionUID);
+			assertThat(compressedSize).isLessThan(299 * 10);
+
+			NetworkMessageInputStream networkMessageInputStream = new NetworkMessageInputStream(new ByteArrayInputStream(frames));
+			List<LogMessage> received = new ArrayList<>();
+			while (networkMessageInputStream.available() > 0) {
+				if (networkMessageInputStream.nextObject() instanceof LogMessageBatch batch) {
+					received.addAll(batch.getMessages());
+				}
+			}
+			assertThat(received).containsExactlyElementsOf(messages);
+
+			networkMessageInputStream = new NetworkMessageInputStream(new ByteArrayInputStream(frames));
+			int skipped = 0;
+			while (networkMessageInputStream.available() > 0) {
+				skipped += networkMessageInputStream.skipObject();
+			}
+			assertThat(skipped).isEqualTo(messages.size());
+		}
+	}
+
+	/**
+	 * Test that a compressed batch with corrupt data is rejected.
+	 */
+	@Test
+	void testCorruptCompressedBatch() throws IOException {
+
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			messages.add(new LogMessage(Instant.now(), "Client Name", LogLevel.INFO, "Message " + i));
+		}
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		NetworkMessageOutputStream networkMessageOutputStream = new NetworkMessageOutputStream(byteArrayOutputStream);
+		networkMessageOutputStream.setCompression(Compression.DEFLATE_FAST);
+		networkMessageOutputStream.writeObject(new LogMessageBatch(messages));
+		byte[] frame = byteArrayOutputStream.toByteArray();
+		frame[frame.length - 10] ^= 0x5A;
+
+		NetworkMessageInputStream networkMessageInputStream = new NetworkMessageInputStream(new ByteArrayInputStream(frame));
+
+		assertThatThrownBy(networkMessageInputStream::nextObject).isInstanceOf(IOException.class);
+	}
+
 }
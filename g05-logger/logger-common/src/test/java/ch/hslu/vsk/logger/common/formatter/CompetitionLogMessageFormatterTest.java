@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
@@ -57,5 +58,28 @@ class CompetitionLogMessageFormatterTest {
             formatter.parse(invalidInput);
         });
     }
-}
 
+    @Test
+    void testCollapsedMessageKeepsOccurrences() {
+        Instant first = Instant.parse("2024-12-05T10:15:30.1234Z");
+        LogMessage message = new LogMessage(first, "Client1", LogLevel.ERROR, "Connection lost");
+        message.setOccurrences(5_000, EpochClock.toEpochNanos(first.plusMillis(2_500)));
+
+        String serializedMessage = formatter.serialize(message);
+        LogMessage parsed = formatter.parse(serializedMessage);
+
+        assertEquals("2024-12-05 10:15:30.1234 ERROR Client1 Connection lost"
+                + " (repeated 5000 times, last at 2024-12-05 10:15:32.6234)", serializedMessage);
+        assertEquals("Connection lost", parsed.getMessage());
+        assertEquals(5_000, parsed.getOccurrences());
+        assertEquals(first.plusMillis(2_500), parsed.getLastTimestamp());
+    }
+
+    @Test
+    void testMessageEndingLikeRepetitionIsKeptAsText() {
+        LogMessage parsed = formatter.parse("2024-12-05 10:15:30.1234 INFO Client1 Done (repeated 3 times, last at noon)");
+
+        assertEquals("Done (repeated 3 times, last at noon)", parsed.getMessage());
+        assertEquals(1, parsed.getOccurrences());
+    }
+}
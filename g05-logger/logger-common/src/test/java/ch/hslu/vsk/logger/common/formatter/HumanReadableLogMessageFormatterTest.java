@@ -2,6 +2,7 @@ package ch.hslu.vsk.logger.common.formatter;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import ch.hslu.vsk.logger.common.util.InstantSerializer;
 
 import org.junit.jupiter.api.Test;
@@ -48,4 +49,22 @@ class HumanReadableLogMessageFormatterTest {
 		String reSerializedMessage = formatter.serialize(parsedMessage);
 		assertEquals(serializedMessage, reSerializedMessage);
 	}
-}
\ No newline at end of file
+
+	@Test
+	void collapsedMessageKeepsOccurrences() {
+		Instant first = Instant.parse("2024-12-05T10:15:30.1234Z");
+		LogMessage message = new LogMessage(first.plusSeconds(3), first, "Default", LogLevel.ERROR, "Connection lost");
+		message.setOccurrences(5_000, EpochClock.toEpochNanos(first.plusMillis(2_500)));
+		HumanReadableLogMessageFormatter formatter = new HumanReadableLogMessageFormatter();
+
+		String result = formatter.serialize(message);
+		LogMessage parsed = formatter.parse(result);
+
+		assertEquals("ReceivedAt: [2024-12-05 10:15:33.1234]\nTimestamp: [2024-12-05 10:15:30.1234]\nClient-Name: [Default]\n"
+				+ "Log-Level: [ERROR]\nOccurrences: [5000]\nLast-Timestamp: [2024-12-05 10:15:32.6234]\n"
+				+ "Message: [Connection lost]", result);
+		assertEquals(message, parsed);
+		assertEquals(5_000, parsed.getOccurrences());
+		assertEquals(first.plusMillis(2_500), parsed.getLastTimestamp());
+	}
+}
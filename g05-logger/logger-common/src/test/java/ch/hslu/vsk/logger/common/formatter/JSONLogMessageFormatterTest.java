@@ -2,11 +2,13 @@ package ch.hslu.vsk.logger.common.formatter;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import ch.hslu.vsk.logger.common.util.InstantSerializer;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Instant;
 
@@ -75,4 +77,65 @@ class JSONLogMessageFormatterTest {
         assertEquals("Test \"message\"", result.getMessage());
     }
 
-}
\ No newline at end of file
+    @Test
+    void parseAndSerializeWithEscapedCharacters() {
+        LogMessageFormatter formatter = new JSONLogMessageFormatter();
+        String[] texts = {"C:\\temp\\new", "Line\nbreak\ttab\u0001", "Ends with \\", "\"", "", "Grüsse \u20ac"};
+        for (String text : texts) {
+            LogMessage message = new LogMessage(Instant.now(), Instant.now(), "Client \"A\"", LogLevel.WARNING, text);
+            String serialized = formatter.serialize(message);
+            LogMessage parsed = formatter.parse(serialized);
+            assertEquals(text, parsed.getMessage());
+            assertEquals("Client \"A\"", parsed.getClientName());
+            assertEquals(serialized, formatter.serialize(parsed));
+        }
+        assertTrue(formatter.serialize(new LogMessage(Instant.now(), "Default", LogLevel.INFO, "a\nb\u0001"))
+                .contains("\"message\": \"a\\nb\\u0001\""));
+    }
+
+    @Test
+    void parseJSONStringWithOtherLayout() {
+        String json = " { \"message\" : \"Test \\u0041\\/\" ,\"count\": 12, \"flag\":true, \"logLevel\":\"ERROR\","
+                + "\"clientName\":\"Default\",\"timestamp\":\"2024-11-28 22:11:56.7199\",\"receivedAt\":\"NULL\","
+                + "\"note\":\"\\\"}\"} ";
+        LogMessage result = new JSONLogMessageFormatter().parse(json);
+        assertEquals(new LogMessage(null, Instant.parse("2024-11-28T22:11:56.7199Z"), "Default", LogLevel.ERROR, "Test A/"), result);
+    }
+
+    @Test
+    void parseMalformedJSONStrings() {
+        LogMessageFormatter formatter = new JSONLogMessageFormatter();
+        String valid = "\"receivedAt\": \"NULL\", \"timestamp\": \"NULL\", \"clientName\": \"Default\", \"logLevel\": \"INFO\", ";
+        String[] malformed = {
+                "",
+                "{",
+                "{" + valid + "\"message\": \"Test message\"",
+                "{" + valid + "\"message\": \"Test message}",
+                "{" + valid + "\"message\": \"Test message\"} trailing",
+                "{" + valid + "\"message\": \"Invalid \\u12\"}",
+                "{" + valid + "\"nested\": {}, \"message\": \"Test message\"}",
+                "{" + valid.replace("INFO", "UNKNOWN") + "\"message\": \"Test message\"}"
+        };
+        for (String json : malformed) {
+            assertThrows(IllegalArgumentException.class, () -> formatter.parse(json), json);
+        }
+    }
+
+    @Test
+    void collapsedMessageKeepsOccurrences() {
+        JSONLogMessageFormatter formatter = new JSONLogMessageFormatter();
+        Instant first = Instant.parse("2024-11-28T22:11:56.7199Z");
+        LogMessage message = new LogMessage(first.plusSeconds(3), first, "Default", LogLevel.ERROR, "Connection lost");
+        message.setOccurrences(1_234, EpochClock.toEpochNanos(first.plusMillis(2_500)));
+
+        String json = formatter.serialize(message);
+        LogMessage parsed = formatter.parse(json);
+
+        assertTrue(json.endsWith("\"message\": \"Connection lost\", \"occurrences\": 1234, \"lastTimestamp\": \""
+                + InstantSerializer.stringifyInstant(first.plusMillis(2_500)) + "\"}"), json);
+        assertEquals(message, parsed);
+        assertEquals(1_234, parsed.getOccurrences());
+        assertEquals(first.plusMillis(2_500), parsed.getLastTimestamp());
+        assertThrows(IllegalArgumentException.class, () -> formatter.parse(json.replace("1234", "many")));
+    }
+}
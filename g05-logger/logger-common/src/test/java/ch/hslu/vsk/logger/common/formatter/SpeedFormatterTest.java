@@ -2,12 +2,15 @@ package ch.hslu.vsk.logger.common.formatter;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import ch.hslu.vsk.logger.common.util.InstantSerializer;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 
 class SpeedFormatterTest {
@@ -24,6 +27,23 @@ class SpeedFormatterTest {
         assertEquals("ReceivedAt: " + InstantSerializer.stringifyInstant(receivedAt) + " ||| Timestamp: " + InstantSerializer.stringifyInstant(sentAt) + " ||| Client-Name: " + message.getClientName() + " ||| Log-Level: INFO ||| Message: Test message", result);
     }
 
+    @Test
+    void formatToWritesSerializedMessage() {
+        SpeedFormatter formatter = new SpeedFormatter();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        LogMessage[] messages = {
+                new LogMessage(Instant.now().plusSeconds(1), Instant.now(), "HelloLogger", LogLevel.INFO, "Test message"),
+                new LogMessage(Instant.now(), "Lögger", LogLevel.ERROR, "Grüsse, \u20ac"),
+                new LogMessage(Instant.parse("1969-12-31T23:59:59.999Z"), "HelloLogger", LogLevel.DEBUG, "")
+        };
+
+        for (LogMessage message : messages) {
+            buffer.clear();
+            formatter.formatTo(message, buffer);
+            assertEquals(formatter.serialize(message), new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+        }
+    }
+
     @Test
     void parseValidLogMessageString() {
 		Instant sentAt = Instant.now();
@@ -49,4 +69,25 @@ class SpeedFormatterTest {
         SpeedFormatter formatter = new SpeedFormatter();
         assertThrows(IllegalArgumentException.class, () -> formatter.parse(logMessageString));
     }
-}
\ No newline at end of file
+
+    @Test
+    void collapsedMessageKeepsOccurrences() {
+        Instant first = Instant.parse("2024-12-05T10:15:30.1234Z");
+        LogMessage message = new LogMessage(first.plusSeconds(3), first, "HelloLogger", LogLevel.ERROR, "Connection lost");
+        message.setOccurrences(5_000, EpochClock.toEpochNanos(first.plusMillis(2_500)));
+        SpeedFormatter formatter = new SpeedFormatter();
+
+        String result = formatter.serialize(message);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        formatter.formatTo(message, buffer);
+        LogMessage parsed = formatter.parse(result);
+
+        assertEquals("ReceivedAt: 2024-12-05 10:15:33.1234 ||| Timestamp: 2024-12-05 10:15:30.1234 ||| Client-Name: HelloLogger"
+                + " ||| Log-Level: ERROR ||| Occurrences: 5000 ||| Last-Timestamp: 2024-12-05 10:15:32.6234"
+                + " ||| Message: Connection lost", result);
+        assertEquals(result, new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+        assertEquals(message, parsed);
+        assertEquals(5_000, parsed.getOccurrences());
+        assertEquals(first.plusMillis(2_500), parsed.getLastTimestamp());
+    }
+}
@@ -2,12 +2,16 @@ package ch.hslu.vsk.logger.common.formatter;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import ch.hslu.vsk.logger.common.util.InstantSerializer;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 
 class XMLLogMessageFormatterTest {
@@ -81,4 +85,82 @@ class XMLLogMessageFormatterTest {
         LogMessageFormatter formatter = new XMLLogMessageFormatter();
         assertEquals("<logMessage><receivedAt>" + InstantSerializer.stringifyInstant(message.getReceivedAtServer()) + "</receivedAt><timestamp>" + InstantSerializer.stringifyInstant(message.getTimestamp()) + "</timestamp><clientName>MyLogger</clientName><logLevel>INFO</logLevel><message>Test&lt;&gt;message</message></logMessage>", formatter.serialize(message));
     }
-}
\ No newline at end of file
+
+    @Test
+    void serializeAndParseEscapedCharacters() {
+        LogMessage message = new LogMessage(Instant.now().plusSeconds(1), Instant.now(), "A&B", LogLevel.WARNING, "a & b\tc\r\nd <e>\u0001");
+        LogMessageFormatter formatter = new XMLLogMessageFormatter();
+        String serialized = formatter.serialize(message);
+        assertEquals("<logMessage><receivedAt>" + InstantSerializer.stringifyInstant(message.getReceivedAtServer()) + "</receivedAt><timestamp>" + InstantSerializer.stringifyInstant(message.getTimestamp()) + "</timestamp><clientName>A&amp;B</clientName><logLevel>WARNING</logLevel><message>a &amp; b&#9;c&#13;&#10;d &lt;e&gt;\uFFFD</message></logMessage>", serialized);
+
+        LogMessage parsed = formatter.parse(serialized);
+        assertEquals("A&B", parsed.getClientName());
+        assertEquals("a & b\tc\r\nd <e>\uFFFD", parsed.getMessage());
+    }
+
+    @Test
+    void parseUnescapedAmpersandAndCharacterReferences() {
+        String xml = "<logMessage><receivedAt>" + InstantSerializer.stringifyInstant(Instant.now()) + "</receivedAt><timestamp>" + InstantSerializer.stringifyInstant(Instant.now()) + "</timestamp><clientName>MyLogger</clientName><logLevel>INFO</logLevel><message>Tom & Jerry &quot;&#x41;&#66;&apos; &unknown;</message></logMessage>";
+        LogMessageFormatter formatter = new XMLLogMessageFormatter();
+        assertEquals("Tom & Jerry \"AB' &unknown;", formatter.parse(xml).getMessage());
+    }
+
+    @Test
+    void parseMalformedXMLStrings() {
+        LogMessageFormatter formatter = new XMLLogMessageFormatter();
+        String xml = formatter.serialize(new LogMessage(Instant.now().plusSeconds(1), Instant.now(), "MyLogger", LogLevel.INFO, "Test message"));
+        assertThrows(IllegalArgumentException.class, () -> formatter.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> formatter.parse(xml + xml));
+        assertThrows(IllegalArgumentException.class, () -> formatter.parse(xml.substring(0, xml.length() - 5)));
+        assertThrows(IllegalArgumentException.class, () -> formatter.parse(xml.replace("</message>", "</clientName>")));
+        assertThrows(IllegalArgumentException.class, () -> formatter.parse(xml.replace("INFO", "NOTICE")));
+    }
+
+    @Test
+    void parseValidXMLStringAfterMalformedOnes() {
+        LogMessageFormatter formatter = new XMLLogMessageFormatter();
+        LogMessage message = new LogMessage(Instant.now().plusSeconds(1), Instant.now(), "MyLogger", LogLevel.INFO, "Test message");
+        String xml = formatter.serialize(message);
+        assertThrows(IllegalArgumentException.class, () -> formatter.parse(xml + xml));
+        assertThrows(IllegalArgumentException.class, () -> formatter.parse(xml.substring(0, xml.length() - 5)));
+        assertEquals(message, formatter.parse(xml));
+    }
+
+    @Test
+    void formatToWritesSerializedMessage() {
+        XMLLogMessageFormatter formatter = new XMLLogMessageFormatter();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        LogMessage[] messages = {
+                new LogMessage(Instant.now().plusSeconds(1), Instant.now(), "HelloLogger", LogLevel.INFO, "Test <message> & more"),
+                new LogMessage(Instant.now(), "Lögger&Co", LogLevel.ERROR, "Grüsse,\n\u20ac\u0000"),
+                new LogMessage(Instant.parse("1969-12-31T23:59:59.999Z"), "HelloLogger", LogLevel.DEBUG, "")
+        };
+
+        for (LogMessage message : messages) {
+            buffer.clear();
+            formatter.formatTo(message, buffer);
+            assertEquals(formatter.serialize(message), new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void collapsedMessageKeepsOccurrences() {
+        XMLLogMessageFormatter formatter = new XMLLogMessageFormatter();
+        Instant first = Instant.parse("2024-11-28T22:11:56.7199Z");
+        LogMessage message = new LogMessage(first.plusSeconds(3), first, "HelloLogger", LogLevel.ERROR, "Connection lost");
+        message.setOccurrences(1_234, EpochClock.toEpochNanos(first.plusMillis(2_500)));
+
+        String xml = formatter.serialize(message);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        formatter.formatTo(message, buffer);
+        LogMessage parsed = formatter.parse(xml);
+
+        assertTrue(xml.endsWith("<message>Connection lost</message><occurrences>1234</occurrences><lastTimestamp>"
+                + InstantSerializer.stringifyInstant(first.plusMillis(2_500)) + "</lastTimestamp></logMessage>"), xml);
+        assertEquals(xml, new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+        assertEquals(message, parsed);
+        assertEquals(1_234, parsed.getOccurrences());
+        assertEquals(first.plusMillis(2_500), parsed.getLastTimestamp());
+        assertThrows(IllegalArgumentException.class, () -> formatter.parse(xml.replace("1234", "0")));
+    }
+}
@@ -0,0 +1,88 @@
+package ch.hslu.vsk.logger.common.formatter;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Instant;
+
+class XMLLogMessageReaderTest {
+
+    private final XMLLogMessageFormatter formatter = new XMLLogMessageFormatter();
+
+    @Test
+    void readRecordsOfPersistorFile() throws IOException {
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            LogMessage message = createMessage(i);
+            file.append(message.getReceivedAtServer()).append(',').append(this.formatter.serialize(message)).append('\n');
+        }
+
+        // A small buffer, so records and entities cross the buffer boundary
+        try (XMLLogMessageReader reader = new XMLLogMessageReader(new StringReader(file.toString()), 16)) {
+            for (int i = 0; i < 500; i++) {
+                assertEquals(createMessage(i), reader.next());
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void continueAfterMalformedRecord() throws IOException {
+        String records = this.formatter.serialize(createMessage(1))
+                + "\n<logMessage><timestamp>invalid</timestamp></logMessage>\n"
+                + "<logMessage><message>Incomplete"
+                + "\n" + this.formatter.serialize(createMessage(2));
+
+        try (XMLLogMessageReader reader = new XMLLogMessageReader(new StringReader(records))) {
+            assertEquals(createMessage(1), reader.next());
+            assertThrows(IllegalArgumentException.class, reader::next);
+            assertThrows(IllegalArgumentException.class, reader::next);
+            assertEquals(createMessage(2), reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void readAnotherStreamAfterReset() throws IOException {
+        String records = this.formatter.serialize(createMessage(1)) + "\n" + this.formatter.serialize(createMessage(2));
+
+        try (XMLLogMessageReader reader = new XMLLogMessageReader(new StringReader(records))) {
+            assertEquals(createMessage(1), reader.next());
+            reader.reset(new StringReader(this.formatter.serialize(createMessage(3))));
+            assertEquals(createMessage(3), reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void readElementsInAnyOrder() throws IOException {
+        String xml = "<logMessage>\n  <message>Test message</message>\n  <logLevel>DEBUG</logLevel>\n  <ignored/>\n"
+                + "  <clientName>Loggy</clientName>\n  <timestamp>2024-11-05 10:15:30.1234</timestamp>\n"
+                + "  <receivedAt>2024-11-05 10:15:30.1264</receivedAt>\n</logMessage>";
+
+        try (XMLLogMessageReader reader = new XMLLogMessageReader(new StringReader(xml))) {
+            LogMessage message = reader.next();
+            assertEquals("Loggy", message.getClientName());
+            assertEquals(LogLevel.DEBUG, message.getLogLevel());
+            assertEquals("Test message", message.getMessage());
+        }
+    }
+
+    @Test
+    void createWithoutReader() {
+        assertThrows(IllegalArgumentException.class, () -> new XMLLogMessageReader(null));
+    }
+
+    private static LogMessage createMessage(final int index) {
+        Instant occurredAt = Instant.parse("2024-11-05T10:15:30.1234Z").plusMillis(index);
+        return new LogMessage(occurredAt.plusMillis(3), occurredAt, "client-" + index % 3, LogLevel.values()[index % 4],
+                "Message " + index + " with <tags> & entities");
+    }
+}
@@ -0,0 +1,77 @@
+package ch.hslu.vsk.logger.common.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link VarInt} class.
+ */
+class VarIntTest {
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private final DataOutputStream out = new DataOutputStream(this.bytes);
+
+	private DataInputStream input() {
+		return new DataInputStream(new ByteArrayInputStream(this.bytes.toByteArray()));
+	}
+
+	/**
+	 * Verifies the number of bytes of small and large values.
+	 */
+	@Test
+	void testLength() throws IOException {
+		VarInt.writeInt(this.out, 127);
+		assertThat(this.bytes.size()).isEqualTo(1);
+		VarInt.writeInt(this.out, 128);
+		assertThat(this.bytes.size()).isEqualTo(3);
+		VarInt.writeInt(this.out, -1);
+		assertThat(this.bytes.size()).isEqualTo(8);
+		VarInt.writeSignedLong(this.out, -1);
+		assertThat(this.bytes.size()).isEqualTo(9);
+	}
+
+	/**
+	 * Verifies that values are read back as written, including the extremes.
+	 */
+	@Test
+	void testRoundTrip() throws IOException {
+		int[] ints = {0, 1, 300, Integer.MAX_VALUE, Integer.MIN_VALUE, -1};
+		long[] longs = {0, 1_732_831_916L, Long.MAX_VALUE, Long.MIN_VALUE, -1};
+		for (int value : ints) {
+			VarInt.writeInt(this.out, value);
+		}
+		for (long value : longs) {
+			VarInt.writeLong(this.out, value);
+			VarInt.writeSignedLong(this.out, value);
+		}
+
+		DataInputStream in = this.input();
+		for (int value : ints) {
+			assertThat(VarInt.readInt(in)).isEqualTo(value);
+		}
+		for (long value : longs) {
+			assertThat(VarInt.readLong(in)).isEqualTo(value);
+			VarInt.skip(in);
+		}
+		assertThat(in.available()).isZero();
+	}
+
+	/**
+	 * Verifies that a value without a terminating byte is rejected.
+	 */
+	@Test
+	void testMalformed() throws IOException {
+		for (int i = 0; i < 6; i++) {
+			this.out.writeByte(0x80);
+		}
+		assertThatThrownBy(() -> VarInt.readInt(this.input())).isInstanceOf(IOException.class);
+	}
+}
@@ -87,5 +87,21 @@ class EnumSerializerTest {
                     "Deserialized value should match the original enum value: " + value);
         }
     }
-}
 
+    @Test
+    void testSerializeAndDeserializeAsByte() throws IOException {
+        EnumSerializer<TestEnum> serializer = new EnumSerializer<>(TestEnum.class);
+
+        // Serialize a value and null as single bytes
+        ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(byteOut);
+        serializer.writeByte(dataOut, TestEnum.THIRD);
+        serializer.writeByte(dataOut, null);
+
+        DataInputStream dataIn = new DataInputStream(new ByteArrayInputStream(byteOut.toByteArray()));
+
+        assertEquals(2, byteOut.size(), "Every value should take a single byte.");
+        assertEquals(TestEnum.THIRD, serializer.readByte(dataIn));
+        assertNull(serializer.readByte(dataIn));
+    }
+}
@@ -0,0 +1,54 @@
+package ch.hslu.vsk.logger.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class EpochClockTest {
+
+	@Test
+	void testNowIsCloseToSystemClock() {
+
+		Instant before = Instant.now();
+		Instant now = EpochClock.toInstant(EpochClock.nowNanos());
+		Instant after = Instant.now();
+
+		assertThat(now).isBetween(before.minusMillis(5), after.plusMillis(5));
+	}
+
+	@Test
+	void testConversionRoundTrip() {
+
+		Instant instant = Instant.parse("2024-11-28T22:11:56.719904812Z");
+		long epochNanos = EpochClock.toEpochNanos(instant);
+
+		assertThat(EpochClock.toInstant(epochNanos)).isEqualTo(instant);
+		assertThat(EpochClock.toEpochMillis(epochNanos)).isEqualTo(instant.toEpochMilli());
+	}
+
+	@Test
+	void testConversionBeforeEpoch() {
+
+		Instant instant = Instant.parse("1969-12-31T23:59:59.999999999Z");
+
+		assertThat(EpochClock.toInstant(EpochClock.toEpochNanos(instant))).isEqualTo(instant);
+		assertThat(EpochClock.toEpochMillis(EpochClock.toEpochNanos(instant))).isEqualTo(instant.toEpochMilli());
+	}
+
+	@Test
+	void testNull() {
+		assertThat(EpochClock.toEpochNanos(null)).isEqualTo(EpochClock.NOT_SET);
+		assertThat(EpochClock.toInstant(EpochClock.NOT_SET)).isNull();
+	}
+
+	@Test
+	void testOutOfRange() {
+		assertThatThrownBy(() -> EpochClock.toEpochNanos(Instant.EPOCH.plus(Duration.ofDays(365L * 300))))
+				.isInstanceOf(ArithmeticException.class);
+	}
+
+}
@@ -35,4 +35,12 @@ class InstantSerializerTest {
 		assertThat(InstantSerializer.parseInstant("INVALID")).isNull();
 	}
 
-}
\ No newline at end of file
+	@Test
+	void testParsingInvalidTimestamps() {
+		assertThat(InstantSerializer.parseInstant("2024-13-01 00:00:00.0000")).isNull();
+		assertThat(InstantSerializer.parseInstant("2024-11-28 22:11:56.719a")).isNull();
+		assertThat(InstantSerializer.parseInstant("invalid-timestamp")).isNull();
+		assertThat(InstantSerializer.parseInstant("2024-02-29 23:59:59.9999"))
+				.isEqualTo(Instant.parse("2024-02-29T23:59:59.9999Z"));
+	}
+}
@@ -0,0 +1,50 @@
+package ch.hslu.vsk.logger.common.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+class TimestampWriterTest {
+
+	@Test
+	void testWritesFormatOfInstantSerializer() {
+
+		long[] timestamps = {
+				EpochClock.toEpochNanos(Instant.parse("2024-11-28T22:11:56.719904800Z")),
+				EpochClock.toEpochNanos(Instant.parse("2024-11-28T22:11:57.000099999Z")),
+				EpochClock.toEpochNanos(Instant.parse("2024-11-28T22:11:56.000000001Z")),
+				0,
+				-1_500_000_001L,
+				EpochClock.nowNanos()
+		};
+		for (long timestamp : timestamps) {
+			assertThat(write(timestamp)).isEqualTo(InstantSerializer.stringifyInstant(EpochClock.toInstant(timestamp)));
+		}
+		assertThat(write(EpochClock.toEpochNanos(Instant.parse("2024-11-28T22:11:56.719904800Z"))))
+				.isEqualTo("2024-11-28 22:11:56.7199");
+	}
+
+	@Test
+	void testWritesNull() {
+		assertThat(write(EpochClock.NOT_SET)).isEqualTo("NULL");
+	}
+
+	@Test
+	void testBufferOverflow() {
+		ByteBuffer buffer = ByteBuffer.allocate(22);
+		assertThatThrownBy(() -> TimestampWriter.write(EpochClock.nowNanos(), buffer))
+				.isInstanceOf(BufferOverflowException.class);
+	}
+
+	private static String write(final long epochNanos) {
+		ByteBuffer buffer = ByteBuffer.allocate(64);
+		TimestampWriter.write(epochNanos, buffer);
+		return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+	}
+}
@@ -3,28 +3,37 @@ package ch.hslu.vsk.logger.component;
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.api.Logger;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.util.EpochClock;
+import ch.hslu.vsk.logger.component.sampling.LogSampler;
 import ch.hslu.vsk.logger.component.sendQueues.LogMessageSendQueue;
 
-import java.time.Instant;
-
-import org.apache.logging.log4j.LogManager;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 
 /**
  * This class implements the {@link Logger} interface and provides functionality to log messages 
  * at various log levels. It uses a {@link LogMessageSendQueue} to queue log messages for further processing.
- * The log messages are associated with a specific client and can optionally respect a minimum log level.
+ * The log messages are associated with a specific client and can optionally respect a minimum log level and a
+ * {@link LogSampler} which limits the messages sent. Rejecting a message below the minimum log level or by the
+ * sampler does not allocate.
  */
 public final class LoggerComponent implements Logger {
 
-	/**
-	 * Logger for debugging this component.
-	 */
-	private static final org.apache.logging.log4j.Logger LOGGER = LogManager.getLogger(LoggerComponent.class);
-
 	private LogLevel minLogLevel;
 	private String clientName;
 	private LogMessageSendQueue sendQueue;
+	private final LogSampler sampler;
+
+	/**
+	 * Sends the summaries of the sampler, created once so that sampling does not allocate.
+	 */
+	private final BiConsumer<LogLevel, String> summaries = this::send;
+
+	/**
+	 * Sequence number of the last message created by this component.
+	 */
+	private final AtomicLong sequenceNumber = new AtomicLong();
 
 
 	/**
@@ -48,9 +57,24 @@ public final class LoggerComponent implements Logger {
 	 *                    Messages with a lower log level will be ignored.
 	 */
 	public LoggerComponent(final LogMessageSendQueue sendQueue, final String clientName, final LogLevel minLogLevel) {
+		this(sendQueue, clientName, minLogLevel, null);
+	}
+
+	/**
+	 * Constructs a new {@code LoggerComponent} with a specified minimum log level and sampler.
+	 * Only messages at or above the minimum log level which are admitted by the sampler will be logged.
+	 *
+	 * @param sendQueue  The queue where log messages will be sent.
+	 * @param clientName The name of the client associated with this logger.
+	 * @param minLogLevel The minimum log level required for messages to be logged, or null for none.
+	 * @param sampler The sampler which decides which messages are sent, or null to send all messages.
+	 */
+	public LoggerComponent(final LogMessageSendQueue sendQueue, final String clientName, final LogLevel minLogLevel,
+						   final LogSampler sampler) {
 		this.sendQueue = sendQueue;
 		this.clientName = clientName;
 		this.minLogLevel = minLogLevel;
+		this.sampler = sampler;
 	}
 
 
@@ -58,12 +82,25 @@ public final class LoggerComponent implements Logger {
 	public void log(final LogLevel logLevel, final String message) {
 
 		if (this.minLogLevel != null && logLevel.getValue() > this.minLogLevel.getValue()) {
-			LOGGER.info("Tried to log a message with a lower log level then the minLogLevel");
 			return;
 		}
+		if (this.sampler != null && !this.sampler.admit(logLevel, message, System.nanoTime(), this.summaries)) {
+			return;
+		}
+
+		this.send(logLevel, message);
+	}
 
+	/**
+	 * Creates a log message and queues it for sending.
+	 *
+	 * @param logLevel The level of the message.
+	 * @param message The text of the message.
+	 */
+	private void send(final LogLevel logLevel, final String message) {
 		// Create a log message
-		LogMessage logMessage = new LogMessage(Instant.now(), this.clientName, logLevel, message);
+		LogMessage logMessage = new LogMessage(EpochClock.nowNanos(), this.clientName,
+				this.sequenceNumber.incrementAndGet(), logLevel, message);
 
 		// Queue the log message
 		this.sendQueue.enqueue(logMessage);
@@ -1,15 +1,20 @@
 package ch.hslu.vsk.logger.component;
 
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import ch.hslu.vsk.logger.api.LogLevel;
 import ch.hslu.vsk.logger.api.Logger;
 import ch.hslu.vsk.logger.api.LoggerSetup;
-import ch.hslu.vsk.logger.component.cache.FileCacheStrategy;
+import ch.hslu.vsk.logger.common.network.Compression;
+import ch.hslu.vsk.logger.component.cache.BinaryFileCacheStrategy;
 import ch.hslu.vsk.logger.component.cache.LogMessageCacheStrategy;
-import ch.hslu.vsk.logger.component.sendQueues.BlockingLogMessageSendQueue;
+import ch.hslu.vsk.logger.component.sampling.LogSampler;
+import ch.hslu.vsk.logger.component.sendQueues.BatchingLogMessageSendQueue;
+import ch.hslu.vsk.logger.component.sendQueues.CollapsingLogMessageSendQueue;
 import ch.hslu.vsk.logger.component.sendQueues.LogMessageSendQueue;
 
 /**
@@ -17,6 +22,46 @@ import ch.hslu.vsk.logger.component.sendQueues.LogMessageSendQueue;
  */
 public final class LoggerFactory implements LoggerSetup  {
 
+	private Compression compression = Compression.NONE;
+	private Supplier<LogSampler> sampler;
+	private Duration collapseWindow;
+
+	/**
+	 * Sets the compression the loggers created afterwards offer to the server. Compression saves bandwidth for
+	 * repetitive log messages at the cost of CPU time on the client.
+	 *
+	 * @param compression The compression; must not be null.
+	 */
+	public void setCompression(final Compression compression) {
+		if (compression == null) {
+			throw new IllegalArgumentException("Compression must not be null");
+		}
+		this.compression = compression;
+	}
+
+	/**
+	 * Sets the sampler of the loggers created afterwards. Every logger gets its own sampler, so the rates and
+	 * repetitions are counted per logger.
+	 *
+	 * @param sampler Creates the sampler of a logger, or null to send all messages.
+	 */
+	public void setSampler(final Supplier<LogSampler> sampler) {
+		this.sampler = sampler;
+	}
+
+	/**
+	 * Sets the window in which the loggers created afterwards collapse identical messages into one message with
+	 * the number of occurrences. Every message is delayed by up to the length of the window.
+	 *
+	 * @param collapseWindow The length of the window, or null to send every message on its own.
+	 * @throws IllegalArgumentException if the window is not positive.
+	 */
+	public void setCollapseWindow(final Duration collapseWindow) {
+		if (collapseWindow != null && (collapseWindow.isNegative() || collapseWindow.isZero())) {
+			throw new IllegalArgumentException("Collapse window must be positive");
+		}
+		this.collapseWindow = collapseWindow;
+	}
 
 	@Override
 	public Logger getLogger(final String destination, final String clientName, final LogLevel minLogLevel) {
@@ -32,10 +77,14 @@ public final class LoggerFactory implements LoggerSetup  {
 		String host = matcher.group(1);
 		int port = Integer.parseInt(matcher.group(2));
 
-		LogMessageCacheStrategy cacher = new FileCacheStrategy(Path.of("./tmp/cache_" + clientName + ".log"));
-		LogMessageSendQueue queue = new BlockingLogMessageSendQueue(cacher, host, port);
+		LogMessageCacheStrategy cacher = new BinaryFileCacheStrategy(Path.of("./tmp/cache_" + clientName + ".bin"));
+		LogMessageSendQueue queue = new BatchingLogMessageSendQueue(cacher, host, port,
+				BatchingLogMessageSendQueue.DEFAULT_CAPACITY, BatchingLogMessageSendQueue.DEFAULT_BATCH_SIZE, this.compression);
+		if (this.collapseWindow != null) {
+			queue = new CollapsingLogMessageSendQueue(queue, this.collapseWindow);
+		}
 
-		return new LoggerComponent(queue, clientName, minLogLevel);
+		return new LoggerComponent(queue, clientName, minLogLevel, this.sampler != null ? this.sampler.get() : null);
 	}
 
 	@Override
@@ -0,0 +1,514 @@
+package ch.hslu.vsk.logger.component.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import ch.hslu.vsk.logger.common.util.FileCreator;
+
+/**
+ * A file-based implementation of the {@link LogMessageCacheStrategy} interface that stores the messages in
+ * their binary wire format.
+ * <p>
+ * The cache file is a plain sequence of {@link LogMessage} and {@link LogMessageBatch} frames, exactly as they
+ * are sent over the network. The {@link LogMessageReplayCursor} returned by {@link #openReplay()} copies the raw
+ * frames of the file to the socket chunk by chunk, without decoding them and with constant memory.
+ * </p>
+ * <p>
+ * The offset up to which frames have been acknowledged is checkpointed in a sidecar file ({@code <file>.ack}),
+ * so an interrupted replay resumes where it stopped, even after a restart. The cache file itself is only
+ * truncated once all of its frames have been acknowledged. An incomplete frame at the end of the file (e.g.
+ * after a crash while writing) is cut off when the cache is opened.
+ * </p>
+ */
+public final class BinaryFileCacheStrategy implements LogMessageCacheStrategy, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(BinaryFileCacheStrategy.class);
+
+    private final Path filePath;
+    private final Path checkpointPath;
+    private final FileOutputStream fileOutputStream;
+    private final NetworkMessageOutputStream outputStream;
+
+    /**
+     * Offset of the first frame that has not been acknowledged yet.
+     */
+    private long acknowledgedOffset;
+
+    /**
+     * Constructs a new {@code BinaryFileCacheStrategy} with the specified file path.
+     * Messages which are already cached in the file and have not been acknowledged are kept.
+     *
+     * @param filePath the file path for storing cached log messages; must not be null.
+     * @throws IllegalArgumentException if the file path is null or the file cannot be created.
+     * @throws IllegalStateException if the file cannot be opened.
+     */
+    public BinaryFileCacheStrategy(final Path filePath) {
+        if (filePath == null) {
+            throw new IllegalArgumentException("File path must not be null.");
+        }
+
+        this.filePath = filePath;
+        this.checkpointPath = filePath.resolveSibling(filePath.getFileName() + ".ack");
+
+        // Ensure the file exists
+        if (!FileCreator.createFile(filePath)) {
+            throw new IllegalArgumentException("Invalid filePath. Failed to create the file");
+        }
+
+        try {
+            long validLength = this.truncateIncompleteFrames();
+            this.acknowledgedOffset = this.readCheckpoint(validLength);
+            this.fileOutputStream = new FileOutputStream(filePath.toFile(), true);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to open cache file: " + ex.getMessage(), ex);
+        }
+        this.outputStream = new NetworkMessageOutputStream(new BufferedOutputStream(this.fileOutputStream));
+    }
+
+    @Override
+    public synchronized boolean save(final LogMessage message) {
+        if (message == null) {
+            return false;
+        }
+
+        try {
+            this.outputStream.writeObject(message);
+            return true;
+        } catch (IOException ex) {
+            LOGGER.error("Failed to cache log message", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Saves multiple log messages as {@link LogMessageBatch} frames with a single flush.
+     *
+     * @param messages the {@link LogMessage} objects to save; must not be null.
+     * @return {@code true} if all messages were successfully saved, {@code false} otherwise.
+     */
+    @Override
+    public synchronized boolean saveAll(final List<LogMessage> messages) {
+        if (messages == null || messages.contains(null)) {
+            return false;
+        }
+
+        try {
+            for (int from = 0; from < messages.size(); from += LogMessageBatch.MAX_BATCH_SIZE) {
+                int to = Math.min(from + LogMessageBatch.MAX_BATCH_SIZE, messages.size());
+                new LogMessageBatch(messages.subList(from, to)).serialize(this.outputStream);
+            }
+            this.outputStream.flush();
+            return true;
+        } catch (IOException ex) {
+            LOGGER.error("Failed to cache log messages", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves all cached log messages which have not been acknowledged yet.
+     *
+     * @return a list of {@link LogMessage} objects retrieved from the cache.
+     */
+    @Override
+    public synchronized List<LogMessage> retrieveAll() {
+        List<LogMessage> messages = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(this.filePath, StandardOpenOption.READ);
+             NetworkMessageInputStream inputStream = new NetworkMessageInputStream(
+                     new BufferedInputStream(Channels.newInputStream(channel.position(this.acknowledgedOffset))))) {
+            this.outputStream.flush();
+            while (true) {
+                NetworkTransferable frame;
+                try {
+                    frame = inputStream.nextObject();
+                } catch (EOFException ex) {
+                    break;
+                }
+
+                if (frame instanceof LogMessageBatch batch) {
+                    messages.addAll(batch.getMessages());
+                } else if (frame instanceof LogMessage message) {
+                    messages.add(message);
+                }
+            }
+            return messages;
+        } catch (IOException | IllegalArgumentException ex) {
+            LOGGER.error("Failed to read cached log messages", ex);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public synchronized boolean clear() {
+        try {
+            this.outputStream.flush();
+            this.fileOutputStream.getChannel().truncate(0);
+            this.acknowledgedOffset = 0;
+            Files.deleteIfExists(this.checkpointPath);
+            return true;
+        } catch (IOException ex) {
+            LOGGER.error("Failed to clear cache file", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Opens a cursor which streams the raw frames of the cache file, starting at the last acknowledged offset.
+     *
+     * @return a new {@link LogMessageReplayCursor}; must be closed after use.
+     * @throws IllegalStateException if the cache file could not be opened for reading.
+     */
+    @Override
+    public synchronized LogMessageReplayCursor openReplay() {
+        try {
+            this.outputStream.flush();
+            return new FileReplayCursor();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to open cache file for replay: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Closes the cache file. Cached messages remain in the file.
+     *
+     * @throws IOException if the file could not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.outputStream.close();
+    }
+
+    /**
+     * Stores the acknowledged offset. If everything has been acknowledged, the cache file is truncated instead.
+     *
+     * @param offset the offset of the first frame that has not been acknowledged.
+     * @return {@code true} if the cache file has been truncated.
+     * @throws IOException if the checkpoint could not be written.
+     */
+    private boolean acknowledgeUpTo(final long offset) throws IOException {
+        this.outputStream.flush();
+        if (offset >= this.fileOutputStream.getChannel().size()) {
+            this.fileOutputStream.getChannel().truncate(0);
+            this.acknowledgedOffset = 0;
+            Files.deleteIfExists(this.checkpointPath);
+            return true;
+        }
+
+        this.acknowledgedOffset = offset;
+        Files.write(this.checkpointPath, ByteBuffer.allocate(Long.BYTES).putLong(offset).array());
+        return false;
+    }
+
+    /**
+     * Reads the acknowledged offset from the checkpoint file. A missing, unreadable or out of range checkpoint
+     * replays the whole file, i.e. messages may be sent twice but are never lost.
+     *
+     * @param fileLength the length of the cache file.
+     * @return the acknowledged offset.
+     */
+    private long readCheckpoint(final long fileLength) {
+        try {
+            if (Files.notExists(this.checkpointPath)) {
+                return 0;
+            }
+            byte[] bytes = Files.readAllBytes(this.checkpointPath);
+            if (bytes.length == Long.BYTES) {
+                long offset = ByteBuffer.wrap(bytes).getLong();
+                if (offset >= 0 && offset <= fileLength && this.isFrameBoundary(offset)) {
+                    return offset;
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to read replay checkpoint {}", this.checkpointPath, ex);
+        }
+        LOGGER.warn("Ignoring invalid replay checkpoint {}", this.checkpointPath);
+        return 0;
+    }
+
+    /**
+     * Checks whether the given offset is the start of a frame (or the end of the file).
+     *
+     * @param offset the offset to check.
+     * @return {@code true} if a frame starts at the offset.
+     * @throws IOException if the file could not be read.
+     */
+    private boolean isFrameBoundary(final long offset) throws IOException {
+        try (RecordingInputStream counter = new RecordingInputStream(
+                new BufferedInputStream(Files.newInputStream(this.filePath)));
+             NetworkMessageInputStream inputStream = new NetworkMessageInputStream(counter)) {
+            while (counter.getCount() < offset) {
+                inputStream.skipObject();
+            }
+            return counter.getCount() == offset;
+        }
+    }
+
+    /**
+     * Cuts off an incomplete or unreadable frame at the end of the cache file, so that only complete frames are
+     * ever copied to the network.
+     *
+     * @return the length of the file after truncation.
+     * @throws IOException if the file could not be read or truncated.
+     */
+    private long truncateIncompleteFrames() throws IOException {
+        long validLength = 0;
+
+        try (RecordingInputStream counter = new RecordingInputStream(
+                new BufferedInputStream(Files.newInputStream(this.filePath)));
+             NetworkMessageInputStream inputStream = new NetworkMessageInputStream(counter)) {
+            while (true) {
+                inputStream.skipObject();
+                validLength = counter.getCount();
+            }
+        } catch (EOFException ex) {
+            // Reached the end of the file, possibly in the middle of a frame
+        } catch (IOException ex) {
+            LOGGER.warn("Found corrupt frame in cache file {}", this.filePath, ex);
+        }
+
+        if (validLength < Files.size(this.filePath)) {
+            LOGGER.warn("Discarding incomplete frames at the end of cache file {}", this.filePath);
+            try (FileChannel channel = FileChannel.open(this.filePath, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        return validLength;
+    }
+
+    /**
+     * A cursor which copies the raw frames of the cache file. All operations synchronize on the enclosing
+     * cache, so the cache can be written while a cursor is open.
+     */
+    private final class FileReplayCursor implements LogMessageReplayCursor {
+
+        private FileChannel channel;
+        private RecordingInputStream recorder;
+        private NetworkMessageInputStream inputStream;
+        private long transferredOffset;
+
+        /**
+         * Opens the cache file for reading at the acknowledged offset.
+         *
+         * @throws IOException if the file could not be opened.
+         */
+        FileReplayCursor() throws IOException {
+            this.openAt(acknowledgedOffset);
+        }
+
+        @Override
+        public boolean hasNext() {
+            synchronized (BinaryFileCacheStrategy.this) {
+                try {
+                    outputStream.flush();
+                    return this.transferredOffset < this.channel.size();
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Failed to read cache file: " + ex.getMessage(), ex);
+                }
+            }
+        }
+
+        @Override
+        public int transferTo(final NetworkMessageOutputStream target, final int maxMessages) throws IOException {
+            if (maxMessages <= 0) {
+                throw new IllegalArgumentException("Max messages must be greater than 0.");
+            }
+
+            synchronized (BinaryFileCacheStrategy.this) {
+                outputStream.flush();
+                long length = this.channel.size();
+                int transferred = 0;
+
+                while (transferred < maxMessages && this.transferredOffset < length) {
+                    this.recorder.startRecording();
+                    try {
+                        transferred += this.inputStream.skipObject();
+                    } catch (IOException ex) {
+                        throw new IllegalStateException("Failed to read cached frame at offset "
+                                + this.transferredOffset + ": " + ex.getMessage(), ex);
+                    }
+
+                    // Only complete frames are copied to the target
+                    target.write(this.recorder.getBuffer(), 0, this.recorder.getRecorded());
+                    this.transferredOffset += this.recorder.getRecorded();
+                }
+                return transferred;
+            }
+        }
+
+        @Override
+        public void acknowledge() {
+            synchronized (BinaryFileCacheStrategy.this) {
+                try {
+                    if (acknowledgeUpTo(this.transferredOffset)) {
+                        // The file has been truncated -> continue reading at its start
+                        this.closeStreams();
+                        this.openAt(0);
+                    }
+                } catch (IOException ex) {
+                    throw new IllegalStateException("Failed to store replay checkpoint: " + ex.getMessage(), ex);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (BinaryFileCacheStrategy.this) {
+                this.closeStreams();
+            }
+        }
+
+        /**
+         * Opens the streams to read the cache file from the given offset.
+         *
+         * @param offset the offset to start reading at.
+         * @throws IOException if the file could not be opened.
+         */
+        private void openAt(final long offset) throws IOException {
+            this.channel = FileChannel.open(filePath, StandardOpenOption.READ).position(offset);
+            this.recorder = new RecordingInputStream(new BufferedInputStream(Channels.newInputStream(this.channel)));
+            this.inputStream = new NetworkMessageInputStream(this.recorder);
+            this.transferredOffset = offset;
+        }
+
+        /**
+         * Closes the streams reading the cache file.
+         */
+        private void closeStreams() {
+            try {
+                this.inputStream.close();
+            } catch (IOException ex) {
+                LOGGER.info("Failed to close replay cursor", ex);
+            }
+        }
+    }
+
+    /**
+     * An input stream which counts the number of bytes read and optionally records them.
+     */
+    private static final class RecordingInputStream extends FilterInputStream {
+
+        private long count;
+        private boolean recording;
+        private byte[] buffer = new byte[0];
+        private int recorded;
+        private final byte[] skipBuffer = new byte[8_192];
+
+        /**
+         * Creates a new {@code RecordingInputStream}.
+         *
+         * @param inputStream the stream to read from.
+         */
+        RecordingInputStream(final InputStream inputStream) {
+            super(inputStream);
+        }
+
+        /**
+         * Returns the number of bytes read so far.
+         *
+         * @return the number of bytes read.
+         */
+        long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Discards the recorded bytes and records all bytes read from now on.
+         */
+        void startRecording() {
+            this.recording = true;
+            this.recorded = 0;
+        }
+
+        /**
+         * Returns the buffer containing the recorded bytes.
+         *
+         * @return the buffer; only the first {@link #getRecorded()} bytes are valid.
+         */
+        byte[] getBuffer() {
+            return this.buffer;
+        }
+
+        /**
+         * Returns the number of bytes recorded since {@link #startRecording()}.
+         *
+         * @return the number of recorded bytes.
+         */
+        int getRecorded() {
+            return this.recorded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                this.count++;
+                if (this.recording) {
+                    this.ensureCapacity(1);
+                    this.buffer[this.recorded++] = (byte) value;
+                }
+            }
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] target, final int offset, final int length) throws IOException {
+            int read = super.read(target, offset, length);
+            if (read > 0) {
+                this.count += read;
+                if (this.recording) {
+                    this.ensureCapacity(read);
+                    System.arraycopy(target, offset, this.buffer, this.recorded, read);
+                    this.recorded += read;
+                }
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            if (this.recording) {
+                // Skipped bytes are part of the frame, so they have to be read to be recorded
+                int read = this.read(this.skipBuffer, 0, (int) Math.min(n, this.skipBuffer.length));
+                return Math.max(read, 0);
+            }
+            long skipped = super.skip(n);
+            this.count += skipped;
+            return skipped;
+        }
+
+        /**
+         * Grows the recording buffer so that it can hold the given number of additional bytes.
+         *
+         * @param additional the number of additional bytes.
+         */
+        private void ensureCapacity(final int additional) {
+            if (this.recorded + additional > this.buffer.length) {
+                this.buffer = Arrays.copyOf(this.buffer, Math.max(this.recorded + additional, this.buffer.length * 2));
+            }
+        }
+    }
+}
@@ -18,6 +18,21 @@ public interface LogMessageCacheStrategy {
 	 */
 	boolean save(LogMessage message);
 
+	/**
+	 * Saves multiple log messages using the caching strategy.
+	 * The default implementation saves the messages one by one using {@link #save(LogMessage)}.
+	 *
+	 * @param messages the {@link LogMessage} objects to save; must not be null.
+	 * @return {@code true} if all messages were successfully saved, {@code false} otherwise.
+	 */
+	default boolean saveAll(List<LogMessage> messages) {
+		boolean savedAll = true;
+		for (LogMessage message : messages) {
+			savedAll &= this.save(message);
+		}
+		return savedAll;
+	}
+
 	/**
 	 * Retrieves all cached log messages using the caching strategy.
 	 *
@@ -31,5 +46,14 @@ public interface LogMessageCacheStrategy {
 	 * @return {@code true} if the cache was successfully cleared, {@code false} otherwise.
 	 */
 	boolean clear();
-}
 
+	/**
+	 * Opens a cursor to replay the cached messages in chunks. Only messages acknowledged through the cursor are
+	 * removed from the cache. The default implementation replays a snapshot of {@link #retrieveAll()}.
+	 *
+	 * @return a new {@link LogMessageReplayCursor}; must be closed after use.
+	 */
+	default LogMessageReplayCursor openReplay() {
+		return new SnapshotReplayCursor(this);
+	}
+}
@@ -0,0 +1,49 @@
+package ch.hslu.vsk.logger.component.cache;
+
+import java.io.IOException;
+
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+
+/**
+ * A cursor to replay the messages of a {@link LogMessageCacheStrategy} in chunks.
+ * <p>
+ * Messages are first transferred to a stream with {@link #transferTo(NetworkMessageOutputStream, int)}. Once the
+ * stream has been sent successfully, {@link #acknowledge()} marks all transferred messages as delivered; only
+ * acknowledged messages are ever removed from the cache. Messages which were transferred but not acknowledged
+ * when the cursor is closed stay cached and are replayed again by the next cursor.
+ * </p>
+ */
+public interface LogMessageReplayCursor extends AutoCloseable {
+
+	/**
+	 * Checks whether there are cached messages which have not been transferred yet.
+	 *
+	 * @return {@code true} if there are more messages to transfer, {@code false} otherwise.
+	 */
+	boolean hasNext();
+
+	/**
+	 * Writes the next cached messages as wire frames to the given stream. Frames are never split, so the last
+	 * frame may exceed {@code maxMessages}.
+	 *
+	 * @param outputStream the stream to write the messages to; must not be null.
+	 * @param maxMessages the number of messages after which no further frame is started; must be greater than 0.
+	 * @return the number of messages written.
+	 * @throws IOException if the messages could not be written to the stream.
+	 * @throws IllegalStateException if the cached messages could not be read.
+	 */
+	int transferTo(NetworkMessageOutputStream outputStream, int maxMessages) throws IOException;
+
+	/**
+	 * Marks all messages transferred so far as delivered and removes them from the cache.
+	 *
+	 * @throws IllegalStateException if the progress could not be stored.
+	 */
+	void acknowledge();
+
+	/**
+	 * Closes the cursor. Messages which have not been acknowledged remain cached.
+	 */
+	@Override
+	void close();
+}
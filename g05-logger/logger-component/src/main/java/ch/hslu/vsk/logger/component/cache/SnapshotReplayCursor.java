@@ -0,0 +1,70 @@
+package ch.hslu.vsk.logger.component.cache;
+
+import java.io.IOException;
+import java.util.List;
+
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+
+/**
+ * A {@link LogMessageReplayCursor} for cache strategies without native replay support.
+ * It replays a snapshot taken with {@link LogMessageCacheStrategy#retrieveAll()} and removes the acknowledged
+ * messages from the cache when it is closed.
+ */
+final class SnapshotReplayCursor implements LogMessageReplayCursor {
+
+	private final LogMessageCacheStrategy cache;
+	private final List<LogMessage> snapshot;
+	private int transferred;
+	private int acknowledged;
+
+	/**
+	 * Creates a new cursor over a snapshot of the given cache.
+	 *
+	 * @param cache the cache to replay.
+	 */
+	SnapshotReplayCursor(final LogMessageCacheStrategy cache) {
+		this.cache = cache;
+		this.snapshot = cache.retrieveAll();
+	}
+
+	@Override
+	public boolean hasNext() {
+		return this.transferred < this.snapshot.size();
+	}
+
+	@Override
+	public int transferTo(final NetworkMessageOutputStream outputStream, final int maxMessages) throws IOException {
+		int count = Math.min(Math.min(maxMessages, LogMessageBatch.MAX_BATCH_SIZE), this.snapshot.size() - this.transferred);
+		if (count <= 0) {
+			return 0;
+		}
+
+		new LogMessageBatch(this.snapshot.subList(this.transferred, this.transferred + count)).serialize(outputStream);
+		this.transferred += count;
+		return count;
+	}
+
+	@Override
+	public void acknowledge() {
+		this.acknowledged = this.transferred;
+	}
+
+	/**
+	 * Removes the acknowledged messages from the cache. Messages saved to the cache after the snapshot was taken
+	 * are kept.
+	 */
+	@Override
+	public void close() {
+		if (this.acknowledged == 0) {
+			return;
+		}
+
+		List<LogMessage> current = this.cache.retrieveAll();
+		this.cache.clear();
+		if (current.size() > this.acknowledged) {
+			this.cache.saveAll(current.subList(this.acknowledged, current.size()));
+		}
+	}
+}
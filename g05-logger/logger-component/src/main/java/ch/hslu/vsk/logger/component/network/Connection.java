@@ -1,13 +1,17 @@
 package ch.hslu.vsk.logger.component.network;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.net.Socket;
-import java.util.ArrayList;
+import java.net.SocketTimeoutException;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import ch.hslu.vsk.logger.common.CompressionHandshake;
+import ch.hslu.vsk.logger.common.network.Compression;
 import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
 import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
 import ch.hslu.vsk.logger.common.network.NetworkTransferable;
@@ -16,6 +20,15 @@ import ch.hslu.vsk.logger.common.network.NetworkTransferable;
  * This class facilitates establishing a connection to a server, enabling data transmission and reception.
  * It supports adding listeners for connect and disconnect events and provides methods for sending and
  * receiving {@link NetworkTransferable} objects.
+ * <p>
+ * By default, log messages are sent in the compact format (see {@link NetworkMessageOutputStream}), which announces
+ * every client name once per connection and roughly halves the size of short messages.
+ * </p>
+ * <p>
+ * If a {@link Compression} is set, it is offered to the server after connecting with a
+ * {@link CompressionHandshake}. Batches are compressed once the server has accepted; if it declines or does not
+ * reply within {@link #COMPRESSION_NEGOTIATION_TIMEOUT_MS}, they are sent uncompressed.
+ * </p>
  */
 public class Connection implements AutoCloseable {
 
@@ -24,15 +37,23 @@ public class Connection implements AutoCloseable {
      */
     private static final Logger LOGGER = LogManager.getLogger(Connection.class);
 
-    private Socket socket;
-    private String host;
-    private int port;
-    private NetworkMessageOutputStream outputStream;
-    private NetworkMessageInputStream inputStream;
-    private boolean connected = false;
+    /**
+     * Maximum time (in milliseconds) to wait for the reply of the server to the offered compression.
+     */
+    public static final int COMPRESSION_NEGOTIATION_TIMEOUT_MS = 2_000;
+
+    // Shared between the sender thread and the reconnect thread
+    private volatile Socket socket;
+    private volatile String host;
+    private volatile int port;
+    private volatile NetworkMessageOutputStream outputStream;
+    private volatile NetworkMessageInputStream inputStream;
+    private volatile boolean connected = false;
+    private volatile boolean compactEncoding = true;
+    private volatile Compression compression = Compression.NONE;
 
-    private final List<ConnectListener> connectListeners = new ArrayList<>();
-    private final List<DisconnectListener> disconnectListeners = new ArrayList<>();
+    private final List<ConnectListener> connectListeners = new CopyOnWriteArrayList<>();
+    private final List<DisconnectListener> disconnectListeners = new CopyOnWriteArrayList<>();
 
     /**
      * A listener interface to handle connection establishment events.
@@ -139,6 +160,57 @@ public class Connection implements AutoCloseable {
         return this.port;
     }
 
+    /**
+     * Sets whether log messages are sent in the compact format. Takes effect with the next connect.
+     *
+     * @param compactEncoding {@code true} for the compact format, {@code false} for self-contained frames
+     *                        understood by older servers.
+     */
+    public void setCompactEncoding(final boolean compactEncoding) {
+        this.compactEncoding = compactEncoding;
+    }
+
+    /**
+     * Checks whether log messages are sent in the compact format.
+     *
+     * @return {@code true} if the compact format is used.
+     */
+    public boolean isCompactEncoding() {
+        return this.compactEncoding;
+    }
+
+    /**
+     * Sets the compression offered to the server. Takes effect with the next connect.
+     *
+     * @param compression The compression; must not be null. {@link Compression#NONE} sends uncompressed batches
+     *                    without negotiating.
+     */
+    public void setCompression(final Compression compression) {
+        if (compression == null) {
+            throw new IllegalArgumentException("Compression must not be null.");
+        }
+        this.compression = compression;
+    }
+
+    /**
+     * Retrieves the compression offered to the server.
+     *
+     * @return The offered compression.
+     */
+    public Compression getCompression() {
+        return this.compression;
+    }
+
+    /**
+     * Retrieves the compression used on the current connection, i.e. the result of the negotiation.
+     *
+     * @return The compression in use, or {@link Compression#NONE} if not connected.
+     */
+    public Compression getNegotiatedCompression() {
+        NetworkMessageOutputStream stream = this.outputStream;
+        return stream != null ? stream.getCompression() : Compression.NONE;
+    }
+
     /**
      * Attempts to reconnect to the server by establishing a new connection.
      *
@@ -147,8 +219,10 @@ public class Connection implements AutoCloseable {
     protected boolean tryConnect() {
         try {
             this.socket = new Socket(this.host, this.port);
-            this.outputStream = new NetworkMessageOutputStream(this.socket.getOutputStream());
+            this.outputStream = new NetworkMessageOutputStream(new BufferedOutputStream(this.socket.getOutputStream()),
+                    this.compactEncoding);
             this.inputStream = new NetworkMessageInputStream(this.socket.getInputStream());
+            this.negotiateCompression();
             this.connected = true;
 			LOGGER.info("Successfully connected to tcp://{}:{}", host, port);
             return true;
@@ -159,6 +233,33 @@ public class Connection implements AutoCloseable {
         }
     }
 
+    /**
+     * Offers the configured compression to the server and waits for its reply.
+     *
+     * @throws IOException If the offer could not be sent or the connection was closed.
+     */
+    private void negotiateCompression() throws IOException {
+        if (this.compression == Compression.NONE) {
+            return;
+        }
+
+        this.outputStream.writeObject(new CompressionHandshake(this.compression));
+        this.socket.setSoTimeout(COMPRESSION_NEGOTIATION_TIMEOUT_MS);
+        try {
+            if (this.inputStream.nextObject() instanceof CompressionHandshake reply
+                    && reply.getCompression() == this.compression) {
+                this.outputStream.setCompression(this.compression);
+            } else {
+                LOGGER.info("Server declined compression {}, sending uncompressed", this.compression);
+            }
+        } catch (SocketTimeoutException ex) {
+            LOGGER.warn("Server did not reply to compression offer within {} ms, sending uncompressed",
+                    COMPRESSION_NEGOTIATION_TIMEOUT_MS);
+        } finally {
+            this.socket.setSoTimeout(0);
+        }
+    }
+
     /**
      * Notifies all registered connect listeners that the connection was established.
      */
@@ -239,8 +340,12 @@ public class Connection implements AutoCloseable {
      * @return The received {@link NetworkTransferable} object, or {@code null} if an error occurs.
      */
     public NetworkTransferable nextObject() {
+        NetworkMessageInputStream stream = this.inputStream;
+        if (stream == null) {
+            return null;
+        }
         try {
-            return this.inputStream.nextObject();
+            return stream.nextObject();
         } catch (IOException ex) {
             this.handleDisconnect();
             this.notifyDisconnectListeners();
@@ -255,13 +360,14 @@ public class Connection implements AutoCloseable {
      * @return {@code true} if the object was successfully sent, otherwise {@code false}.
      */
     public boolean send(final NetworkTransferable data) {
-        if (!this.isConnected()) {
+        NetworkMessageOutputStream stream = this.outputStream;
+        if (!this.isConnected() || stream == null) {
             LOGGER.debug("Attempted to send data while not connected.");
             return false;
         }
 
         try {
-            this.outputStream.writeObject(data);
+            stream.writeObject(data);
             return true;
         } catch (IOException ex) {
             LOGGER.debug("Error sending data to tcp://{}:{}. Data: {}", host, port, data, ex);
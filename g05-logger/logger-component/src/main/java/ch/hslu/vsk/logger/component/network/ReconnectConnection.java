@@ -1,5 +1,6 @@
 package ch.hslu.vsk.logger.component.network;
 
+import java.io.IOException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -22,8 +23,8 @@ public class ReconnectConnection extends Connection {
     private static final int DEFAULT_RECONNECT_INTERVAL_MS = 1_000;
 
     private final ScheduledExecutorService scheduler;
-	private boolean isReconnecting = false;
-	private ScheduledFuture<?> reconnectFuture = null;
+	private volatile boolean isReconnecting = false;
+	private volatile ScheduledFuture<?> reconnectFuture = null;
     private int reconnectIntervalMs;
 
     /**
@@ -57,22 +58,42 @@ public class ReconnectConnection extends Connection {
     protected void handleDisconnect() {
         super.handleDisconnect();
 
-        // Avoid starting multiple reconnection threads
-        if (this.isReconnecting) {
+        // Avoid starting multiple reconnection threads and don't reconnect after the connection was closed
+        if (this.isReconnecting || this.scheduler.isShutdown()) {
             return;
         }
 
 		this.isReconnecting = true;
         LOGGER.info("Attempting to reconnect to server using interval of {} ms", this.reconnectIntervalMs);
 
-		this.reconnectFuture = this.scheduler.scheduleAtFixedRate(() -> {
+		ScheduledFuture<?> future = this.scheduler.scheduleAtFixedRate(() -> {
 
-            // Attempt to reconnect
-            if (this.tryConnect()) {
+            // Attempt to reconnect, unless an earlier run has already succeeded
+            if (this.isReconnecting && this.tryConnect()) {
 				this.isReconnecting = false;
-				this.reconnectFuture.cancel(false);
+				ScheduledFuture<?> running = this.reconnectFuture;
+				if (running != null) {
+					running.cancel(false);
+				}
                 this.notifyConnectListeners();
             }
 		}, 0, this.reconnectIntervalMs, TimeUnit.MILLISECONDS);
+		this.reconnectFuture = future;
+
+		// The first run may have reconnected before the future was stored
+		if (!this.isReconnecting) {
+			future.cancel(false);
+		}
 	}
+
+    /**
+     * Closes the connection and stops any further reconnection attempts.
+     *
+     * @throws IOException If an error occurs while closing the connection.
+     */
+    @Override
+    public void close() throws IOException {
+        this.scheduler.shutdownNow();
+        super.close();
+    }
 }
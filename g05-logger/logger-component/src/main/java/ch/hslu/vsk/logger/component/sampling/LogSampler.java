@@ -0,0 +1,48 @@
+package ch.hslu.vsk.logger.component.sampling;
+
+import java.util.function.BiConsumer;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+
+
+/**
+ * Decides which messages a {@link ch.hslu.vsk.logger.component.LoggerComponent} sends, e.g. to limit the rate of
+ * chatty levels or to sample them.
+ * <p>
+ * The sampler is asked for every message which passes the minimum log level of the logger, before the
+ * {@link ch.hslu.vsk.logger.common.LogMessage} is created, and from every thread which logs. Implementations have
+ * to be thread-safe, and rejecting a message must neither allocate nor block, so that a rejected message costs
+ * (almost) nothing.
+ * </p>
+ */
+@FunctionalInterface
+public interface LogSampler {
+
+	/**
+	 * Decides whether a message is sent.
+	 *
+	 * @param level The level of the message.
+	 * @param message The text of the message; may be null.
+	 * @param now The current time of {@link System#nanoTime()}.
+	 * @param summaries Sends a message of the given level and text without sampling it, e.g. to summarize
+	 *                  messages which have been rejected.
+	 * @return {@code true} if the message is sent, {@code false} if it is dropped.
+	 */
+	boolean admit(LogLevel level, String message, long now, BiConsumer<LogLevel, String> summaries);
+
+	/**
+	 * Returns a sampler which admits the messages which are admitted by this sampler and then by the given one. The
+	 * given sampler is not asked for messages which this sampler rejects.
+	 *
+	 * @param next The sampler asked after this one; must not be null.
+	 * @return The combined sampler.
+	 * @throws IllegalArgumentException if the sampler is null.
+	 */
+	default LogSampler andThen(final LogSampler next) {
+		if (next == null) {
+			throw new IllegalArgumentException("Sampler must not be null");
+		}
+		return (level, message, now, summaries) -> this.admit(level, message, now, summaries)
+				&& next.admit(level, message, now, summaries);
+	}
+}
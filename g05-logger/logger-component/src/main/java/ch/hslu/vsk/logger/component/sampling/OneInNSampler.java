@@ -0,0 +1,50 @@
+package ch.hslu.vsk.logger.component.sampling;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+
+
+/**
+ * A {@link LogSampler} which sends every n-th message of a level. The sampling is deterministic: of the messages of
+ * a level, the first one and then every n-th one is sent, independent of the thread which logs them. Levels without
+ * a sampling are not sampled.
+ */
+public final class OneInNSampler implements LogSampler {
+
+	private static final LogLevel[] LEVELS = LogLevel.values();
+
+	// Indexed by the ordinal of the level; a sampling of 0 or 1 sends all messages
+	private final long[] sampling = new long[LEVELS.length];
+	private final AtomicLongArray counters = new AtomicLongArray(LEVELS.length);
+
+	/**
+	 * Creates a new {@code OneInNSampler}.
+	 *
+	 * @param sampling Every how many messages one is sent, for each sampled level; must not be null and must not
+	 *                 contain values less than 1.
+	 * @throws IllegalArgumentException if the sampling is invalid.
+	 */
+	public OneInNSampler(final Map<LogLevel, Integer> sampling) {
+		if (sampling == null) {
+			throw new IllegalArgumentException("Sampling must not be null");
+		}
+		for (Map.Entry<LogLevel, Integer> level : sampling.entrySet()) {
+			if (level.getKey() == null || level.getValue() == null || level.getValue() < 1) {
+				throw new IllegalArgumentException("Invalid sampling " + level.getValue() + " for level "
+						+ level.getKey());
+			}
+			this.sampling[level.getKey().ordinal()] = level.getValue();
+		}
+	}
+
+	@Override
+	public boolean admit(final LogLevel level, final String message, final long now,
+						 final BiConsumer<LogLevel, String> summaries) {
+		int index = level.ordinal();
+		long n = this.sampling[index];
+		return n <= 1 || this.counters.getAndIncrement(index) % n == 0;
+	}
+}
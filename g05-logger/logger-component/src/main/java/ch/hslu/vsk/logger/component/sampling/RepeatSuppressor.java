@@ -0,0 +1,75 @@
+package ch.hslu.vsk.logger.component.sampling;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+
+
+/**
+ * A {@link LogSampler} which suppresses repetitions of the same message.
+ * <p>
+ * A message with the same level and text as the message logged before it is dropped and counted. The count is sent
+ * as a summary "Last message repeated N times" of the same level before the next different message, or when a
+ * repetition is logged after the summary interval has elapsed since the first uncounted repetition, so a message
+ * repeated in an endless loop is still reported periodically. Repetitions are detected across all threads which log
+ * with the same logger.
+ * </p>
+ */
+public final class RepeatSuppressor implements LogSampler {
+
+	private final long intervalNanos;
+
+	private LogLevel lastLevel;
+	private String lastMessage;
+	private long repeated;
+	private long firstRepeated;
+
+	/**
+	 * Creates a new {@code RepeatSuppressor}.
+	 *
+	 * @param summaryInterval The interval after which repetitions are summarized even if the message is still
+	 *                        repeated; must not be null or negative.
+	 * @throws IllegalArgumentException if the interval is invalid.
+	 */
+	public RepeatSuppressor(final Duration summaryInterval) {
+		if (summaryInterval == null || summaryInterval.isNegative()) {
+			throw new IllegalArgumentException("Summary interval must not be null or negative");
+		}
+		this.intervalNanos = summaryInterval.toNanos();
+	}
+
+	@Override
+	public boolean admit(final LogLevel level, final String message, final long now,
+						 final BiConsumer<LogLevel, String> summaries) {
+		LogLevel summaryLevel;
+		long summaryCount;
+		boolean admitted;
+		synchronized (this) {
+			summaryLevel = this.lastLevel;
+			summaryCount = this.repeated;
+			admitted = level != this.lastLevel || !Objects.equals(message, this.lastMessage);
+			if (admitted) {
+				this.lastLevel = level;
+				this.lastMessage = message;
+				this.repeated = 0;
+			} else {
+				if (this.repeated++ == 0) {
+					this.firstRepeated = now;
+				}
+				if (now - this.firstRepeated < this.intervalNanos) {
+					return false;
+				}
+				summaryCount = this.repeated;
+				this.repeated = 0;
+			}
+		}
+
+		// Send the summary outside the lock, as sending may block
+		if (summaryCount > 0) {
+			summaries.accept(summaryLevel, "Last message repeated " + summaryCount + " times");
+		}
+		return admitted;
+	}
+}
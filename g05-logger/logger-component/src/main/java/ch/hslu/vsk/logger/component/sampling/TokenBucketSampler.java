@@ -0,0 +1,84 @@
+package ch.hslu.vsk.logger.component.sampling;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiConsumer;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+
+
+/**
+ * A {@link LogSampler} which limits the number of messages sent per second and level.
+ * <p>
+ * Every level with a rate gets a token bucket which admits the configured number of messages per second with bursts
+ * of up to one second's worth of messages; messages exceeding the rate are dropped. Instead of the number of tokens,
+ * a bucket stores the time at which it will be full again, so it does not have to be refilled periodically and can
+ * be updated with a single compare-and-set. Levels without a rate are not limited.
+ * </p>
+ */
+public final class TokenBucketSampler implements LogSampler {
+
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private static final LogLevel[] LEVELS = LogLevel.values();
+
+	// The buckets, indexed by the ordinal of their level; a bucket with 0 nanos per token is not used
+	private final long[] nanosPerToken = new long[LEVELS.length];
+	private final long[] capacityNanos = new long[LEVELS.length];
+	private final AtomicLongArray fullAt = new AtomicLongArray(LEVELS.length);
+	private final AtomicLongArray dropped = new AtomicLongArray(LEVELS.length);
+
+	/**
+	 * Creates a new {@code TokenBucketSampler} with full buckets.
+	 *
+	 * @param rates The number of messages admitted per second for each limited level; must not be null and must
+	 *              not contain rates less than 1.
+	 * @throws IllegalArgumentException if the rates are invalid.
+	 */
+	public TokenBucketSampler(final Map<LogLevel, Long> rates) {
+		if (rates == null) {
+			throw new IllegalArgumentException("Rates must not be null");
+		}
+		for (Map.Entry<LogLevel, Long> rate : rates.entrySet()) {
+			if (rate.getKey() == null || rate.getValue() == null || rate.getValue() < 1) {
+				throw new IllegalArgumentException("Invalid rate " + rate.getValue() + " for level " + rate.getKey());
+			}
+			int index = rate.getKey().ordinal();
+			this.nanosPerToken[index] = Math.max(1, NANOS_PER_SECOND / rate.getValue());
+			this.capacityNanos[index] = this.nanosPerToken[index] * rate.getValue();
+			this.fullAt.set(index, Long.MIN_VALUE);
+		}
+	}
+
+	@Override
+	public boolean admit(final LogLevel level, final String message, final long now,
+						 final BiConsumer<LogLevel, String> summaries) {
+		int index = level.ordinal();
+		long perToken = this.nanosPerToken[index];
+		if (perToken == 0) {
+			return true;
+		}
+		while (true) {
+			long current = this.fullAt.get(index);
+			long full = current == Long.MIN_VALUE ? now : Math.max(current, now);
+			if (full - now + perToken > this.capacityNanos[index]) {
+				this.dropped.incrementAndGet(index);
+				return false;
+			}
+			if (this.fullAt.compareAndSet(index, current, full + perToken)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of messages of a level which have been dropped.
+	 *
+	 * @param level The level.
+	 * @return The number of dropped messages.
+	 */
+	public long getDroppedCount(final LogLevel level) {
+		return this.dropped.get(level.ordinal());
+	}
+}
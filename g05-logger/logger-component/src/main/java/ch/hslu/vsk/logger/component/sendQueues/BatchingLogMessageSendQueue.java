@@ -0,0 +1,301 @@
+package ch.hslu.vsk.logger.component.sendQueues;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
+import ch.hslu.vsk.logger.common.network.Compression;
+import ch.hslu.vsk.logger.component.cache.LogMessageCacheStrategy;
+import ch.hslu.vsk.logger.component.cache.LogMessageReplayCursor;
+import ch.hslu.vsk.logger.component.network.ReconnectConnection;
+
+/**
+ * An asynchronous {@link LogMessageSendQueue} that decouples the logging threads from the network.
+ * <p>
+ * {@link #enqueue(LogMessage)} only places the message into a bounded ring buffer. A dedicated sender thread
+ * drains the buffer in batches and writes every batch as a single {@link LogMessageBatch} frame. If the connection is down or a
+ * batch cannot be sent, the messages are handed to the configured {@link LogMessageCacheStrategy} and are
+ * replayed (before any newer message) as soon as the connection has been re-established.
+ * </p>
+ * The cache is only ever accessed by the sender thread, so the cache strategies do not have to be thread-safe.
+ * If the ring buffer is full, {@link #enqueue(LogMessage)} blocks until the sender thread has made room again.
+ */
+public final class BatchingLogMessageSendQueue implements LogMessageSendQueue, AutoCloseable {
+
+    /**
+     * Default number of messages the ring buffer can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 8_192;
+
+    /**
+     * Default maximum number of messages that are sent in a single {@link LogMessageBatch}.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    private static final Logger LOGGER = LogManager.getLogger(BatchingLogMessageSendQueue.class);
+
+    /**
+     * Interval (in milliseconds) in which an idle sender thread checks for pending replays or shutdown.
+     */
+    private static final long IDLE_POLL_INTERVAL_MS = 50;
+
+    /**
+     * Maximum time (in milliseconds) {@link #close()} waits for the sender thread to drain the buffer.
+     */
+    private static final long SHUTDOWN_TIMEOUT_MS = 5_000;
+
+    private final ReconnectConnection connection;
+    private final LogMessageCacheStrategy cacher;
+    private final BlockingQueue<LogMessage> buffer;
+    private final List<LogMessage> batch;
+    private final int batchSize;
+    private final Thread sender;
+    private final Thread shutdownHook;
+
+    private volatile boolean running = true;
+    private volatile boolean replayPending = true;
+    private volatile AutoCloseable outermostQueue = this;
+
+    /**
+     * Constructs a {@code BatchingLogMessageSendQueue} with the default capacity and batch size.
+     *
+     * @param cacher the {@link LogMessageCacheStrategy} to be used for caching messages when disconnected; must not be null.
+     * @param host the host to which the connection will be made; must not be null.
+     * @param port the port number for the connection.
+     */
+    public BatchingLogMessageSendQueue(final LogMessageCacheStrategy cacher, final String host, final int port) {
+        this(cacher, host, port, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructs a {@code BatchingLogMessageSendQueue} and starts its sender thread.
+     *
+     * @param cacher the {@link LogMessageCacheStrategy} to be used for caching messages when disconnected; must not be null.
+     * @param host the host to which the connection will be made; must not be null.
+     * @param port the port number for the connection.
+     * @param capacity the number of messages the ring buffer can hold; must be greater than 0.
+     * @param batchSize the maximum number of messages per {@link LogMessageBatch}; must be greater than 0
+     *                  and must not exceed {@link LogMessageBatch#MAX_BATCH_SIZE}.
+     */
+    public BatchingLogMessageSendQueue(final LogMessageCacheStrategy cacher, final String host, final int port,
+                                       final int capacity, final int batchSize) {
+        this(cacher, host, port, capacity, batchSize, Compression.NONE);
+    }
+
+    /**
+     * Constructs a {@code BatchingLogMessageSendQueue} which offers a compression of its batches to the server
+     * and starts its sender thread.
+     *
+     * @param cacher the {@link LogMessageCacheStrategy} to be used for caching messages when disconnected; must not be null.
+     * @param host the host to which the connection will be made; must not be null.
+     * @param port the port number for the connection.
+     * @param capacity the number of messages the ring buffer can hold; must be greater than 0.
+     * @param batchSize the maximum number of messages per {@link LogMessageBatch}; must be greater than 0
+     *                  and must not exceed {@link LogMessageBatch#MAX_BATCH_SIZE}.
+     * @param compression the compression offered to the server; must not be null.
+     */
+    public BatchingLogMessageSendQueue(final LogMessageCacheStrategy cacher, final String host, final int port,
+                                       final int capacity, final int batchSize, final Compression compression) {
+        if (cacher == null || host == null || compression == null) {
+            throw new IllegalArgumentException("Cacher, host and compression must not be null.");
+        }
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be greater than 0.");
+        }
+        if (batchSize > LogMessageBatch.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must not exceed " + LogMessageBatch.MAX_BATCH_SIZE + ".");
+        }
+
+        this.cacher = cacher;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+
+        this.connection = new ReconnectConnection(host, port, 50);
+        this.connection.setCompression(compression);
+        this.connection.addConnectListener(() -> this.replayPending = true);
+        this.connection.connect();
+
+        this.sender = new Thread(this::runSender, "log-message-sender");
+        this.sender.setDaemon(true);
+        this.sender.start();
+
+        // Make sure buffered messages are not lost when the application exits
+        this.shutdownHook = new Thread(this::closeOutermostQueue, "log-message-sender-shutdown");
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
+    }
+
+    /**
+     * Places a {@link LogMessage} into the ring buffer. The message is sent asynchronously by the sender thread.
+     * This method only blocks if the ring buffer is full.
+     *
+     * @param message the {@link LogMessage} to enqueue; must not be null.
+     */
+    @Override
+    public void enqueue(final LogMessage message) {
+        if (message == null) {
+            throw new IllegalArgumentException("LogMessage must not be null.");
+        }
+
+        if (!this.running) {
+            LOGGER.debug("Tried to enqueue a message after the send queue was closed.");
+            return;
+        }
+
+        try {
+            this.buffer.put(message);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for space in the send queue", ex);
+        }
+    }
+
+    /**
+     * Returns the number of messages that are currently waiting in the ring buffer.
+     *
+     * @return the number of buffered messages.
+     */
+    public int size() {
+        return this.buffer.size();
+    }
+
+    /**
+     * Sets the queue which wraps this queue and which is closed by the shutdown hook instead of this queue, so that
+     * it can pass its messages to this queue before this queue is closed. The wrapping queue must close this queue.
+     *
+     * @param queue the outermost queue; must not be null.
+     */
+    void setOutermostQueue(final AutoCloseable queue) {
+        if (queue == null) {
+            throw new IllegalArgumentException("Queue must not be null.");
+        }
+        this.outermostQueue = queue;
+    }
+
+    /**
+     * Stops accepting new messages, waits for the sender thread to send (or cache) all buffered messages
+     * and closes the connection. Calling this method more than once has no effect.
+     */
+    @Override
+    public void close() {
+        if (!this.running) {
+            return;
+        }
+        this.running = false;
+
+        // Unless the JVM is exiting, the hook must not keep the closed queue reachable
+        if (Thread.currentThread() != this.shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(this.shutdownHook);
+            } catch (IllegalStateException ex) {
+                // The JVM is already shutting down
+            }
+        }
+
+        try {
+            this.sender.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            this.connection.close();
+        } catch (IOException ex) {
+            LOGGER.info("Failed to close connection", ex);
+        }
+    }
+
+    private void closeOutermostQueue() {
+        try {
+            this.outermostQueue.close();
+        } catch (Exception ex) {
+            LOGGER.info("Failed to close the send queue", ex);
+        }
+        this.close();
+    }
+
+    /**
+     * The main loop of the sender thread. Drains the ring buffer in batches until the queue is closed
+     * and no more messages are buffered.
+     */
+    private void runSender() {
+        while (this.running || !this.buffer.isEmpty()) {
+            LogMessage first;
+            try {
+                first = this.buffer.poll(IDLE_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (this.replayPending && this.connection.isConnected()) {
+                this.replayCache();
+            }
+
+            if (first == null) {
+                continue;
+            }
+
+            this.batch.add(first);
+            this.buffer.drainTo(this.batch, this.batchSize - 1);
+            this.sendBatch();
+            this.batch.clear();
+        }
+    }
+
+    /**
+     * Sends the current batch. If cached messages still have to be replayed or the batch cannot be sent,
+     * the batch is cached to preserve the message order.
+     */
+    private void sendBatch() {
+        if (this.replayPending) {
+            this.cacheBatch();
+            return;
+        }
+
+        if (!this.connection.send(new LogMessageBatch(this.batch))) {
+            // Everything after this batch has to wait until the cache has been replayed
+            this.replayPending = true;
+            this.cacheBatch();
+        }
+    }
+
+    /**
+     * Streams the cached messages to the server in chunks of at most {@code batchSize} messages. Every chunk is
+     * acknowledged (and thereby removed from the cache) once it has been sent. If sending fails, the remaining
+     * messages stay cached and the replay resumes after the next reconnect.
+     */
+    private void replayCache() {
+        try (LogMessageReplayCursor cursor = this.cacher.openReplay()) {
+            while (cursor.hasNext()) {
+                if (!this.connection.send(out -> cursor.transferTo(out, this.batchSize))) {
+                    return;
+                }
+                cursor.acknowledge();
+            }
+            this.replayPending = false;
+        } catch (IllegalStateException ex) {
+            // The cache cannot be read -> drop it instead of blocking all newer messages forever
+            LOGGER.error("Failed to replay cached log messages, discarding the cache", ex);
+            this.cacher.clear();
+            this.replayPending = false;
+        }
+    }
+
+    /**
+     * Hands all messages of the current batch to the cache strategy.
+     */
+    private void cacheBatch() {
+        if (!this.cacher.saveAll(this.batch)) {
+            LOGGER.error("Failed to cache {} log messages", this.batch.size());
+        }
+    }
+}
@@ -2,9 +2,9 @@ package ch.hslu.vsk.logger.component.sendQueues;
 
 import ch.hslu.vsk.logger.common.LogMessage;
 import ch.hslu.vsk.logger.component.cache.LogMessageCacheStrategy;
+import ch.hslu.vsk.logger.component.cache.LogMessageReplayCursor;
 import ch.hslu.vsk.logger.component.network.ReconnectConnection;
 
-import java.util.List;
 import java.util.concurrent.BlockingQueue;
 
 /**
@@ -52,17 +52,16 @@ public final class BlockingLogMessageSendQueue implements LogMessageSendQueue {
 
 		synchronized (this.sendLock) {
 
-        	// Send cached messages first
-        	List<LogMessage> cachedMessages = this.cacher.retrieveAll();
-			this.cacher.clear();
-        	for (LogMessage message : cachedMessages) {
+        	// Send cached messages first, acknowledging every message once it has been sent
+        	try (LogMessageReplayCursor cursor = this.cacher.openReplay()) {
+        		while (cursor.hasNext()) {
+        			if (!this.connection.send(out -> cursor.transferTo(out, 1))) {
 
-            	// Try to send the cached messages before processing any new ones
-            	if (!this.connection.send(message)) {
-
-                	// If sending fails, keep the message cached
-                	this.cacher.save(message);
-            	}
+        				// If sending fails, the remaining messages stay cached
+        				break;
+        			}
+        			cursor.acknowledge();
+        		}
         	}
 
 			this.connectionReady = this.connection.isConnected();
@@ -0,0 +1,226 @@
+package ch.hslu.vsk.logger.component.sendQueues;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+
+/**
+ * A {@link LogMessageSendQueue} which collapses identical messages within a time window into a single message, so a
+ * message logged thousands of times per second (e.g. in a failure loop) is sent once per window.
+ * <p>
+ * The messages of a window are held in a small hash table keyed on their level and text. A message whose level and
+ * text are already in the table is not queued; instead, the number of occurrences and the timestamp of the last
+ * occurrence of the message in the table are updated (see {@link LogMessage#setOccurrences(int, long)}). At the end
+ * of every window, the messages are passed to the delegate queue in the order of their first occurrence, and the
+ * table is cleared. If the table is full, the window is ended early.
+ * </p>
+ * <p>
+ * Every message is therefore delayed by up to the length of the window. This class is thread-safe; the delegate is
+ * only called by one thread at a time, and never while the table is locked, so a blocking delegate does not block
+ * the logging threads of a window.
+ * </p>
+ * <p>
+ * This queue does not register a shutdown hook of its own. If the delegate is a
+ * {@link BatchingLogMessageSendQueue}, its shutdown hook closes this queue first; otherwise the owner has to close
+ * this queue.
+ * </p>
+ */
+public final class CollapsingLogMessageSendQueue implements LogMessageSendQueue, AutoCloseable {
+
+    /**
+     * Default number of different messages a window can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 1_024;
+
+    private static final Logger LOGGER = LogManager.getLogger(CollapsingLogMessageSendQueue.class);
+
+    private final LogMessageSendQueue delegate;
+    private final int capacity;
+    private final ScheduledExecutorService flusher;
+
+    // The messages of the current window, per level by their text, and in the order of their first occurrence
+    private final List<Map<String, LogMessage>> table = new ArrayList<>();
+    private List<LogMessage> pending = new ArrayList<>();
+    private boolean running = true;
+
+    // The ended windows which have not been passed to the delegate yet, in the order they were ended
+    private final Deque<List<LogMessage>> ended = new ArrayDeque<>();
+    private final Object deliveryLock = new Object();
+
+    /**
+     * Constructs a {@code CollapsingLogMessageSendQueue} with the default capacity and starts the thread which ends
+     * the windows.
+     *
+     * @param delegate the queue the collapsed messages are passed to; must not be null.
+     * @param window the length of a window; must be positive.
+     */
+    public CollapsingLogMessageSendQueue(final LogMessageSendQueue delegate, final Duration window) {
+        this(delegate, window, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a {@code CollapsingLogMessageSendQueue} and starts the thread which ends the windows.
+     *
+     * @param delegate the queue the collapsed messages are passed to; must not be null.
+     * @param window the length of a window; must be positive.
+     * @param capacity the number of different messages a window can hold; must be greater than 0.
+     */
+    public CollapsingLogMessageSendQueue(final LogMessageSendQueue delegate, final Duration window,
+                                         final int capacity) {
+        if (delegate == null || window == null) {
+            throw new IllegalArgumentException("Delegate and window must not be null.");
+        }
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive.");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0.");
+        }
+
+        this.delegate = delegate;
+        this.capacity = capacity;
+        for (int i = 0; i < LogLevel.values().length; i++) {
+            this.table.add(new HashMap<>());
+        }
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "log-message-collapser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long windowNanos = window.toNanos();
+        this.flusher.scheduleAtFixedRate(this::flush, windowNanos, windowNanos, TimeUnit.NANOSECONDS);
+
+        if (delegate instanceof BatchingLogMessageSendQueue batching) {
+            batching.setOutermostQueue(this);
+        }
+    }
+
+    /**
+     * Adds a {@link LogMessage} to the current window, or counts it as another occurrence of an identical message
+     * of the window.
+     *
+     * @param message the {@link LogMessage} to enqueue; must not be null.
+     */
+    @Override
+    public void enqueue(final LogMessage message) {
+        if (message == null) {
+            throw new IllegalArgumentException("LogMessage must not be null.");
+        }
+
+        synchronized (this) {
+            if (!this.running) {
+                LOGGER.debug("Tried to enqueue a message after the send queue was closed.");
+                return;
+            }
+
+            Map<String, LogMessage> messages = this.table.get(message.getLogLevel().ordinal());
+            LogMessage first = messages.get(message.getMessage());
+            if (first != null && first.getOccurrences() < Integer.MAX_VALUE) {
+                first.setOccurrences(first.getOccurrences() + 1,
+                        Math.max(first.getLastTimestampNanos(), message.getTimestampNanos()));
+                return;
+            }
+
+            if (this.pending.size() < this.capacity) {
+                messages.put(message.getMessage(), message);
+                this.pending.add(message);
+                return;
+            }
+
+            this.endWindow();
+            this.table.get(message.getLogLevel().ordinal()).put(message.getMessage(), message);
+            this.pending.add(message);
+        }
+        this.deliver();
+    }
+
+    /**
+     * Ends the current window: passes its messages to the delegate queue and clears the table.
+     */
+    public void flush() {
+        synchronized (this) {
+            this.endWindow();
+        }
+        this.deliver();
+    }
+
+    // Must be called while holding the monitor of this queue
+    private void endWindow() {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        for (Map<String, LogMessage> messages : this.table) {
+            messages.clear();
+        }
+        this.ended.add(this.pending);
+        this.pending = new ArrayList<>();
+    }
+
+    private synchronized List<LogMessage> pollEndedWindow() {
+        return this.ended.poll();
+    }
+
+    // Passes the ended windows to the delegate; the delivery lock keeps the windows in order
+    private void deliver() {
+        synchronized (this.deliveryLock) {
+            List<LogMessage> window;
+            while ((window = this.pollEndedWindow()) != null) {
+                for (LogMessage message : window) {
+                    try {
+                        this.delegate.enqueue(message);
+                    } catch (RuntimeException ex) {
+                        LOGGER.error("Failed to queue a collapsed log message", ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of different messages in the current window.
+     *
+     * @return the number of messages which will be passed to the delegate at the end of the window.
+     */
+    public synchronized int size() {
+        return this.pending.size();
+    }
+
+    /**
+     * Stops accepting new messages, passes the messages of the current window to the delegate queue and closes the
+     * delegate if it is {@link AutoCloseable}. Calling this method more than once has no effect.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!this.running) {
+                return;
+            }
+            this.endWindow();
+            this.running = false;
+        }
+        this.flusher.shutdown();
+        this.deliver();
+
+        if (this.delegate instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                LOGGER.info("Failed to close the delegate send queue", ex);
+            }
+        }
+    }
+}
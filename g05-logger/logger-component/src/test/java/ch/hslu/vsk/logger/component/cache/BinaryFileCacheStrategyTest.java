@@ -0,0 +1,176 @@
+package ch.hslu.vsk.logger.component.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+
+class BinaryFileCacheStrategyTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private static List<LogMessage> createMessages(final int amount) {
+        List<LogMessage> messages = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            messages.add(new LogMessage(Instant.now(), "Client1", LogLevel.DEBUG, "Cached message " + i));
+        }
+        return messages;
+    }
+
+    @Test
+    void testSaveAndRetrieveAll() throws IOException {
+        List<LogMessage> messages = createMessages(250);
+
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(this.tempDir.resolve("cache.bin"))) {
+            cache.save(messages.getFirst());
+            cache.saveAll(messages.subList(1, messages.size()));
+
+            assertThat(cache.retrieveAll()).containsExactlyElementsOf(messages);
+        }
+    }
+
+    @Test
+    void testMessagesSurviveReopen() throws IOException {
+        Path file = this.tempDir.resolve("cache.bin");
+        List<LogMessage> messages = createMessages(10);
+
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(file)) {
+            cache.saveAll(messages);
+        }
+
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(file)) {
+            assertThat(cache.retrieveAll()).containsExactlyElementsOf(messages);
+        }
+    }
+
+    @Test
+    void testClear() throws IOException {
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(this.tempDir.resolve("cache.bin"))) {
+            cache.saveAll(createMessages(10));
+
+            assertThat(cache.clear()).isTrue();
+            assertThat(cache.retrieveAll()).isEmpty();
+
+            cache.save(createMessages(1).getFirst());
+            assertThat(cache.retrieveAll()).hasSize(1);
+        }
+    }
+
+    /**
+     * Transfers everything from the cursor in chunks of the given size without acknowledging.
+     */
+    private static List<LogMessage> transferAll(final LogMessageReplayCursor cursor, final int chunkSize,
+                                                final boolean acknowledge) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NetworkMessageOutputStream outputStream = new NetworkMessageOutputStream(bytes);
+        while (cursor.hasNext()) {
+            cursor.transferTo(outputStream, chunkSize);
+            if (acknowledge) {
+                cursor.acknowledge();
+            }
+        }
+        outputStream.flush();
+
+        List<LogMessage> messages = new ArrayList<>();
+        NetworkMessageInputStream inputStream = new NetworkMessageInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        while (inputStream.available() > 0) {
+            NetworkTransferable frame = inputStream.nextObject();
+            if (frame instanceof LogMessageBatch batch) {
+                messages.addAll(batch.getMessages());
+            } else {
+                messages.add((LogMessage) frame);
+            }
+        }
+        return messages;
+    }
+
+    @Test
+    void testReplayCopiesWireFrames() throws IOException {
+        List<LogMessage> messages = createMessages(100);
+
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(this.tempDir.resolve("cache.bin"))) {
+            messages.forEach(cache::save);
+
+            try (LogMessageReplayCursor cursor = cache.openReplay()) {
+                assertThat(transferAll(cursor, 7, true)).containsExactlyElementsOf(messages);
+            }
+
+            // Everything has been acknowledged -> the file is truncated
+            assertThat(cache.retrieveAll()).isEmpty();
+            assertThat(Files.size(this.tempDir.resolve("cache.bin"))).isZero();
+        }
+    }
+
+    @Test
+    void testUnacknowledgedMessagesStayCached() throws IOException {
+        List<LogMessage> messages = createMessages(20);
+
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(this.tempDir.resolve("cache.bin"))) {
+            messages.forEach(cache::save);
+
+            try (LogMessageReplayCursor cursor = cache.openReplay()) {
+                assertThat(transferAll(cursor, 5, false)).containsExactlyElementsOf(messages);
+            }
+
+            assertThat(cache.retrieveAll()).containsExactlyElementsOf(messages);
+        }
+    }
+
+    @Test
+    void testReplayResumesAtCheckpointAfterReopen() throws IOException {
+        Path file = this.tempDir.resolve("cache.bin");
+        List<LogMessage> messages = createMessages(30);
+
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(file)) {
+            messages.forEach(cache::save);
+
+            // Acknowledge the first 10 messages only
+            try (LogMessageReplayCursor cursor = cache.openReplay()) {
+                cursor.transferTo(new NetworkMessageOutputStream(new ByteArrayOutputStream()), 10);
+                cursor.acknowledge();
+            }
+        }
+
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(file);
+             LogMessageReplayCursor cursor = cache.openReplay()) {
+            assertThat(transferAll(cursor, 4, true)).containsExactlyElementsOf(messages.subList(10, 30));
+        }
+    }
+
+    @Test
+    void testIncompleteFrameIsDiscarded() throws IOException {
+        Path file = this.tempDir.resolve("cache.bin");
+        List<LogMessage> messages = createMessages(3);
+
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(file)) {
+            messages.forEach(cache::save);
+        }
+        long completeLength = Files.size(file);
+
+        // Simulate a crash in the middle of writing a frame
+        Files.write(file, new byte[] {0, 1, 0, 0}, StandardOpenOption.APPEND);
+
+        try (BinaryFileCacheStrategy cache = new BinaryFileCacheStrategy(file)) {
+            assertThat(Files.size(file)).isEqualTo(completeLength);
+            assertThat(cache.retrieveAll()).containsExactlyElementsOf(messages);
+        }
+    }
+}
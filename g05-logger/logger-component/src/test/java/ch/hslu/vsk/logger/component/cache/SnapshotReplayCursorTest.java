@@ -0,0 +1,47 @@
+package ch.hslu.vsk.logger.component.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+
+class SnapshotReplayCursorTest {
+
+    private static List<LogMessage> createMessages(final int amount) {
+        List<LogMessage> messages = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            messages.add(new LogMessage(Instant.now(), "Client1", LogLevel.INFO, "Cached message " + i));
+        }
+        return messages;
+    }
+
+    @Test
+    void testOnlyAcknowledgedMessagesAreRemoved() throws IOException {
+        InternalCacheStrategy cache = new InternalCacheStrategy();
+        List<LogMessage> messages = createMessages(10);
+        cache.saveAll(messages);
+        NetworkMessageOutputStream outputStream = new NetworkMessageOutputStream(new ByteArrayOutputStream());
+
+        try (LogMessageReplayCursor cursor = cache.openReplay()) {
+            assertThat(cursor.transferTo(outputStream, 4)).isEqualTo(4);
+            cursor.acknowledge();
+            assertThat(cursor.transferTo(outputStream, 4)).isEqualTo(4);
+
+            // Saved while replaying -> must be kept
+            cache.save(createMessages(1).getFirst());
+        }
+
+        List<LogMessage> remaining = cache.retrieveAll();
+        assertThat(remaining).hasSize(7);
+        assertThat(remaining.subList(0, 6)).containsExactlyElementsOf(messages.subList(4, 10));
+    }
+}
@@ -0,0 +1,130 @@
+package ch.hslu.vsk.logger.component.sampling;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.component.LoggerComponent;
+
+/**
+ * Unit tests for the {@link LogSampler} implementations.
+ */
+class LogSamplerTest {
+
+	private final List<LogMessage> sentMessages = new ArrayList<>();
+
+	private LoggerComponent createLogger(final LogSampler sampler) {
+		return new LoggerComponent(this.sentMessages::add, "DemoLogger", null, sampler);
+	}
+
+	/**
+	 * Verifies that the messages of a level exceeding its rate are dropped, while other levels are not limited.
+	 */
+	@Test
+	void testTokenBucketLimitsLevel() {
+		TokenBucketSampler sampler = new TokenBucketSampler(Map.of(LogLevel.DEBUG, 10L));
+		LoggerComponent logger = this.createLogger(sampler);
+
+		for (int i = 0; i < 100; i++) {
+			logger.debug("Debug " + i);
+			logger.error("Error " + i);
+		}
+
+		assertThat(this.sentMessages.stream().filter(message -> message.getLogLevel() == LogLevel.DEBUG).count())
+				.isBetween(10L, 12L);
+		assertThat(this.sentMessages.stream().filter(message -> message.getLogLevel() == LogLevel.ERROR).count())
+				.isEqualTo(100);
+		assertThat(sampler.getDroppedCount(LogLevel.DEBUG)).isBetween(88L, 90L);
+	}
+
+	/**
+	 * Verifies that a token bucket admits messages again after it has been refilled.
+	 */
+	@Test
+	void testTokenBucketRefills() {
+		TokenBucketSampler sampler = new TokenBucketSampler(Map.of(LogLevel.INFO, 2L));
+		long now = 0;
+
+		assertThat(sampler.admit(LogLevel.INFO, "a", now, (level, message) -> { })).isTrue();
+		assertThat(sampler.admit(LogLevel.INFO, "b", now, (level, message) -> { })).isTrue();
+		assertThat(sampler.admit(LogLevel.INFO, "c", now, (level, message) -> { })).isFalse();
+		assertThat(sampler.admit(LogLevel.INFO, "d", now + 500_000_000L, (level, message) -> { })).isTrue();
+		assertThat(sampler.admit(LogLevel.INFO, "e", now + 500_000_000L, (level, message) -> { })).isFalse();
+	}
+
+	/**
+	 * Verifies that the first and every n-th message of a sampled level are sent.
+	 */
+	@Test
+	void testOneInNSamplesDeterministically() {
+		LoggerComponent logger = this.createLogger(new OneInNSampler(Map.of(LogLevel.INFO, 10)));
+
+		for (int i = 0; i < 25; i++) {
+			logger.info("Info " + i);
+		}
+		logger.warning("Warning");
+
+		assertThat(this.sentMessages).extracting(LogMessage::getMessage)
+				.containsExactly("Info 0", "Info 10", "Info 20", "Warning");
+	}
+
+	/**
+	 * Verifies that repetitions of a message are dropped and summarized before the next different message.
+	 */
+	@Test
+	void testRepeatsAreSummarized() {
+		LoggerComponent logger = this.createLogger(new RepeatSuppressor(Duration.ofMinutes(1)));
+
+		for (int i = 0; i < 5; i++) {
+			logger.error("Connection lost");
+		}
+		logger.error("Connection restored");
+		logger.info("Connection restored");
+
+		assertThat(this.sentMessages).extracting(LogMessage::getMessage).containsExactly("Connection lost",
+				"Last message repeated 4 times", "Connection restored", "Connection restored");
+		assertThat(this.sentMessages.get(1).getLogLevel()).isEqualTo(LogLevel.ERROR);
+	}
+
+	/**
+	 * Verifies that a message repeated for longer than the summary interval is summarized periodically.
+	 */
+	@Test
+	void testEndlessRepeatsAreSummarizedPeriodically() {
+		RepeatSuppressor sampler = new RepeatSuppressor(Duration.ofSeconds(1));
+		List<String> summaries = new ArrayList<>();
+		long second = 1_000_000_000L;
+
+		assertThat(sampler.admit(LogLevel.ERROR, "Failure", 0, (level, message) -> summaries.add(message))).isTrue();
+		for (long now = 1; now <= 3 * second; now += second / 4) {
+			assertThat(sampler.admit(LogLevel.ERROR, "Failure", now, (level, message) -> summaries.add(message)))
+					.isFalse();
+		}
+
+		assertThat(summaries).containsExactly("Last message repeated 5 times", "Last message repeated 5 times");
+	}
+
+	/**
+	 * Verifies that combined samplers ask the next sampler for admitted messages only.
+	 */
+	@Test
+	void testAndThen() {
+		LoggerComponent logger = this.createLogger(new RepeatSuppressor(Duration.ofMinutes(1))
+				.andThen(new OneInNSampler(Map.of(LogLevel.DEBUG, 2))));
+
+		logger.debug("a");
+		logger.debug("a");
+		logger.debug("b");
+		logger.debug("c");
+
+		assertThat(this.sentMessages).extracting(LogMessage::getMessage)
+				.containsExactly("a", "Last message repeated 1 times", "c");
+	}
+}
@@ -0,0 +1,100 @@
+package ch.hslu.vsk.logger.component.sendQueues;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import ch.hslu.vsk.logger.component.cache.InternalCacheStrategy;
+
+class BatchingLogMessageSendQueueTest {
+
+    private static LogMessage createMessage(final int number) {
+        return new LogMessage(Instant.now(), "Client1", LogLevel.INFO, "Message number: " + number);
+    }
+
+    /**
+     * Reads the given amount of log messages from the first client that connects to the server socket.
+     */
+    private static List<LogMessage> receive(final ServerSocket serverSocket, final int amount) throws IOException {
+        List<LogMessage> received = new ArrayList<>();
+        try (Socket socket = serverSocket.accept();
+             NetworkMessageInputStream input = new NetworkMessageInputStream(socket.getInputStream())) {
+            while (received.size() < amount) {
+                NetworkTransferable object = input.nextObject();
+                if (object instanceof LogMessageBatch batch) {
+                    received.addAll(batch.getMessages());
+                } else if (object instanceof LogMessage message) {
+                    received.add(message);
+                }
+            }
+        }
+        return received;
+    }
+
+    @Test
+    void testMessagesAreSentInOrder() throws Exception {
+        int amount = 5_000;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Future<List<LogMessage>> received = executor.submit(() -> receive(serverSocket, amount));
+
+            List<LogMessage> sent = new ArrayList<>();
+            try (BatchingLogMessageSendQueue queue = new BatchingLogMessageSendQueue(
+                    new InternalCacheStrategy(), "localhost", serverSocket.getLocalPort(), 1_024, 128)) {
+                for (int i = 0; i < amount; i++) {
+                    LogMessage message = createMessage(i);
+                    sent.add(message);
+                    queue.enqueue(message);
+                }
+            }
+
+            assertThat(received.get(10, TimeUnit.SECONDS)).containsExactlyElementsOf(sent);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testMessagesAreCachedWithoutServer() throws IOException {
+        int port;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+
+        InternalCacheStrategy cache = new InternalCacheStrategy();
+        try (BatchingLogMessageSendQueue queue = new BatchingLogMessageSendQueue(cache, "localhost", port)) {
+            for (int i = 0; i < 100; i++) {
+                queue.enqueue(createMessage(i));
+            }
+        }
+
+        assertThat(cache.retrieveAll()).hasSize(100);
+    }
+
+    @Test
+    void testEnqueueNull() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0);
+             BatchingLogMessageSendQueue queue = new BatchingLogMessageSendQueue(
+                     new InternalCacheStrategy(), "localhost", serverSocket.getLocalPort())) {
+            assertThatThrownBy(() -> queue.enqueue(null)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
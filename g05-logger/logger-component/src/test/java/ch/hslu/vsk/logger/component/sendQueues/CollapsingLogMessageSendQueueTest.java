@@ -0,0 +1,120 @@
+package ch.hslu.vsk.logger.component.sendQueues;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+
+class CollapsingLogMessageSendQueueTest {
+
+    private final List<LogMessage> sent = Collections.synchronizedList(new ArrayList<>());
+
+    private static LogMessage createMessage(final long timestamp, final LogLevel level, final String text) {
+        return new LogMessage(timestamp, "Client1", level, text);
+    }
+
+    @Test
+    void testIdenticalMessagesAreCollapsed() {
+        try (CollapsingLogMessageSendQueue queue = new CollapsingLogMessageSendQueue(this.sent::add, Duration.ofHours(1))) {
+            for (int i = 0; i < 1_000; i++) {
+                queue.enqueue(createMessage(1_000 + i, LogLevel.ERROR, "Connection lost"));
+                queue.enqueue(createMessage(1_000 + i, LogLevel.DEBUG, "Retrying"));
+            }
+            queue.enqueue(createMessage(5_000, LogLevel.WARNING, "Retrying"));
+            queue.enqueue(createMessage(6_000, LogLevel.DEBUG, null));
+            queue.enqueue(createMessage(7_000, LogLevel.DEBUG, null));
+
+            assertThat(queue.size()).isEqualTo(4);
+            assertThat(this.sent).isEmpty();
+            queue.flush();
+        }
+
+        assertThat(this.sent).extracting(LogMessage::getMessage).containsExactly("Connection lost", "Retrying", "Retrying", null);
+        assertThat(this.sent).extracting(LogMessage::getOccurrences).containsExactly(1_000, 1_000, 1, 2);
+        assertThat(this.sent.get(0).getTimestampNanos()).isEqualTo(1_000);
+        assertThat(this.sent.get(0).getLastTimestampNanos()).isEqualTo(1_999);
+        assertThat(this.sent.get(2).getLogLevel()).isEqualTo(LogLevel.WARNING);
+        assertThat(this.sent.get(2).getLastTimestampNanos()).isEqualTo(5_000);
+    }
+
+    @Test
+    void testWindowsAreCollapsedSeparately() {
+        try (CollapsingLogMessageSendQueue queue = new CollapsingLogMessageSendQueue(this.sent::add, Duration.ofHours(1))) {
+            queue.enqueue(createMessage(1, LogLevel.ERROR, "Connection lost"));
+            queue.enqueue(createMessage(2, LogLevel.ERROR, "Connection lost"));
+            queue.flush();
+            queue.enqueue(createMessage(3, LogLevel.ERROR, "Connection lost"));
+        }
+
+        assertThat(this.sent).extracting(LogMessage::getOccurrences).containsExactly(2, 1);
+        assertThat(this.sent.get(1).getTimestampNanos()).isEqualTo(3);
+    }
+
+    @Test
+    void testFullWindowIsEndedEarly() {
+        try (CollapsingLogMessageSendQueue queue = new CollapsingLogMessageSendQueue(this.sent::add, Duration.ofHours(1), 10)) {
+            for (int i = 0; i < 25; i++) {
+                queue.enqueue(createMessage(i, LogLevel.INFO, "Message " + i));
+            }
+
+            assertThat(this.sent).hasSize(20);
+            assertThat(queue.size()).isEqualTo(5);
+        }
+
+        assertThat(this.sent).extracting(LogMessage::getTimestampNanos).isSorted().hasSize(25);
+    }
+
+    @Test
+    void testWindowIsEndedPeriodically() throws InterruptedException {
+        try (CollapsingLogMessageSendQueue queue = new CollapsingLogMessageSendQueue(this.sent::add, Duration.ofMillis(20))) {
+            queue.enqueue(createMessage(1, LogLevel.ERROR, "Connection lost"));
+            queue.enqueue(createMessage(2, LogLevel.ERROR, "Connection lost"));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (this.sent.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(this.sent).hasSize(1);
+            assertThat(this.sent.get(0).getOccurrences()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void testBlockedDelegateDoesNotBlockEnqueue() throws InterruptedException {
+        CountDownLatch delivering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LogMessageSendQueue blocking = message -> {
+            delivering.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.sent.add(message);
+        };
+
+        try (CollapsingLogMessageSendQueue queue = new CollapsingLogMessageSendQueue(blocking, Duration.ofHours(1))) {
+            queue.enqueue(createMessage(1, LogLevel.ERROR, "Connection lost"));
+            Thread flushing = new Thread(queue::flush);
+            flushing.start();
+            assertThat(delivering.await(5, TimeUnit.SECONDS)).isTrue();
+
+            queue.enqueue(createMessage(2, LogLevel.ERROR, "Connection lost"));
+            assertThat(queue.size()).isEqualTo(1);
+
+            release.countDown();
+            flushing.join();
+        }
+
+        assertThat(this.sent).extracting(LogMessage::getTimestampNanos).containsExactly(1L, 2L);
+    }
+}
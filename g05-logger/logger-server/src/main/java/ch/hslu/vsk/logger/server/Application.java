@@ -42,11 +42,7 @@ public final class Application {
 		config.mergeWith(new ArgsConfigSource(args));
 
 		// Create server instance
-		LoggerServer server = new LoggerServer(
-			config.getNetworkInterface(),
-			config.getPort(),
-			config.getLogOutputFile()
-		);
+		LoggerServer server = new LoggerServer(config);
 
 		// Start the server
 		server.start();
@@ -1,6 +1,7 @@
 package ch.hslu.vsk.logger.server;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -18,8 +19,16 @@ import ch.hslu.vsk.logger.common.adapter.LogAdapter;
 import ch.hslu.vsk.logger.common.adapter.StringPersistorLogAdapter;
 import ch.hslu.vsk.logger.common.formatter.LogMessageFormat;
 import ch.hslu.vsk.logger.common.formatter.LogMessageFormatterFactory;
+import ch.hslu.vsk.logger.server.config.ApplicationConfig;
+import ch.hslu.vsk.logger.server.config.IngestEngine;
+import ch.hslu.vsk.logger.server.config.LogStorage;
 import ch.hslu.vsk.logger.server.network.LoggerClient;
-import ch.hslu.vsk.stringpersistor.api.StringPersistor;
+import ch.hslu.vsk.logger.server.network.NioIngestServer;
+import ch.hslu.vsk.logger.server.pipeline.AdmissionController;
+import ch.hslu.vsk.logger.server.pipeline.AsyncLogWriter;
+import ch.hslu.vsk.stringpersistor.ext.BulkStringPersistor;
+import ch.hslu.vsk.stringpersistor.impl.GroupCommitStringPersistor;
+import ch.hslu.vsk.stringpersistor.impl.SegmentedMappedStringPersistor;
 import ch.hslu.vsk.stringpersistor.impl.StringPersistorFile;
 import org.glassfish.tyrus.server.Server;
 import ch.hslu.vsk.logger.server.viewer.LoggerViewerServerEndpoint;
@@ -37,8 +46,14 @@ public class LoggerServer {
 
 	private NetworkInterface networkInterface;
 	private LogAdapter logAdapter;
+	private BulkStringPersistor stringPersistor;
+	private AsyncLogWriter asyncLogWriter;
+	private AdmissionController admissionController;
 	private int port;
 	private ServerSocket serverSocket;
+	private IngestEngine ingestEngine;
+	private int ingestThreads;
+	private NioIngestServer nioIngestServer;
 	private boolean isRunning = false;
 	private int maxConnections = 50;
 	private ExecutorService clientHandlerPool;
@@ -46,6 +61,7 @@ public class LoggerServer {
 	private Server loggerViewerServer;
 	private static final String HOST_NAME_LOGGER_VIEWER_SERVER = "localhost";
 	private static final int PORT_LOGGER_VIEWER_SERVER = 8025;
+	private static final int NIO_ACCEPT_BACKLOG = 1024;
 
 
 	/**
@@ -69,15 +85,108 @@ public class LoggerServer {
 	 * @param format The type of log format to use (e.g., JSON, HumanReadable, SpeedFormat).
 	 */
 	public LoggerServer(final NetworkInterface networkInterface, final int port, final Path logFile, final LogMessageFormat format) {
+		this(networkInterface, port, logFile, format, new ApplicationConfig());
+	}
+
+	/**
+	 * Constructor to create a new LoggerServer from an {@link ApplicationConfig}.
+	 * The server uses the default COMPETITION log message format.
+	 *
+	 * @param config The configuration of the server.
+	 */
+	public LoggerServer(final ApplicationConfig config) {
+		this(config.getNetworkInterface(), config.getPort(), config.getLogOutputFile(), LogMessageFormat.COMPETITION, config);
+	}
+
+	/**
+	 * Constructor to create a new LoggerServer. If the writer queue is enabled, its writer thread saves the log
+	 * messages in batches to the configured storage backend; otherwise log messages received concurrently from
+	 * different clients are coalesced into group commits.
+	 *
+	 * @param networkInterface The network interface to bind to.
+	 * @param port The port number to listen for connections.
+	 * @param logFile The path to the log file (or the base path of the segments) for persisting log messages.
+	 * @param format The type of log format to use.
+	 * @param config The configuration of the ingest engine, the admission control, the writer queue, the storage
+	 *               backend, durability and group commit.
+	 */
+	private LoggerServer(final NetworkInterface networkInterface, final int port, final Path logFile,
+						 final LogMessageFormat format, final ApplicationConfig config) {
 		this.networkInterface = networkInterface;
 		this.port = port;
-		StringPersistor stringPersistor = new StringPersistorFile();
+		this.ingestEngine = config.getIngestEngine();
+		this.ingestThreads = config.getIngestThreads();
+		this.stringPersistor = createPersistor(logFile, format, config);
+		this.logAdapter = new StringPersistorLogAdapter(this.stringPersistor, LogMessageFormatterFactory.createFormatter(format));
+		if (config.getWriterQueueCapacity() > 0) {
+			// Decouple the receiving threads from the disk
+			this.asyncLogWriter = new AsyncLogWriter(this.logAdapter, config.getWriterQueueCapacity(),
+					config.getOverloadPolicy(), logFile, config.getFormatThreads());
+			this.logAdapter = this.asyncLogWriter;
+		}
+		AdmissionController admission = new AdmissionController(config.getAdmissionDebugRate(),
+				config.getAdmissionInfoRate(), config.getAdmissionSampling());
+		if (admission.isEnabled()) {
+			this.admissionController = admission;
+		}
+		this.loggerViewerServer = new Server(HOST_NAME_LOGGER_VIEWER_SERVER, PORT_LOGGER_VIEWER_SERVER, "/", null, LoggerViewerServerEndpoint.class);
+	}
+
+	/**
+	 * Creates the persistor the log messages are saved to: the storage backend itself if the writer queue is
+	 * enabled, because its single writer thread already saves the messages in batches, and otherwise the storage
+	 * backend wrapped in a {@link GroupCommitStringPersistor}, which coalesces the messages saved concurrently by
+	 * the receiving threads.
+	 *
+	 * @param logFile The path to the log file (or the base path of the segments).
+	 * @param format The format the log messages are stored in.
+	 * @param config The configuration of the writer queue, the storage backend and group commit.
+	 * @return The opened persistor.
+	 * @throws IllegalArgumentException if the format cannot be stored in the configured storage backend.
+	 */
+	static BulkStringPersistor createPersistor(final Path logFile, final LogMessageFormat format,
+			final ApplicationConfig config) {
+		BulkStringPersistor storage = createStorage(logFile, format, config);
+		if (config.getWriterQueueCapacity() > 0) {
+			return storage;
+		}
+		return new GroupCommitStringPersistor(storage, config.getGroupCommitLatency(),
+				GroupCommitStringPersistor.DEFAULT_MAX_BATCH_SIZE);
+	}
+
+	/**
+	 * Creates the storage backend for the log messages.
+	 *
+	 * @param logFile The path to the log file (or the base path of the segments).
+	 * @param format The format the log messages are stored in.
+	 * @param storageConfig The configuration of the storage backend.
+	 * @return The opened storage backend.
+	 * @throws IllegalArgumentException if the format cannot be stored in the configured storage backend.
+	 */
+	private static BulkStringPersistor createStorage(final Path logFile, final LogMessageFormat format,
+			final ApplicationConfig storageConfig) {
+		if (storageConfig.getStorage() == LogStorage.SEGMENTED) {
+			if (format == LogMessageFormat.HUMAN_READABLE) {
+				// The segments hold one record per line, so the multi-line layout would only be stored escaped
+				throw new IllegalArgumentException("The " + format + " format is not supported by the "
+						+ LogStorage.SEGMENTED + " storage");
+			}
+			SegmentedMappedStringPersistor segments = new SegmentedMappedStringPersistor(
+					storageConfig.getSegmentSize(), storageConfig.getMaxSegments());
+			segments.setDurability(storageConfig.getDurability());
+			segments.setFile(logFile);
+			return segments;
+		}
+
 		if (!FileCreator.createFile(logFile)) {
 			throw new IllegalArgumentException("Invalid log file path. Failed to create the file");
 		}
-		stringPersistor.setFile(logFile);
-		this.logAdapter = new StringPersistorLogAdapter(stringPersistor, LogMessageFormatterFactory.createFormatter(format));
-		this.loggerViewerServer = new Server(HOST_NAME_LOGGER_VIEWER_SERVER, PORT_LOGGER_VIEWER_SERVER, "/", null, LoggerViewerServerEndpoint.class);
+		StringPersistorFile file = new StringPersistorFile();
+		file.setDurability(storageConfig.getDurability());
+		file.setTimeIndex(storageConfig.isTimeIndex());
+		file.setKeyIndex(storageConfig.isKeyIndex());
+		file.setFile(logFile);
+		return file;
 	}
 
 	/**
@@ -85,12 +194,17 @@ public class LoggerServer {
 	 * and begins accepting client connections.
 	 */
 	public void start() {
+		InetAddress bindAddress = null;
 		try {
 			// Start the socket
 			if (this.networkInterface != null) {
-				this.serverSocket = new ServerSocket(this.port, this.maxConnections, this.networkInterface.getInetAddresses().nextElement());
+				bindAddress = this.networkInterface.getInetAddresses().nextElement();
+			}
+			if (this.ingestEngine == IngestEngine.NIO) {
+				this.nioIngestServer = new NioIngestServer(bindAddress, this.port, NIO_ACCEPT_BACKLOG, this.logAdapter,
+						this.ingestThreads, this.admissionController);
 			} else {
-				this.serverSocket = new ServerSocket(this.port, this.maxConnections);
+				this.serverSocket = new ServerSocket(this.port, this.maxConnections, bindAddress);
 			}
 		} catch (IOException e) {
 			LOGGER.error("Failed to start server socket", e);
@@ -108,6 +222,15 @@ public class LoggerServer {
 
 
 		this.isRunning = true;
+		if (this.nioIngestServer != null) {
+			LOGGER.info("LoggerServer is running on tcp://{}:{} [Engine=NIO, EventLoops={}]",
+					bindAddress != null ? bindAddress.getHostAddress() : "0.0.0.0",
+					this.port,
+					this.ingestThreads);
+			this.nioIngestServer.run();
+			return;
+		}
+
 		LOGGER.info("LoggerServer is running on tcp://{}:{} [MaxClients={}]",
 				this.serverSocket.getInetAddress().getHostAddress(),
 				this.port,
@@ -130,7 +253,7 @@ public class LoggerServer {
 				LOGGER.info("New client connected: {}:{}", clientSocket.getInetAddress(), clientSocket.getPort());
 
 				// Handle the client in a separate thread using the executor pool
-				LoggerClient client = new LoggerClient(this, clientSocket, this.logAdapter);
+				LoggerClient client = new LoggerClient(this, clientSocket, this.logAdapter, this.admissionController);
 				this.clients.add(client);
 
 				this.clientHandlerPool.submit(client);
@@ -155,16 +278,49 @@ public class LoggerServer {
 	 */
 	public void stop() {
 		this.isRunning = false;
+		if (this.nioIngestServer != null) {
+			this.nioIngestServer.close();
+			this.closeStorage();
+			return;
+		}
 		try {
 			this.serverSocket.close();
 			this.clientHandlerPool.shutdownNow();
 		} catch (IOException e) {
 			LOGGER.error("Failed to stop server", e);
 		}
+		this.closeStorage();
+	}
+
+	/**
+	 * Writes the messages still queued for the disk writer and closes the storage backend.
+	 */
+	private void closeStorage() {
+		if (this.asyncLogWriter != null) {
+			this.asyncLogWriter.close();
+		}
+		if (this.stringPersistor instanceof AutoCloseable closeable) {
+			try {
+				closeable.close();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException("Failed to close storage: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of received log messages waiting for the disk writer.
+	 *
+	 * @return The depth of the writer queue, or {@code 0} if the messages are written on the receiving threads.
+	 */
+	public int getWriterQueueDepth() {
+		return this.asyncLogWriter != null ? this.asyncLogWriter.getQueueDepth() : 0;
 	}
 
 	/**
-	 * Returns the list of currently connected clients.
+	 * Returns the list of currently connected clients of the blocking ingest engine.
 	 *
 	 * @return The list of {@link LoggerClient} objects.
 	 */
@@ -4,9 +4,16 @@ import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import ch.hslu.vsk.logger.server.pipeline.AsyncLogWriter;
+import ch.hslu.vsk.stringpersistor.impl.Durability;
+import ch.hslu.vsk.stringpersistor.impl.GroupCommitStringPersistor;
+import ch.hslu.vsk.stringpersistor.impl.SegmentedMappedStringPersistor;
+
 /**
  * Represents the configuration for the application.
  * Provides methods to initialize, modify, and retrieve configuration values such as
@@ -38,6 +45,90 @@ public class ApplicationConfig {
 	 */
 	private Path logOutputFile = Path.of("./test.log");
 
+	/**
+	 * The durability of a commit to the log output file. Defaults to {@link Durability#FLUSH}.
+	 */
+	private Durability durability = Durability.FLUSH;
+
+	/**
+	 * The maximum time concurrent writes are coalesced into one commit. Only used if the writer queue is disabled.
+	 * Defaults to {@link GroupCommitStringPersistor#DEFAULT_MAX_LATENCY}.
+	 */
+	private Duration groupCommitLatency = GroupCommitStringPersistor.DEFAULT_MAX_LATENCY;
+
+	/**
+	 * The storage backend for the log output. Defaults to {@link LogStorage#FILE}.
+	 */
+	private LogStorage storage = LogStorage.FILE;
+
+	/**
+	 * The size of a segment in bytes, if the segmented storage is used.
+	 * Defaults to {@link SegmentedMappedStringPersistor#DEFAULT_SEGMENT_SIZE}.
+	 */
+	private int segmentSize = SegmentedMappedStringPersistor.DEFAULT_SEGMENT_SIZE;
+
+	/**
+	 * The maximum number of segments to keep, if the segmented storage is used. Defaults to {@code 0} (unlimited).
+	 */
+	private int maxSegments = 0;
+
+	/**
+	 * Whether an index of the timestamps is kept next to the log output file, if the file storage is used.
+	 * Defaults to {@code true}.
+	 */
+	private boolean timeIndex = true;
+
+	/**
+	 * Whether an index of the clients and levels is kept next to the log output file, if the file storage is
+	 * used. Defaults to {@code true}.
+	 */
+	private boolean keyIndex = true;
+
+	/**
+	 * The engine the log messages are received with. Defaults to {@link IngestEngine#BLOCKING}.
+	 */
+	private IngestEngine ingestEngine = IngestEngine.BLOCKING;
+
+	/**
+	 * The number of event loops, if the {@link IngestEngine#NIO} engine is used.
+	 * Defaults to the number of processors, but at most {@code 4}.
+	 */
+	private int ingestThreads = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The number of received log messages queued for the disk writer, or {@code 0} to write them on the receiving
+	 * threads. Defaults to {@link AsyncLogWriter#DEFAULT_CAPACITY}.
+	 */
+	private int writerQueueCapacity = AsyncLogWriter.DEFAULT_CAPACITY;
+
+	/**
+	 * What happens to received log messages while the queue of the disk writer is full.
+	 * Defaults to {@link OverloadPolicy#BLOCK}.
+	 */
+	private OverloadPolicy overloadPolicy = OverloadPolicy.BLOCK;
+
+	/**
+	 * The number of threads formatting the queued log messages before the disk writer saves them in order, or
+	 * {@code 0} to format them on the disk writer. Only used with a writer queue. Defaults to {@code 0}.
+	 */
+	private int formatThreads = 0;
+
+	/**
+	 * The number of DEBUG messages admitted per second and client, or {@code 0} for no limit. Defaults to {@code 0}.
+	 */
+	private long admissionDebugRate = 0;
+
+	/**
+	 * The number of INFO messages admitted per second and client, or {@code 0} for no limit. Defaults to {@code 0}.
+	 */
+	private long admissionInfoRate = 0;
+
+	/**
+	 * Every how many DEBUG and INFO messages exceeding the rate of their client one is admitted, or {@code 0} to drop
+	 * all of them. Defaults to {@code 0}.
+	 */
+	private int admissionSampling = 0;
+
 	/**
 	 * Returns the network port of the application.
 	 *
@@ -65,6 +156,142 @@ public class ApplicationConfig {
 		return this.logOutputFile;
 	}
 
+	/**
+	 * Returns the durability of a commit to the log output file.
+	 *
+	 * @return the configured {@link Durability}.
+	 */
+	public Durability getDurability() {
+		return this.durability;
+	}
+
+	/**
+	 * Returns the maximum time concurrent writes are coalesced into one commit.
+	 *
+	 * @return the group commit latency.
+	 */
+	public Duration getGroupCommitLatency() {
+		return this.groupCommitLatency;
+	}
+
+	/**
+	 * Returns the storage backend for the log output.
+	 *
+	 * @return the configured {@link LogStorage}.
+	 */
+	public LogStorage getStorage() {
+		return this.storage;
+	}
+
+	/**
+	 * Returns the size of a segment in bytes, if the segmented storage is used.
+	 *
+	 * @return the segment size in bytes.
+	 */
+	public int getSegmentSize() {
+		return this.segmentSize;
+	}
+
+	/**
+	 * Returns the maximum number of segments to keep, if the segmented storage is used.
+	 *
+	 * @return the maximum number of segments, {@code 0} if unlimited.
+	 */
+	public int getMaxSegments() {
+		return this.maxSegments;
+	}
+
+	/**
+	 * Returns whether an index of the timestamps is kept next to the log output file, if the file storage is used.
+	 *
+	 * @return {@code true} if the time index is enabled.
+	 */
+	public boolean isTimeIndex() {
+		return this.timeIndex;
+	}
+
+	/**
+	 * Returns whether an index of the clients and levels is kept next to the log output file, if the file storage
+	 * is used.
+	 *
+	 * @return {@code true} if the key index is enabled.
+	 */
+	public boolean isKeyIndex() {
+		return this.keyIndex;
+	}
+
+	/**
+	 * Returns the engine the log messages are received with.
+	 *
+	 * @return the configured {@link IngestEngine}.
+	 */
+	public IngestEngine getIngestEngine() {
+		return this.ingestEngine;
+	}
+
+	/**
+	 * Returns the number of event loops, if the {@link IngestEngine#NIO} engine is used.
+	 *
+	 * @return the number of event loops.
+	 */
+	public int getIngestThreads() {
+		return this.ingestThreads;
+	}
+
+	/**
+	 * Returns the number of received log messages queued for the disk writer.
+	 *
+	 * @return the capacity of the queue, or {@code 0} if the messages are written on the receiving threads.
+	 */
+	public int getWriterQueueCapacity() {
+		return this.writerQueueCapacity;
+	}
+
+	/**
+	 * Returns what happens to received log messages while the queue of the disk writer is full.
+	 *
+	 * @return the configured {@link OverloadPolicy}.
+	 */
+	public OverloadPolicy getOverloadPolicy() {
+		return this.overloadPolicy;
+	}
+
+	/**
+	 * Returns the number of threads formatting the queued log messages.
+	 *
+	 * @return the number of format threads, or {@code 0} if the messages are formatted on the disk writer.
+	 */
+	public int getFormatThreads() {
+		return this.formatThreads;
+	}
+
+	/**
+	 * Returns the number of DEBUG messages admitted per second and client.
+	 *
+	 * @return the rate, or {@code 0} if DEBUG messages are not limited.
+	 */
+	public long getAdmissionDebugRate() {
+		return this.admissionDebugRate;
+	}
+
+	/**
+	 * Returns the number of INFO messages admitted per second and client.
+	 *
+	 * @return the rate, or {@code 0} if INFO messages are not limited.
+	 */
+	public long getAdmissionInfoRate() {
+		return this.admissionInfoRate;
+	}
+
+	/**
+	 * Returns every how many messages exceeding the rate of their client one is admitted.
+	 *
+	 * @return the sampling interval, or {@code 0} if all messages exceeding the rate are dropped.
+	 */
+	public int getAdmissionSampling() {
+		return this.admissionSampling;
+	}
+
 	/**
 	 * Creates an {@code ApplicationConfig} instance from the specified configuration source.
 	 *
@@ -112,6 +339,92 @@ public class ApplicationConfig {
 		if (logOutputFileConfigValue != null) {
 			this.trySetLogOutputFile(logOutputFileConfigValue);
 		}
+
+		// Set the durability
+		String durabilityConfigValue = source.getConfigValue("durability");
+		if (durabilityConfigValue != null) {
+			this.trySetDurability(durabilityConfigValue);
+		}
+
+		// Set the group commit latency
+		String groupCommitLatencyConfigValue = source.getConfigValue("group_commit_latency_ms");
+		if (groupCommitLatencyConfigValue != null) {
+			this.trySetGroupCommitLatency(groupCommitLatencyConfigValue);
+		}
+
+		// Set the storage backend
+		String storageConfigValue = source.getConfigValue("storage");
+		if (storageConfigValue != null) {
+			this.trySetStorage(storageConfigValue);
+		}
+
+		// Set the segment size
+		String segmentSizeConfigValue = source.getConfigValue("segment_size_mb");
+		if (segmentSizeConfigValue != null) {
+			this.trySetSegmentSize(segmentSizeConfigValue);
+		}
+
+		// Set the maximum number of segments
+		String maxSegmentsConfigValue = source.getConfigValue("max_segments");
+		if (maxSegmentsConfigValue != null) {
+			this.trySetMaxSegments(maxSegmentsConfigValue);
+		}
+
+		// Set the time index
+		String timeIndexConfigValue = source.getConfigValue("time_index");
+		if (timeIndexConfigValue != null) {
+			this.trySetTimeIndex(timeIndexConfigValue);
+		}
+
+		// Set the key index
+		String keyIndexConfigValue = source.getConfigValue("key_index");
+		if (keyIndexConfigValue != null) {
+			this.trySetKeyIndex(keyIndexConfigValue);
+		}
+
+		// Set the ingest engine
+		String ingestEngineConfigValue = source.getConfigValue("ingest_engine");
+		if (ingestEngineConfigValue != null) {
+			this.trySetIngestEngine(ingestEngineConfigValue);
+		}
+
+		// Set the number of event loops
+		String ingestThreadsConfigValue = source.getConfigValue("ingest_threads");
+		if (ingestThreadsConfigValue != null) {
+			this.trySetIngestThreads(ingestThreadsConfigValue);
+		}
+
+		// Set the capacity of the writer queue
+		String writerQueueCapacityConfigValue = source.getConfigValue("writer_queue_capacity");
+		if (writerQueueCapacityConfigValue != null) {
+			this.trySetWriterQueueCapacity(writerQueueCapacityConfigValue);
+		}
+
+		// Set the overload policy
+		String overloadPolicyConfigValue = source.getConfigValue("overload_policy");
+		if (overloadPolicyConfigValue != null) {
+			this.trySetOverloadPolicy(overloadPolicyConfigValue);
+		}
+
+		// Set the number of format threads
+		String formatThreadsConfigValue = source.getConfigValue("format_threads");
+		if (formatThreadsConfigValue != null) {
+			this.trySetFormatThreads(formatThreadsConfigValue);
+		}
+
+		// Set the admission rates and sampling
+		String admissionDebugRateConfigValue = source.getConfigValue("admission_debug_rate");
+		if (admissionDebugRateConfigValue != null) {
+			this.admissionDebugRate = parseRate(admissionDebugRateConfigValue, "DEBUG");
+		}
+		String admissionInfoRateConfigValue = source.getConfigValue("admission_info_rate");
+		if (admissionInfoRateConfigValue != null) {
+			this.admissionInfoRate = parseRate(admissionInfoRateConfigValue, "INFO");
+		}
+		String admissionSamplingConfigValue = source.getConfigValue("admission_sampling");
+		if (admissionSamplingConfigValue != null) {
+			this.trySetAdmissionSampling(admissionSamplingConfigValue);
+		}
 	}
 
 	/**
@@ -182,4 +495,287 @@ public class ApplicationConfig {
 	private void trySetLogOutputFile(final String file) {
 		this.logOutputFile = Path.of(file);
 	}
+
+	/**
+	 * Tries to set the durability from a string value, typically loaded from a configuration source.
+	 * Accepted values are {@code flush} and {@code fsync} (case-insensitive).
+	 *
+	 * @param durabilityAsString The durability as a string.
+	 * @throws IllegalArgumentException if the value is not a known durability.
+	 */
+	private void trySetDurability(final String durabilityAsString) {
+		try {
+			this.durability = Durability.valueOf(durabilityAsString.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException ex) {
+			throw new IllegalArgumentException("The durability has to be either flush or fsync", ex);
+		}
+	}
+
+	/**
+	 * Tries to set the group commit latency from a string value (in milliseconds), typically loaded from a
+	 * configuration source. Validates that the value is a non-negative integer.
+	 *
+	 * @param latencyAsString The latency in milliseconds as a string.
+	 * @throws IllegalArgumentException if the latency is not a valid non-negative integer.
+	 */
+	private void trySetGroupCommitLatency(final String latencyAsString) {
+		long parsedLatency;
+
+		try {
+			parsedLatency = Long.parseLong(latencyAsString);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The group commit latency has to be an integer", ex);
+		}
+
+		if (parsedLatency < 0) {
+			throw new IllegalArgumentException("The group commit latency must not be negative");
+		}
+
+		this.groupCommitLatency = Duration.ofMillis(parsedLatency);
+	}
+
+	/**
+	 * Tries to set the storage backend from a string value, typically loaded from a configuration source.
+	 * Accepted values are {@code file} and {@code segmented} (case-insensitive).
+	 *
+	 * @param storageAsString The storage backend as a string.
+	 * @throws IllegalArgumentException if the value is not a known storage backend.
+	 */
+	private void trySetStorage(final String storageAsString) {
+		try {
+			this.storage = LogStorage.valueOf(storageAsString.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException ex) {
+			throw new IllegalArgumentException("The storage has to be either file or segmented", ex);
+		}
+	}
+
+	/**
+	 * Tries to set the segment size from a string value (in MiB), typically loaded from a configuration source.
+	 * Validates that the value is a positive integer of at most 1024.
+	 *
+	 * @param segmentSizeAsString The segment size in MiB as a string.
+	 * @throws IllegalArgumentException if the segment size is invalid.
+	 */
+	private void trySetSegmentSize(final String segmentSizeAsString) {
+		int parsedSegmentSize;
+
+		try {
+			parsedSegmentSize = Integer.parseInt(segmentSizeAsString);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The segment size has to be an integer", ex);
+		}
+
+		if (parsedSegmentSize <= 0 || parsedSegmentSize > 1024) {
+			throw new IllegalArgumentException("The segment size has to be between 1 and 1024 MiB");
+		}
+
+		this.segmentSize = parsedSegmentSize * 1024 * 1024;
+	}
+
+	/**
+	 * Tries to set the maximum number of segments from a string value, typically loaded from a configuration
+	 * source. Validates that the value is a non-negative integer.
+	 *
+	 * @param maxSegmentsAsString The maximum number of segments as a string.
+	 * @throws IllegalArgumentException if the value is not a valid non-negative integer.
+	 */
+	private void trySetMaxSegments(final String maxSegmentsAsString) {
+		int parsedMaxSegments;
+
+		try {
+			parsedMaxSegments = Integer.parseInt(maxSegmentsAsString);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The maximum number of segments has to be an integer", ex);
+		}
+
+		if (parsedMaxSegments < 0) {
+			throw new IllegalArgumentException("The maximum number of segments must not be negative");
+		}
+
+		this.maxSegments = parsedMaxSegments;
+	}
+
+	/**
+	 * Tries to set whether the time index is kept from a string value, typically loaded from a configuration
+	 * source. Accepted values are {@code true} and {@code false} (case-insensitive).
+	 *
+	 * @param timeIndexAsString The flag as a string.
+	 * @throws IllegalArgumentException if the value is neither true nor false.
+	 */
+	private void trySetTimeIndex(final String timeIndexAsString) {
+		this.timeIndex = parseFlag(timeIndexAsString, "time index");
+	}
+
+	/**
+	 * Tries to set whether the key index is kept from a string value, typically loaded from a configuration
+	 * source. Accepted values are {@code true} and {@code false} (case-insensitive).
+	 *
+	 * @param keyIndexAsString The flag as a string.
+	 * @throws IllegalArgumentException if the value is neither true nor false.
+	 */
+	private void trySetKeyIndex(final String keyIndexAsString) {
+		this.keyIndex = parseFlag(keyIndexAsString, "key index");
+	}
+
+	/**
+	 * Parses a flag from a string value. Accepted values are {@code true} and {@code false} (case-insensitive).
+	 *
+	 * @param flagAsString The flag as a string.
+	 * @param name The name of the flag, used in the error message.
+	 * @return the parsed flag.
+	 * @throws IllegalArgumentException if the value is neither true nor false.
+	 */
+	private static boolean parseFlag(final String flagAsString, final String name) {
+		String value = flagAsString.trim();
+		if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+			throw new IllegalArgumentException("The " + name + " has to be either true or false");
+		}
+		return Boolean.parseBoolean(value);
+	}
+
+	/**
+	 * Tries to set the ingest engine from a string value, typically loaded from a configuration source.
+	 * Accepted values are {@code blocking} and {@code nio} (case-insensitive).
+	 *
+	 * @param ingestEngineAsString The ingest engine as a string.
+	 * @throws IllegalArgumentException if the value is not a known ingest engine.
+	 */
+	private void trySetIngestEngine(final String ingestEngineAsString) {
+		try {
+			this.ingestEngine = IngestEngine.valueOf(ingestEngineAsString.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException ex) {
+			throw new IllegalArgumentException("The ingest engine has to be either blocking or nio", ex);
+		}
+	}
+
+	/**
+	 * Tries to set the number of event loops from a string value, typically loaded from a configuration source.
+	 * Validates that the value is a positive integer.
+	 *
+	 * @param ingestThreadsAsString The number of event loops as a string.
+	 * @throws IllegalArgumentException if the value is not a valid positive integer.
+	 */
+	private void trySetIngestThreads(final String ingestThreadsAsString) {
+		int parsedIngestThreads;
+
+		try {
+			parsedIngestThreads = Integer.parseInt(ingestThreadsAsString);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The number of ingest threads has to be an integer", ex);
+		}
+
+		if (parsedIngestThreads <= 0) {
+			throw new IllegalArgumentException("The number of ingest threads must be greater than 0");
+		}
+
+		this.ingestThreads = parsedIngestThreads;
+	}
+
+	/**
+	 * Tries to set the capacity of the writer queue from a string value, typically loaded from a configuration
+	 * source. Validates that the value is a non-negative integer.
+	 *
+	 * @param writerQueueCapacityAsString The capacity as a string.
+	 * @throws IllegalArgumentException if the value is not a valid non-negative integer.
+	 */
+	private void trySetWriterQueueCapacity(final String writerQueueCapacityAsString) {
+		int parsedCapacity;
+
+		try {
+			parsedCapacity = Integer.parseInt(writerQueueCapacityAsString);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The writer queue capacity has to be an integer", ex);
+		}
+
+		if (parsedCapacity < 0) {
+			throw new IllegalArgumentException("The writer queue capacity must not be negative");
+		}
+
+		this.writerQueueCapacity = parsedCapacity;
+	}
+
+	/**
+	 * Tries to set the overload policy from a string value, typically loaded from a configuration source.
+	 *
+	 * @param overloadPolicyAsString The overload policy as a string.
+	 * @throws IllegalArgumentException if the value is not a known overload policy.
+	 */
+	private void trySetOverloadPolicy(final String overloadPolicyAsString) {
+		try {
+			this.overloadPolicy = OverloadPolicy.valueOf(overloadPolicyAsString.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException ex) {
+			throw new IllegalArgumentException("The overload policy has to be either block, drop_debug or spill", ex);
+		}
+	}
+
+	/**
+	 * Tries to set the number of format threads from a string value, typically loaded from a configuration source.
+	 * Validates that the value is a non-negative integer.
+	 *
+	 * @param formatThreadsAsString The number of format threads as a string.
+	 * @throws IllegalArgumentException if the value is not a valid non-negative integer.
+	 */
+	private void trySetFormatThreads(final String formatThreadsAsString) {
+		int parsedFormatThreads;
+
+		try {
+			parsedFormatThreads = Integer.parseInt(formatThreadsAsString);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The number of format threads has to be an integer", ex);
+		}
+
+		if (parsedFormatThreads < 0) {
+			throw new IllegalArgumentException("The number of format threads must not be negative");
+		}
+
+		this.formatThreads = parsedFormatThreads;
+	}
+
+	/**
+	 * Parses the number of messages of a level admitted per second and client. Validates that the value is a
+	 * non-negative integer.
+	 *
+	 * @param rateAsString The rate as a string.
+	 * @param level The name of the level, used in the error message.
+	 * @return the parsed rate.
+	 * @throws IllegalArgumentException if the value is not a valid non-negative integer.
+	 */
+	private static long parseRate(final String rateAsString, final String level) {
+		long parsedRate;
+
+		try {
+			parsedRate = Long.parseLong(rateAsString);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The admission rate of " + level + " messages has to be an integer", ex);
+		}
+
+		if (parsedRate < 0) {
+			throw new IllegalArgumentException("The admission rate of " + level + " messages must not be negative");
+		}
+
+		return parsedRate;
+	}
+
+	/**
+	 * Tries to set the admission sampling from a string value, typically loaded from a configuration source.
+	 * Validates that the value is a non-negative integer.
+	 *
+	 * @param admissionSamplingAsString The sampling interval as a string.
+	 * @throws IllegalArgumentException if the value is not a valid non-negative integer.
+	 */
+	private void trySetAdmissionSampling(final String admissionSamplingAsString) {
+		int parsedSampling;
+
+		try {
+			parsedSampling = Integer.parseInt(admissionSamplingAsString);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("The admission sampling has to be an integer", ex);
+		}
+
+		if (parsedSampling < 0) {
+			throw new IllegalArgumentException("The admission sampling must not be negative");
+		}
+
+		this.admissionSampling = parsedSampling;
+	}
 }
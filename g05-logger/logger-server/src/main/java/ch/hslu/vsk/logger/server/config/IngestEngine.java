@@ -0,0 +1,17 @@
+package ch.hslu.vsk.logger.server.config;
+
+/**
+ * The engines the server can receive log messages with.
+ */
+public enum IngestEngine {
+
+	/**
+	 * A blocking server socket with one thread and one pair of streams per connection ({@code LoggerClient}).
+	 */
+	BLOCKING,
+
+	/**
+	 * Non-blocking channels served by a small pool of selector event loops ({@code NioIngestServer}).
+	 */
+	NIO
+}
@@ -0,0 +1,17 @@
+package ch.hslu.vsk.logger.server.config;
+
+/**
+ * The storage backends the server can persist log messages with.
+ */
+public enum LogStorage {
+
+	/**
+	 * A single, ever-growing text file ({@code StringPersistorFile}).
+	 */
+	FILE,
+
+	/**
+	 * Memory-mapped, size-limited segment files ({@code SegmentedMappedStringPersistor}).
+	 */
+	SEGMENTED
+}
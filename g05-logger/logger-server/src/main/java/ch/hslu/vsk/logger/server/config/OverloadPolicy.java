@@ -0,0 +1,24 @@
+package ch.hslu.vsk.logger.server.config;
+
+/**
+ * What the server does with received log messages while the queue in front of the disk writer is full.
+ */
+public enum OverloadPolicy {
+
+	/**
+	 * The receiving threads wait until the writer has made room, so a slow disk slows down the clients.
+	 */
+	BLOCK,
+
+	/**
+	 * DEBUG messages are dropped once the queue is three quarters full and INFO messages once it is full;
+	 * WARNING and ERROR messages are never dropped and wait for room instead.
+	 */
+	DROP_DEBUG,
+
+	/**
+	 * Messages which do not fit into the queue are appended to a spill file next to the log file and written
+	 * to the log once the queue has been drained, so no message is lost and the clients are not slowed down.
+	 */
+	SPILL
+}
@@ -0,0 +1,79 @@
+package ch.hslu.vsk.logger.server.network;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A pool of direct {@link ByteBuffer}s of a fixed size. Released buffers are kept for reuse up to a maximum
+ * number; further buffers are left to the garbage collector.
+ * <p>
+ * This class is not thread-safe; every event loop of the {@link NioIngestServer} owns its own pool.
+ * </p>
+ */
+final class ByteBufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final Deque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    /**
+     * Creates a new, empty {@code ByteBufferPool}.
+     *
+     * @param bufferSize The size of the pooled buffers in bytes; must be greater than 0.
+     * @param maxPooled The maximum number of buffers kept for reuse; must not be negative.
+     * @throws IllegalArgumentException if one of the arguments is invalid.
+     */
+    ByteBufferPool(final int bufferSize, final int maxPooled) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be greater than 0");
+        }
+        if (maxPooled < 0) {
+            throw new IllegalArgumentException("Max pooled buffers must not be negative");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Returns the size of the pooled buffers.
+     *
+     * @return The buffer size in bytes.
+     */
+    int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * Returns a cleared buffer, either from the pool or newly allocated.
+     *
+     * @return A buffer with a capacity of {@link #getBufferSize()} bytes.
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = this.buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(this.bufferSize);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers which were not acquired from a pool of this size are ignored.
+     *
+     * @param buffer The buffer to release.
+     */
+    void release(final ByteBuffer buffer) {
+        if (buffer.capacity() == this.bufferSize && buffer.isDirect() && this.buffers.size() < this.maxPooled) {
+            this.buffers.push(buffer.clear());
+        }
+    }
+
+    /**
+     * Returns the number of buffers currently available for reuse.
+     *
+     * @return The number of pooled buffers.
+     */
+    int size() {
+        return this.buffers.size();
+    }
+}
@@ -2,14 +2,18 @@ package ch.hslu.vsk.logger.server.network;
 
 import java.io.IOException;
 import java.net.Socket;
-import java.time.Instant;
+import java.util.List;
 
+import ch.hslu.vsk.logger.common.CompressionHandshake;
 import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
 import ch.hslu.vsk.logger.common.adapter.LogAdapter;
 import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
 import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
 import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import ch.hslu.vsk.logger.common.util.EpochClock;
 import ch.hslu.vsk.logger.server.LoggerServer;
+import ch.hslu.vsk.logger.server.pipeline.AdmissionController;
 import ch.hslu.vsk.logger.server.viewer.MessageDispatcherLoggerViewerServer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -27,6 +31,7 @@ public final class LoggerClient implements Runnable {
     private final LoggerServer server;
     private final Socket socket;
     private final LogAdapter logAdapter;
+    private final AdmissionController admission;
     private boolean connected;
     private NetworkMessageInputStream inputStream;
     private NetworkMessageOutputStream outputStream;
@@ -38,9 +43,23 @@ public final class LoggerClient implements Runnable {
      * @param socket The socket representing the client connection.
      */
     public LoggerClient(LoggerServer server, Socket socket, LogAdapter adapter) {
+        this(server, socket, adapter, null);
+    }
+
+    /**
+     * Constructor to create a new LoggerClient instance for a given socket connection, whose messages are only
+     * saved and shown if an {@link AdmissionController} admits them.
+     *
+     * @param server The server to which this client belongs.
+     * @param socket The socket representing the client connection.
+     * @param adapter The adapter the received messages are saved with.
+     * @param admission The controller deciding which messages are admitted, or {@code null} to admit all.
+     */
+    public LoggerClient(LoggerServer server, Socket socket, LogAdapter adapter, AdmissionController admission) {
         this.server = server;
         this.socket = socket;
         this.logAdapter = adapter;
+        this.admission = admission;
         this.connected = true;
         try {
             this.inputStream = new NetworkMessageInputStream(this.socket.getInputStream());
@@ -115,9 +134,33 @@ public final class LoggerClient implements Runnable {
 			}
 
 			if (parsed instanceof LogMessage message) {
-				message.setReceivedAtServer(Instant.now());
+				if (this.admission != null && !this.admission.admit(message)) {
+					continue;
+				}
+				message.setReceivedAtServerNanos(EpochClock.nowNanos());
                 this.logAdapter.saveLogMessage(message);
                 MessageDispatcherLoggerViewerServer.queueMessage(message);
+			} else if (parsed instanceof LogMessageBatch batch) {
+				List<LogMessage> messages = this.admission != null
+						? this.admission.admit(batch.getMessages())
+						: batch.getMessages();
+				if (messages.isEmpty()) {
+					continue;
+				}
+				long receivedAt = EpochClock.nowNanos();
+				for (LogMessage message : messages) {
+					message.setReceivedAtServerNanos(receivedAt);
+				}
+				this.logAdapter.saveLogMessages(messages);
+				for (LogMessage message : messages) {
+					MessageDispatcherLoggerViewerServer.queueMessage(message);
+				}
+			} else if (parsed instanceof CompressionHandshake offer) {
+				try {
+					this.send(offer.accept());
+				} catch (IOException ex) {
+					handleDisconnect();
+				}
 			}
 		}
 	}
@@ -0,0 +1,391 @@
+package ch.hslu.vsk.logger.server.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ch.hslu.vsk.logger.common.CompressionHandshake;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
+import ch.hslu.vsk.logger.common.adapter.LogAdapter;
+import ch.hslu.vsk.logger.common.network.ByteBufferInputStream;
+import ch.hslu.vsk.logger.common.network.ClientNameTable;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.common.network.NetworkTransferable;
+import ch.hslu.vsk.logger.common.util.EpochClock;
+import ch.hslu.vsk.logger.server.pipeline.AdmissionController;
+import ch.hslu.vsk.logger.server.viewer.MessageDispatcherLoggerViewerServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A single-threaded event loop of the {@link NioIngestServer}. It reads from all connections registered with its
+ * {@link Selector} and decodes the frames directly from {@link ByteBuffer}s.
+ * <p>
+ * Data is read into a buffer shared by all connections of the loop. Only a connection which has received an
+ * incomplete frame holds a buffer of its own (taken from a {@link ByteBufferPool}) until the frame is complete,
+ * so idle connections do not hold any buffers or stream objects. All messages decoded in one round of the
+ * selector are saved with a single {@link LogAdapter#saveLogMessages(List)} call, in the order in which they were
+ * received per connection. The client names announced by a connection for its compact frames are kept with the
+ * connection, since the decoding stream is shared by all connections of the loop.
+ * </p>
+ * <p>
+ * A connection whose data cannot be decoded is closed without affecting the other connections of the loop, and a
+ * round which cannot be saved is dropped, so neither a misbehaving client nor a failing adapter stops the loop.
+ * </p>
+ */
+final class NioEventLoop implements Runnable {
+
+    private static final Logger LOGGER = LogManager.getLogger(NioEventLoop.class);
+
+    /**
+     * Size of the read buffer and the pooled connection buffers.
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Maximum number of connection buffers kept for reuse.
+     */
+    private static final int MAX_POOLED_BUFFERS = 256;
+
+    /**
+     * Maximum size of a single frame. Connections sending larger frames are closed.
+     */
+    static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    private final Selector selector;
+    private final LogAdapter logAdapter;
+    private final AdmissionController admission;
+    private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final ByteBufferPool pool = new ByteBufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBufferInputStream bufferStream = new ByteBufferInputStream();
+    private final NetworkMessageInputStream inputStream = new NetworkMessageInputStream(this.bufferStream);
+    private final List<LogMessage> received = new ArrayList<>();
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new event loop with its own {@link Selector}.
+     *
+     * @param logAdapter The adapter the received messages are saved with.
+     * @param admission The controller deciding which messages are admitted, or {@code null} to admit all.
+     * @throws IOException if the selector could not be opened.
+     */
+    NioEventLoop(final LogAdapter logAdapter, final AdmissionController admission) throws IOException {
+        this.selector = Selector.open();
+        this.logAdapter = logAdapter;
+        this.admission = admission;
+    }
+
+    /**
+     * Hands a newly accepted connection to this loop. Can be called from any thread.
+     *
+     * @param channel The connected channel; it is switched to non-blocking mode by the loop.
+     */
+    void register(final SocketChannel channel) {
+        this.connectionCount.incrementAndGet();
+        this.registrations.add(channel);
+        this.selector.wakeup();
+    }
+
+    /**
+     * Returns the number of connections handled by this loop.
+     *
+     * @return The number of open connections.
+     */
+    int getConnectionCount() {
+        return this.connectionCount.get();
+    }
+
+    /**
+     * Stops the loop. All connections are closed once the current round has been saved.
+     */
+    void stop() {
+        this.running = false;
+        this.selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (this.running) {
+                this.selector.select();
+                this.registerPending();
+
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isReadable()) {
+                        this.read(key);
+                    }
+                    if (this.received.size() >= LogMessageBatch.MAX_BATCH_SIZE) {
+                        this.saveReceived();
+                    }
+                }
+                this.saveReceived();
+            }
+        } catch (IOException | ClosedSelectorException ex) {
+            LOGGER.error("Event loop failed", ex);
+        } finally {
+            this.closeAll();
+        }
+    }
+
+    /**
+     * Registers all connections which were handed to the loop since the last round.
+     */
+    private void registerPending() {
+        SocketChannel channel;
+        while ((channel = this.registrations.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.register(this.selector, SelectionKey.OP_READ, new Connection(channel));
+            } catch (IOException ex) {
+                LOGGER.error("Failed to register client", ex);
+                this.connectionCount.decrementAndGet();
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    /**
+     * Reads the available data of a connection and decodes all complete frames.
+     *
+     * @param key The selection key of the connection.
+     */
+    private void read(final SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        ByteBuffer buffer = connection.pending != null ? connection.pending : this.readBuffer.clear();
+
+        try {
+            int read = connection.channel.read(buffer);
+            buffer.flip();
+            this.inputStream.setClientNames(connection.clientNames);
+            this.decodeFrames(connection, buffer);
+
+            if (read < 0) {
+                if (buffer.hasRemaining()) {
+                    LOGGER.warn("Client {} disconnected within a frame", connection.remoteAddress);
+                }
+                this.close(key);
+            } else if (!buffer.hasRemaining()) {
+                this.releasePending(connection);
+            } else {
+                this.keepPending(connection, buffer);
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.error("Error while receiving data from client {}", connection.remoteAddress, ex);
+            this.close(key);
+        }
+    }
+
+    /**
+     * Decodes all complete frames in the buffer. The position of the buffer is left at the start of the first
+     * incomplete frame. A frame is only decoded once it has been skipped completely, so an incomplete frame does
+     * not allocate any objects.
+     *
+     * @param connection The connection the buffer was read from.
+     * @param buffer The buffer in read mode.
+     * @throws IOException if a frame is malformed or of an unknown type.
+     */
+    private void decodeFrames(final Connection connection, final ByteBuffer buffer) throws IOException {
+        this.bufferStream.setBuffer(buffer);
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            try {
+                this.inputStream.skipObject();
+            } catch (EOFException ex) {
+                buffer.position(start);
+                return;
+            }
+            buffer.position(start);
+
+            NetworkTransferable parsed = this.inputStream.nextObject();
+            if (parsed instanceof LogMessage message) {
+                this.received.add(message);
+            } else if (parsed instanceof LogMessageBatch batch) {
+                this.received.addAll(batch.getMessages());
+            } else if (parsed instanceof CompressionHandshake offer) {
+                reply(connection, offer.accept());
+            }
+        }
+    }
+
+    /**
+     * Sends a reply to a connection. Replies are only sent during handshakes, when the send buffer of the socket
+     * is empty, so they are written completely without blocking.
+     *
+     * @param connection The connection.
+     * @param reply The reply.
+     * @throws IOException if the reply could not be written completely.
+     */
+    private static void reply(final Connection connection, final NetworkTransferable reply) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new NetworkMessageOutputStream(bytes).writeObject(reply);
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        connection.channel.write(frame);
+        if (frame.hasRemaining()) {
+            throw new IOException("Failed to send reply to " + connection.remoteAddress);
+        }
+    }
+
+    /**
+     * Keeps the incomplete frame at the position of the buffer for the next read of the connection.
+     *
+     * @param connection The connection.
+     * @param buffer The buffer in read mode which contains the incomplete frame.
+     * @throws IOException if the frame exceeds {@link #MAX_FRAME_SIZE}.
+     */
+    private void keepPending(final Connection connection, final ByteBuffer buffer) throws IOException {
+        if (connection.pending == null) {
+            // Move the rest from the shared read buffer into a buffer of the connection
+            connection.pending = this.pool.acquire().put(buffer);
+            return;
+        }
+
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            // The frame is larger than the buffer
+            if (buffer.capacity() >= MAX_FRAME_SIZE) {
+                throw new IOException("Frame exceeds the maximum size of " + MAX_FRAME_SIZE + " bytes");
+            }
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, MAX_FRAME_SIZE));
+            larger.put(buffer.flip());
+            this.pool.release(buffer);
+            connection.pending = larger;
+        }
+    }
+
+    /**
+     * Returns the buffer of the connection to the pool.
+     *
+     * @param connection The connection.
+     */
+    private void releasePending(final Connection connection) {
+        if (connection.pending != null) {
+            this.pool.release(connection.pending);
+            connection.pending = null;
+        }
+    }
+
+    /**
+     * Saves all messages received in the current round which are admitted and hands them to the viewer. If they
+     * cannot be saved, the messages of the round are dropped.
+     */
+    private void saveReceived() {
+        if (this.received.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<LogMessage> admitted = this.admission != null ? this.admission.admit(this.received) : this.received;
+            if (!admitted.isEmpty()) {
+                long receivedAt = EpochClock.nowNanos();
+                for (LogMessage message : admitted) {
+                    message.setReceivedAtServerNanos(receivedAt);
+                }
+                this.logAdapter.saveLogMessages(admitted);
+                for (LogMessage message : admitted) {
+                    MessageDispatcherLoggerViewerServer.queueMessage(message);
+                }
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to save {} received messages", this.received.size(), ex);
+        } finally {
+            this.received.clear();
+        }
+    }
+
+    /**
+     * Closes a connection and releases its buffer.
+     *
+     * @param key The selection key of the connection.
+     */
+    private void close(final SelectionKey key) {
+        Connection connection = (Connection) key.attachment();
+        LOGGER.info("Client {} disconnected", connection.remoteAddress);
+        key.cancel();
+        closeQuietly(connection.channel);
+        this.releasePending(connection);
+        this.connectionCount.decrementAndGet();
+    }
+
+    /**
+     * Saves the messages of the current round and closes all connections and the selector.
+     */
+    private void closeAll() {
+        this.saveReceived();
+        try {
+            for (SelectionKey key : this.selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            this.selector.close();
+        } catch (IOException | ClosedSelectorException ex) {
+            LOGGER.error("Failed to close selector", ex);
+        }
+        try {
+            this.inputStream.close();
+        } catch (IOException ex) {
+            LOGGER.error("Failed to close input stream", ex);
+        }
+
+        SocketChannel channel;
+        while ((channel = this.registrations.poll()) != null) {
+            closeQuietly(channel);
+        }
+        this.connectionCount.set(0);
+    }
+
+    /**
+     * Closes a channel and logs a failure.
+     *
+     * @param channel The channel to close.
+     */
+    private static void closeQuietly(final Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            LOGGER.error("Failed to close channel", ex);
+        }
+    }
+
+    /**
+     * The state of a connection: its channel, its client names and, while an incomplete frame has been received,
+     * its buffer.
+     */
+    private static final class Connection {
+
+        private final SocketChannel channel;
+        private final SocketAddress remoteAddress;
+        private final ClientNameTable clientNames = new ClientNameTable();
+        private ByteBuffer pending;
+
+        /**
+         * Creates the state of a new connection.
+         *
+         * @param channel The connected channel.
+         * @throws IOException if the remote address could not be determined.
+         */
+        Connection(final SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remoteAddress = channel.getRemoteAddress();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ch.hslu.vsk.logger.server.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.hslu.vsk.logger.common.adapter.LogAdapter;
+import ch.hslu.vsk.logger.server.pipeline.AdmissionController;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An ingest engine for log messages based on a {@link ServerSocketChannel} and a small pool of
+ * {@link NioEventLoop}s. In contrast to the {@link LoggerClient}, which uses one thread and one pair of streams per
+ * connection, every event loop serves many connections with a single thread and decodes the frames directly from
+ * pooled buffers. This allows tens of thousands of mostly idle or bursty clients.
+ * <p>
+ * Connections are accepted by the thread calling {@link #run()} and distributed round-robin to the event loops.
+ * </p>
+ */
+public final class NioIngestServer implements Runnable, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(NioIngestServer.class);
+
+    private final ServerSocketChannel serverChannel;
+    private final List<NioEventLoop> eventLoops = new ArrayList<>();
+    private final List<Thread> eventLoopThreads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * Binds a new {@code NioIngestServer} and starts its event loops.
+     *
+     * @param address The address to bind to, or {@code null} to bind to all interfaces.
+     * @param port The port to listen on, {@code 0} for an ephemeral port.
+     * @param backlog The maximum number of pending connections.
+     * @param logAdapter The adapter the received messages are saved with; must not be null.
+     * @param eventLoopCount The number of event loops; must be greater than 0.
+     * @throws IllegalArgumentException if one of the arguments is invalid.
+     * @throws IOException if the server could not be bound.
+     */
+    public NioIngestServer(final InetAddress address, final int port, final int backlog,
+                           final LogAdapter logAdapter, final int eventLoopCount) throws IOException {
+        this(address, port, backlog, logAdapter, eventLoopCount, null);
+    }
+
+    /**
+     * Binds a new {@code NioIngestServer} whose messages are only saved and shown if an
+     * {@link AdmissionController} admits them, and starts its event loops.
+     *
+     * @param address The address to bind to, or {@code null} to bind to all interfaces.
+     * @param port The port to listen on, {@code 0} for an ephemeral port.
+     * @param backlog The maximum number of pending connections.
+     * @param logAdapter The adapter the received messages are saved with; must not be null.
+     * @param eventLoopCount The number of event loops; must be greater than 0.
+     * @param admission The controller deciding which messages are admitted, or {@code null} to admit all.
+     * @throws IllegalArgumentException if one of the arguments is invalid.
+     * @throws IOException if the server could not be bound.
+     */
+    public NioIngestServer(final InetAddress address, final int port, final int backlog,
+                           final LogAdapter logAdapter, final int eventLoopCount,
+                           final AdmissionController admission) throws IOException {
+        if (logAdapter == null) {
+            throw new IllegalArgumentException("Log adapter must not be null");
+        }
+        if (eventLoopCount <= 0) {
+            throw new IllegalArgumentException("Event loop count must be greater than 0");
+        }
+
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            this.serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            this.serverChannel.bind(new InetSocketAddress(address, port), backlog);
+            for (int i = 0; i < eventLoopCount; i++) {
+                this.eventLoops.add(new NioEventLoop(logAdapter, admission));
+            }
+        } catch (IOException ex) {
+            this.serverChannel.close();
+            throw ex;
+        }
+
+        for (int i = 0; i < eventLoopCount; i++) {
+            Thread thread = new Thread(this.eventLoops.get(i), "nio-ingest-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            this.eventLoopThreads.add(thread);
+        }
+    }
+
+    /**
+     * Returns the address the server is bound to.
+     *
+     * @return The local address.
+     * @throws IOException if the address could not be determined.
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) this.serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Returns the number of open connections over all event loops.
+     *
+     * @return The number of connections.
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (NioEventLoop eventLoop : this.eventLoops) {
+            count += eventLoop.getConnectionCount();
+        }
+        return count;
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    @Override
+    public void run() {
+        int next = 0;
+        while (this.running) {
+            try {
+                SocketChannel channel = this.serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                LOGGER.info("New client connected: {}", channel.getRemoteAddress());
+
+                this.eventLoops.get(next).register(channel);
+                next = (next + 1) % this.eventLoops.size();
+            } catch (AsynchronousCloseException ex) {
+                // The server was closed
+                return;
+            } catch (IOException ex) {
+                LOGGER.error("Failed to accept client", ex);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting connections, stops the event loops and waits until they have saved their last messages
+     * and closed their connections.
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        try {
+            this.serverChannel.close();
+        } catch (IOException ex) {
+            LOGGER.error("Failed to close server channel", ex);
+        }
+
+        for (NioEventLoop eventLoop : this.eventLoops) {
+            eventLoop.stop();
+        }
+        for (Thread thread : this.eventLoopThreads) {
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
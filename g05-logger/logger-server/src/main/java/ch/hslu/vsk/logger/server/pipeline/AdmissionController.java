@@ -0,0 +1,360 @@
+package ch.hslu.vsk.logger.server.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Decides which received log messages are admitted to persistence and the viewer, so a single client flooding the
+ * server cannot degrade logging for all other clients.
+ * <p>
+ * Every client (identified by its name) gets a token bucket per level for its DEBUG and INFO messages, which
+ * admits the configured number of messages per second with bursts of up to one second's worth of messages.
+ * Messages exceeding the rate of their bucket are sampled: every n-th of them is admitted, the others are dropped.
+ * WARNING and ERROR messages, and messages without a client name or level, are always admitted. A rate of
+ * {@code 0} does not limit the messages of the level.
+ * </p>
+ * <p>
+ * The buckets of at most a configured number of clients are kept. Once that number has been reached, the messages
+ * of all further clients share one set of buckets, so a client rotating its name is still limited and the
+ * memory of the controller is bounded. The buckets of clients which have been idle long enough for their buckets
+ * to be full again are removed on every report; their drop counts are reset with them.
+ * </p>
+ * <p>
+ * The controller counts the dropped messages per client and level and logs the clients which had messages dropped
+ * every {@link #REPORT_INTERVAL_SECONDS} seconds. The report is written by the thread which admits the first
+ * message after the interval has elapsed. This class is thread-safe.
+ * </p>
+ */
+public final class AdmissionController {
+
+    /**
+     * Interval in which the dropped messages are reported.
+     */
+    public static final long REPORT_INTERVAL_SECONDS = 10;
+
+    /**
+     * Default maximum number of clients with buckets of their own.
+     */
+    public static final int DEFAULT_MAX_CLIENTS = 10_000;
+
+    private static final Logger LOGGER = LogManager.getLogger(AdmissionController.class);
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(REPORT_INTERVAL_SECONDS);
+
+    private final long debugRate;
+    private final long infoRate;
+    private final int sampling;
+    private final int maxClients;
+    private final Map<String, ClientLimits> clients = new ConcurrentHashMap<>();
+
+    // The buckets shared by the clients exceeding the maximum number of clients
+    private final ClientLimits overflow;
+    private final AtomicLong nextReport = new AtomicLong(System.nanoTime() + REPORT_INTERVAL_NANOS);
+
+    /**
+     * Creates a new {@code AdmissionController} which keeps the buckets of up to {@link #DEFAULT_MAX_CLIENTS}
+     * clients.
+     *
+     * @param debugRate The number of DEBUG messages admitted per second and client, or {@code 0} for no limit;
+     *                  must not be negative.
+     * @param infoRate The number of INFO messages admitted per second and client, or {@code 0} for no limit; must
+     *                 not be negative.
+     * @param sampling Every how many messages exceeding the rate one is admitted, or {@code 0} to drop all of
+     *                 them; must not be negative.
+     * @throws IllegalArgumentException if one of the arguments is negative.
+     */
+    public AdmissionController(final long debugRate, final long infoRate, final int sampling) {
+        this(debugRate, infoRate, sampling, DEFAULT_MAX_CLIENTS);
+    }
+
+    /**
+     * Creates a new {@code AdmissionController}.
+     *
+     * @param debugRate The number of DEBUG messages admitted per second and client, or {@code 0} for no limit;
+     *                  must not be negative.
+     * @param infoRate The number of INFO messages admitted per second and client, or {@code 0} for no limit; must
+     *                 not be negative.
+     * @param sampling Every how many messages exceeding the rate one is admitted, or {@code 0} to drop all of
+     *                 them; must not be negative.
+     * @param maxClients The maximum number of clients with buckets of their own; must be greater than 0.
+     * @throws IllegalArgumentException if one of the arguments is invalid.
+     */
+    public AdmissionController(final long debugRate, final long infoRate, final int sampling, final int maxClients) {
+        if (debugRate < 0 || infoRate < 0) {
+            throw new IllegalArgumentException("Rates must not be negative");
+        }
+        if (sampling < 0) {
+            throw new IllegalArgumentException("Sampling must not be negative");
+        }
+        if (maxClients <= 0) {
+            throw new IllegalArgumentException("Max clients must be greater than 0");
+        }
+        this.debugRate = debugRate;
+        this.infoRate = infoRate;
+        this.sampling = sampling;
+        this.maxClients = maxClients;
+        this.overflow = new ClientLimits(debugRate, infoRate);
+    }
+
+    /**
+     * Returns whether the controller limits any messages.
+     *
+     * @return {@code false} if all messages are admitted.
+     */
+    public boolean isEnabled() {
+        return this.debugRate > 0 || this.infoRate > 0;
+    }
+
+    /**
+     * Decides whether a received message is admitted.
+     *
+     * @param message The message; must not be null.
+     * @return {@code true} if the message is admitted, {@code false} if it is dropped.
+     */
+    public boolean admit(final LogMessage message) {
+        if (!this.isEnabled()) {
+            return true;
+        }
+        long now = System.nanoTime();
+        boolean admitted = this.admit(message, now);
+        this.reportIfDue(now);
+        return admitted;
+    }
+
+    /**
+     * Decides which of the received messages are admitted.
+     *
+     * @param messages The messages; must not be null.
+     * @return The admitted messages in their order; the given list itself if all messages are admitted.
+     */
+    public List<LogMessage> admit(final List<LogMessage> messages) {
+        if (!this.isEnabled()) {
+            return messages;
+        }
+        long now = System.nanoTime();
+        List<LogMessage> admitted = null;
+        for (int i = 0; i < messages.size(); i++) {
+            LogMessage message = messages.get(i);
+            if (this.admit(message, now)) {
+                if (admitted != null) {
+                    admitted.add(message);
+                }
+            } else if (admitted == null) {
+                admitted = new ArrayList<>(messages.subList(0, i));
+            }
+        }
+        this.reportIfDue(now);
+        return admitted != null ? admitted : messages;
+    }
+
+    /**
+     * Returns the number of messages of a client which have been dropped since its buckets were created.
+     *
+     * @param clientName The name of the client.
+     * @return The number of dropped DEBUG and INFO messages of the client, or {@code 0} if the client has no
+     *         buckets of its own.
+     */
+    public long getDroppedCount(final String clientName) {
+        ClientLimits limits = this.clients.get(clientName);
+        return limits != null ? limits.debug.dropped.get() + limits.info.dropped.get() : 0;
+    }
+
+    /**
+     * Returns the number of clients with buckets of their own.
+     *
+     * @return The number of tracked clients.
+     */
+    int getClientCount() {
+        return this.clients.size();
+    }
+
+    /**
+     * Decides whether a message is admitted at the given time.
+     *
+     * @param message The message.
+     * @param now The current time of {@link System#nanoTime()}.
+     * @return {@code true} if the message is admitted.
+     */
+    private boolean admit(final LogMessage message, final long now) {
+        String clientName = message.getClientName();
+        LogLevel level = message.getLogLevel();
+        if (clientName == null || level == null) {
+            return true;
+        }
+
+        TokenBucket bucket;
+        switch (level) {
+            case DEBUG -> bucket = this.debugRate > 0 ? this.limitsOf(clientName).debug : null;
+            case INFO -> bucket = this.infoRate > 0 ? this.limitsOf(clientName).info : null;
+            default -> bucket = null;
+        }
+        return bucket == null || bucket.tryAcquire(now, this.sampling);
+    }
+
+    /**
+     * Returns the buckets of a client, creating them on its first message, or the shared buckets if the maximum
+     * number of clients has been reached.
+     *
+     * @param clientName The name of the client.
+     * @return The buckets of the client.
+     */
+    private ClientLimits limitsOf(final String clientName) {
+        ClientLimits limits = this.clients.get(clientName);
+        if (limits == null) {
+            if (this.clients.size() >= this.maxClients) {
+                return this.overflow;
+            }
+            limits = this.clients.computeIfAbsent(clientName,
+                    name -> new ClientLimits(this.debugRate, this.infoRate));
+        }
+        return limits;
+    }
+
+    /**
+     * Logs the clients which had messages dropped since the last report and removes the buckets of idle clients,
+     * if the report interval has elapsed.
+     *
+     * @param now The current time of {@link System#nanoTime()}.
+     */
+    private void reportIfDue(final long now) {
+        long due = this.nextReport.get();
+        if (now - due < 0 || !this.nextReport.compareAndSet(due, now + REPORT_INTERVAL_NANOS)) {
+            return;
+        }
+        for (Map.Entry<String, ClientLimits> client : this.clients.entrySet()) {
+            report(client.getKey(), client.getValue());
+        }
+        report("(clients exceeding the maximum of " + this.maxClients + ")", this.overflow);
+        this.evictIdleClients(now);
+    }
+
+    /**
+     * Logs the messages of a client which have been dropped since the last report, if there are any.
+     *
+     * @param clientName The name of the client.
+     * @param limits The buckets of the client.
+     */
+    private static void report(final String clientName, final ClientLimits limits) {
+        long debug = limits.debug.takeDroppedSinceReport();
+        long info = limits.info.takeDroppedSinceReport();
+        if (debug > 0 || info > 0) {
+            LOGGER.warn("Client {} exceeded its rate: {} DEBUG and {} INFO messages dropped in the last {} s",
+                    clientName, debug, info, REPORT_INTERVAL_SECONDS);
+        }
+    }
+
+    /**
+     * Removes the buckets of the clients whose buckets are full, since they do not differ from new ones.
+     *
+     * @param now The current time of {@link System#nanoTime()}.
+     * @return The number of removed clients.
+     */
+    int evictIdleClients(final long now) {
+        int evicted = 0;
+        for (Map.Entry<String, ClientLimits> client : this.clients.entrySet()) {
+            ClientLimits limits = client.getValue();
+            if (limits.debug.isFull(now) && limits.info.isFull(now)
+                    && this.clients.remove(client.getKey(), limits)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * The token buckets of a client.
+     */
+    private static final class ClientLimits {
+
+        private final TokenBucket debug;
+        private final TokenBucket info;
+
+        /**
+         * Creates the buckets of a client.
+         *
+         * @param debugRate The rate of DEBUG messages, or {@code 0}.
+         * @param infoRate The rate of INFO messages, or {@code 0}.
+         */
+        ClientLimits(final long debugRate, final long infoRate) {
+            this.debug = new TokenBucket(debugRate);
+            this.info = new TokenBucket(infoRate);
+        }
+    }
+
+    /**
+     * A token bucket which holds up to one second's worth of tokens. Instead of the number of tokens, the bucket
+     * stores the time at which it will be full again, so it does not have to be refilled periodically.
+     */
+    private static final class TokenBucket {
+
+        private final long nanosPerToken;
+        private final long capacityNanos;
+        private final AtomicLong dropped = new AtomicLong();
+        private long fullAt = Long.MIN_VALUE;
+        private long exceeded;
+        private long reportedDropped;
+
+        /**
+         * Creates a full bucket.
+         *
+         * @param rate The number of tokens added per second, or {@code 0} for a bucket which is never used.
+         */
+        TokenBucket(final long rate) {
+            this.nanosPerToken = rate > 0 ? Math.max(1, NANOS_PER_SECOND / rate) : 0;
+            this.capacityNanos = this.nanosPerToken * Math.max(1, rate);
+        }
+
+        /**
+         * Takes a token from the bucket. If the bucket is empty, every {@code sampling}-th request is granted anyway.
+         *
+         * @param now The current time of {@link System#nanoTime()}.
+         * @param sampling Every how many requests exceeding the rate one is granted, or {@code 0} for none.
+         * @return {@code true} if the request is granted.
+         */
+        synchronized boolean tryAcquire(final long now, final int sampling) {
+            long full = this.fullAt == Long.MIN_VALUE ? now : Math.max(this.fullAt, now);
+            if (full - now + this.nanosPerToken <= this.capacityNanos) {
+                this.fullAt = full + this.nanosPerToken;
+                return true;
+            }
+            if (sampling > 0 && ++this.exceeded % sampling == 0) {
+                return true;
+            }
+            this.dropped.incrementAndGet();
+            return false;
+        }
+
+        /**
+         * Returns whether the bucket holds as many tokens as a new one.
+         *
+         * @param now The current time of {@link System#nanoTime()}.
+         * @return {@code true} if no tokens have been taken or the bucket has been refilled since.
+         */
+        synchronized boolean isFull(final long now) {
+            return this.fullAt == Long.MIN_VALUE || this.fullAt - now <= 0;
+        }
+
+        /**
+         * Returns the number of requests which have been denied since the last call.
+         *
+         * @return The number of dropped messages since the last report.
+         */
+        synchronized long takeDroppedSinceReport() {
+            long total = this.dropped.get();
+            long sinceReport = total - this.reportedDropped;
+            this.reportedDropped = total;
+            return sinceReport;
+        }
+    }
+}
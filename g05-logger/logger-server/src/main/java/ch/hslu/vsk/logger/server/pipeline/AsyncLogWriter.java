@@ -0,0 +1,541 @@
+package ch.hslu.vsk.logger.server.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.adapter.LogAdapter;
+import ch.hslu.vsk.logger.common.adapter.StringPersistorLogAdapter;
+import ch.hslu.vsk.logger.common.network.NetworkMessageInputStream;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.server.config.OverloadPolicy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A pipeline stage between the ingest of log messages and their persistence. The receiving threads only put the
+ * messages into a bounded queue; a single writer thread takes them out in batches of up to
+ * {@link #MAX_BATCH_SIZE} messages and saves every batch with the wrapped {@link LogAdapter}, which formats and
+ * writes it. A slow disk therefore does not hold up the reads from the client sockets as long as the queue has room.
+ * <p>
+ * What happens while the queue is full is decided by the {@link OverloadPolicy}: the receiving threads wait, the
+ * least important messages are dropped, or the messages are appended to a spill file and written once the queue
+ * has been drained. The messages received by one thread are written in the order they were received.
+ * </p>
+ * <p>
+ * If the writer is created with format threads, the writer thread only hands the batches to a
+ * {@link ParallelFormatStage}, which formats them on several threads and saves them in order.
+ * </p>
+ * <p>
+ * Reads are delegated to the wrapped adapter, so they do not return the messages which are still queued or
+ * spilled. The writer thread periodically logs the depth of the queue and the number of dropped and spilled
+ * messages; the same values are available from {@link #getQueueDepth()}, {@link #getDroppedCount()} and
+ * {@link #getSpilledCount()}.
+ * </p>
+ */
+public final class AsyncLogWriter implements LogAdapter, AutoCloseable {
+
+    /**
+     * Default number of messages the queue holds.
+     */
+    public static final int DEFAULT_CAPACITY = 65_536;
+
+    /**
+     * Maximum number of messages the writer saves at once.
+     */
+    public static final int MAX_BATCH_SIZE = 4_096;
+
+    /**
+     * Suffix of the spill file, appended to the name of the log file.
+     */
+    public static final String SPILL_SUFFIX = ".spill";
+
+    private static final Logger LOGGER = LogManager.getLogger(AsyncLogWriter.class);
+
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final int SPILL_BUFFER_SIZE = 64 * 1024;
+
+    private final LogAdapter delegate;
+    private final OverloadPolicy policy;
+    private final int capacity;
+    private final BlockingQueue<LogMessage> queue;
+    private final Thread writer;
+    private final ParallelFormatStage formatStage;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private volatile boolean running = true;
+
+    // Set once the format stage has been closed; later messages are saved directly with the wrapped adapter
+    private volatile boolean formatStageClosed;
+
+    // DEBUG messages are dropped from this queue depth on, if the policy is DROP_DEBUG
+    private final int debugLimit;
+
+    // The spill file which is appended to and the one which is replayed, if the policy is SPILL
+    private final Path spillFile;
+    private final Path replayFile;
+
+    // While spilling, messages are appended to the spill file instead of the queue until the writer has replayed
+    // it; both fields are only changed while holding the spill lock
+    private final Object spillLock = new Object();
+    private volatile boolean spilling;
+    private NetworkMessageOutputStream spillOut;
+
+    // Used by the writer thread only
+    private final List<LogMessage> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    private long lastReport = System.nanoTime();
+    private long reportedDropped;
+    private long reportedSpilled;
+
+    /**
+     * Creates a new {@code AsyncLogWriter} and starts its writer thread. If the policy is
+     * {@link OverloadPolicy#SPILL}, the messages left in the spill file by a previous run are written first.
+     *
+     * @param delegate The adapter the messages are saved with; must not be null and has to be thread-safe.
+     * @param capacity The number of messages the queue holds; must be greater than 0.
+     * @param policy The policy for a full queue; must not be null.
+     * @param logFile The log file the spill file is created next to; must not be null if the policy is
+     *                {@link OverloadPolicy#SPILL}.
+     * @throws IllegalArgumentException if one of the arguments is invalid.
+     */
+    public AsyncLogWriter(final LogAdapter delegate, final int capacity, final OverloadPolicy policy,
+                          final Path logFile) {
+        this(delegate, capacity, policy, logFile, 0);
+    }
+
+    /**
+     * Creates a new {@code AsyncLogWriter} which formats the messages on the given number of threads, and starts its
+     * writer thread. If the policy is {@link OverloadPolicy#SPILL}, the messages left in the spill file by a
+     * previous run are written first.
+     *
+     * @param delegate The adapter the messages are saved with; must not be null and has to be thread-safe. If
+     *                 messages are formatted on separate threads, it has to be a {@link StringPersistorLogAdapter}.
+     * @param capacity The number of messages the queue holds; must be greater than 0.
+     * @param policy The policy for a full queue; must not be null.
+     * @param logFile The log file the spill file is created next to; must not be null if the policy is
+     *                {@link OverloadPolicy#SPILL}.
+     * @param formatThreads The number of threads formatting the messages, or {@code 0} to format them on the
+     *                      writer thread; must not be negative.
+     * @throws IllegalArgumentException if one of the arguments is invalid.
+     */
+    public AsyncLogWriter(final LogAdapter delegate, final int capacity, final OverloadPolicy policy,
+                          final Path logFile, final int formatThreads) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Log adapter must not be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Overload policy must not be null");
+        }
+        if (policy == OverloadPolicy.SPILL && logFile == null) {
+            throw new IllegalArgumentException("Log file must not be null if messages are spilled");
+        }
+        if (formatThreads < 0) {
+            throw new IllegalArgumentException("Number of format threads must not be negative");
+        }
+        if (formatThreads > 0 && !(delegate instanceof StringPersistorLogAdapter)) {
+            throw new IllegalArgumentException("Messages can only be formatted on separate threads by a "
+                    + "StringPersistorLogAdapter");
+        }
+
+        this.delegate = delegate;
+        this.policy = policy;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.debugLimit = capacity - capacity / 4;
+        this.formatStage = formatThreads > 0
+                ? new ParallelFormatStage((StringPersistorLogAdapter) delegate, formatThreads)
+                : null;
+        if (policy == OverloadPolicy.SPILL) {
+            this.spillFile = logFile.resolveSibling(logFile.getFileName() + SPILL_SUFFIX);
+            this.replayFile = logFile.resolveSibling(logFile.getFileName() + SPILL_SUFFIX + ".replay");
+            this.recoverSpill();
+        } else {
+            this.spillFile = null;
+            this.replayFile = null;
+        }
+
+        this.writer = new Thread(this::run, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a message for the writer thread. If the queue is full, the message is handled according to the
+     * {@link OverloadPolicy}. After the writer has been closed, the message is saved directly.
+     *
+     * @param message the {@link LogMessage} object to save; must not be null.
+     * @return {@code true} if the message was queued or spilled, {@code false} if it was dropped.
+     */
+    @Override
+    public boolean saveLogMessage(final LogMessage message) {
+        if (message == null) {
+            throw new IllegalArgumentException("Message must not be null");
+        }
+        if (!this.running) {
+            return this.delegate.saveLogMessage(message);
+        }
+
+        boolean accepted = switch (this.policy) {
+            case BLOCK -> this.put(message);
+            case DROP_DEBUG -> this.offerByLevel(message);
+            case SPILL -> this.offerOrSpill(message);
+        };
+        if (!this.running) {
+            // The writer may have stopped before it saw the message
+            this.drainRemaining();
+        }
+        return accepted;
+    }
+
+    @Override
+    public List<LogMessage> loadLogMessages(final int count) {
+        return this.delegate.loadLogMessages(count);
+    }
+
+    @Override
+    public List<LogMessage> loadLastLogMessages(final int count) {
+        return this.delegate.loadLastLogMessages(count);
+    }
+
+    @Override
+    public Stream<LogMessage> streamLogMessages() {
+        return this.delegate.streamLogMessages();
+    }
+
+    @Override
+    public List<LogMessage> loadLogMessages(final Instant from, final Instant to) {
+        return this.delegate.loadLogMessages(from, to);
+    }
+
+    @Override
+    public List<LogMessage> loadLogMessages(final String clientName, final LogLevel level) {
+        return this.delegate.loadLogMessages(clientName, level);
+    }
+
+    /**
+     * Returns the number of messages waiting in the queue, not counting spilled messages.
+     *
+     * @return The current depth of the queue.
+     */
+    public int getQueueDepth() {
+        return this.queue.size();
+    }
+
+    /**
+     * Returns the number of messages the queue holds.
+     *
+     * @return The capacity of the queue.
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of messages which have been dropped since the writer was created.
+     *
+     * @return The number of dropped messages.
+     */
+    public long getDroppedCount() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Returns the number of messages which have been spilled since the writer was created.
+     *
+     * @return The number of spilled messages.
+     */
+    public long getSpilledCount() {
+        return this.spilled.sum();
+    }
+
+    /**
+     * Stops the writer thread after it has written all queued and spilled messages. Messages saved afterwards are
+     * saved directly with the wrapped adapter.
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        this.drainRemaining();
+    }
+
+    /**
+     * Puts a message into the queue, waiting for room if necessary.
+     *
+     * @param message The message.
+     * @return {@code true} if the message was queued, {@code false} if the thread was interrupted.
+     */
+    private boolean put(final LogMessage message) {
+        try {
+            this.queue.put(message);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.dropped.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Queues a message if its level allows it at the current depth of the queue. WARNING and ERROR messages wait
+     * for room, DEBUG messages are dropped once the queue is three quarters full and other messages once it is full.
+     *
+     * @param message The message.
+     * @return {@code true} if the message was queued, {@code false} if it was dropped.
+     */
+    private boolean offerByLevel(final LogMessage message) {
+        LogLevel level = message.getLogLevel();
+        if (level == LogLevel.ERROR || level == LogLevel.WARNING) {
+            return this.put(message);
+        }
+
+        boolean queued = (level != LogLevel.DEBUG || this.queue.size() < this.debugLimit) && this.queue.offer(message);
+        if (!queued) {
+            this.dropped.increment();
+        }
+        return queued;
+    }
+
+    /**
+     * Queues a message, or appends it to the spill file if the queue is full or earlier messages have been
+     * spilled and not yet written.
+     *
+     * @param message The message.
+     * @return {@code true} if the message was queued or spilled, {@code false} if it could not be spilled.
+     */
+    private boolean offerOrSpill(final LogMessage message) {
+        if (!this.spilling && this.queue.offer(message)) {
+            return true;
+        }
+
+        synchronized (this.spillLock) {
+            if (!this.spilling) {
+                if (this.queue.offer(message)) {
+                    return true;
+                }
+                this.spilling = true;
+            }
+            try {
+                if (this.spillOut == null) {
+                    // Append, in case the spill file could not be rotated and still holds messages to replay
+                    this.spillOut = new NetworkMessageOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                            this.spillFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND), SPILL_BUFFER_SIZE));
+                }
+                // The frame of a message does not contain the time the server received it
+                this.spillOut.writeLong(message.getReceivedAtServerNanos());
+                message.serialize(this.spillOut);
+                this.spilled.increment();
+                return true;
+            } catch (IOException e) {
+                LOGGER.error("Failed to spill log message", e);
+                this.dropped.increment();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Writes the queued messages in batches and replays the spill file whenever the queue is empty, until the
+     * writer is closed and all messages have been written. A batch which fails with an unexpected exception is
+     * dropped, so the thread keeps running and producers waiting for room in the queue are not blocked forever.
+     */
+    private void run() {
+        try {
+            while (this.running || !this.queue.isEmpty() || this.spilling) {
+                LogMessage first = this.spilling
+                        ? this.queue.poll()
+                        : this.queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                try {
+                    if (first != null) {
+                        this.batch.add(first);
+                        this.queue.drainTo(this.batch, MAX_BATCH_SIZE - 1);
+                        this.write(this.batch);
+                    } else if (this.spilling) {
+                        this.replaySpill(this.batch);
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.error("Failed to write {} log messages", this.batch.size(), e);
+                    this.dropped.add(this.batch.size());
+                    this.batch.clear();
+                }
+                this.report();
+            }
+        } catch (InterruptedException e) {
+            // The remaining messages are written by the thread closing the writer
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the messages which were queued or spilled after the writer thread has stopped. Waits for the writer
+     * thread to stop first. Can be called more than once, e.g. by a producer racing {@link #close()}; the format
+     * stage is only closed by the first call.
+     */
+    private synchronized void drainRemaining() {
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for the log writer to stop");
+            return;
+        }
+
+        List<LogMessage> remaining = new ArrayList<>();
+        while (this.queue.drainTo(remaining, MAX_BATCH_SIZE) > 0) {
+            this.write(remaining);
+        }
+        if (this.policy == OverloadPolicy.SPILL) {
+            while (this.spilling) {
+                this.replaySpill(remaining);
+            }
+        }
+        if (this.formatStage != null && !this.formatStageClosed) {
+            this.formatStageClosed = true;
+            this.formatStage.close();
+        }
+    }
+
+    /**
+     * Saves a batch of messages with the wrapped adapter, or hands it to the format stage while it is open, and
+     * clears it.
+     *
+     * @param messages The messages.
+     */
+    private void write(final List<LogMessage> messages) {
+        if (this.formatStage != null && !this.formatStageClosed) {
+            this.formatStage.submit(messages);
+            messages.clear();
+            return;
+        }
+        try {
+            if (!this.delegate.saveLogMessages(messages)) {
+                LOGGER.error("Failed to save {} log messages", messages.size());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to save {} log messages", messages.size(), e);
+        } finally {
+            messages.clear();
+        }
+    }
+
+    /**
+     * Writes the messages spilled so far. If none have been spilled since the last call, spilling ends and new
+     * messages are queued again; otherwise the spill file is closed and renamed, so new messages are spilled to a
+     * new file while the renamed one is written.
+     *
+     * @param buffer An empty list to collect the batches of messages in.
+     */
+    private void replaySpill(final List<LogMessage> buffer) {
+        synchronized (this.spillLock) {
+            if (this.spillOut == null) {
+                this.spilling = false;
+                return;
+            }
+            try {
+                this.spillOut.close();
+                Files.move(this.spillFile, this.replayFile, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                LOGGER.error("Failed to rotate the spill file {}", this.spillFile, e);
+                return;
+            } finally {
+                this.spillOut = null;
+            }
+        }
+        this.replay(this.replayFile, buffer);
+    }
+
+    /**
+     * Writes the messages of a previous run which are left in the spill files.
+     */
+    private void recoverSpill() {
+        List<LogMessage> buffer = new ArrayList<>();
+        for (Path file : List.of(this.replayFile, this.spillFile)) {
+            if (Files.exists(file)) {
+                LOGGER.info("Writing the log messages left in the spill file {}", file);
+                this.replay(file, buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes the messages of a spill file in batches and deletes it.
+     *
+     * @param file The spill file.
+     * @param buffer An empty list to collect the batches of messages in.
+     */
+    private void replay(final Path file, final List<LogMessage> buffer) {
+        try (NetworkMessageInputStream in = new NetworkMessageInputStream(
+                new BufferedInputStream(Files.newInputStream(file), SPILL_BUFFER_SIZE))) {
+            while (true) {
+                long receivedAt;
+                try {
+                    receivedAt = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                LogMessage message = LogMessage.deserialize(in, in.readShort());
+                message.setReceivedAtServerNanos(receivedAt);
+                buffer.add(message);
+                if (buffer.size() == MAX_BATCH_SIZE) {
+                    this.write(buffer);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // The end of a corrupt record is unknown, so the rest of the file cannot be read
+            LOGGER.error("Failed to read the spill file {}, the remaining messages are lost", file, e);
+        }
+        if (!buffer.isEmpty()) {
+            this.write(buffer);
+        }
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.error("Failed to delete the spill file {}", file, e);
+        }
+    }
+
+    /**
+     * Logs the depth of the queue every {@link #REPORT_INTERVAL_NANOS}, as a warning if messages have been dropped
+     * or spilled since the last report.
+     */
+    private void report() {
+        long now = System.nanoTime();
+        if (now - this.lastReport < REPORT_INTERVAL_NANOS) {
+            return;
+        }
+        this.lastReport = now;
+
+        long droppedCount = this.dropped.sum();
+        long spilledCount = this.spilled.sum();
+        if (droppedCount != this.reportedDropped || spilledCount != this.reportedSpilled) {
+            LOGGER.warn("Log writer overloaded: queue depth {}/{}, {} messages dropped and {} spilled since the last report",
+                    this.queue.size(), this.capacity, droppedCount - this.reportedDropped,
+                    spilledCount - this.reportedSpilled);
+            this.reportedDropped = droppedCount;
+            this.reportedSpilled = spilledCount;
+        } else {
+            LOGGER.debug("Log writer queue depth {}/{}", this.queue.size(), this.capacity);
+        }
+    }
+}
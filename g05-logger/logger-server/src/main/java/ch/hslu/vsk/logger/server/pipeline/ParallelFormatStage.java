@@ -0,0 +1,279 @@
+package ch.hslu.vsk.logger.server.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.adapter.FormattedLogMessages;
+import ch.hslu.vsk.logger.common.adapter.StringPersistorLogAdapter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A pipeline stage which formats log messages on a pool of worker threads and saves them on a single writer thread
+ * in the order they were submitted, so formatting scales across all cores while the persistor still receives one
+ * ordered stream of writes.
+ * <p>
+ * The submitted messages are split into chunks of up to {@link #CHUNK_SIZE} messages, and every chunk is stamped
+ * with a sequence number before it is handed to a worker. The workers format the chunks with
+ * {@link StringPersistorLogAdapter#format(List, FormattedLogMessages)} and put them into a reorder buffer at the
+ * slot of their sequence number. The writer takes the chunks out of the buffer in sequence order; all chunks which
+ * are ready one after another are merged and saved with a single
+ * {@link StringPersistorLogAdapter#saveFormatted(FormattedLogMessages)}. The number of chunks which have been
+ * submitted but not yet saved is bounded by the size of the reorder buffer, so {@link #submit(List)} blocks while
+ * the writer falls behind.
+ * </p>
+ * <p>
+ * The stage has to be fed by a single thread, e.g. the writer thread of an {@link AsyncLogWriter}.
+ * </p>
+ */
+public final class ParallelFormatStage implements AutoCloseable {
+
+    /**
+     * Maximum number of messages formatted by one worker at once.
+     */
+    public static final int CHUNK_SIZE = 256;
+
+    /**
+     * Number of chunks per worker which can be formatted or wait for the writer at the same time.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final Logger LOGGER = LogManager.getLogger(ParallelFormatStage.class);
+
+    private final StringPersistorLogAdapter adapter;
+    private final ExecutorService formatters;
+    private final Thread writer;
+
+    // Chunks which have been submitted and not yet saved
+    private final Semaphore permits;
+
+    // The reorder buffer: the formatted chunks at the slot of their sequence number modulo its size
+    private final FormattedLogMessages[] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition formatted = this.lock.newCondition();
+    private final Condition saved = this.lock.newCondition();
+    private long nextToSave;
+    private boolean running = true;
+
+    // Formatted chunks which have been saved and can be reused
+    private final Queue<FormattedLogMessages> free = new ConcurrentLinkedQueue<>();
+
+    // Used by the submitting thread only
+    private long nextSequence;
+
+    // Used by the writer thread only
+    private final FormattedLogMessages[] ready;
+    private final FormattedLogMessages merged = new FormattedLogMessages();
+
+    /**
+     * Creates a new {@code ParallelFormatStage} and starts its workers and its writer thread.
+     *
+     * @param adapter The adapter the messages are formatted and saved with; must not be null.
+     * @param threads The number of workers; must be greater than 0.
+     * @throws IllegalArgumentException if one of the arguments is invalid.
+     */
+    public ParallelFormatStage(final StringPersistorLogAdapter adapter, final int threads) {
+        if (adapter == null) {
+            throw new IllegalArgumentException("Log adapter must not be null");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of format threads must be greater than 0");
+        }
+
+        this.adapter = adapter;
+        int window = threads * CHUNKS_PER_THREAD;
+        this.permits = new Semaphore(window);
+        this.slots = new FormattedLogMessages[window];
+        this.ready = new FormattedLogMessages[window];
+
+        AtomicInteger workerCount = new AtomicInteger();
+        this.formatters = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "log-formatter-" + workerCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::runWriter, "log-writer-ordered");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Submits messages to be formatted and saved after all messages submitted before. Blocks while the reorder
+     * buffer is full. The list is copied and can be reused by the caller.
+     *
+     * @param messages The messages; must not be null.
+     * @throws IllegalArgumentException if the list is null.
+     * @throws IllegalStateException if the stage has been closed.
+     */
+    public void submit(final List<LogMessage> messages) {
+        if (messages == null) {
+            throw new IllegalArgumentException("Messages must not be null");
+        }
+        for (int start = 0; start < messages.size(); start += CHUNK_SIZE) {
+            List<LogMessage> chunk = new ArrayList<>(
+                    messages.subList(start, Math.min(start + CHUNK_SIZE, messages.size())));
+            this.permits.acquireUninterruptibly();
+            long sequence = this.nextSequence++;
+            try {
+                this.formatters.execute(() -> this.format(sequence, chunk));
+            } catch (RuntimeException e) {
+                this.permits.release();
+                throw new IllegalStateException("Format stage has been closed", e);
+            }
+        }
+    }
+
+    /**
+     * Waits until all submitted messages have been saved. Must be called by the submitting thread.
+     */
+    public void flush() {
+        this.lock.lock();
+        try {
+            while (this.nextToSave < this.nextSequence) {
+                this.saved.awaitUninterruptibly();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Saves all submitted messages and stops the workers and the writer thread. Must be called by the submitting
+     * thread.
+     */
+    @Override
+    public void close() {
+        this.flush();
+        this.formatters.shutdown();
+        this.lock.lock();
+        try {
+            this.running = false;
+            this.formatted.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Formats a chunk and puts it into the reorder buffer. A chunk which cannot be formatted is put into the buffer
+     * as well, empty, so the writer does not wait for it.
+     *
+     * @param sequence The sequence number of the chunk.
+     * @param chunk The messages of the chunk.
+     */
+    private void format(final long sequence, final List<LogMessage> chunk) {
+        FormattedLogMessages messages = this.free.poll();
+        if (messages == null) {
+            messages = new FormattedLogMessages();
+        }
+        try {
+            this.adapter.format(chunk, messages);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to format {} log messages", chunk.size(), e);
+            messages.clear();
+        }
+
+        this.lock.lock();
+        try {
+            this.slots[this.slot(sequence)] = messages;
+            if (sequence == this.nextToSave) {
+                this.formatted.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the formatted chunks out of the reorder buffer in sequence order and saves them, until the stage is
+     * closed.
+     */
+    private void runWriter() {
+        while (true) {
+            int count = 0;
+            this.lock.lock();
+            try {
+                while (this.slots[this.slot(this.nextToSave)] == null) {
+                    if (!this.running) {
+                        return;
+                    }
+                    this.formatted.awaitUninterruptibly();
+                }
+                // Take all chunks which are ready one after another
+                int slot = this.slot(this.nextToSave);
+                while (count < this.slots.length && this.slots[slot] != null) {
+                    this.ready[count++] = this.slots[slot];
+                    this.slots[slot] = null;
+                    slot = (slot + 1) % this.slots.length;
+                }
+            } finally {
+                this.lock.unlock();
+            }
+
+            this.save(count);
+
+            this.lock.lock();
+            try {
+                this.nextToSave += count;
+                this.saved.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+            this.permits.release(count);
+        }
+    }
+
+    /**
+     * Saves the chunks taken out of the reorder buffer with a single write and returns them to the free chunks.
+     *
+     * @param count The number of chunks.
+     */
+    private void save(final int count) {
+        FormattedLogMessages messages = this.ready[0];
+        if (count > 1) {
+            messages = this.merged;
+            for (int i = 0; i < count; i++) {
+                messages.addAll(this.ready[i]);
+            }
+        }
+
+        try {
+            if (!this.adapter.saveFormatted(messages)) {
+                LOGGER.error("Failed to save {} log messages", messages.size() + messages.getSkipped());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to save {} log messages", messages.size() + messages.getSkipped(), e);
+        }
+
+        this.merged.clear();
+        for (int i = 0; i < count; i++) {
+            this.ready[i].clear();
+            this.free.offer(this.ready[i]);
+            this.ready[i] = null;
+        }
+    }
+
+    /**
+     * Returns the slot of the reorder buffer of a chunk.
+     *
+     * @param sequence The sequence number of the chunk.
+     * @return The index of the slot.
+     */
+    private int slot(final long sequence) {
+        return (int) (sequence % this.slots.length);
+    }
+}
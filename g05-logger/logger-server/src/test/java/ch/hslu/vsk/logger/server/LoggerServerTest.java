@@ -0,0 +1,100 @@
+package ch.hslu.vsk.logger.server;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.adapter.StringPersistorLogAdapter;
+import ch.hslu.vsk.logger.common.formatter.LogMessageFormat;
+import ch.hslu.vsk.logger.common.formatter.LogMessageFormatterFactory;
+import ch.hslu.vsk.logger.server.config.ApplicationConfig;
+import ch.hslu.vsk.stringpersistor.ext.BulkStringPersistor;
+import ch.hslu.vsk.stringpersistor.impl.GroupCommitStringPersistor;
+import ch.hslu.vsk.stringpersistor.impl.StringPersistorFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the persistor stack created by the {@link LoggerServer}.
+ */
+class LoggerServerTest {
+
+	@TempDir
+	Path tempDir;
+
+	/**
+	 * Creates a configuration with the given values.
+	 * @param values The configuration values by their keys.
+	 * @return the configuration.
+	 */
+	private static ApplicationConfig createConfig(final Map<String, String> values) {
+		return ApplicationConfig.fromConfigSource(values::get);
+	}
+
+	/**
+	 * Verifies that the messages of the writer queue are saved to the storage backend without group commit.
+	 */
+	@Test
+	void testWriterQueueSavesToStorageDirectly() throws Exception {
+		ApplicationConfig config = createConfig(Map.of("writer_queue_capacity", "1024"));
+
+		BulkStringPersistor persistor = LoggerServer.createPersistor(this.tempDir.resolve("server.log"),
+				LogMessageFormat.SPEED_FORMAT, config);
+		try {
+			assertThat(persistor).isInstanceOf(StringPersistorFile.class);
+		} finally {
+			((AutoCloseable) persistor).close();
+		}
+	}
+
+	/**
+	 * Verifies that the messages saved synchronously by the receiving threads are coalesced into group commits.
+	 */
+	@Test
+	void testSynchronousSavesUseGroupCommit() throws Exception {
+		ApplicationConfig config = createConfig(Map.of("writer_queue_capacity", "0"));
+
+		BulkStringPersistor persistor = LoggerServer.createPersistor(this.tempDir.resolve("server.log"),
+				LogMessageFormat.SPEED_FORMAT, config);
+		try {
+			assertThat(persistor).isInstanceOf(GroupCommitStringPersistor.class);
+		} finally {
+			((AutoCloseable) persistor).close();
+		}
+	}
+
+	/**
+	 * Verifies that messages encoded by the adapter are saved and read again through the group commit stack
+	 * the server creates for synchronous saves, with and without the key index.
+	 */
+	@Test
+	void testEncodedMessagesAreSavedThroughGroupCommit() throws Exception {
+		for (String keyIndex : List.of("false", "true")) {
+			ApplicationConfig config = createConfig(Map.of("writer_queue_capacity", "0", "key_index", keyIndex));
+			BulkStringPersistor persistor = LoggerServer.createPersistor(this.tempDir.resolve(keyIndex + ".log"),
+					LogMessageFormat.XML, config);
+			try {
+				StringPersistorLogAdapter adapter = new StringPersistorLogAdapter(persistor,
+						LogMessageFormatterFactory.createFormatter(LogMessageFormat.XML));
+				List<LogMessage> messages = new ArrayList<>();
+				for (int i = 0; i < 100; i++) {
+					messages.add(new LogMessage(Instant.now(), Instant.now(), "client" + i % 3, LogLevel.INFO,
+							"Message " + i));
+				}
+
+				assertThat(adapter.saveLogMessages(messages)).isTrue();
+
+				assertThat(adapter.loadLogMessages(Integer.MAX_VALUE)).isEqualTo(messages);
+				assertThat(adapter.loadLogMessages("client1", LogLevel.INFO)).hasSize(33);
+			} finally {
+				((AutoCloseable) persistor).close();
+			}
+		}
+	}
+}
@@ -0,0 +1,300 @@
+package ch.hslu.vsk.logger.server.network;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.LogMessageBatch;
+import ch.hslu.vsk.logger.common.adapter.LogAdapter;
+import ch.hslu.vsk.logger.common.network.Compression;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.component.network.Connection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link NioIngestServer} class.
+ */
+class NioIngestServerTest {
+
+	private final RecordingLogAdapter adapter = new RecordingLogAdapter();
+	private NioIngestServer server;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		this.server = new NioIngestServer(InetAddress.getLoopbackAddress(), 0, 50, this.adapter, 2);
+		Thread acceptor = new Thread(this.server);
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.server.close();
+	}
+
+	/**
+	 * Creates the given number of messages.
+	 * @param client The name of the client.
+	 * @param count The number of messages.
+	 * @return the messages, numbered from 0.
+	 */
+	private static List<LogMessage> createMessages(final String client, final int count) {
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			messages.add(new LogMessage(Instant.now(), client, LogLevel.INFO, "Message " + i));
+		}
+		return messages;
+	}
+
+	/**
+	 * Serializes the given messages, the first half as single frames and the second half as one batch.
+	 * @param messages The messages to serialize.
+	 * @return the serialized frames.
+	 */
+	private static byte[] serialize(final List<LogMessage> messages) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		NetworkMessageOutputStream out = new NetworkMessageOutputStream(bytes);
+		int half = messages.size() / 2;
+		for (LogMessage message : messages.subList(0, half)) {
+			message.serialize(out);
+		}
+		new LogMessageBatch(messages.subList(half, messages.size())).serialize(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Retries an assertion until it passes or a timeout of 5 seconds has elapsed.
+	 * @param assertion The assertion to retry.
+	 */
+	private static void awaitAsserted(final Runnable assertion) throws InterruptedException {
+		long deadline = System.nanoTime() + 5_000_000_000L;
+		while (true) {
+			try {
+				assertion.run();
+				return;
+			} catch (AssertionError error) {
+				if (System.nanoTime() > deadline) {
+					throw error;
+				}
+				Thread.sleep(10);
+			}
+		}
+	}
+
+	/**
+	 * Opens a connection to the server.
+	 * @return the connected socket.
+	 */
+	private Socket connect() throws IOException {
+		return new Socket(InetAddress.getLoopbackAddress(), this.server.getLocalAddress().getPort());
+	}
+
+	/**
+	 * Verifies that frames which arrive in small fragments are decoded in order.
+	 */
+	@Test
+	void testFragmentedFrames() throws Exception {
+		List<LogMessage> messages = createMessages("fragmented", 20);
+		byte[] frames = serialize(messages);
+
+		try (Socket socket = this.connect()) {
+			OutputStream out = socket.getOutputStream();
+			for (int i = 0; i < frames.length; i += 7) {
+				out.write(frames, i, Math.min(7, frames.length - i));
+				out.flush();
+				Thread.sleep(1);
+			}
+			awaitAsserted(() -> assertThat(this.adapter.getMessages()).containsExactlyElementsOf(messages));
+		}
+	}
+
+	/**
+	 * Verifies that a frame larger than the buffers of the event loop is received.
+	 */
+	@Test
+	void testLargeFrame() throws Exception {
+		List<LogMessage> messages = createMessages("x".repeat(100), 4_000);
+
+		try (Socket socket = this.connect()) {
+			socket.getOutputStream().write(serialize(messages));
+			awaitAsserted(() -> assertThat(this.adapter.getMessages()).containsExactlyElementsOf(messages));
+		}
+		assertThat(this.adapter.getMessages()).allSatisfy(m -> assertThat(m.getReceivedAtServer()).isNotNull());
+	}
+
+	/**
+	 * Verifies that the messages of concurrent clients are all received and keep their order per client.
+	 */
+	@Test
+	void testManyClients() throws Exception {
+		List<Socket> sockets = new ArrayList<>();
+		List<List<LogMessage>> sent = new ArrayList<>();
+		try {
+			for (int i = 0; i < 20; i++) {
+				List<LogMessage> messages = createMessages("client-" + i, 50);
+				Socket socket = this.connect();
+				socket.getOutputStream().write(serialize(messages));
+				sockets.add(socket);
+				sent.add(messages);
+			}
+
+			awaitAsserted(() -> assertThat(this.adapter.getMessages()).hasSize(20 * 50));
+			assertThat(this.server.getConnectionCount()).isEqualTo(20);
+			for (List<LogMessage> messages : sent) {
+				String client = messages.get(0).getClientName();
+				assertThat(this.adapter.getMessages()).filteredOn(m -> m.getClientName().equals(client))
+						.containsExactlyElementsOf(messages);
+			}
+		} finally {
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+		}
+		awaitAsserted(() -> assertThat(this.server.getConnectionCount()).isZero());
+	}
+
+	/**
+	 * Verifies that the client names of compact frames are resolved per connection, although every connection
+	 * starts its client IDs at 0.
+	 */
+	@Test
+	void testCompactFramesOfSeveralConnections() throws Exception {
+		List<LogMessage> first = createMessages("compact-a", 30);
+		List<LogMessage> second = createMessages("compact-b", 30);
+
+		try (Socket a = this.connect(); Socket b = this.connect()) {
+			NetworkMessageOutputStream outA = new NetworkMessageOutputStream(a.getOutputStream(), true);
+			NetworkMessageOutputStream outB = new NetworkMessageOutputStream(b.getOutputStream(), true);
+			for (int i = 0; i < 30; i += 10) {
+				outA.writeObject(new LogMessageBatch(first.subList(i, i + 10)));
+				outB.writeObject(second.get(i));
+				outB.writeObject(new LogMessageBatch(second.subList(i + 1, i + 10)));
+			}
+
+			awaitAsserted(() -> assertThat(this.adapter.getMessages()).hasSize(60));
+		}
+		assertThat(this.adapter.getMessages()).filteredOn(m -> m.getClientName().equals("compact-a"))
+				.containsExactlyElementsOf(first);
+		assertThat(this.adapter.getMessages()).filteredOn(m -> m.getClientName().equals("compact-b"))
+				.containsExactlyElementsOf(second);
+	}
+
+	/**
+	 * Verifies that the server accepts an offered compression and decodes the compressed batches.
+	 */
+	@Test
+	void testCompressionIsNegotiated() throws Exception {
+		List<LogMessage> messages = createMessages("compressed", 500);
+
+		try (Connection connection = new Connection("localhost", this.server.getLocalAddress().getPort())) {
+			connection.setCompression(Compression.DEFLATE_FAST);
+			connection.connect();
+
+			assertThat(connection.getNegotiatedCompression()).isEqualTo(Compression.DEFLATE_FAST);
+			assertThat(connection.send(new LogMessageBatch(messages.subList(0, 499)))).isTrue();
+			assertThat(connection.send(messages.get(499))).isTrue();
+			awaitAsserted(() -> assertThat(this.adapter.getMessages()).containsExactlyElementsOf(messages));
+		}
+	}
+
+	/**
+	 * Verifies that a connection sending an unknown frame is closed.
+	 */
+	@Test
+	void testUnknownFrameClosesConnection() throws Exception {
+		try (Socket socket = this.connect()) {
+			socket.getOutputStream().write(new byte[] {0x7F, 0x7F, 1, 2, 3});
+			socket.setSoTimeout(5_000);
+			assertThat(socket.getInputStream().read()).isEqualTo(-1);
+		}
+		awaitAsserted(() -> assertThat(this.server.getConnectionCount()).isZero());
+	}
+
+	/**
+	 * Verifies that a connection sending a message with an invalid log level is closed, while a later connection
+	 * on the same event loop is still received.
+	 */
+	@Test
+	void testInvalidLogLevelClosesOnlyItsConnection() throws Exception {
+		byte[] frame = serialize(createMessages("invalid", 2));
+		frame[Short.BYTES + Integer.BYTES - 1] = 42;
+		List<LogMessage> messages = createMessages("valid", 10);
+
+		// The connections are distributed round-robin to the two loops, so the first and the third share a loop
+		try (Socket invalid = this.connect(); Socket other = this.connect(); Socket sameLoop = this.connect()) {
+			invalid.getOutputStream().write(frame);
+			invalid.setSoTimeout(5_000);
+			assertThat(invalid.getInputStream().read()).isEqualTo(-1);
+
+			sameLoop.getOutputStream().write(serialize(messages));
+			awaitAsserted(() -> assertThat(this.adapter.getMessages()).containsExactlyElementsOf(messages));
+			assertThat(this.server.getConnectionCount()).isEqualTo(2);
+		}
+	}
+
+	/**
+	 * Verifies that the event loop keeps running when the adapter fails to save the messages of a round.
+	 */
+	@Test
+	void testFailingAdapterDoesNotStopLoop() throws Exception {
+		List<LogMessage> messages = createMessages("valid", 10);
+
+		try (Socket failing = this.connect(); Socket other = this.connect(); Socket sameLoop = this.connect()) {
+			failing.getOutputStream().write(serialize(createMessages(RecordingLogAdapter.FAILING_CLIENT, 2)));
+			awaitAsserted(() -> assertThat(this.adapter.getFailures()).isPositive());
+
+			sameLoop.getOutputStream().write(serialize(messages));
+			awaitAsserted(() -> assertThat(this.adapter.getMessages()).containsExactlyElementsOf(messages));
+		}
+	}
+
+	/**
+	 * A {@link LogAdapter} which keeps the saved messages in memory and fails for the messages of
+	 * {@link #FAILING_CLIENT}.
+	 */
+	private static final class RecordingLogAdapter implements LogAdapter {
+
+		static final String FAILING_CLIENT = "failing";
+
+		private final List<LogMessage> messages = Collections.synchronizedList(new ArrayList<>());
+		private final AtomicInteger failures = new AtomicInteger();
+
+		@Override
+		public boolean saveLogMessage(final LogMessage message) {
+			if (message.getClientName().equals(FAILING_CLIENT)) {
+				this.failures.incrementAndGet();
+				throw new IllegalStateException("Failed to save message");
+			}
+			return this.messages.add(message);
+		}
+
+		int getFailures() {
+			return this.failures.get();
+		}
+
+		@Override
+		public List<LogMessage> loadLogMessages(final int count) {
+			return this.getMessages();
+		}
+
+		List<LogMessage> getMessages() {
+			synchronized (this.messages) {
+				return new ArrayList<>(this.messages);
+			}
+		}
+	}
+}
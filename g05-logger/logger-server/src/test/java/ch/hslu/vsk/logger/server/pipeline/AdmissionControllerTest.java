@@ -0,0 +1,114 @@
+package ch.hslu.vsk.logger.server.pipeline;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link AdmissionController} class.
+ */
+class AdmissionControllerTest {
+
+	/**
+	 * Creates the given number of messages.
+	 * @param client The name of the client.
+	 * @param level The level of the messages.
+	 * @param count The number of messages.
+	 * @return the messages, numbered from 0.
+	 */
+	private static List<LogMessage> createMessages(final String client, final LogLevel level, final int count) {
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			messages.add(new LogMessage(Instant.now(), client, level, "Message " + i));
+		}
+		return messages;
+	}
+
+	/**
+	 * Verifies that a client's DEBUG and INFO messages exceeding the rate are dropped, while its WARNING and ERROR
+	 * messages and the messages of other clients are admitted.
+	 */
+	@Test
+	void testLimitsNoisyClient() {
+		AdmissionController controller = new AdmissionController(5, 5, 0);
+
+		assertThat(controller.admit(createMessages("noisy", LogLevel.INFO, 20))).hasSize(5);
+		assertThat(controller.admit(createMessages("noisy", LogLevel.DEBUG, 20))).hasSize(5);
+		assertThat(controller.admit(createMessages("noisy", LogLevel.WARNING, 20))).hasSize(20);
+		assertThat(controller.admit(createMessages("noisy", LogLevel.ERROR, 1).get(0))).isTrue();
+		assertThat(controller.admit(createMessages("noisy", LogLevel.INFO, 1).get(0))).isFalse();
+		assertThat(controller.getDroppedCount("noisy")).isEqualTo(31);
+
+		List<LogMessage> quiet = createMessages("quiet", LogLevel.INFO, 5);
+		assertThat(controller.admit(quiet)).isSameAs(quiet);
+		assertThat(controller.getDroppedCount("quiet")).isZero();
+	}
+
+	/**
+	 * Verifies that every n-th message exceeding the rate is admitted if the messages are sampled.
+	 */
+	@Test
+	void testSamplesExceedingMessages() {
+		AdmissionController controller = new AdmissionController(0, 1, 10);
+
+		List<LogMessage> messages = createMessages("noisy", LogLevel.INFO, 101);
+		List<LogMessage> admitted = controller.admit(messages);
+
+		assertThat(admitted).hasSize(11);
+		assertThat(admitted.get(0)).isSameAs(messages.get(0));
+		assertThat(admitted.get(1)).isSameAs(messages.get(10));
+		assertThat(controller.admit(createMessages("noisy", LogLevel.DEBUG, 100))).hasSize(100);
+	}
+
+	/**
+	 * Verifies that the clients exceeding the maximum number of clients share their buckets, so a client rotating
+	 * its name is still limited.
+	 */
+	@Test
+	void testRotatingClientNamesShareBuckets() {
+		AdmissionController controller = new AdmissionController(0, 5, 0, 2);
+
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			messages.addAll(createMessages("rotating-" + i, LogLevel.INFO, 1));
+		}
+
+		assertThat(controller.admit(messages)).hasSize(2 + 5);
+		assertThat(controller.getClientCount()).isEqualTo(2);
+	}
+
+	/**
+	 * Verifies that the buckets of idle clients are removed once they are full again.
+	 */
+	@Test
+	void testIdleClientsAreEvicted() {
+		AdmissionController controller = new AdmissionController(5, 5, 0);
+		controller.admit(createMessages("idle", LogLevel.INFO, 10));
+		controller.admit(createMessages("other", LogLevel.DEBUG, 1));
+		long now = System.nanoTime();
+
+		assertThat(controller.getClientCount()).isEqualTo(2);
+		assertThat(controller.evictIdleClients(now)).isZero();
+		assertThat(controller.evictIdleClients(now + 2_000_000_000L)).isEqualTo(2);
+		assertThat(controller.getClientCount()).isZero();
+		assertThat(controller.admit(createMessages("idle", LogLevel.INFO, 10))).hasSize(5);
+	}
+
+	/**
+	 * Verifies that a controller without rates admits all messages.
+	 */
+	@Test
+	void testDisabled() {
+		AdmissionController controller = new AdmissionController(0, 0, 0);
+		List<LogMessage> messages = createMessages("noisy", LogLevel.DEBUG, 1_000);
+
+		assertThat(controller.isEnabled()).isFalse();
+		assertThat(controller.admit(messages)).isSameAs(messages);
+	}
+}
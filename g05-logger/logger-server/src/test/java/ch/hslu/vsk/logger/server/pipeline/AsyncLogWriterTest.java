@@ -0,0 +1,218 @@
+package ch.hslu.vsk.logger.server.pipeline;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.adapter.LogAdapter;
+import ch.hslu.vsk.logger.common.network.NetworkMessageOutputStream;
+import ch.hslu.vsk.logger.server.config.OverloadPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link AsyncLogWriter} class.
+ */
+class AsyncLogWriterTest {
+
+	@TempDir
+	Path tempDir;
+
+	/**
+	 * Creates the given number of messages.
+	 * @param level The level of the messages.
+	 * @param count The number of messages.
+	 * @return the messages, numbered from 0.
+	 */
+	private static List<LogMessage> createMessages(final LogLevel level, final int count) {
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			LogMessage message = new LogMessage(Instant.now(), "client", level, "Message " + i);
+			message.setReceivedAtServerNanos(1_000_000_000L * i);
+			messages.add(message);
+		}
+		return messages;
+	}
+
+	/**
+	 * Verifies that all queued messages are written in order when the writer is closed.
+	 */
+	@Test
+	void testWritesQueuedMessagesInOrder() {
+		RecordingLogAdapter adapter = new RecordingLogAdapter();
+		adapter.release.countDown();
+		List<LogMessage> messages = createMessages(LogLevel.INFO, 10_000);
+
+		AsyncLogWriter writer = new AsyncLogWriter(adapter, 1024, OverloadPolicy.BLOCK, null);
+		for (LogMessage message : messages) {
+			assertThat(writer.saveLogMessage(message)).isTrue();
+		}
+		writer.close();
+
+		assertThat(adapter.getMessages()).containsExactlyElementsOf(messages);
+		assertThat(writer.getQueueDepth()).isZero();
+		assertThat(writer.getDroppedCount()).isZero();
+	}
+
+	/**
+	 * Verifies that DEBUG messages are dropped before INFO messages while the writer is stalled, and that WARNING
+	 * and ERROR messages are never dropped.
+	 */
+	@Test
+	void testDropDebugFirst() throws InterruptedException {
+		RecordingLogAdapter adapter = new RecordingLogAdapter();
+		AsyncLogWriter writer = new AsyncLogWriter(adapter, 8, OverloadPolicy.DROP_DEBUG, null);
+		LogMessage stalling = createMessages(LogLevel.INFO, 1).get(0);
+		writer.saveLogMessage(stalling);
+		adapter.stalled.await();
+
+		List<LogMessage> info = createMessages(LogLevel.INFO, 6);
+		info.forEach(message -> assertThat(writer.saveLogMessage(message)).isTrue());
+		assertThat(writer.saveLogMessage(createMessages(LogLevel.DEBUG, 1).get(0))).isFalse();
+		LogMessage lastInfo = createMessages(LogLevel.INFO, 1).get(0);
+		assertThat(writer.saveLogMessage(lastInfo)).isTrue();
+		LogMessage error = createMessages(LogLevel.ERROR, 1).get(0);
+		assertThat(writer.saveLogMessage(error)).isTrue();
+		assertThat(writer.saveLogMessage(createMessages(LogLevel.INFO, 1).get(0))).isFalse();
+		assertThat(writer.getQueueDepth()).isEqualTo(8);
+		assertThat(writer.getDroppedCount()).isEqualTo(2);
+
+		adapter.release.countDown();
+		LogMessage warning = createMessages(LogLevel.WARNING, 1).get(0);
+		assertThat(writer.saveLogMessage(warning)).isTrue();
+		writer.close();
+
+		List<LogMessage> expected = new ArrayList<>();
+		expected.add(stalling);
+		expected.addAll(info);
+		expected.add(lastInfo);
+		expected.add(error);
+		expected.add(warning);
+		assertThat(adapter.getMessages()).containsExactlyElementsOf(expected);
+	}
+
+	/**
+	 * Verifies that messages which do not fit into the queue are spilled and written in order, with the time the
+	 * server received them.
+	 */
+	@Test
+	void testSpill() throws InterruptedException {
+		RecordingLogAdapter adapter = new RecordingLogAdapter();
+		Path logFile = this.tempDir.resolve("log.txt");
+		List<LogMessage> messages = createMessages(LogLevel.DEBUG, 1_000);
+
+		AsyncLogWriter writer = new AsyncLogWriter(adapter, 4, OverloadPolicy.SPILL, logFile);
+		writer.saveLogMessage(messages.get(0));
+		adapter.stalled.await();
+		for (LogMessage message : messages.subList(1, messages.size())) {
+			assertThat(writer.saveLogMessage(message)).isTrue();
+		}
+		assertThat(writer.getSpilledCount()).isEqualTo(messages.size() - 5);
+
+		adapter.release.countDown();
+		writer.close();
+
+		assertThat(adapter.getMessages()).containsExactlyElementsOf(messages);
+		assertThat(adapter.getMessages().get(999).getReceivedAtServerNanos()).isEqualTo(999_000_000_000L);
+		assertThat(writer.getDroppedCount()).isZero();
+		assertThat(Files.exists(this.tempDir.resolve("log.txt" + AsyncLogWriter.SPILL_SUFFIX))).isFalse();
+	}
+
+	/**
+	 * Verifies that the messages of a spill file left by a previous run are written up to a corrupt record, and
+	 * that the writer keeps working afterwards.
+	 */
+	@Test
+	void testCorruptSpillFileIsRecovered() throws IOException {
+		RecordingLogAdapter adapter = new RecordingLogAdapter();
+		adapter.release.countDown();
+		Path logFile = this.tempDir.resolve("log.txt");
+		List<LogMessage> messages = createMessages(LogLevel.INFO, 3);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		NetworkMessageOutputStream out = new NetworkMessageOutputStream(bytes);
+		for (LogMessage message : messages.subList(0, 2)) {
+			out.writeLong(message.getReceivedAtServerNanos());
+			message.serialize(out);
+		}
+		out.writeLong(0);
+		out.writeShort(LogMessage.SERIAL_VERSION_UID_V2);
+		out.writeInt(42);
+		out.flush();
+		Files.write(logFile.resolveSibling("log.txt" + AsyncLogWriter.SPILL_SUFFIX), bytes.toByteArray());
+
+		AsyncLogWriter writer = new AsyncLogWriter(adapter, 4, OverloadPolicy.SPILL, logFile);
+		assertThat(writer.saveLogMessage(messages.get(2))).isTrue();
+		writer.close();
+
+		assertThat(adapter.getMessages()).containsExactlyElementsOf(messages);
+	}
+
+	/**
+	 * Verifies that closing the writer more than once has no effect and that messages saved afterwards are saved
+	 * directly.
+	 */
+	@Test
+	void testSaveAfterClose() {
+		RecordingLogAdapter adapter = new RecordingLogAdapter();
+		adapter.release.countDown();
+		List<LogMessage> messages = createMessages(LogLevel.INFO, 2);
+
+		AsyncLogWriter writer = new AsyncLogWriter(adapter, 4, OverloadPolicy.BLOCK, null);
+		writer.saveLogMessage(messages.get(0));
+		writer.close();
+		writer.close();
+		assertThat(writer.saveLogMessage(messages.get(1))).isTrue();
+
+		assertThat(adapter.getMessages()).containsExactlyElementsOf(messages);
+	}
+
+	/**
+	 * A {@link LogAdapter} which keeps the saved messages in memory. The first save blocks until it is released.
+	 */
+	private static final class RecordingLogAdapter implements LogAdapter {
+
+		private final List<LogMessage> messages = Collections.synchronizedList(new ArrayList<>());
+		private final CountDownLatch stalled = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public boolean saveLogMessage(final LogMessage message) {
+			return this.messages.add(message);
+		}
+
+		@Override
+		public boolean saveLogMessages(final List<LogMessage> batch) {
+			if (this.stalled.getCount() > 0) {
+				this.stalled.countDown();
+				try {
+					this.release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return this.messages.addAll(batch);
+		}
+
+		@Override
+		public List<LogMessage> loadLogMessages(final int count) {
+			return this.getMessages();
+		}
+
+		List<LogMessage> getMessages() {
+			synchronized (this.messages) {
+				return new ArrayList<>(this.messages);
+			}
+		}
+	}
+}
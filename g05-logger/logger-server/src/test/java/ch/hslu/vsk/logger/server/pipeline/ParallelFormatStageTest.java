@@ -0,0 +1,59 @@
+package ch.hslu.vsk.logger.server.pipeline;
+
+import ch.hslu.vsk.logger.api.LogLevel;
+import ch.hslu.vsk.logger.common.LogMessage;
+import ch.hslu.vsk.logger.common.adapter.StringPersistorLogAdapter;
+import ch.hslu.vsk.logger.common.formatter.LogMessageFormat;
+import ch.hslu.vsk.logger.common.formatter.LogMessageFormatterFactory;
+import ch.hslu.vsk.stringpersistor.impl.StringPersistorFile;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for the {@link ParallelFormatStage} class.
+ */
+class ParallelFormatStageTest {
+
+	@TempDir
+	Path tempDir;
+
+	/**
+	 * Verifies that messages formatted on several threads are saved in the order they were submitted, both for
+	 * formatters which encode the messages into bytes and for formatters which create strings.
+	 */
+	@ParameterizedTest
+	@EnumSource(value = LogMessageFormat.class, names = {"XML", "JSON"})
+	void testSavesInSubmissionOrder(final LogMessageFormat format) {
+		StringPersistorFile file = new StringPersistorFile();
+		file.setFile(this.tempDir.resolve("log.txt"));
+		StringPersistorLogAdapter adapter = new StringPersistorLogAdapter(file,
+				LogMessageFormatterFactory.createFormatter(format));
+
+		List<LogMessage> messages = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			LogMessage message = new LogMessage(Instant.now(), "client-" + i % 7, LogLevel.INFO, "Message " + i);
+			message.setReceivedAtServer(Instant.now());
+			messages.add(message);
+		}
+
+		ParallelFormatStage stage = new ParallelFormatStage(adapter, 4);
+		for (int start = 0; start < messages.size(); start += 1_000) {
+			stage.submit(messages.subList(start, start + 1_000));
+		}
+		stage.flush();
+		assertThat(adapter.loadLogMessages(Integer.MAX_VALUE)).containsExactlyElementsOf(messages);
+
+		stage.submit(messages.subList(0, 10));
+		stage.close();
+		assertThat(adapter.loadLogMessages(Integer.MAX_VALUE)).hasSize(messages.size() + 10);
+		file.close();
+	}
+}
@@ -0,0 +1,62 @@
+package ch.hslu.vsk.stringpersistor.ext;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+import ch.hslu.vsk.stringpersistor.api.StringPersistor;
+
+/**
+ * A {@link StringPersistor} that is able to persist multiple strings at once.
+ * <p>
+ * Implementations commit all strings of a call to {@link #saveAll(List)} together, i.e. they are written and
+ * made durable (according to the durability guarantees of the implementation) with a single commit.
+ * Implementations of this interface are thread-safe, so callers do not need any additional synchronization.
+ * </p>
+ */
+public interface BulkStringPersistor extends StringPersistor {
+
+    /**
+     * Saves all given strings along with their timestamps in the given order and commits them together.
+     * The method returns once the strings have been committed.
+     *
+     * @param entries The strings to save; must not be null and must not contain null entries.
+     * @throws IllegalArgumentException if {@code entries}, an entry or one of its values is {@code null}.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    void saveAll(List<PersistedString> entries);
+
+    /**
+     * Saves UTF-8 encoded strings which share the same timestamp in the given order and commits them together,
+     * like {@link #saveAll(List)}. String {@code i} spans the bytes of {@code lines} from the end of string
+     * {@code i - 1} (or the position of the buffer for the first string) to {@code lineEnds[i]} (exclusive).
+     * <p>
+     * This allows callers which produce bytes to persist them without creating strings. The default
+     * implementation decodes the strings and calls {@link #saveAll(List)}; implementations writing bytes override
+     * it. The buffer is not modified and not retained after the method returns.
+     * </p>
+     *
+     * @param instant The timestamp of all strings; must not be null.
+     * @param lines The encoded strings; must not be null.
+     * @param lineEnds The end offsets of the strings in {@code lines}, in ascending order; must not be null.
+     * @param count The number of strings.
+     * @throws IllegalArgumentException if an argument is null or the offsets are invalid.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    default void saveAllUtf8(final Instant instant, final ByteBuffer lines, final int[] lineEnds, final int count) {
+        Utf8Lines.check(instant, lines, lineEnds, count);
+
+        List<PersistedString> entries = new ArrayList<>(count);
+        int start = lines.position();
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[lineEnds[i] - start];
+            lines.get(start, bytes);
+            entries.add(new PersistedString(instant, new String(bytes, StandardCharsets.UTF_8)));
+            start = lineEnds[i];
+        }
+        this.saveAll(entries);
+    }
+}
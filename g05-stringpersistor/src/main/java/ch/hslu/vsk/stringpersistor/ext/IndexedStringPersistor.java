@@ -0,0 +1,89 @@
+package ch.hslu.vsk.stringpersistor.ext;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+
+/**
+ * A {@link BulkStringPersistor} which can index its strings by keys chosen by the caller, e.g. the name of the
+ * client and the level of a log message.
+ * <p>
+ * For every key, the store keeps the list of the strings saved with that key, so the strings having a set of keys
+ * can be read without reading the other strings. The persistor does not know the content of the strings; a query
+ * returns the strings which may have all given keys, which also includes strings saved while the index was not
+ * maintained. Callers therefore check the returned strings themselves.
+ * </p>
+ */
+public interface IndexedStringPersistor extends BulkStringPersistor {
+
+    /**
+     * Saves all given strings with their keys in the given order and commits them together, like
+     * {@link #saveAll(List)}. If the index is not maintained, the keys are ignored.
+     *
+     * @param entries The strings to save; must not be null and must not contain null entries.
+     * @param keys The keys of the strings, one array per string; an array may be null if a string has no keys.
+     * @throws IllegalArgumentException if {@code entries}, an entry or one of its values is {@code null}, or the
+     *                                  number of key arrays does not match the number of strings.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    void saveAll(List<PersistedString> entries, List<String[]> keys);
+
+    /**
+     * Saves UTF-8 encoded strings with their keys, like {@link #saveAllUtf8(Instant, ByteBuffer, int[], int)}.
+     * The default implementation decodes the strings and calls {@link #saveAll(List, List)}.
+     *
+     * @param instant The timestamp of all strings; must not be null.
+     * @param lines The encoded strings; must not be null.
+     * @param lineEnds The end offsets of the strings in {@code lines}, in ascending order; must not be null.
+     * @param count The number of strings.
+     * @param keys The keys of the strings, one array per string; must not be null and contain at least
+     *             {@code count} elements, which may be null if a string has no keys.
+     * @throws IllegalArgumentException if an argument is null or the offsets are invalid.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    default void saveAllUtf8(final Instant instant, final ByteBuffer lines, final int[] lineEnds, final int count,
+                             final String[][] keys) {
+        Utf8Lines.check(instant, lines, lineEnds, count);
+        if (keys == null || keys.length < count) {
+            throw new IllegalArgumentException("Keys must be given for every line");
+        }
+
+        List<PersistedString> entries = new ArrayList<>(count);
+        int start = lines.position();
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[lineEnds[i] - start];
+            lines.get(start, bytes);
+            entries.add(new PersistedString(instant, new String(bytes, StandardCharsets.UTF_8)));
+            start = lineEnds[i];
+        }
+        this.saveAll(entries, Arrays.asList(keys).subList(0, count));
+    }
+
+    /**
+     * Returns whether the index of the keys is maintained, i.e. whether {@link #streamMatching(String...)} can
+     * be used.
+     *
+     * @return {@code true} if the strings are indexed by their keys.
+     */
+    boolean isKeyIndexed();
+
+    /**
+     * Returns the strings stored at the time of the call which may have all given keys, oldest first. Only the
+     * strings saved with all keys are read from the index; strings saved while the index was not maintained are
+     * returned as well, because their keys are unknown. The strings are read lazily while the stream is consumed,
+     * without blocking writers. The stream holds open files and has to be closed.
+     *
+     * @param keys The keys the strings must have; must not be null or empty.
+     * @return The candidate strings in the order they were saved.
+     * @throws IllegalArgumentException if no keys are given or a key is {@code null}.
+     * @throws IllegalStateException if the index is not maintained, the file path is not set or the store could
+     *                               not be read.
+     */
+    Stream<PersistedString> streamMatching(String... keys);
+}
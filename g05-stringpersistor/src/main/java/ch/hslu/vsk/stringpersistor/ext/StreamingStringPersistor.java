@@ -0,0 +1,76 @@
+package ch.hslu.vsk.stringpersistor.ext;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+import ch.hslu.vsk.stringpersistor.api.StringPersistor;
+
+/**
+ * A {@link StringPersistor} whose strings can be read as a lazily parsed {@link Stream}.
+ * <p>
+ * Unlike {@link #get(int)}, which collects the strings into a {@link List}, a stream reads and parses the strings
+ * as they are consumed, so a store of any size can be exported or filtered with constant memory. Reading does not
+ * block writers: a stream covers the strings which were stored when it was created and does not see strings
+ * saved afterwards.
+ * </p>
+ */
+public interface StreamingStringPersistor extends StringPersistor {
+
+    /**
+     * Returns all strings stored at the time of the call, oldest first. The strings are read and parsed lazily
+     * while the stream is consumed. The stream holds open files and has to be closed, e.g. with a
+     * try-with-resources statement.
+     *
+     * @return The stored strings in the order they were saved.
+     * @throws IllegalStateException if the file path is not set or the store could not be opened; an I/O error
+     *                               or a malformed record while consuming the stream is reported the same way.
+     */
+    Stream<PersistedString> stream();
+
+    /**
+     * Returns the strings stored at the time of the call whose timestamp lies between {@code from} and {@code to}
+     * (both inclusive), in the order they were saved. The default implementation filters {@link #stream()};
+     * stores with an index of the timestamps only read the regions which may contain matching strings.
+     *
+     * @param from The earliest timestamp to return; must not be null.
+     * @param to The latest timestamp to return; must not be null.
+     * @return The matching strings in the order they were saved; has to be closed.
+     * @throws IllegalArgumentException if {@code from} or {@code to} is {@code null} or {@code from} is after
+     *                                  {@code to}.
+     * @throws IllegalStateException if the file path is not set or the store could not be opened.
+     */
+    default Stream<PersistedString> stream(final Instant from, final Instant to) {
+        checkRange(from, to);
+        return this.stream().filter(entry -> isInRange(entry, from, to));
+    }
+
+    /**
+     * Checks the bounds of a time range.
+     *
+     * @param from The start of the range.
+     * @param to The end of the range.
+     * @throws IllegalArgumentException if a bound is {@code null} or {@code from} is after {@code to}.
+     */
+    static void checkRange(final Instant from, final Instant to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Time range must not be null");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Start of the time range must not be after its end");
+        }
+    }
+
+    /**
+     * Tests if the timestamp of a string lies in a time range.
+     *
+     * @param entry The string.
+     * @param from The start of the range (inclusive).
+     * @param to The end of the range (inclusive).
+     * @return {@code true} if the string lies in the range.
+     */
+    static boolean isInRange(final PersistedString entry, final Instant from, final Instant to) {
+        return !entry.getTimestamp().isBefore(from) && !entry.getTimestamp().isAfter(to);
+    }
+}
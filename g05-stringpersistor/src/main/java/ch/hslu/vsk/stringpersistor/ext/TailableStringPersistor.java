@@ -0,0 +1,26 @@
+package ch.hslu.vsk.stringpersistor.ext;
+
+import java.util.List;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+import ch.hslu.vsk.stringpersistor.api.StringPersistor;
+
+/**
+ * A {@link StringPersistor} which can read its newest strings without reading the whole store.
+ * <p>
+ * {@link #get(int)} returns the oldest strings, while operators usually want to see the most recent ones. An
+ * implementation of {@link #getLast(int)} reads the store from its end, so its cost depends on the number and
+ * size of the requested strings and not on the size of the store.
+ * </p>
+ */
+public interface TailableStringPersistor extends StringPersistor {
+
+    /**
+     * Retrieves up to the specified number of the newest strings.
+     *
+     * @param count The maximum number of strings to retrieve.
+     * @return The newest strings in the order they were saved; empty if {@code count} is not greater than 0.
+     * @throws IllegalStateException if the file path is not set, an I/O error occurs or a record is malformed.
+     */
+    List<PersistedString> getLast(int count);
+}
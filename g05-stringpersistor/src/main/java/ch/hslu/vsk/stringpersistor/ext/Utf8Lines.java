@@ -0,0 +1,43 @@
+package ch.hslu.vsk.stringpersistor.ext;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Validation of the encoded strings passed to {@link BulkStringPersistor#saveAllUtf8(Instant, ByteBuffer, int[], int)},
+ * shared by the implementations of the interfaces.
+ */
+public final class Utf8Lines {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private Utf8Lines() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Validates the arguments of {@link BulkStringPersistor#saveAllUtf8(Instant, ByteBuffer, int[], int)}.
+     *
+     * @param instant The timestamp of all strings.
+     * @param lines The encoded strings.
+     * @param lineEnds The end offsets of the strings.
+     * @param count The number of strings.
+     * @throws IllegalArgumentException if an argument is null or the offsets are invalid.
+     */
+    public static void check(final Instant instant, final ByteBuffer lines, final int[] lineEnds, final int count) {
+        if (instant == null || lines == null || lineEnds == null) {
+            throw new IllegalArgumentException("Instant, lines and line ends must not be null");
+        }
+        if (count < 0 || count > lineEnds.length) {
+            throw new IllegalArgumentException("Invalid number of lines: " + count);
+        }
+        int start = lines.position();
+        for (int i = 0; i < count; i++) {
+            if (lineEnds[i] < start || lineEnds[i] > lines.limit()) {
+                throw new IllegalArgumentException("Invalid end of line " + i + ": " + lineEnds[i]);
+            }
+            start = lineEnds[i];
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ch.hslu.vsk.stringpersistor.impl;
+
+/**
+ * Defines when a batch of persisted strings is considered to be committed.
+ */
+public enum Durability {
+
+    /**
+     * The batch is handed to the operating system (the writer is flushed). The data survives a crash of the
+     * JVM, but may be lost if the operating system or the machine crashes.
+     */
+    FLUSH,
+
+    /**
+     * The batch is flushed and forced to the storage device ({@code fsync}). The data survives a crash of the
+     * operating system or the machine, at the cost of considerably higher latency per batch.
+     */
+    FSYNC
+}
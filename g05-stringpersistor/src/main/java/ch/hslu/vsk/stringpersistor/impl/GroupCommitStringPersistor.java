@@ -0,0 +1,628 @@
+package ch.hslu.vsk.stringpersistor.impl;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+import ch.hslu.vsk.stringpersistor.ext.BulkStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.IndexedStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.StreamingStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.TailableStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.Utf8Lines;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * A {@link BulkStringPersistor} that coalesces concurrent writes into group commits.
+ * <p>
+ * Callers of {@link #save(Instant, String)} and {@link #saveAll(List)} hand their strings to a single committer
+ * thread and block until their strings have been committed. While further callers are about to submit requests,
+ * the committer collects the requests that arrive within the configured maximum latency (or until the maximum
+ * batch size is reached); a lone caller is committed at once. The collected requests are written to the
+ * underlying {@link BulkStringPersistor} (e.g. a {@link StringPersistorFile}) with a single commit. The durability
+ * of a commit is therefore the {@link Durability} of the underlying persistor; the order of the strings is the
+ * order in which the requests arrived at the committer. Keys passed with the strings are handed to the underlying
+ * persistor if it is an {@link IndexedStringPersistor}, and ignored otherwise.
+ * </p>
+ * <p>
+ * Strings saved with {@link #saveAllUtf8(Instant, ByteBuffer, int[], int)} are copied as bytes and committed as
+ * bytes if all requests of a group are encoded and share their timestamp, e.g. if a single caller saves. A group
+ * mixing strings and bytes, or bytes with different timestamps, is committed as strings.
+ * </p>
+ */
+public class GroupCommitStringPersistor implements IndexedStringPersistor, StreamingStringPersistor,
+        TailableStringPersistor, AutoCloseable {
+
+    /**
+     * Default time the committer waits for further requests before it commits a batch.
+     */
+    public static final Duration DEFAULT_MAX_LATENCY = Duration.ofMillis(2);
+
+    /**
+     * Default maximum number of strings that are committed together.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 4_096;
+
+    /**
+     * Interval (in milliseconds) in which an idle committer thread checks whether the persistor was closed.
+     */
+    private static final long IDLE_POLL_INTERVAL_MS = 50;
+
+    private final BulkStringPersistor delegate;
+    private final long maxLatencyNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<CommitRequest> requests = new LinkedBlockingQueue<>();
+    // The number of submitted requests which have not been committed yet, including those not yet queued
+    private final AtomicInteger uncommitted = new AtomicInteger();
+    private final Thread committer;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new {@code GroupCommitStringPersistor} with the default maximum latency and batch size.
+     *
+     * @param delegate The {@link BulkStringPersistor} the strings are written to; must not be null.
+     */
+    public GroupCommitStringPersistor(final BulkStringPersistor delegate) {
+        this(delegate, DEFAULT_MAX_LATENCY, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new {@code GroupCommitStringPersistor} and starts its committer thread.
+     *
+     * @param delegate The {@link BulkStringPersistor} the strings are written to; must not be null.
+     * @param maxLatency The maximum time the committer waits for further requests before committing a batch;
+     *                   must not be null or negative. {@link Duration#ZERO} only coalesces requests that are
+     *                   already waiting.
+     * @param maxBatchSize The maximum number of strings that are committed together; must be greater than 0.
+     * @throws IllegalArgumentException if one of the arguments is invalid.
+     */
+    public GroupCommitStringPersistor(final BulkStringPersistor delegate, final Duration maxLatency,
+                                      final int maxBatchSize) {
+        if (delegate == null || maxLatency == null) {
+            throw new IllegalArgumentException("Delegate and max latency must not be null");
+        }
+        if (maxLatency.isNegative()) {
+            throw new IllegalArgumentException("Max latency must not be negative");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be greater than 0");
+        }
+
+        this.delegate = delegate;
+        this.maxLatencyNanos = maxLatency.toNanos();
+        this.maxBatchSize = maxBatchSize;
+
+        this.committer = new Thread(this::runCommitter, "string-persistor-group-commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Sets the file path where strings will be saved.
+     *
+     * @param path The {@link Path} to the file where the strings should be saved.
+     */
+    @Override
+    public void setFile(Path path) {
+        this.delegate.setFile(path);
+    }
+
+    /**
+     * Saves a string along with its timestamp and blocks until it has been committed.
+     *
+     * @param instant The {@link Instant} timestamp to be saved.
+     * @param line The string content to be saved.
+     * @throws IllegalArgumentException if {@code instant} or {@code line} is {@code null}.
+     * @throws IllegalStateException if the persistor is closed or the commit failed.
+     */
+    @Override
+    public void save(Instant instant, String line) {
+        if (instant == null || line == null) {
+            throw new IllegalArgumentException("Instant and line must not be null");
+        }
+        this.submit(CommitRequest.of(List.of(new PersistedString(instant, line)), null));
+    }
+
+    /**
+     * Saves all given strings in the given order and blocks until they have been committed.
+     * The strings of a single call are never split across commits unless they exceed the maximum batch size.
+     *
+     * @param entries The strings to save; must not be null and must not contain null entries.
+     * @throws IllegalArgumentException if {@code entries}, an entry or one of its values is {@code null}.
+     * @throws IllegalStateException if the persistor is closed or the commit failed.
+     */
+    @Override
+    public void saveAll(List<PersistedString> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException("Entries must not be null");
+        }
+        for (PersistedString entry : entries) {
+            if (entry == null || entry.getTimestamp() == null || entry.getPayload() == null) {
+                throw new IllegalArgumentException("Instant and line must not be null");
+            }
+        }
+        if (!entries.isEmpty()) {
+            this.submit(CommitRequest.of(entries, null));
+        }
+    }
+
+    /**
+     * Saves all given strings with their keys in the given order and blocks until they have been committed.
+     *
+     * @param entries The strings to save; must not be null and must not contain null entries.
+     * @param keys The keys of the strings, one array per string; an array may be null if a string has no keys.
+     * @throws IllegalArgumentException if {@code entries}, an entry or one of its values is {@code null}, or the
+     *                                  number of key arrays does not match the number of strings.
+     * @throws IllegalStateException if the persistor is closed or the commit failed.
+     */
+    @Override
+    public void saveAll(final List<PersistedString> entries, final List<String[]> keys) {
+        if (entries == null || keys == null || keys.size() != entries.size()) {
+            throw new IllegalArgumentException("Entries and their keys must not be null");
+        }
+        for (PersistedString entry : entries) {
+            if (entry == null || entry.getTimestamp() == null || entry.getPayload() == null) {
+                throw new IllegalArgumentException("Instant and line must not be null");
+            }
+        }
+        if (!entries.isEmpty()) {
+            this.submit(CommitRequest.of(entries, keys));
+        }
+    }
+
+    /**
+     * Saves UTF-8 encoded strings which share the same timestamp in the given order and blocks until they have
+     * been committed. The bytes are copied, so the buffer can be reused once the method returns.
+     *
+     * @param instant The timestamp of all strings; must not be null.
+     * @param lines The encoded strings; must not be null.
+     * @param lineEnds The end offsets of the strings in {@code lines}, in ascending order; must not be null.
+     * @param count The number of strings.
+     * @throws IllegalArgumentException if an argument is null or the offsets are invalid.
+     * @throws IllegalStateException if the persistor is closed or the commit failed.
+     */
+    @Override
+    public void saveAllUtf8(final Instant instant, final ByteBuffer lines, final int[] lineEnds, final int count) {
+        Utf8Lines.check(instant, lines, lineEnds, count);
+        if (count > 0) {
+            this.submit(CommitRequest.copyOf(instant, lines, lineEnds, count, null));
+        }
+    }
+
+    /**
+     * Saves UTF-8 encoded strings with their keys, like {@link #saveAllUtf8(Instant, ByteBuffer, int[], int)}.
+     *
+     * @param instant The timestamp of all strings; must not be null.
+     * @param lines The encoded strings; must not be null.
+     * @param lineEnds The end offsets of the strings in {@code lines}, in ascending order; must not be null.
+     * @param count The number of strings.
+     * @param keys The keys of the strings, one array per string; must not be null and contain at least
+     *             {@code count} elements, which may be null if a string has no keys.
+     * @throws IllegalArgumentException if an argument is null or the offsets are invalid.
+     * @throws IllegalStateException if the persistor is closed or the commit failed.
+     */
+    @Override
+    public void saveAllUtf8(final Instant instant, final ByteBuffer lines, final int[] lineEnds, final int count,
+                            final String[][] keys) {
+        Utf8Lines.check(instant, lines, lineEnds, count);
+        if (keys == null || keys.length < count) {
+            throw new IllegalArgumentException("Keys must be given for every line");
+        }
+        if (count > 0) {
+            this.submit(CommitRequest.copyOf(instant, lines, lineEnds, count, Arrays.asList(keys).subList(0, count)));
+        }
+    }
+
+    /**
+     * Returns whether the underlying persistor indexes the keys of the strings.
+     *
+     * @return {@code true} if the underlying persistor is an {@link IndexedStringPersistor} with an index.
+     */
+    @Override
+    public boolean isKeyIndexed() {
+        return this.delegate instanceof IndexedStringPersistor indexed && indexed.isKeyIndexed();
+    }
+
+    /**
+     * Returns the committed strings which may have all given keys from the underlying persistor.
+     *
+     * @param keys The keys the strings must have; must not be null or empty.
+     * @return The candidate strings in the order they were saved; has to be closed.
+     * @throws IllegalArgumentException if no keys are given or a key is {@code null}.
+     * @throws IllegalStateException if the underlying persistor does not index the keys.
+     */
+    @Override
+    public Stream<PersistedString> streamMatching(final String... keys) {
+        if (this.delegate instanceof IndexedStringPersistor indexed) {
+            return indexed.streamMatching(keys);
+        }
+        throw new IllegalStateException("Failed to read logs: key index not supported");
+    }
+
+    /**
+     * Retrieves up to a specified number of lines from the file.
+     *
+     * @param i The maximum number of lines to retrieve from the file.
+     * @return A list of {@link PersistedString} objects containing the timestamp and line content.
+     */
+    @Override
+    public List<PersistedString> get(int i) {
+        return this.delegate.get(i);
+    }
+
+    /**
+     * Returns the strings of the underlying persistor as a stream. If the underlying persistor is not a
+     * {@link StreamingStringPersistor}, its strings are read completely before the stream is returned.
+     *
+     * @return The committed strings in the order they were saved.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public Stream<PersistedString> stream() {
+        if (this.delegate instanceof StreamingStringPersistor streaming) {
+            return streaming.stream();
+        }
+        return this.delegate.get(Integer.MAX_VALUE).stream();
+    }
+
+    /**
+     * Returns the committed strings of a time range from the underlying persistor, using its index of the
+     * timestamps if it has one.
+     *
+     * @param from The earliest timestamp to return; must not be null.
+     * @param to The latest timestamp to return; must not be null.
+     * @return The matching strings in the order they were saved; has to be closed.
+     * @throws IllegalArgumentException if {@code from} or {@code to} is {@code null} or {@code from} is after
+     *                                  {@code to}.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public Stream<PersistedString> stream(final Instant from, final Instant to) {
+        if (this.delegate instanceof StreamingStringPersistor streaming) {
+            return streaming.stream(from, to);
+        }
+        return StreamingStringPersistor.super.stream(from, to);
+    }
+
+    /**
+     * Retrieves the newest strings of the underlying persistor. If the underlying persistor is not a
+     * {@link TailableStringPersistor}, all of its strings are read.
+     *
+     * @param count The maximum number of strings to retrieve.
+     * @return The newest committed strings in the order they were saved.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public List<PersistedString> getLast(final int count) {
+        if (this.delegate instanceof TailableStringPersistor tailable) {
+            return tailable.getLast(count);
+        }
+        if (count <= 0) {
+            return List.of();
+        }
+        List<PersistedString> all = this.delegate.get(Integer.MAX_VALUE);
+        return all.subList(Math.max(0, all.size() - count), all.size());
+    }
+
+    /**
+     * Commits all pending requests, stops the committer thread and closes the underlying persistor if it is
+     * {@link AutoCloseable}.
+     */
+    @Override
+    public void close() {
+        // The committer is not interrupted: an interrupt during a write would close the file channel
+        this.running = false;
+        try {
+            this.committer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Requests which raced with the shutdown are committed by the closing thread
+        this.commitPending();
+        if (this.delegate instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ex) {
+                throw new IllegalStateException("Failed to close persistor: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Hands a request to the committer thread and waits until it has been committed.
+     *
+     * @param request The request to commit.
+     */
+    private void submit(final CommitRequest request) {
+        if (!this.running) {
+            throw new IllegalStateException("Failed to save lines: persistor is closed");
+        }
+
+        this.uncommitted.incrementAndGet();
+        this.requests.add(request);
+        if (!this.running) {
+            // Raced with close(): make sure the request is not left waiting forever
+            this.commitPending();
+        }
+
+        try {
+            request.committed().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the commit", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to save lines: " + ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    /**
+     * The main loop of the committer thread. Runs until the persistor is closed and no more requests are waiting.
+     */
+    private void runCommitter() {
+        List<CommitRequest> group = new ArrayList<>();
+        while (this.running || !this.requests.isEmpty()) {
+            try {
+                CommitRequest first = this.requests.poll(IDLE_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                this.collectGroup(group, first.size());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                this.commit(group);
+                return;
+            }
+            this.commit(group);
+            group.clear();
+        }
+    }
+
+    /**
+     * Adds further requests to the group until the maximum latency has elapsed or the maximum batch size
+     * has been reached. The committer only waits while a caller is about to submit a request which is not
+     * in the group yet; the callers of the group are blocked on its commit and cannot submit further requests.
+     *
+     * @param group The group to add the requests to.
+     * @param size The number of strings already in the group.
+     * @throws InterruptedException if the committer thread is interrupted while waiting.
+     */
+    private void collectGroup(final List<CommitRequest> group, final int size) throws InterruptedException {
+        int count = size;
+        long deadline = System.nanoTime() + this.maxLatencyNanos;
+        while (count < this.maxBatchSize) {
+            CommitRequest next = this.requests.peek();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || this.uncommitted.get() <= group.size()) {
+                    return;
+                }
+                next = this.requests.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+            } else if (count + next.size() > this.maxBatchSize) {
+                // The next request belongs to the next group
+                return;
+            } else {
+                this.requests.remove();
+            }
+            group.add(next);
+            count += next.size();
+        }
+    }
+
+    /**
+     * Commits all requests which are still waiting in the queue.
+     */
+    private void commitPending() {
+        List<CommitRequest> group = new ArrayList<>();
+        this.requests.drainTo(group);
+        this.commit(group);
+    }
+
+    /**
+     * Writes all strings of the group with a single commit and completes the requests.
+     *
+     * @param group The requests to commit.
+     */
+    private void commit(final List<CommitRequest> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (isEncoded(group)) {
+                this.commitEncoded(group);
+            } else {
+                this.commitStrings(group);
+            }
+            for (CommitRequest request : group) {
+                request.committed().complete(null);
+            }
+        } catch (RuntimeException ex) {
+            for (CommitRequest request : group) {
+                request.committed().completeExceptionally(ex);
+            }
+        } finally {
+            this.uncommitted.addAndGet(-group.size());
+        }
+    }
+
+    /**
+     * Writes the strings of a group of encoded requests which share their timestamp as bytes.
+     *
+     * @param group The requests to commit.
+     */
+    private void commitEncoded(final List<CommitRequest> group) {
+        int count = 0;
+        int length = 0;
+        for (CommitRequest request : group) {
+            count += request.size();
+            length += request.lines().length;
+        }
+
+        byte[] lines;
+        int[] lineEnds;
+        if (group.size() == 1) {
+            lines = group.get(0).lines();
+            lineEnds = group.get(0).lineEnds();
+        } else {
+            lines = new byte[length];
+            lineEnds = new int[count];
+            int offset = 0;
+            int line = 0;
+            for (CommitRequest request : group) {
+                System.arraycopy(request.lines(), 0, lines, offset, request.lines().length);
+                for (int end : request.lineEnds()) {
+                    lineEnds[line++] = offset + end;
+                }
+                offset += request.lines().length;
+            }
+        }
+
+        Instant instant = group.get(0).instant();
+        List<String[]> keys = this.delegate instanceof IndexedStringPersistor ? keysOf(group, count) : null;
+        if (keys != null) {
+            ((IndexedStringPersistor) this.delegate).saveAllUtf8(instant, ByteBuffer.wrap(lines), lineEnds, count,
+                    keys.toArray(new String[0][]));
+        } else {
+            this.delegate.saveAllUtf8(instant, ByteBuffer.wrap(lines), lineEnds, count);
+        }
+    }
+
+    /**
+     * Writes the strings of a group as strings, decoding the strings of encoded requests.
+     *
+     * @param group The requests to commit.
+     */
+    private void commitStrings(final List<CommitRequest> group) {
+        List<PersistedString> entries;
+        if (group.size() == 1) {
+            entries = group.get(0).entries();
+        } else {
+            entries = new ArrayList<>();
+            for (CommitRequest request : group) {
+                entries.addAll(request.isEncoded() ? request.decode() : request.entries());
+            }
+        }
+        List<String[]> keys = this.delegate instanceof IndexedStringPersistor ? keysOf(group, entries.size()) : null;
+
+        if (keys != null) {
+            ((IndexedStringPersistor) this.delegate).saveAll(entries, keys);
+        } else {
+            this.delegate.saveAll(entries);
+        }
+    }
+
+    /**
+     * Returns whether all requests of a group are encoded and share their timestamp, so the group can be written
+     * as bytes with a single commit.
+     *
+     * @param group The requests of the group.
+     * @return {@code true} if the group can be written as bytes.
+     */
+    private static boolean isEncoded(final List<CommitRequest> group) {
+        Instant instant = group.get(0).instant();
+        for (CommitRequest request : group) {
+            if (!request.isEncoded() || !request.instant().equals(instant)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the keys of the strings of a group.
+     *
+     * @param group The requests of the group.
+     * @param size The number of strings of the group.
+     * @return The keys of the strings, or null if no string of the group has keys.
+     */
+    private static List<String[]> keysOf(final List<CommitRequest> group, final int size) {
+        if (group.size() == 1) {
+            return group.get(0).keys();
+        }
+        if (group.stream().allMatch(request -> request.keys() == null)) {
+            return null;
+        }
+        List<String[]> keys = new ArrayList<>(size);
+        for (CommitRequest request : group) {
+            if (request.keys() != null) {
+                keys.addAll(request.keys());
+            } else {
+                keys.addAll(Collections.nCopies(request.size(), null));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * The strings of a single call and the future which is completed once they are committed. The strings are
+     * either given as {@code entries} or encoded in {@code lines}, with their timestamp in {@code instant}.
+     *
+     * @param entries The strings to commit, or null if they are encoded.
+     * @param instant The timestamp of the encoded strings, or null if they are not encoded.
+     * @param lines The encoded strings, or null if they are not encoded.
+     * @param lineEnds The end offsets of the encoded strings in {@code lines}, or null if they are not encoded.
+     * @param keys The keys of the strings, or null if they have no keys.
+     * @param committed Completed once the strings have been committed.
+     */
+    private record CommitRequest(List<PersistedString> entries, Instant instant, byte[] lines, int[] lineEnds,
+                                 List<String[]> keys, CompletableFuture<Void> committed) {
+
+        static CommitRequest of(final List<PersistedString> entries, final List<String[]> keys) {
+            return new CommitRequest(entries, null, null, null, keys, new CompletableFuture<>());
+        }
+
+        static CommitRequest copyOf(final Instant instant, final ByteBuffer lines, final int[] lineEnds,
+                                    final int count, final List<String[]> keys) {
+            int start = lines.position();
+            byte[] bytes = new byte[lineEnds[count - 1] - start];
+            lines.get(start, bytes);
+            int[] ends = new int[count];
+            for (int i = 0; i < count; i++) {
+                ends[i] = lineEnds[i] - start;
+            }
+            // The caller may reuse its array of keys; the key arrays themselves are not modified
+            List<String[]> copiedKeys = keys != null ? new ArrayList<>(keys) : null;
+            return new CommitRequest(null, instant, bytes, ends, copiedKeys, new CompletableFuture<>());
+        }
+
+        boolean isEncoded() {
+            return this.entries == null;
+        }
+
+        int size() {
+            return this.entries != null ? this.entries.size() : this.lineEnds.length;
+        }
+
+        List<PersistedString> decode() {
+            List<PersistedString> decoded = new ArrayList<>(this.lineEnds.length);
+            int start = 0;
+            for (int end : this.lineEnds) {
+                decoded.add(new PersistedString(this.instant,
+                        new String(this.lines, start, end - start, StandardCharsets.UTF_8)));
+                start = end;
+            }
+            return decoded;
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package ch.hslu.vsk.stringpersistor.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An inverted index of the keys of the records in a {@link StringPersistorFile}, stored in a sidecar file next to
+ * it ({@code <file>.keys}).
+ * <p>
+ * For every key, the index holds the postings list of the key: the offsets of the records saved with it, in
+ * ascending order, encoded as variable-length deltas in a byte array. The sidecar is a journal with one block per
+ * commit, which contains the postings of the records of the commit for all their keys. Parts of the file whose
+ * records are not indexed (written while the index was disabled or by a commit whose offsets could not be
+ * determined) are recorded as gaps, whose records are candidates of every query.
+ * </p>
+ * <p>
+ * The sidecar is only appended to and never forced to the storage device. When the index is opened, the blocks
+ * which do not match the file are discarded and the rest of the file is recorded as a gap. This class is
+ * thread-safe.
+ * </p>
+ */
+final class KeyIndex implements AutoCloseable {
+
+    /**
+     * Suffix of the sidecar file.
+     */
+    static final String SUFFIX = ".keys";
+
+    // Types of the blocks of the journal
+    private static final byte POSTINGS = 0;
+    private static final byte GAP = 1;
+
+    // Length, type, start and end of a block
+    private static final int HEADER_SIZE = Integer.BYTES + 1 + 2 * Long.BYTES;
+
+    private static final int MAX_KEY_LENGTH = Short.MAX_VALUE;
+
+    private final Path path;
+    private final FileChannel sidecar;
+    private long sidecarSize;
+    private ByteBuffer block = ByteBuffer.allocate(4 * 1024);
+
+    // The postings of the committed records
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    // The ranges of the file which are not indexed, start and end alternating
+    private long[] gaps = new long[8];
+    private int gapCount;
+
+    // End of the part of the file which is covered by the index
+    private long end;
+
+    // The postings of the records of the current commit, written as one block of the journal
+    private final Map<String, Postings> pending = new LinkedHashMap<>();
+
+    /**
+     * Creates an index with an opened sidecar.
+     *
+     * @param path The path of the sidecar.
+     * @param sidecar The sidecar, opened for reading and writing.
+     */
+    private KeyIndex(final Path path, final FileChannel sidecar) {
+        this.path = path;
+        this.sidecar = sidecar;
+    }
+
+    /**
+     * Opens the index of a file. Blocks of the sidecar which do not match the first {@code fileSize} bytes of the
+     * file are discarded; the part of the file after the last valid block is recorded as a gap.
+     *
+     * @param file The indexed file.
+     * @param fileSize The size of the file.
+     * @return The opened index.
+     * @throws IOException if the sidecar could not be read or written.
+     */
+    static KeyIndex open(final Path file, final long fileSize) throws IOException {
+        Path path = file.resolveSibling(file.getFileName() + SUFFIX);
+        FileChannel sidecar = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        KeyIndex index = new KeyIndex(path, sidecar);
+        try {
+            index.load(fileSize);
+            if (index.end < fileSize) {
+                index.writeGap(fileSize);
+            }
+        } catch (IOException e) {
+            sidecar.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Adds a record of the current commit.
+     *
+     * @param offset The offset of the record in the file.
+     * @param keys The keys of the record; may be null.
+     */
+    synchronized void add(final long offset, final String[] keys) {
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            if (key != null) {
+                this.pending.computeIfAbsent(key, k -> new Postings()).add(offset);
+            }
+        }
+    }
+
+    /**
+     * Discards the records added since the last commit.
+     */
+    synchronized void reset() {
+        this.pending.clear();
+    }
+
+    /**
+     * Commits the records added since the last commit, which were written to the file between {@code start} and
+     * {@code commitEnd}.
+     *
+     * @param start The size of the file before the commit.
+     * @param commitEnd The size of the file after the commit.
+     * @throws IOException if the sidecar could not be written.
+     */
+    synchronized void committed(final long start, final long commitEnd) throws IOException {
+        if (start != this.end) {
+            this.writeGap(start);
+        }
+        if (commitEnd == start) {
+            this.pending.clear();
+            return;
+        }
+
+        int size = HEADER_SIZE + Integer.BYTES;
+        for (Map.Entry<String, Postings> entry : this.pending.entrySet()) {
+            size += Short.BYTES + utf8Length(entry.getKey()) + 2 * Integer.BYTES + entry.getValue().size;
+        }
+        ByteBuffer buffer = this.header(size, POSTINGS, start, commitEnd);
+        buffer.putInt(this.pending.size());
+        for (Map.Entry<String, Postings> entry : this.pending.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            Postings committed = entry.getValue();
+            buffer.putShort((short) key.length).put(key);
+            buffer.putInt(committed.count).putInt(committed.size).put(committed.data, 0, committed.size);
+        }
+        this.append(buffer);
+
+        for (Map.Entry<String, Postings> entry : this.pending.entrySet()) {
+            this.postings.computeIfAbsent(entry.getKey(), k -> new Postings()).addAll(entry.getValue());
+        }
+        this.pending.clear();
+        this.end = commitEnd;
+    }
+
+    /**
+     * Records the file up to {@code gapEnd} as not indexed and discards the records added since the last commit.
+     * Used if the offsets of a commit could not be determined.
+     *
+     * @param gapEnd The size of the file after the commit.
+     * @throws IOException if the sidecar could not be written.
+     */
+    synchronized void skipped(final long gapEnd) throws IOException {
+        this.pending.clear();
+        if (gapEnd > this.end) {
+            this.writeGap(gapEnd);
+        }
+    }
+
+    /**
+     * Returns the offsets of the records which were saved with all given keys.
+     *
+     * @param keys The keys; must not be empty.
+     * @return The offsets in ascending order.
+     */
+    synchronized long[] offsets(final String[] keys) {
+        Postings[] lists = new Postings[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            lists[i] = this.postings.get(keys[i]);
+            if (lists[i] == null) {
+                return new long[0];
+            }
+        }
+        // Start with the shortest list, so the intermediate results are as small as possible
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.count, b.count));
+
+        long[] result = lists[0].decode();
+        int count = result.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            count = lists[i].retainAll(result, count);
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the ranges of the first {@code fileSize} bytes of the file whose records are not indexed, including
+     * the part written after the last commit.
+     *
+     * @param fileSize The size of the file to consider.
+     * @return The start and end offsets of the ranges, alternating, in ascending order.
+     */
+    synchronized long[] gaps(final long fileSize) {
+        long[] ranges = new long[this.gapCount + 2];
+        int count = 0;
+        for (int i = 0; i < this.gapCount && this.gaps[i] < fileSize; i += 2) {
+            ranges[count++] = this.gaps[i];
+            ranges[count++] = Math.min(this.gaps[i + 1], fileSize);
+        }
+        if (fileSize > this.end) {
+            if (count > 0 && ranges[count - 1] == this.end) {
+                ranges[count - 1] = fileSize;
+            } else {
+                ranges[count++] = this.end;
+                ranges[count++] = fileSize;
+            }
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * Closes the sidecar. If it cannot be closed, its last blocks may not have been written, so it is deleted and
+     * the whole file is recorded as a gap when the index is opened the next time.
+     *
+     * @throws IllegalStateException if the sidecar could neither be closed nor deleted.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            this.sidecar.close();
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(this.path);
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+                throw new IllegalStateException("Failed to close key index: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Reads the blocks of the sidecar which match the file. The blocks must be contiguous from the start of the
+     * file and must not exceed its size; the sidecar is truncated after the last valid block.
+     *
+     * @param fileSize The size of the file.
+     * @throws IOException if the sidecar could not be read.
+     */
+    private void load(final long fileSize) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long position = 0;
+        long size = this.sidecar.size();
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(this.sidecar, header, position);
+            header.flip();
+            int length = header.getInt();
+            byte type = header.get();
+            long start = header.getLong();
+            long blockEnd = header.getLong();
+            if (length < HEADER_SIZE || position + length > size || start != this.end || blockEnd < start
+                    || blockEnd > fileSize || type != POSTINGS && type != GAP) {
+                break;
+            }
+
+            if (type == POSTINGS) {
+                ByteBuffer content = ByteBuffer.allocate(length - HEADER_SIZE);
+                readFully(this.sidecar, content, position + HEADER_SIZE);
+                if (!this.loadPostings(content.flip(), start, blockEnd)) {
+                    break;
+                }
+            } else {
+                this.addGap(start, blockEnd);
+            }
+            this.end = blockEnd;
+            position += length;
+        }
+        this.sidecarSize = position;
+        this.sidecar.truncate(position);
+    }
+
+    /**
+     * Adds the postings of a block to the index if they are valid.
+     *
+     * @param content The content of the block after its header.
+     * @param start The start of the block in the file.
+     * @param blockEnd The end of the block in the file.
+     * @return {@code false} if the block is malformed.
+     */
+    private boolean loadPostings(final ByteBuffer content, final long start, final long blockEnd) {
+        Map<String, Postings> block = new HashMap<>();
+        try {
+            int keyCount = content.getInt();
+            for (int i = 0; i < keyCount; i++) {
+                byte[] key = new byte[content.getShort()];
+                content.get(key);
+                int count = content.getInt();
+                byte[] data = new byte[content.getInt()];
+                content.get(data);
+
+                Postings keyPostings = new Postings(data, count);
+                long[] offsets = keyPostings.decode();
+                if (offsets.length != count || count > 0 && (offsets[0] < start || offsets[count - 1] >= blockEnd)) {
+                    return false;
+                }
+                block.put(new String(key, StandardCharsets.UTF_8), keyPostings);
+            }
+        } catch (RuntimeException e) {
+            // Truncated or corrupt block
+            return false;
+        }
+        for (Map.Entry<String, Postings> entry : block.entrySet()) {
+            this.postings.computeIfAbsent(entry.getKey(), k -> new Postings()).addAll(entry.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Records the file from the end of the index up to {@code gapEnd} as not indexed.
+     *
+     * @param gapEnd The end of the gap.
+     * @throws IOException if the sidecar could not be written.
+     */
+    private void writeGap(final long gapEnd) throws IOException {
+        this.append(this.header(HEADER_SIZE, GAP, this.end, gapEnd));
+        this.addGap(this.end, gapEnd);
+        this.end = gapEnd;
+    }
+
+    /**
+     * Adds a range to the gaps, merging it with the previous one if they are adjacent.
+     *
+     * @param start The start of the range.
+     * @param gapEnd The end of the range.
+     */
+    private void addGap(final long start, final long gapEnd) {
+        if (start == gapEnd) {
+            return;
+        }
+        if (this.gapCount > 0 && this.gaps[this.gapCount - 1] == start) {
+            this.gaps[this.gapCount - 1] = gapEnd;
+            return;
+        }
+        if (this.gapCount == this.gaps.length) {
+            this.gaps = Arrays.copyOf(this.gaps, this.gapCount * 2);
+        }
+        this.gaps[this.gapCount++] = start;
+        this.gaps[this.gapCount++] = gapEnd;
+    }
+
+    /**
+     * Prepares the buffer for a block and writes its header.
+     *
+     * @param size The size of the block including the header.
+     * @param type The type of the block.
+     * @param start The start of the block in the file.
+     * @param blockEnd The end of the block in the file.
+     * @return The buffer, positioned after the header.
+     */
+    private ByteBuffer header(final int size, final byte type, final long start, final long blockEnd) {
+        if (this.block.capacity() < size) {
+            this.block = ByteBuffer.allocate(Math.max(size, this.block.capacity() * 2));
+        }
+        return this.block.clear().putInt(size).put(type).putLong(start).putLong(blockEnd);
+    }
+
+    /**
+     * Appends a block to the sidecar.
+     *
+     * @param buffer The block in write mode.
+     * @throws IOException if the sidecar could not be written.
+     */
+    private void append(final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            this.sidecarSize += this.sidecar.write(buffer, this.sidecarSize);
+        }
+    }
+
+    /**
+     * Reads bytes from a channel until the buffer is full.
+     *
+     * @param channel The channel.
+     * @param buffer The buffer to fill.
+     * @param position The position in the channel to read from.
+     * @throws IOException if an I/O error occurs or the channel ends before the buffer is full.
+     */
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of key index");
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the UTF-8 encoding of a key.
+     *
+     * @param key The key.
+     * @return The number of bytes.
+     * @throws IllegalArgumentException if the key is too long.
+     */
+    private static int utf8Length(final String key) {
+        int length = StringPersistorFile.utf8Length(key);
+        if (length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Key is too long: " + key.substring(0, 32) + "...");
+        }
+        return length;
+    }
+
+    /**
+     * A postings list: ascending offsets, each encoded as the variable-length difference to the previous one
+     * (7 bits per byte, the highest bit set on all but the last byte). The first offset is encoded absolutely.
+     */
+    private static final class Postings {
+
+        private byte[] data;
+        private int size;
+        private int count;
+        private long last;
+
+        /**
+         * Creates an empty list.
+         */
+        Postings() {
+            this.data = new byte[16];
+        }
+
+        /**
+         * Creates a list from its encoding.
+         *
+         * @param data The encoded offsets.
+         * @param count The number of offsets.
+         */
+        Postings(final byte[] data, final int count) {
+            this.data = data;
+            this.size = data.length;
+            this.count = count;
+        }
+
+        /**
+         * Appends an offset.
+         *
+         * @param offset The offset; must not be smaller than the last one.
+         */
+        void add(final long offset) {
+            if (this.size + 10 > this.data.length) {
+                this.data = Arrays.copyOf(this.data, this.data.length * 2);
+            }
+            long delta = offset - this.last;
+            while ((delta & ~0x7FL) != 0) {
+                this.data[this.size++] = (byte) (delta & 0x7F | 0x80);
+                delta >>>= 7;
+            }
+            this.data[this.size++] = (byte) delta;
+            this.last = offset;
+            this.count++;
+        }
+
+        /**
+         * Appends all offsets of another list, whose offsets are not smaller than the last one of this list.
+         *
+         * @param other The list to append.
+         */
+        void addAll(final Postings other) {
+            if (other.count == 0) {
+                return;
+            }
+            // The first offset of the other list is encoded absolutely and has to be encoded again
+            long[] first = new long[1];
+            int firstLength = decodeFirst(other.data, first);
+            this.add(first[0]);
+            int rest = other.size - firstLength;
+            if (this.size + rest > this.data.length) {
+                this.data = Arrays.copyOf(this.data, Math.max(this.size + rest, this.data.length * 2));
+            }
+            System.arraycopy(other.data, firstLength, this.data, this.size, rest);
+            this.size += rest;
+            this.count += other.count - 1;
+            this.last = other.lastOffset();
+        }
+
+        /**
+         * Decodes all offsets.
+         *
+         * @return The offsets in ascending order.
+         * @throws IllegalStateException if the encoding contains less offsets than the list.
+         */
+        long[] decode() {
+            long[] offsets = new long[this.count];
+            int position = 0;
+            long offset = 0;
+            for (int i = 0; i < this.count; i++) {
+                if (position >= this.size) {
+                    throw new IllegalStateException("Truncated postings list");
+                }
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = this.data[position++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                offset += delta;
+                offsets[i] = offset;
+            }
+            return offsets;
+        }
+
+        /**
+         * Keeps the offsets of a sorted array which are part of this list.
+         *
+         * @param offsets The offsets in ascending order; the kept offsets are moved to its start.
+         * @param length The number of offsets in the array.
+         * @return The number of kept offsets.
+         */
+        int retainAll(final long[] offsets, final int length) {
+            int kept = 0;
+            int candidate = 0;
+            int position = 0;
+            long offset = 0;
+            for (int i = 0; i < this.count && candidate < length; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = this.data[position++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                offset += delta;
+
+                while (candidate < length && offsets[candidate] < offset) {
+                    candidate++;
+                }
+                if (candidate < length && offsets[candidate] == offset) {
+                    offsets[kept++] = offset;
+                    candidate++;
+                }
+            }
+            return kept;
+        }
+
+        /**
+         * Returns the last offset of the list.
+         *
+         * @return The last offset, {@code 0} if the list is empty.
+         */
+        private long lastOffset() {
+            if (this.last != 0 || this.count == 0) {
+                return this.last;
+            }
+            // Decoded list
+            long[] offsets = this.decode();
+            return offsets[offsets.length - 1];
+        }
+
+        /**
+         * Decodes the first offset of an encoded list.
+         *
+         * @param data The encoded list.
+         * @param first Receives the first offset.
+         * @return The number of bytes of the first offset.
+         */
+        private static int decodeFirst(final byte[] data, final long[] first) {
+            long value = 0;
+            int shift = 0;
+            int position = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            first[0] = value;
+            return position;
+        }
+    }
+}
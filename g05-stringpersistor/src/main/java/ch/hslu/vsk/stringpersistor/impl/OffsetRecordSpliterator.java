@@ -0,0 +1,164 @@
+package ch.hslu.vsk.stringpersistor.impl;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Reads selected {@code timestamp,line} records of a {@link StringPersistorFile} in the order of the file: the
+ * records starting at given offsets, and all records of given ranges.
+ * <p>
+ * The file is read with positional reads into a small window, so records which are close to each other are read
+ * with a single read and records far apart do not cause the bytes between them to be read. An incomplete record
+ * at the end of a range is ignored.
+ * </p>
+ */
+final class OffsetRecordSpliterator extends Spliterators.AbstractSpliterator<PersistedString> {
+
+    private static final int WINDOW_SIZE = 8 * 1024;
+
+    private static final byte NEW_LINE = '\n';
+
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final FileChannel channel;
+    private final long[] offsets;
+    private final long[] ranges;
+    private int nextOffset;
+    private int nextRange;
+
+    // Position of the next record in the current range, and the end of the range
+    private long position;
+    private long rangeEnd;
+
+    // The bytes of the file starting at windowStart, between the start and the limit of the buffer
+    private ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE).flip();
+    private long windowStart;
+
+    /**
+     * Creates a reader for the records at the given offsets and in the given ranges, which must not overlap.
+     *
+     * @param channel The channel of the file; not closed by the reader.
+     * @param offsets The offsets of single records, in ascending order.
+     * @param ranges The start and end offsets of ranges, alternating, in ascending order.
+     */
+    OffsetRecordSpliterator(final FileChannel channel, final long[] offsets, final long[] ranges) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        this.channel = channel;
+        this.offsets = offsets;
+        this.ranges = ranges;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super PersistedString> action) {
+        while (true) {
+            if (this.position < this.rangeEnd) {
+                PersistedString record = this.read(this.position, this.rangeEnd);
+                if (record != null) {
+                    action.accept(record);
+                    return true;
+                }
+                // Incomplete record at the end of the range
+                this.rangeEnd = this.position;
+            }
+
+            boolean hasOffset = this.nextOffset < this.offsets.length;
+            boolean hasRange = this.nextRange < this.ranges.length;
+            if (hasRange && (!hasOffset || this.ranges[this.nextRange] < this.offsets[this.nextOffset])) {
+                this.position = this.ranges[this.nextRange];
+                this.rangeEnd = this.ranges[this.nextRange + 1];
+                this.nextRange += 2;
+            } else if (hasOffset) {
+                PersistedString record = this.read(this.offsets[this.nextOffset++], Long.MAX_VALUE);
+                if (record == null) {
+                    throw new IllegalStateException("Failed to read logs: indexed record is incomplete");
+                }
+                action.accept(record);
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Reads the record at the given offset and moves {@link #position} behind it.
+     *
+     * @param offset The offset of the record.
+     * @param limit The offset the record has to end before.
+     * @return The record, or {@code null} if no complete record starts at the offset.
+     * @throws IllegalStateException if an I/O error occurs or the record is malformed.
+     */
+    private PersistedString read(final long offset, final long limit) {
+        if (offset < this.windowStart || offset > this.windowStart + this.window.limit()) {
+            this.fill(offset, limit);
+        }
+        int start = (int) (offset - this.windowStart);
+        int end = start;
+        while (true) {
+            while (end < this.window.limit() && this.window.get(end) != NEW_LINE) {
+                end++;
+            }
+            if (end < this.window.limit()) {
+                break;
+            }
+            // The record continues after the window
+            int read = this.fill(offset, limit);
+            if (read == 0) {
+                return null;
+            }
+            end -= start;
+            start = 0;
+        }
+
+        this.position = this.windowStart + end + 1;
+        int recordEnd = end > start && this.window.get(end - 1) == CARRIAGE_RETURN ? end - 1 : end;
+        return RecordSpliterator.parse(this.window, start, recordEnd);
+    }
+
+    /**
+     * Moves the window to the given offset and reads as many bytes into it as fit. The window is enlarged if it
+     * already starts at the offset, i.e. a single record does not fit into it.
+     *
+     * @param offset The new start of the window.
+     * @param limit The offset the window must not extend beyond.
+     * @return The number of bytes read which were not in the window before.
+     * @throws IllegalStateException if an I/O error occurs.
+     */
+    private int fill(final long offset, final long limit) {
+        int previous = 0;
+        if (offset == this.windowStart && this.window.limit() == this.window.capacity()) {
+            previous = this.window.limit();
+            this.window = ByteBuffer.allocate(this.window.capacity() * 2).put(this.window.rewind());
+        } else if (offset >= this.windowStart && offset <= this.windowStart + this.window.limit()) {
+            // Keep the bytes of the window from the offset on
+            previous = (int) (this.windowStart + this.window.limit() - offset);
+            this.window.position((int) (offset - this.windowStart)).compact();
+        } else {
+            this.window.clear();
+        }
+        this.windowStart = offset;
+
+        try {
+            long remaining = limit - offset - this.window.position();
+            if (remaining < this.window.remaining()) {
+                this.window.limit(this.window.position() + (int) Math.max(remaining, 0));
+            }
+            while (this.window.hasRemaining()) {
+                if (this.channel.read(this.window, offset + this.window.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+        int read = this.window.position() - previous;
+        this.window.flip();
+        return read;
+    }
+}
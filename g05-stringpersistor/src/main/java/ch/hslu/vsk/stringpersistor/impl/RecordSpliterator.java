@@ -0,0 +1,148 @@
+package ch.hslu.vsk.stringpersistor.impl;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Reads the {@code timestamp,line} records written by {@link StringPersistorFile} and
+ * {@link SegmentedMappedStringPersistor} one at a time, from a channel or from a buffer holding the whole content.
+ * <p>
+ * Only the given number of bytes of a channel is read, so the records appended after a reader was created are not
+ * seen. An incomplete record at the end (one which is not terminated by a line break yet) is ignored.
+ * </p>
+ */
+final class RecordSpliterator extends Spliterators.AbstractSpliterator<PersistedString> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte NEW_LINE = '\n';
+
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    // Null if the buffer holds the whole content
+    private final ReadableByteChannel channel;
+
+    // Number of bytes of the channel which have not been read into the buffer yet
+    private long unread;
+
+    // The read but not yet parsed bytes between the position and the limit
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a reader for the first {@code length} bytes of a channel.
+     *
+     * @param channel The channel positioned at the first record; not closed by the reader.
+     * @param length The number of bytes to read.
+     */
+    RecordSpliterator(final ReadableByteChannel channel, final long length) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        this.channel = channel;
+        this.unread = length;
+        this.buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, Math.max(length, 1))).flip();
+    }
+
+    /**
+     * Creates a reader for the records between the position and the limit of a buffer.
+     *
+     * @param content The records; the buffer is not modified.
+     */
+    RecordSpliterator(final ByteBuffer content) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        this.channel = null;
+        this.unread = 0;
+        this.buffer = content.duplicate();
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super PersistedString> action) {
+        int start = this.buffer.position();
+        int end = start;
+        while (true) {
+            while (end < this.buffer.limit() && this.buffer.get(end) != NEW_LINE) {
+                end++;
+            }
+            if (end < this.buffer.limit()) {
+                break;
+            }
+            if (!this.readMore()) {
+                return false;
+            }
+            end -= start;
+            start = 0;
+        }
+
+        this.buffer.position(end + 1);
+        if (end > start && this.buffer.get(end - 1) == CARRIAGE_RETURN) {
+            end--;
+        }
+        action.accept(parse(this.buffer, start, end));
+        return true;
+    }
+
+    /**
+     * Moves the unparsed bytes to the start of the buffer and reads further bytes from the channel. The buffer is
+     * enlarged if it is full with a single record.
+     *
+     * @return {@code false} if there is nothing left to read.
+     * @throws IllegalStateException if an I/O error occurs.
+     */
+    private boolean readMore() {
+        if (this.channel == null || this.unread == 0) {
+            return false;
+        }
+        this.buffer.compact();
+        if (!this.buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(this.buffer.capacity() * 2);
+            this.buffer = larger.put(this.buffer.flip());
+        }
+        try {
+            if (this.buffer.remaining() > this.unread) {
+                this.buffer.limit(this.buffer.position() + (int) this.unread);
+            }
+            int read = this.channel.read(this.buffer);
+            this.buffer.flip();
+            if (read < 0) {
+                // The file was truncated since the reader was created
+                this.unread = 0;
+                return false;
+            }
+            this.unread -= read;
+            return true;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses the record between {@code start} (inclusive) and {@code end} (exclusive).
+     *
+     * @param content The buffer containing the record.
+     * @param start The start of the record.
+     * @param end The end of the record, without its line break.
+     * @return The parsed record.
+     * @throws IllegalStateException if the record is malformed.
+     */
+    static PersistedString parse(final ByteBuffer content, final int start, final int end) {
+        byte[] bytes = new byte[end - start];
+        content.get(start, bytes);
+        String line = new String(bytes, StandardCharsets.UTF_8);
+        int delimiter = line.indexOf(StringPersistorFile.DELIMITER);
+        if (delimiter < 0) {
+            throw new IllegalStateException("Malformed record: " + line);
+        }
+        try {
+            return new PersistedString(Instant.parse(line.substring(0, delimiter)), line.substring(delimiter + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalStateException("Malformed record: " + line, e);
+        }
+    }
+}
@@ -0,0 +1,757 @@
+package ch.hslu.vsk.stringpersistor.impl;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+import ch.hslu.vsk.stringpersistor.ext.BulkStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.StreamingStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.TailableStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.Utf8Lines;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An append-only {@link BulkStringPersistor} which stores the strings in memory-mapped segment files.
+ * <p>
+ * The path passed to {@link #setFile(Path)} is used as base name; the segments are stored next to it as
+ * {@code <name>.<index>.seg}. Every segment is preallocated with the configured size and mapped into memory, so
+ * an append is a copy into the mapped buffer. Once a segment is full, it is sealed (truncated to its used length)
+ * and a new segment is started. Retention is done by deleting whole segments: if a maximum number of segments is
+ * configured, the oldest segments are deleted on rollover.
+ * </p>
+ * <p>
+ * The records use the same {@code timestamp,line} text format as {@link StringPersistorFile}. Because UTF-8 never
+ * encodes a character other than NUL with a zero byte, the unused, zero-filled part of a segment marks its end.
+ * NUL and line break characters in a line are therefore stored escaped as {@code \0}, {@code \n} and {@code \r}
+ * (and a backslash as {@code \\}), and unescaped again when the strings are read. With {@link Durability#FLUSH} the data is visible
+ * to other readers as soon as it has been copied into the mapping; {@link Durability#FSYNC} additionally forces
+ * the written range to the storage device.
+ * </p>
+ * <p>
+ * {@link #stream()} and {@link #getLast(int)} only hold the lock of the persistor while they take a snapshot of the
+ * segment list and of the used length of the active segment; the records are read from the mappings afterwards,
+ * while strings are saved.
+ * </p>
+ */
+public class SegmentedMappedStringPersistor implements BulkStringPersistor, StreamingStringPersistor,
+        TailableStringPersistor, AutoCloseable {
+
+    /**
+     * Default size of a segment in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Suffix of the segment files.
+     */
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final byte NEW_LINE = '\n';
+
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private static final byte ESCAPE = '\\';
+
+    private final int segmentSize;
+    private final int maxSegments;
+    private Durability durability = Durability.FLUSH;
+
+    private Path basePath;
+    private Pattern segmentPattern;
+
+    // Segment which is currently written to
+    private long activeIndex;
+    private Path activePath;
+    private MappedByteBuffer activeBuffer;
+
+    /**
+     * Creates a new {@code SegmentedMappedStringPersistor} with the default segment size and no retention limit.
+     */
+    public SegmentedMappedStringPersistor() {
+        this(DEFAULT_SEGMENT_SIZE, 0);
+    }
+
+    /**
+     * Creates a new {@code SegmentedMappedStringPersistor}.
+     *
+     * @param segmentSize The size of a segment in bytes; must be greater than 0.
+     * @param maxSegments The maximum number of segments to keep; {@code 0} keeps all segments.
+     * @throws IllegalArgumentException if one of the arguments is invalid.
+     */
+    public SegmentedMappedStringPersistor(final int segmentSize, final int maxSegments) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size must be greater than 0");
+        }
+        if (maxSegments < 0) {
+            throw new IllegalArgumentException("Max segments must not be negative");
+        }
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Sets the durability which is used to commit written strings.
+     *
+     * @param durability The {@link Durability} to use; must not be null.
+     * @throws IllegalArgumentException if {@code durability} is {@code null}.
+     */
+    public synchronized void setDurability(final Durability durability) {
+        if (durability == null) {
+            throw new IllegalArgumentException("Durability must not be null");
+        }
+        this.durability = durability;
+    }
+
+    /**
+     * Sets the base path of the segment files and opens the newest segment for appending.
+     * Existing segments are kept; an incomplete record at the end of the newest segment is discarded.
+     *
+     * @param path The base {@link Path} of the segment files.
+     * @throws IllegalArgumentException if {@code path} is {@code null}.
+     * @throws IllegalStateException if the segments could not be opened.
+     */
+    @Override
+    public synchronized void setFile(final Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path must not be null");
+        }
+
+        this.close();
+        this.basePath = path.toAbsolutePath();
+        this.segmentPattern = Pattern.compile(Pattern.quote(this.basePath.getFileName().toString())
+                + "\\.(\\d+)" + Pattern.quote(SEGMENT_SUFFIX));
+
+        try {
+            Files.createDirectories(this.basePath.getParent());
+            List<Long> segments = this.listSegments();
+            if (segments.isEmpty()) {
+                this.openSegment(0);
+                return;
+            }
+
+            long newest = segments.getLast();
+            if (Files.size(this.segmentPath(newest)) == this.segmentSize) {
+                // The newest segment has not been sealed -> continue writing into it
+                this.openSegment(newest);
+            } else {
+                this.openSegment(newest + 1);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to set file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves a string along with its timestamp.
+     *
+     * @param instant The {@link Instant} timestamp to be saved.
+     * @param line The string content to be saved.
+     * @throws IllegalArgumentException if an argument is {@code null} or the record does not fit into a segment.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public synchronized void save(final Instant instant, final String line) {
+        byte[] record = this.encode(instant, line);
+        this.ensureOpen();
+
+        int start = this.activeBuffer.position();
+        this.append(record);
+        this.commit(start);
+    }
+
+    /**
+     * Saves all given strings in the given order and commits them together.
+     *
+     * @param entries The strings to save; must not be null and must not contain null entries.
+     * @throws IllegalArgumentException if an entry is invalid; nothing is written in that case.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public synchronized void saveAll(final List<PersistedString> entries) {
+        if (entries == null) {
+            throw new IllegalArgumentException("Entries must not be null");
+        }
+        List<byte[]> records = new ArrayList<>(entries.size());
+        for (PersistedString entry : entries) {
+            if (entry == null) {
+                throw new IllegalArgumentException("Instant and line must not be null");
+            }
+            records.add(this.encode(entry.getTimestamp(), entry.getPayload()));
+        }
+        this.ensureOpen();
+
+        int start = this.activeBuffer.position();
+        for (byte[] record : records) {
+            if (record.length > this.activeBuffer.remaining()) {
+                // The records written to the old segment are committed when it is sealed
+                start = 0;
+            }
+            this.append(record);
+        }
+        this.commit(start);
+    }
+
+    /**
+     * Saves UTF-8 encoded strings which share the same timestamp and commits them together. The lines are copied
+     * into the segment without decoding them; only lines containing characters which have to be escaped are copied
+     * byte by byte.
+     *
+     * @param instant The timestamp of all strings; must not be null.
+     * @param lines The encoded strings.
+     * @param lineEnds The end offsets of the strings in {@code lines}.
+     * @param count The number of strings.
+     * @throws IllegalArgumentException if an argument is invalid; nothing is written in that case.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public synchronized void saveAllUtf8(final Instant instant, final ByteBuffer lines, final int[] lineEnds,
+                                         final int count) {
+        Utf8Lines.check(instant, lines, lineEnds, count);
+        byte[] prefix = (instant + StringPersistorFile.DELIMITER).getBytes(StandardCharsets.UTF_8);
+        int[] escapedLengths = new int[count];
+        int start = lines.position();
+        for (int i = 0; i < count; i++) {
+            escapedLengths[i] = escapedLength(lines, start, lineEnds[i]);
+            if (prefix.length + escapedLengths[i] + 1 > this.segmentSize) {
+                throw new IllegalArgumentException("Line does not fit into a segment of " + this.segmentSize + " bytes");
+            }
+            start = lineEnds[i];
+        }
+        this.ensureOpen();
+
+        int commitStart = this.activeBuffer.position();
+        start = lines.position();
+        for (int i = 0; i < count; i++) {
+            int length = lineEnds[i] - start;
+            if (this.reserve(prefix.length + escapedLengths[i] + 1)) {
+                commitStart = 0;
+            }
+            this.activeBuffer.put(prefix);
+            if (escapedLengths[i] == length) {
+                this.activeBuffer.put(this.activeBuffer.position(), lines, start, length);
+                this.activeBuffer.position(this.activeBuffer.position() + length);
+            } else {
+                for (int j = start; j < lineEnds[i]; j++) {
+                    byte value = lines.get(j);
+                    if (needsEscape(value)) {
+                        this.activeBuffer.put(ESCAPE).put(escapeCode(value));
+                    } else {
+                        this.activeBuffer.put(value);
+                    }
+                }
+            }
+            this.activeBuffer.put(NEW_LINE);
+            start = lineEnds[i];
+        }
+        this.commit(commitStart);
+    }
+
+    /**
+     * Retrieves up to the specified number of the oldest strings.
+     *
+     * @param count The maximum number of strings to retrieve.
+     * @return The strings in the order they were saved.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public List<PersistedString> get(final int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+
+        try (Stream<PersistedString> strings = this.stream()) {
+            return strings.limit(count).toList();
+        }
+    }
+
+    /**
+     * Returns all strings saved before the call as a lazily parsed stream. The segments are mapped one after the
+     * other as the stream is consumed; a segment which is deleted by the retention before it is reached is
+     * skipped.
+     *
+     * @return The strings in the order they were saved.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public Stream<PersistedString> stream() {
+        Snapshot snapshot = this.snapshot();
+        Stream<ByteBuffer> contents = Stream.concat(
+                snapshot.sealed().stream().map(SegmentedMappedStringPersistor::readSealedSegment),
+                Stream.of(snapshot.active()));
+        return contents.flatMap(content -> StreamSupport.stream(new RecordSpliterator(content), false))
+                .map(SegmentedMappedStringPersistor::unescape);
+    }
+
+    /**
+     * Retrieves up to the specified number of the newest strings. Only the newest segments are read, so the
+     * cost depends on the number of requested strings and not on the total size of the store.
+     *
+     * @param count The maximum number of strings to retrieve.
+     * @return The newest strings in the order they were saved.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public List<PersistedString> getLast(final int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+
+        Snapshot snapshot = this.snapshot();
+        List<PersistedString> result = new ArrayList<>();
+        for (int i = snapshot.sealed().size(); i >= 0 && result.size() < count; i--) {
+            ByteBuffer content = i == snapshot.sealed().size()
+                    ? snapshot.active() : readSealedSegment(snapshot.sealed().get(i));
+            int end = content.limit() - 1;
+            while (end >= 0 && result.size() < count) {
+                int start = lastIndexOf(content, NEW_LINE, end - 1) + 1;
+                result.add(unescape(RecordSpliterator.parse(content, start, end)));
+                end = start - 1;
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Takes a snapshot of the segments for reading them without holding the lock.
+     *
+     * @return The sealed segments and the used part of the active segment.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    private synchronized Snapshot snapshot() {
+        this.ensureOpen();
+        List<Path> sealed = new ArrayList<>();
+        try {
+            for (long index : this.listSegments()) {
+                if (index != this.activeIndex) {
+                    sealed.add(this.segmentPath(index));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+        return new Snapshot(sealed, this.activeBuffer.duplicate().flip());
+    }
+
+    /**
+     * Deletes all but the newest {@code keep} segments. The active segment is never deleted.
+     *
+     * @param keep The number of segments to keep; must be greater than 0.
+     * @return The number of deleted segments.
+     * @throws IllegalArgumentException if {@code keep} is not greater than 0.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    public synchronized int deleteOldestSegments(final int keep) {
+        if (keep <= 0) {
+            throw new IllegalArgumentException("At least one segment has to be kept");
+        }
+        this.ensureOpen();
+
+        try {
+            List<Long> segments = this.listSegments();
+            int deleted = 0;
+            for (int i = 0; i < segments.size() - keep; i++) {
+                if (segments.get(i) != this.activeIndex) {
+                    Files.deleteIfExists(this.segmentPath(segments.get(i)));
+                    deleted++;
+                }
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to delete segments: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the paths of all segment files, oldest first.
+     *
+     * @return The segment files.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    public synchronized List<Path> getSegments() {
+        this.ensureOpen();
+        try {
+            return this.listSegments().stream().map(this::segmentPath).toList();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to list segments: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Seals the active segment. The persistor can be reopened with {@link #setFile(Path)}.
+     *
+     * @throws IllegalStateException if the segment could not be sealed.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.activeBuffer == null) {
+            return;
+        }
+        try {
+            this.sealActiveSegment();
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Failed to seal segment: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encodes a record, escaping NUL and line break characters of its content.
+     *
+     * @param instant The timestamp of the record.
+     * @param line The content of the record.
+     * @return The encoded record including the trailing line break.
+     */
+    private byte[] encode(final Instant instant, final String line) {
+        if (instant == null || line == null) {
+            throw new IllegalArgumentException("Instant and line must not be null");
+        }
+
+        byte[] record = (instant + StringPersistorFile.DELIMITER + escape(line) + "\n").getBytes(StandardCharsets.UTF_8);
+        if (record.length > this.segmentSize) {
+            throw new IllegalArgumentException("Line does not fit into a segment of " + this.segmentSize + " bytes");
+        }
+        return record;
+    }
+
+    /**
+     * Escapes the NUL and line break characters and the backslashes of a line.
+     *
+     * @param line The line.
+     * @return The escaped line, or {@code line} itself if nothing has to be escaped.
+     */
+    private static String escape(final String line) {
+        int i = 0;
+        while (i < line.length() && !needsEscape(line.charAt(i))) {
+            i++;
+        }
+        if (i == line.length()) {
+            return line;
+        }
+
+        StringBuilder escaped = new StringBuilder(line.length() + 16).append(line, 0, i);
+        for (; i < line.length(); i++) {
+            char value = line.charAt(i);
+            if (needsEscape(value)) {
+                escaped.append((char) ESCAPE).append((char) escapeCode((byte) value));
+            } else {
+                escaped.append(value);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Returns the length of an encoded line once it has been escaped.
+     *
+     * @param lines The encoded lines.
+     * @param start The start of the line.
+     * @param end The end of the line.
+     * @return The escaped length in bytes.
+     */
+    private static int escapedLength(final ByteBuffer lines, final int start, final int end) {
+        int length = end - start;
+        for (int i = start; i < end; i++) {
+            if (needsEscape(lines.get(i))) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Checks whether a character has to be escaped. Only ASCII characters are escaped, so the check can be applied
+     * to the bytes of UTF-8 encoded lines as well.
+     *
+     * @param value The character or byte.
+     * @return {@code true} for NUL, line breaks and the backslash.
+     */
+    private static boolean needsEscape(final int value) {
+        return value == 0 || value == NEW_LINE || value == CARRIAGE_RETURN || value == ESCAPE;
+    }
+
+    /**
+     * Returns the character following the backslash in the escaped form of a character.
+     *
+     * @param value The character which has to be escaped.
+     * @return The escape code.
+     */
+    private static byte escapeCode(final byte value) {
+        return switch (value) {
+            case 0 -> '0';
+            case NEW_LINE -> 'n';
+            case CARRIAGE_RETURN -> 'r';
+            default -> value;
+        };
+    }
+
+    /**
+     * Reverts the escaping of {@link #escape(String)} in the payload of a record.
+     *
+     * @param record The record as read from a segment.
+     * @return The record with the original payload.
+     */
+    private static PersistedString unescape(final PersistedString record) {
+        String payload = record.getPayload();
+        int i = payload.indexOf(ESCAPE);
+        if (i < 0) {
+            return record;
+        }
+
+        StringBuilder line = new StringBuilder(payload.length()).append(payload, 0, i);
+        for (; i < payload.length(); i++) {
+            char value = payload.charAt(i);
+            if (value == ESCAPE && i + 1 < payload.length()) {
+                i++;
+                line.append(switch (payload.charAt(i)) {
+                    case '0' -> '\0';
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> payload.charAt(i);
+                });
+            } else {
+                line.append(value);
+            }
+        }
+        return new PersistedString(record.getTimestamp(), line.toString());
+    }
+
+    /**
+     * Copies a record into the active segment, rolling over to a new segment if it is full.
+     *
+     * @param record The encoded record.
+     */
+    private void append(final byte[] record) {
+        this.reserve(record.length);
+        this.activeBuffer.put(record);
+    }
+
+    /**
+     * Rolls over to a new segment if a record of the given length does not fit into the active segment.
+     *
+     * @param length The length of the record.
+     * @return {@code true} if a new segment was started.
+     */
+    private boolean reserve(final int length) {
+        if (length <= this.activeBuffer.remaining()) {
+            return false;
+        }
+        try {
+            this.rollover();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to roll over segment: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Commits the records written since {@code start} according to the configured {@link Durability}.
+     *
+     * @param start The position in the active segment of the first record to commit.
+     */
+    private void commit(final int start) {
+        if (this.durability == Durability.FSYNC) {
+            this.activeBuffer.force(start, this.activeBuffer.position() - start);
+        }
+    }
+
+    /**
+     * Seals the active segment, opens the next one and applies the retention.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void rollover() throws IOException {
+        long next = this.activeIndex + 1;
+        this.sealActiveSegment();
+        this.openSegment(next);
+
+        if (this.maxSegments > 0) {
+            this.deleteOldestSegments(this.maxSegments);
+        }
+    }
+
+    /**
+     * Forces the active segment to the storage device and truncates it to its used length.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void sealActiveSegment() throws IOException {
+        int used = this.activeBuffer.position();
+        this.activeBuffer.force();
+        this.activeBuffer = null;
+        if (used == 0) {
+            // Do not leave empty segments behind
+            Files.deleteIfExists(this.activePath);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(this.activePath, StandardOpenOption.WRITE)) {
+            channel.truncate(used);
+        } catch (IOException e) {
+            throw new IOException("Failed to truncate segment " + this.activePath + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Maps the segment with the given index and positions the buffer after its last complete record.
+     *
+     * @param index The index of the segment.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void openSegment(final long index) throws IOException {
+        Path path = this.segmentPath(index);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+
+            // Discard an incomplete record at the end
+            int end = findEnd(buffer, this.segmentSize);
+            int position = end;
+            while (position > 0 && buffer.get(position - 1) != NEW_LINE) {
+                position--;
+            }
+            for (int i = position; i < end; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.position(position);
+
+            this.activeIndex = index;
+            this.activePath = path;
+            this.activeBuffer = buffer;
+        }
+    }
+
+    /**
+     * Returns the used part of a sealed segment for reading it without holding the lock.
+     *
+     * @param path The path of the segment.
+     * @return The used part of the segment, or an empty buffer if the segment has been deleted.
+     * @throws IllegalStateException if an I/O error occurs.
+     */
+    private static ByteBuffer readSealedSegment(final Path path) {
+        try {
+            return mapSealedSegment(path);
+        } catch (NoSuchFileException e) {
+            return ByteBuffer.allocate(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Maps a sealed segment read-only.
+     *
+     * @param path The path of the segment.
+     * @return A buffer whose limit is the first zero byte of the segment.
+     * @throws IOException if an I/O error occurs.
+     */
+    private static ByteBuffer mapSealedSegment(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int size = (int) channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return buffer.limit(findEnd(buffer, size));
+        }
+    }
+
+    /**
+     * Finds the end of the used part of a segment with a binary search for the first zero byte.
+     * This works because a segment consists of non-zero record bytes followed by zero padding.
+     *
+     * @param buffer The buffer of the segment.
+     * @param size The size of the segment.
+     * @return The position of the first zero byte, or {@code size} if the segment is full.
+     */
+    private static int findEnd(final MappedByteBuffer buffer, final int size) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.get(middle) == 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Lists the indices of all segments of the base path, oldest first.
+     *
+     * @return The sorted segment indices.
+     * @throws IOException if the directory could not be read.
+     */
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.basePath.getParent())) {
+            for (Path candidate : stream) {
+                Matcher matcher = this.segmentPattern.matcher(candidate.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Returns the path of the segment with the given index.
+     *
+     * @param index The index of the segment.
+     * @return The path of the segment file.
+     */
+    private Path segmentPath(final long index) {
+        return this.basePath.resolveSibling(String.format("%s.%010d%s", this.basePath.getFileName(), index,
+                SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Ensures that a file has been set.
+     */
+    private void ensureOpen() {
+        if (this.activeBuffer == null) {
+            throw new IllegalStateException("Failed to access segments: path not specified");
+        }
+    }
+
+    /**
+     * Finds the last occurrence of a byte at or before {@code from}.
+     *
+     * @param content The buffer to search.
+     * @param value The byte to find.
+     * @param from The position to start at.
+     * @return The position of the byte, or {@code -1} if it does not occur.
+     */
+    private static int lastIndexOf(final ByteBuffer content, final byte value, final int from) {
+        for (int i = from; i >= 0; i--) {
+            if (content.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The segments of the persistor at a point in time.
+     *
+     * @param sealed The paths of the sealed segments, oldest first.
+     * @param active The used part of the active segment, which is the newest one.
+     */
+    private record Snapshot(List<Path> sealed, ByteBuffer active) {
+    }
+}
@@ -2,32 +2,185 @@ package ch.hslu.vsk.stringpersistor.impl;
 
 import ch.hslu.vsk.stringpersistor.api.PersistedString;
 import ch.hslu.vsk.stringpersistor.api.StringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.IndexedStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.StreamingStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.TailableStringPersistor;
+import ch.hslu.vsk.stringpersistor.ext.Utf8Lines;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of the {@link StringPersistor} interface for saving and retrieving strings to a file.
  * This implementation uses a simple comma-separated format to persist strings along with their timestamp.
  * The class supports appending new entries to the file and retrieving them efficiently.
+ * <p>
+ * Writing is thread-safe. Every call to {@link #save(Instant, String)} or {@link #saveAll(List)} is committed
+ * according to the configured {@link Durability} (default {@link Durability#FLUSH}), so
+ * {@link #saveAll(List)} commits many strings at the cost of a single commit.
+ * </p>
+ * <p>
+ * Reading does not lock the file: {@link #stream()} reads the lines up to the length the file had when the stream
+ * was created, so the file can be read while strings are being saved. {@link #getLast(int)} reads the file
+ * backwards from that length in blocks, so the newest lines are found without reading the whole file.
+ * </p>
+ * <p>
+ * Optionally, a sparse index of the timestamps is maintained in a file next to the log (see
+ * {@link #setTimeIndex(boolean)}), so {@link #stream(Instant, Instant)} only reads the parts of the file which
+ * may contain strings of the requested time range. Likewise, an inverted index of keys passed with the strings can
+ * be maintained (see {@link #setKeyIndex(boolean)}), so {@link #streamMatching(String...)} only reads the strings
+ * saved with the requested keys.
+ * </p>
  */
-public class StringPersistorFile implements StringPersistor, AutoCloseable {
+public class StringPersistorFile implements IndexedStringPersistor, StreamingStringPersistor, TailableStringPersistor,
+        AutoCloseable {
 
-    private Path path;
+    // Read without synchronization by stream()
+    private volatile Path path;
     public static final String DELIMITER = ",";
 
+    // Channel of the file, used to force the written data to the storage device
+    private FileChannel channel;
+
     // File writer for saving strings
     private BufferedWriter writer;
 
+    // Defines how a write is committed
+    private volatile Durability durability = Durability.FLUSH;
+
+    // Line separator written by the writer, for lines written as bytes
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    // Initial size of the buffer used by saveAllUtf8
+    private static final int RECORD_BUFFER_SIZE = 64 * 1024;
+
+    // Buffer in which lines saved as bytes are assembled before they are written to the channel
+    private ByteBuffer recordBuffer;
+
+    // Size of the blocks in which getLast reads the file backwards
+    private static final int TAIL_BLOCK_SIZE = 16 * 1024;
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    // Whether the timestamps are indexed
+    private boolean timeIndexEnabled;
+
+    // Index of the timestamps of the current file, null if disabled; read without synchronization by stream
+    private volatile TimeIndex timeIndex;
+
+    // Whether the keys are indexed
+    private boolean keyIndexEnabled;
+
+    // Index of the keys of the current file, null if disabled; read without synchronization by streamMatching
+    private volatile KeyIndex keyIndex;
+
+    // Size of the file before the current commit and after the lines written so far, if the keys are indexed
+    private long commitStart;
+    private long commitEnd;
+
+    /**
+     * Sets the durability which is used to commit written strings.
+     *
+     * @param durability The {@link Durability} to use; must not be null.
+     * @throws IllegalArgumentException if {@code durability} is {@code null}.
+     */
+    public void setDurability(final Durability durability) {
+        if (durability == null) {
+            throw new IllegalArgumentException("Durability must not be null");
+        }
+        this.durability = durability;
+    }
+
+    /**
+     * Returns the durability which is used to commit written strings.
+     *
+     * @return The configured {@link Durability}.
+     */
+    public Durability getDurability() {
+        return this.durability;
+    }
+
+    /**
+     * Enables or disables the index of the timestamps. If enabled, the index is kept in a file next to the log
+     * file ({@code <file>.idx}); a missing or outdated index is rebuilt from the log file, which reads the whole
+     * file once. The index contains the timestamps passed to {@link #save(Instant, String)}, i.e. usually the time
+     * the strings were saved.
+     *
+     * @param enabled {@code true} to maintain the index.
+     * @throws IllegalStateException if the index could not be opened.
+     */
+    public synchronized void setTimeIndex(final boolean enabled) {
+        this.timeIndexEnabled = enabled;
+        if (!enabled) {
+            this.closeTimeIndex();
+        } else if (this.timeIndex == null && this.writer != null) {
+            try {
+                this.writer.flush();
+                this.timeIndex = TimeIndex.open(this.path, this.channel.size());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open time index: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns whether the timestamps are indexed.
+     *
+     * @return {@code true} if the index is maintained.
+     */
+    public synchronized boolean isTimeIndex() {
+        return this.timeIndexEnabled;
+    }
+
+    /**
+     * Enables or disables the index of the keys passed to {@link #saveAll(List, List)} and
+     * {@link #saveAllUtf8(Instant, ByteBuffer, int[], int, String[][])}. If enabled, the index is kept in a file
+     * next to the log file ({@code <file>.keys}). Lines saved while the index is disabled are not indexed and
+     * are part of the result of every query.
+     *
+     * @param enabled {@code true} to maintain the index.
+     * @throws IllegalStateException if the index could not be opened.
+     */
+    public synchronized void setKeyIndex(final boolean enabled) {
+        this.keyIndexEnabled = enabled;
+        if (!enabled) {
+            this.closeKeyIndex();
+        } else if (this.keyIndex == null && this.writer != null) {
+            try {
+                this.writer.flush();
+                this.keyIndex = KeyIndex.open(this.path, this.channel.size());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open key index: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns whether the keys are indexed.
+     *
+     * @return {@code true} if the index is maintained.
+     */
+    @Override
+    public boolean isKeyIndexed() {
+        return this.keyIndex != null;
+    }
+
     /**
      * Sets the file path where strings will be saved.
      * 
@@ -38,7 +191,7 @@ public class StringPersistorFile implements StringPersistor, AutoCloseable {
      * @throws IllegalArgumentException if the path is invalid.
      */
     @Override
-    public void setFile(Path path) {
+    public synchronized void setFile(Path path) {
         this.path = path;
 
 		// Close previous handle
@@ -61,7 +214,14 @@ public class StringPersistorFile implements StringPersistor, AutoCloseable {
 			}
 
             // Open the file for appending
-            this.writer = Files.newBufferedWriter(path, StandardOpenOption.APPEND, StandardOpenOption.CREATE);
+            this.channel = FileChannel.open(path, StandardOpenOption.APPEND, StandardOpenOption.CREATE);
+            this.writer = new BufferedWriter(Channels.newWriter(this.channel, StandardCharsets.UTF_8));
+            if (this.timeIndexEnabled) {
+                this.timeIndex = TimeIndex.open(path, this.channel.size());
+            }
+            if (this.keyIndexEnabled) {
+                this.keyIndex = KeyIndex.open(path, this.channel.size());
+            }
         } catch (IOException e) {
             throw new IllegalStateException("Failed to set file: " + e.getMessage());
         }
@@ -79,7 +239,7 @@ public class StringPersistorFile implements StringPersistor, AutoCloseable {
      * @throws IllegalStateException if the file path is not set or an I/O error occurs.
      */
     @Override
-    public void save(Instant instant, String line) {
+    public synchronized void save(Instant instant, String line) {
         if (instant == null || line == null) {
             throw new IllegalArgumentException("Instant and line must not be null");
         }
@@ -88,15 +248,274 @@ public class StringPersistorFile implements StringPersistor, AutoCloseable {
         }
 
         try {
-            String serializedLine = instant.toString() + DELIMITER + line;
-            writer.write(serializedLine);
-			writer.newLine();
-            writer.flush();
+            this.beginCommit();
+            this.write(instant, line, null);
+            this.commit();
         } catch (IOException e) {
             throw new IllegalStateException("Failed to save line: " + e.getMessage());
         }
     }
 
+    /**
+     * Saves all given strings along with their timestamps to the specified file and commits them with a single
+     * flush (or fsync, depending on the configured {@link Durability}).
+     *
+     * @param entries The strings to save; must not be null and must not contain null entries.
+     * @throws IllegalArgumentException if {@code entries}, an entry or one of its values is {@code null}.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public synchronized void saveAll(List<PersistedString> entries) {
+        this.saveEntries(entries, null);
+    }
+
+    /**
+     * Saves all given strings along with their timestamps and keys and commits them with a single flush (or
+     * fsync). If the index of the keys is enabled, the offsets of the lines are added to the postings lists of
+     * their keys.
+     *
+     * @param entries The strings to save; must not be null and must not contain null entries.
+     * @param keys The keys of the strings, one array per string; an array may be null if a string has no keys.
+     * @throws IllegalArgumentException if {@code entries}, an entry or one of its values is {@code null}, or the
+     *                                  number of key arrays does not match the number of strings.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public synchronized void saveAll(final List<PersistedString> entries, final List<String[]> keys) {
+        if (keys == null || entries != null && keys.size() != entries.size()) {
+            throw new IllegalArgumentException("Keys must be given for every entry");
+        }
+        this.saveEntries(entries, keys);
+    }
+
+    /**
+     * Saves and commits strings.
+     *
+     * @param entries The strings to save.
+     * @param keys The keys of the strings, or null if they have no keys.
+     */
+    private void saveEntries(final List<PersistedString> entries, final List<String[]> keys) {
+        if (entries == null) {
+            throw new IllegalArgumentException("Entries must not be null");
+        }
+        for (PersistedString entry : entries) {
+            if (entry == null || entry.getTimestamp() == null || entry.getPayload() == null) {
+                throw new IllegalArgumentException("Instant and line must not be null");
+            }
+        }
+        if (this.path == null) {
+            throw new IllegalStateException("Failed to save lines: path not specified");
+        }
+
+        try {
+            this.beginCommit();
+            for (int i = 0; i < entries.size(); i++) {
+                PersistedString entry = entries.get(i);
+                this.write(entry.getTimestamp(), entry.getPayload(), keys != null ? keys.get(i) : null);
+            }
+            this.commit();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to save lines: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves UTF-8 encoded strings which share the same timestamp and commits them with a single flush (or fsync).
+     * The lines are written directly to the file channel in the same format as {@link #saveAll(List)}, without
+     * decoding them.
+     *
+     * @param instant The timestamp of all strings; must not be null.
+     * @param lines The encoded strings; must not be null.
+     * @param lineEnds The end offsets of the strings in {@code lines}.
+     * @param count The number of strings.
+     * @throws IllegalArgumentException if an argument is null or the offsets are invalid.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public synchronized void saveAllUtf8(final Instant instant, final ByteBuffer lines, final int[] lineEnds,
+                                         final int count) {
+        this.saveEncoded(instant, lines, lineEnds, count, null);
+    }
+
+    /**
+     * Saves UTF-8 encoded strings with their keys, like {@link #saveAllUtf8(Instant, ByteBuffer, int[], int)}.
+     *
+     * @param instant The timestamp of all strings; must not be null.
+     * @param lines The encoded strings; must not be null.
+     * @param lineEnds The end offsets of the strings in {@code lines}.
+     * @param count The number of strings.
+     * @param keys The keys of the strings, one array per string, which may be null if a string has no keys.
+     * @throws IllegalArgumentException if an argument is null or the offsets are invalid.
+     * @throws IllegalStateException if the file path is not set or an I/O error occurs.
+     */
+    @Override
+    public synchronized void saveAllUtf8(final Instant instant, final ByteBuffer lines, final int[] lineEnds,
+                                         final int count, final String[][] keys) {
+        if (keys == null || keys.length < count) {
+            throw new IllegalArgumentException("Keys must be given for every line");
+        }
+        this.saveEncoded(instant, lines, lineEnds, count, keys);
+    }
+
+    /**
+     * Writes encoded strings directly to the channel and commits them.
+     *
+     * @param instant The timestamp of all strings.
+     * @param lines The encoded strings.
+     * @param lineEnds The end offsets of the strings in {@code lines}.
+     * @param count The number of strings.
+     * @param keys The keys of the strings, or null if they have no keys.
+     */
+    private void saveEncoded(final Instant instant, final ByteBuffer lines, final int[] lineEnds, final int count,
+                             final String[][] keys) {
+        Utf8Lines.check(instant, lines, lineEnds, count);
+        if (this.path == null) {
+            throw new IllegalStateException("Failed to save lines: path not specified");
+        }
+
+        byte[] prefix = (instant + DELIMITER).getBytes(StandardCharsets.UTF_8);
+        try {
+            // Lines saved as strings have to be written before
+            this.writer.flush();
+            this.beginCommit();
+            ByteBuffer buffer = this.recordBuffer != null ? this.recordBuffer : ByteBuffer.allocate(RECORD_BUFFER_SIZE);
+            buffer.clear();
+
+            int start = lines.position();
+            for (int i = 0; i < count; i++) {
+                int length = lineEnds[i] - start;
+                int recordLength = prefix.length + length + LINE_SEPARATOR.length;
+                if (recordLength > buffer.remaining()) {
+                    this.drain(buffer);
+                    if (recordLength > buffer.capacity()) {
+                        buffer = ByteBuffer.allocate(recordLength);
+                    }
+                }
+                buffer.put(prefix);
+                if (this.timeIndex != null) {
+                    this.timeIndex.add(instant);
+                }
+                if (this.keyIndex != null) {
+                    this.keyIndex.add(this.commitEnd, keys != null ? keys[i] : null);
+                    this.commitEnd += recordLength;
+                }
+                buffer.put(buffer.position(), lines, start, length);
+                buffer.position(buffer.position() + length);
+                buffer.put(LINE_SEPARATOR);
+                start = lineEnds[i];
+            }
+            this.drain(buffer);
+            this.recordBuffer = buffer;
+            this.commit();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to save lines: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the channel and clears it.
+     *
+     * @param buffer The buffer in write mode.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void drain(final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes a single line into the buffer of the writer without committing it.
+     *
+     * @param instant The timestamp of the line.
+     * @param line The content of the line.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void write(final Instant instant, final String line, final String[] keys) throws IOException {
+        String timestamp = instant.toString();
+        this.writer.write(timestamp);
+        this.writer.write(DELIMITER);
+        this.writer.write(line);
+        this.writer.newLine();
+        if (this.timeIndex != null) {
+            this.timeIndex.add(instant);
+        }
+        if (this.keyIndex != null) {
+            this.keyIndex.add(this.commitEnd, keys);
+            this.commitEnd += timestamp.length() + DELIMITER.length() + utf8Length(line) + LINE_SEPARATOR.length;
+        }
+    }
+
+    /**
+     * Returns the length of the UTF-8 encoding of a string. Unpaired surrogates are counted as one byte; the writer
+     * rejects them anyway.
+     *
+     * @param value The string.
+     * @return The number of bytes.
+     */
+    static int utf8Length(final String value) {
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // Four bytes for two chars
+                    length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Prepares the index of the keys for a commit: the lines of the commit are written after the current end of
+     * the file.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void beginCommit() throws IOException {
+        if (this.keyIndex != null) {
+            this.keyIndex.reset();
+            this.commitStart = this.channel.size();
+            this.commitEnd = this.commitStart;
+        }
+    }
+
+    /**
+     * Commits all written lines according to the configured {@link Durability}.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void commit() throws IOException {
+        this.writer.flush();
+        if (this.durability == Durability.FSYNC) {
+            this.channel.force(false);
+        }
+        if (this.timeIndex == null && this.keyIndex == null) {
+            return;
+        }
+        long size = this.channel.size();
+        if (this.timeIndex != null) {
+            this.timeIndex.committed(size);
+        }
+        if (this.keyIndex != null) {
+            if (size == this.commitEnd) {
+                this.keyIndex.committed(this.commitStart, size);
+            } else {
+                // The lines were not written where they were expected, e.g. after a failed write
+                this.keyIndex.skipped(size);
+            }
+        }
+    }
+
     /**
      * Retrieves up to a specified number of lines from the file.
      * 
@@ -113,24 +532,256 @@ public class StringPersistorFile implements StringPersistor, AutoCloseable {
             return Collections.emptyList();
         }
 
-        if (this.path == null) {
+        try (Stream<PersistedString> lines = this.stream()) {
+            return lines.limit(i).toList();
+        }
+    }
+
+    /**
+     * Returns all lines of the file as a lazily parsed stream. Only the lines which were completely written when
+     * this method was called are read; lines saved afterwards are not part of the stream. No lock is held while
+     * the stream is consumed, so saving is not blocked.
+     *
+     * @return The lines of the file in the order they were saved; has to be closed.
+     * @throws IllegalStateException if the file path is not set or the file could not be opened.
+     */
+    @Override
+    public Stream<PersistedString> stream() {
+        Path file = this.path;
+        if (file == null) {
+            throw new IllegalStateException("Failed to get line: path not specified");
+        }
+
+        FileChannel reader;
+        long length;
+        try {
+            reader = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+        try {
+            // The snapshot of the stream
+            length = reader.size();
+        } catch (IOException e) {
+            closeQuietly(reader);
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+        return StreamSupport.stream(new RecordSpliterator(reader, length), false).onClose(() -> closeQuietly(reader));
+    }
+
+    /**
+     * Returns the lines whose timestamp lies between {@code from} and {@code to} (both inclusive) as a lazily
+     * parsed stream, like {@link #stream()}. If the timestamps are indexed, only the parts of the file which may
+     * contain such lines are read; otherwise the whole file is filtered.
+     *
+     * @param from The earliest timestamp to return; must not be null.
+     * @param to The latest timestamp to return; must not be null.
+     * @return The matching lines in the order they were saved; has to be closed.
+     * @throws IllegalArgumentException if {@code from} or {@code to} is {@code null} or {@code from} is after
+     *                                  {@code to}.
+     * @throws IllegalStateException if the file path is not set or the file could not be opened.
+     */
+    @Override
+    public Stream<PersistedString> stream(final Instant from, final Instant to) {
+        StreamingStringPersistor.checkRange(from, to);
+        TimeIndex index = this.timeIndex;
+        if (index == null) {
+            return StreamingStringPersistor.super.stream(from, to);
+        }
+        Path file = this.path;
+
+        FileChannel reader;
+        long[] ranges;
+        try {
+            reader = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+        try {
+            ranges = index.ranges(from, to, reader.size());
+        } catch (IOException e) {
+            closeQuietly(reader);
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+        // The ranges are read one after the other, each when the previous one has been consumed
+        return IntStream.range(0, ranges.length / 2)
+                .boxed()
+                .flatMap(i -> StreamSupport.stream(readRange(reader, ranges[2 * i], ranges[2 * i + 1]), false))
+                .filter(entry -> StreamingStringPersistor.isInRange(entry, from, to))
+                .onClose(() -> closeQuietly(reader));
+    }
+
+    /**
+     * Creates a reader for a range of the file.
+     *
+     * @param reader The channel of the file.
+     * @param start The start of the range.
+     * @param end The end of the range.
+     * @return The reader for the lines of the range.
+     * @throws IllegalStateException if an I/O error occurs.
+     */
+    private static RecordSpliterator readRange(final FileChannel reader, final long start, final long end) {
+        try {
+            reader.position(start);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+        return new RecordSpliterator(reader, end - start);
+    }
+
+    /**
+     * Returns the lines which were saved with all given keys, and the lines whose keys are unknown because they
+     * were saved while the index was disabled, as a lazily parsed stream. Only these lines are read from the file;
+     * like {@link #stream()}, the stream covers the lines written when it was created and does not lock the file.
+     *
+     * @param keys The keys the lines must have; must not be null or empty.
+     * @return The candidate lines in the order they were saved; has to be closed.
+     * @throws IllegalArgumentException if no keys are given or a key is {@code null}.
+     * @throws IllegalStateException if the index of the keys is disabled or the file could not be opened.
+     */
+    @Override
+    public Stream<PersistedString> streamMatching(final String... keys) {
+        if (keys == null || keys.length == 0 || Arrays.asList(keys).contains(null)) {
+            throw new IllegalArgumentException("Keys must not be null or empty");
+        }
+        KeyIndex index = this.keyIndex;
+        if (index == null) {
+            throw new IllegalStateException("Failed to read logs: key index not enabled");
+        }
+        Path file = this.path;
+
+        FileChannel reader;
+        try {
+            reader = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+        long length;
+        try {
+            length = reader.size();
+        } catch (IOException e) {
+            closeQuietly(reader);
+            throw new IllegalStateException("Failed to read logs: " + e.getMessage());
+        }
+        // Lines committed after the snapshot of the length are not part of the stream
+        long[] offsets = index.offsets(keys);
+        int count = offsets.length;
+        while (count > 0 && offsets[count - 1] >= length) {
+            count--;
+        }
+        OffsetRecordSpliterator lines = new OffsetRecordSpliterator(reader, Arrays.copyOf(offsets, count),
+                index.gaps(length));
+        return StreamSupport.stream(lines, false).onClose(() -> closeQuietly(reader));
+    }
+
+    /**
+     * Retrieves up to the specified number of the newest lines. The file is read backwards in blocks from the
+     * length it had when this method was called, until enough lines have been found, so the cost does not depend
+     * on the size of the file. An incomplete line at the end of the file is ignored.
+     *
+     * @param count The maximum number of lines to retrieve.
+     * @return The newest lines in the order they were saved.
+     * @throws IllegalStateException if the file path is not set, an I/O error occurs or a line is malformed.
+     */
+    @Override
+    public List<PersistedString> getLast(final int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        Path file = this.path;
+        if (file == null) {
             throw new IllegalStateException("Failed to get line: path not specified");
         }
 
-        try (Stream<String> linesStream = Files.lines(this.path)) {
-            // Limit the stream to the specified number of lines
-            Stream<String> limitedStream = (i == Integer.MAX_VALUE) ? linesStream : linesStream.limit(i);
+        List<PersistedString> result = new ArrayList<>();
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer block = ByteBuffer.allocate(TAIL_BLOCK_SIZE);
+            long blockStart = reader.size();
+
+            // The part of the current line which was read with the following blocks
+            byte[] rest = NO_BYTES;
+            // The bytes after the last line break do not belong to a complete line
+            boolean complete = false;
+
+            while (blockStart > 0 && result.size() < count) {
+                int length = (int) Math.min(TAIL_BLOCK_SIZE, blockStart);
+                blockStart -= length;
+                block.clear().limit(length);
+                while (block.hasRemaining()) {
+                    if (reader.read(block, blockStart + block.position()) < 0) {
+                        throw new IllegalStateException("Failed to read logs: file was truncated");
+                    }
+                }
 
-            // Convert each line to PersistedString and collect into a list
-            return limitedStream
-                    .map(line -> {
-                        String[] split = line.split(DELIMITER, 2);
-                        return new PersistedString(Instant.parse(split[0]), split[1]);
-                    })
-                    .collect(Collectors.toList()); // Collect to list in memory
+                byte[] bytes = block.array();
+                int lineEnd = length;
+                for (int i = length - 1; i >= 0 && result.size() < count; i--) {
+                    if (bytes[i] != '\n') {
+                        continue;
+                    }
+                    if (complete) {
+                        result.add(parseLine(bytes, i + 1, lineEnd, rest));
+                    }
+                    complete = true;
+                    rest = NO_BYTES;
+                    lineEnd = i;
+                }
+                if (result.size() < count) {
+                    rest = concat(bytes, lineEnd, rest);
+                }
+            }
+            if (blockStart == 0 && complete && result.size() < count) {
+                // The first line of the file
+                result.add(parseLine(rest, 0, rest.length, NO_BYTES));
+            }
         } catch (IOException e) {
             throw new IllegalStateException("Failed to read logs: " + e.getMessage());
         }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Parses a line which consists of a range of a block and the rest read with the following blocks.
+     *
+     * @param bytes The block.
+     * @param start The start of the line in the block.
+     * @param end The end of the range in the block.
+     * @param rest The rest of the line, without its line break.
+     * @return The parsed line.
+     */
+    private static PersistedString parseLine(final byte[] bytes, final int start, final int end, final byte[] rest) {
+        byte[] line = Arrays.copyOfRange(bytes, start, end + rest.length);
+        System.arraycopy(rest, 0, line, end - start, rest.length);
+        int length = line.length > 0 && line[line.length - 1] == '\r' ? line.length - 1 : line.length;
+        return RecordSpliterator.parse(ByteBuffer.wrap(line), 0, length);
+    }
+
+    /**
+     * Prepends the start of a block to the rest of a line.
+     *
+     * @param bytes The block.
+     * @param length The number of bytes at the start of the block which belong to the line.
+     * @param rest The rest of the line.
+     * @return The joined bytes.
+     */
+    private static byte[] concat(final byte[] bytes, final int length, final byte[] rest) {
+        byte[] joined = Arrays.copyOf(bytes, length + rest.length);
+        System.arraycopy(rest, 0, joined, length, rest.length);
+        return joined;
+    }
+
+    /**
+     * Closes a channel which was only read from.
+     *
+     * @param reader The channel to close.
+     */
+    private static void closeQuietly(final FileChannel reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            System.out.println("Error while closing reader");
+        }
     }
 
     /**
@@ -140,7 +791,7 @@ public class StringPersistorFile implements StringPersistor, AutoCloseable {
      * 
      * @throws IllegalStateException if an I/O error occurs during the closing of the writer.
      */
-    public void closeWriter() {
+    public synchronized void closeWriter() {
         try {
             if (writer != null) {
                 writer.close();
@@ -152,7 +803,7 @@ public class StringPersistorFile implements StringPersistor, AutoCloseable {
 
 
 	@Override
-	public void close() {
+	public synchronized void close() {
 		if (this.writer != null) {
 			try {
 				this.writer.close();
@@ -160,5 +811,27 @@ public class StringPersistorFile implements StringPersistor, AutoCloseable {
 				System.out.println("Error while closing writer");
 			}
 		}
+		this.closeTimeIndex();
+		this.closeKeyIndex();
+	}
+
+	/**
+	 * Closes the index of the keys, if it is open.
+	 */
+	private void closeKeyIndex() {
+		if (this.keyIndex != null) {
+			this.keyIndex.close();
+			this.keyIndex = null;
+		}
+	}
+
+	/**
+	 * Closes the index of the timestamps, if it is open.
+	 */
+	private void closeTimeIndex() {
+		if (this.timeIndex != null) {
+			this.timeIndex.close();
+			this.timeIndex = null;
+		}
 	}
 }
\ No newline at end of file
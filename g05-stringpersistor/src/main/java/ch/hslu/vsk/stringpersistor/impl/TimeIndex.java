@@ -0,0 +1,351 @@
+package ch.hslu.vsk.stringpersistor.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * A sparse index of the timestamps of the records in a {@link StringPersistorFile}, stored in a sidecar file next
+ * to it ({@code <file>.idx}).
+ * <p>
+ * The records are grouped into buckets of at least {@link #RECORDS_PER_BUCKET} records; a bucket ends at the end
+ * of a commit, so it always contains complete records. For every closed bucket, the index stores its byte range
+ * in the file and the smallest and largest timestamp (in epoch milliseconds) of its records. The records are not
+ * strictly ordered by their timestamps (concurrent writers take their timestamps before they write), so a query
+ * reads every bucket whose timestamp range overlaps the requested one, plus the records after the last closed
+ * bucket, and filters the records by their timestamps.
+ * </p>
+ * <p>
+ * The sidecar is only appended to and never forced to the storage device. When the index is opened, entries which
+ * do not match the file are discarded and the records after the last valid entry are indexed again, so a lost or
+ * outdated sidecar is rebuilt from the file. This class is thread-safe.
+ * </p>
+ */
+final class TimeIndex implements AutoCloseable {
+
+    /**
+     * Suffix of the sidecar file.
+     */
+    static final String SUFFIX = ".idx";
+
+    /**
+     * Minimum number of records in a bucket.
+     */
+    static final int RECORDS_PER_BUCKET = 4096;
+
+    /**
+     * Size of an entry: start and end offset, smallest and largest timestamp.
+     */
+    private static final int ENTRY_SIZE = 4 * Long.BYTES;
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final FileChannel sidecar;
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+
+    // The closed buckets, in the order of the file
+    private long[] starts = new long[64];
+    private long[] ends = new long[64];
+    private long[] minMillis = new long[64];
+    private long[] maxMillis = new long[64];
+    private int size;
+
+    // The bucket which is currently written
+    private long bucketStart;
+    private int bucketRecords;
+    private long bucketMinMillis = Long.MAX_VALUE;
+    private long bucketMaxMillis = Long.MIN_VALUE;
+
+    /**
+     * Creates an index with an opened sidecar.
+     *
+     * @param path The path of the sidecar.
+     * @param sidecar The sidecar, opened for reading and writing.
+     */
+    private TimeIndex(final Path path, final FileChannel sidecar) {
+        this.path = path;
+        this.sidecar = sidecar;
+    }
+
+    /**
+     * Opens the index of a file and brings it up to date with the first {@code fileSize} bytes of the file.
+     *
+     * @param file The indexed file.
+     * @param fileSize The size of the file.
+     * @return The opened index.
+     * @throws IOException if the file or the sidecar could not be read or written.
+     */
+    static TimeIndex open(final Path file, final long fileSize) throws IOException {
+        Path path = file.resolveSibling(file.getFileName() + SUFFIX);
+        FileChannel sidecar = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        TimeIndex index = new TimeIndex(path, sidecar);
+        try {
+            index.load(fileSize);
+            index.scan(file, fileSize);
+        } catch (IOException e) {
+            sidecar.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the path of the sidecar.
+     *
+     * @return The path of the sidecar file.
+     */
+    Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Adds a record to the current bucket.
+     *
+     * @param timestamp The timestamp of the record.
+     */
+    synchronized void add(final Instant timestamp) {
+        this.addMillis(toMillis(timestamp));
+    }
+
+    /**
+     * Marks the end of a commit. If the current bucket holds enough records, it is closed at the end of the commit.
+     *
+     * @param end The size of the file after the commit.
+     * @throws IOException if the sidecar could not be written.
+     */
+    synchronized void committed(final long end) throws IOException {
+        if (this.bucketRecords < RECORDS_PER_BUCKET) {
+            return;
+        }
+        this.entry.clear().putLong(this.bucketStart).putLong(end).putLong(this.bucketMinMillis)
+                .putLong(this.bucketMaxMillis).flip();
+        while (this.entry.hasRemaining()) {
+            this.sidecar.write(this.entry, (long) this.size * ENTRY_SIZE + this.entry.position());
+        }
+        this.closeBucket(end);
+    }
+
+    /**
+     * Returns the byte ranges of the file which may contain records with a timestamp between {@code from} and
+     * {@code to} (inclusive). Adjacent ranges are merged.
+     *
+     * @param from The start of the time range.
+     * @param to The end of the time range.
+     * @param fileSize The current size of the file.
+     * @return The start and end offsets of the ranges, alternating.
+     */
+    synchronized long[] ranges(final Instant from, final Instant to, final long fileSize) {
+        if (fileSize < this.bucketStart) {
+            // The file has been truncated since the index was built
+            return new long[] {0, fileSize};
+        }
+
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        long[] ranges = new long[8];
+        int count = 0;
+        for (int i = 0; i <= this.size; i++) {
+            long start = i < this.size ? this.starts[i] : this.bucketStart;
+            long end = i < this.size ? this.ends[i] : fileSize;
+            boolean overlaps = i == this.size
+                    || this.minMillis[i] <= toMillis && this.maxMillis[i] >= fromMillis;
+            if (!overlaps || start == end) {
+                continue;
+            }
+            if (count > 0 && ranges[count - 1] == start) {
+                ranges[count - 1] = end;
+                continue;
+            }
+            if (count == ranges.length) {
+                ranges = Arrays.copyOf(ranges, count * 2);
+            }
+            ranges[count++] = start;
+            ranges[count++] = end;
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * Closes the sidecar. If it cannot be closed, its last entries may not have been written, so it is deleted and
+     * rebuilt from the file when the index is opened the next time.
+     *
+     * @throws IllegalStateException if the sidecar could neither be closed nor deleted.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            this.sidecar.close();
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(this.path);
+            } catch (IOException deleteFailure) {
+                e.addSuppressed(deleteFailure);
+                throw new IllegalStateException("Failed to close time index: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Reads the entries of the sidecar which match the file. The entries must be contiguous from the start of
+     * the file and must not exceed its size; the sidecar is truncated after the last valid entry.
+     *
+     * @param fileSize The size of the file.
+     * @throws IOException if the sidecar could not be read.
+     */
+    private void load(final long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE * 1024);
+        long position = 0;
+        boolean valid = true;
+        while (valid && this.sidecar.read(buffer.clear(), position) > 0) {
+            buffer.flip();
+            while (buffer.remaining() >= ENTRY_SIZE) {
+                long start = buffer.getLong();
+                long end = buffer.getLong();
+                long min = buffer.getLong();
+                long max = buffer.getLong();
+                if (start != this.bucketStart || end <= start || end > fileSize || min > max) {
+                    valid = false;
+                    break;
+                }
+                this.append(start, end, min, max);
+                this.bucketStart = end;
+            }
+            position = (long) this.size * ENTRY_SIZE;
+        }
+        this.sidecar.truncate((long) this.size * ENTRY_SIZE);
+    }
+
+    /**
+     * Indexes the records of the file after the last entry.
+     *
+     * @param file The indexed file.
+     * @param fileSize The size of the file.
+     * @throws IOException if the file or the sidecar could not be read or written.
+     */
+    private void scan(final Path file, final long fileSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long position = this.bucketStart;
+            // Offset of the first byte in the buffer
+            long bufferOffset = position;
+            while (position < fileSize) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+
+                int lineStart = 0;
+                for (int i = 0; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == '\n') {
+                        this.addMillis(parseMillis(buffer, lineStart, i));
+                        this.committed(bufferOffset + i + 1);
+                        lineStart = i + 1;
+                    }
+                }
+                buffer.position(lineStart);
+                buffer.compact();
+                bufferOffset += lineStart;
+                if (!buffer.hasRemaining()) {
+                    // A single record is larger than the buffer
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the timestamp of a record.
+     *
+     * @param buffer The buffer containing the record.
+     * @param start The start of the record.
+     * @param end The end of the record.
+     * @return The timestamp in epoch milliseconds, or {@link Long#MIN_VALUE} if the record is malformed, so it is
+     *         part of every query which reads its bucket.
+     */
+    private static long parseMillis(final ByteBuffer buffer, final int start, final int end) {
+        int delimiter = start;
+        while (delimiter < end && buffer.get(delimiter) != ',') {
+            delimiter++;
+        }
+        byte[] bytes = new byte[delimiter - start];
+        buffer.get(start, bytes);
+        try {
+            return toMillis(Instant.parse(new String(bytes, StandardCharsets.US_ASCII)));
+        } catch (DateTimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Adds a record to the current bucket.
+     *
+     * @param millis The timestamp of the record in epoch milliseconds.
+     */
+    private void addMillis(final long millis) {
+        this.bucketRecords++;
+        this.bucketMinMillis = Math.min(this.bucketMinMillis, millis);
+        this.bucketMaxMillis = Math.max(this.bucketMaxMillis, millis);
+    }
+
+    /**
+     * Closes the current bucket and starts the next one.
+     *
+     * @param end The end of the current bucket.
+     */
+    private void closeBucket(final long end) {
+        this.append(this.bucketStart, end, this.bucketMinMillis, this.bucketMaxMillis);
+        this.bucketStart = end;
+        this.bucketRecords = 0;
+        this.bucketMinMillis = Long.MAX_VALUE;
+        this.bucketMaxMillis = Long.MIN_VALUE;
+    }
+
+    /**
+     * Appends an entry to the closed buckets.
+     *
+     * @param start The start of the bucket.
+     * @param end The end of the bucket.
+     * @param min The smallest timestamp of the bucket.
+     * @param max The largest timestamp of the bucket.
+     */
+    private void append(final long start, final long end, final long min, final long max) {
+        if (this.size == this.starts.length) {
+            int capacity = this.size * 2;
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.ends = Arrays.copyOf(this.ends, capacity);
+            this.minMillis = Arrays.copyOf(this.minMillis, capacity);
+            this.maxMillis = Arrays.copyOf(this.maxMillis, capacity);
+        }
+        this.starts[this.size] = start;
+        this.ends[this.size] = end;
+        this.minMillis[this.size] = min;
+        this.maxMillis[this.size] = max;
+        this.size++;
+    }
+
+    /**
+     * Converts a timestamp to epoch milliseconds, rounded down and saturated for timestamps which cannot be
+     * represented.
+     *
+     * @param timestamp The timestamp.
+     * @return The timestamp in epoch milliseconds.
+     */
+    private static long toMillis(final Instant timestamp) {
+        try {
+            return timestamp.toEpochMilli();
+        } catch (ArithmeticException e) {
+            return timestamp.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+}
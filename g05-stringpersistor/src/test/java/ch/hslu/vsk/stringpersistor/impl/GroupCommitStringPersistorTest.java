@@ -0,0 +1,169 @@
+package ch.hslu.vsk.stringpersistor.impl;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link GroupCommitStringPersistor} class.
+ */
+class GroupCommitStringPersistorTest {
+
+	/**
+	 * Default path used for testing purposes.
+	 */
+	private static final Path DEFAULT_PATH = Path.of("./group-commit.test.log");
+
+	/**
+	 * Creates a group commit persistor writing to the default path.
+	 * @return a configured {@code GroupCommitStringPersistor} instance.
+	 */
+	private GroupCommitStringPersistor getDefaultPersistor() {
+		StringPersistorFile file = new StringPersistorFile();
+		file.setFile(DEFAULT_PATH);
+		return new GroupCommitStringPersistor(file, Duration.ofMillis(1), 256);
+	}
+
+	/**
+	 * Cleans up by deleting the test file after each test execution.
+	 */
+	@AfterEach
+	public void afterEach() throws IOException {
+		Files.deleteIfExists(DEFAULT_PATH);
+	}
+
+	/**
+	 * Verifies that the lines of concurrent writers are all persisted and that the lines of every single
+	 * writer keep their order.
+	 */
+	@Test
+	void testConcurrentWriters() throws Exception {
+		int writers = 8;
+		int linesPerWriter = 500;
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+
+		try (var persistor = this.getDefaultPersistor()) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < writers; w++) {
+				final String writer = "writer" + w;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < linesPerWriter; i++) {
+						persistor.save(Instant.now(), writer + ":" + i);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+
+			List<PersistedString> lines = persistor.get(Integer.MAX_VALUE);
+			assertThat(lines).hasSize(writers * linesPerWriter);
+			assertThat(lines.stream().filter(line -> line.getPayload().startsWith("writer3:")).toList())
+					.extracting(PersistedString::getPayload)
+					.containsExactlyElementsOf(IntStream.range(0, linesPerWriter)
+							.mapToObj(i -> "writer3:" + i).toList());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Verifies that a bulk write is visible as soon as the call returns.
+	 */
+	@Test
+	void testSaveAllIsCommittedOnReturn() {
+		try (var persistor = this.getDefaultPersistor()) {
+			List<PersistedString> lines = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				lines.add(new PersistedString(Instant.now(), "Line " + i));
+			}
+
+			persistor.saveAll(lines);
+
+			assertThat(persistor.get(Integer.MAX_VALUE)).isEqualTo(lines);
+		}
+	}
+
+	/**
+	 * Verifies that the committer does not wait for further requests if the only caller is blocked on its commit.
+	 */
+	@Test
+	void testLoneWriterIsNotDelayed() {
+		StringPersistorFile file = new StringPersistorFile();
+		file.setFile(DEFAULT_PATH);
+		try (var persistor = new GroupCommitStringPersistor(file, Duration.ofSeconds(1), 256)) {
+			long start = System.nanoTime();
+			for (int i = 0; i < 20; i++) {
+				persistor.saveAll(List.of(new PersistedString(Instant.now(), "Line " + i)));
+			}
+
+			assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+			assertThat(persistor.get(Integer.MAX_VALUE)).hasSize(20);
+		}
+	}
+
+	/**
+	 * Verifies that encoded strings are committed as bytes, without decoding them, and can be read again.
+	 */
+	@Test
+	void testSaveAllUtf8IsCommittedAsBytes() {
+		AtomicInteger encodedCommits = new AtomicInteger();
+		StringPersistorFile file = new StringPersistorFile() {
+			@Override
+			public synchronized void saveAllUtf8(final Instant instant, final ByteBuffer lines, final int[] lineEnds,
+												 final int count) {
+				encodedCommits.incrementAndGet();
+				super.saveAllUtf8(instant, lines, lineEnds, count);
+			}
+		};
+		file.setFile(DEFAULT_PATH);
+
+		try (var persistor = new GroupCommitStringPersistor(file, Duration.ofMillis(1), 256)) {
+			ByteBuffer lines = ByteBuffer.allocate(64);
+			lines.put("Ignored".getBytes(StandardCharsets.UTF_8));
+			int start = lines.position();
+			lines.put("Grüezi".getBytes(StandardCharsets.UTF_8));
+			int firstEnd = lines.position();
+			lines.put("Line 2".getBytes(StandardCharsets.UTF_8));
+			lines.flip().position(start);
+
+			persistor.saveAllUtf8(Instant.now(), lines, new int[] {firstEnd, lines.limit()}, 2);
+			// The caller may reuse its buffer once the call returns
+			lines.clear();
+
+			assertThat(encodedCommits).hasValue(1);
+			assertThat(persistor.get(Integer.MAX_VALUE)).extracting(PersistedString::getPayload)
+					.containsExactly("Grüezi", "Line 2");
+		}
+	}
+
+	/**
+	 * Verifies that saving after the persistor was closed fails.
+	 */
+	@Test
+	void testSaveAfterClose() {
+		var persistor = this.getDefaultPersistor();
+		persistor.close();
+
+		assertThatThrownBy(() -> persistor.save(Instant.now(), "Too late"))
+				.isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -0,0 +1,282 @@
+package ch.hslu.vsk.stringpersistor.impl;
+
+import ch.hslu.vsk.stringpersistor.api.PersistedString;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link SegmentedMappedStringPersistor} class.
+ */
+class SegmentedMappedStringPersistorTest {
+
+	/**
+	 * Segment size used for testing purposes; small enough to force rollovers.
+	 */
+	private static final int SEGMENT_SIZE = 1024;
+
+	@TempDir
+	private Path directory;
+
+	/**
+	 * Creates a persistor with small segments in the temporary directory.
+	 * @param maxSegments The maximum number of segments to keep.
+	 * @return a configured {@code SegmentedMappedStringPersistor} instance.
+	 */
+	private SegmentedMappedStringPersistor getPersistor(final int maxSegments) {
+		SegmentedMappedStringPersistor persistor = new SegmentedMappedStringPersistor(SEGMENT_SIZE, maxSegments);
+		persistor.setFile(this.directory.resolve("log"));
+		return persistor;
+	}
+
+	/**
+	 * Creates the given number of strings.
+	 * @param count The number of strings.
+	 * @return the strings, numbered from 0.
+	 */
+	private static List<PersistedString> createEntries(final int count) {
+		Instant now = Instant.now();
+		List<PersistedString> entries = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			entries.add(new PersistedString(now.plusMillis(i), "Line " + i));
+		}
+		return entries;
+	}
+
+	/**
+	 * Verifies that saved strings can be read back in the order they were saved.
+	 */
+	@Test
+	void testSaveAndGet() {
+		try (var persistor = this.getPersistor(0)) {
+			Instant instant = Instant.now();
+			persistor.save(instant, "First");
+			persistor.save(instant, "Zweite Zeile, mit Umlaut: äöü");
+
+			assertThat(persistor.get(10)).containsExactly(
+					new PersistedString(instant, "First"),
+					new PersistedString(instant, "Zweite Zeile, mit Umlaut: äöü"));
+			assertThat(persistor.get(1)).hasSize(1);
+			assertThat(persistor.get(0)).isEmpty();
+		}
+	}
+
+	/**
+	 * Verifies that strings are spread across several segments and read back in order.
+	 */
+	@Test
+	void testRollover() {
+		List<PersistedString> entries = createEntries(500);
+		try (var persistor = this.getPersistor(0)) {
+			persistor.saveAll(entries.subList(0, 250));
+			entries.subList(250, 500).forEach(entry -> persistor.save(entry.getTimestamp(), entry.getPayload()));
+
+			assertThat(persistor.getSegments()).hasSizeGreaterThan(1);
+			assertThat(persistor.get(entries.size())).containsExactlyElementsOf(entries);
+		}
+	}
+
+	/**
+	 * Verifies that a stream reads the strings saved before it was created, while further strings are saved and
+	 * segments are rolled over.
+	 */
+	@Test
+	void testStream() {
+		List<PersistedString> entries = createEntries(500);
+		try (var persistor = this.getPersistor(0)) {
+			persistor.saveAll(entries);
+
+			List<PersistedString> read = new ArrayList<>();
+			try (Stream<PersistedString> stream = persistor.stream()) {
+				Iterator<PersistedString> iterator = stream.iterator();
+				while (iterator.hasNext()) {
+					read.add(iterator.next());
+					if (read.size() == 100) {
+						persistor.saveAll(createEntries(200));
+					}
+				}
+			}
+
+			assertThat(read).containsExactlyElementsOf(entries);
+			try (Stream<PersistedString> stream = persistor.stream()) {
+				assertThat(stream.count()).isEqualTo(700L);
+			}
+		}
+	}
+
+	/**
+	 * Verifies that the newest strings are returned across segment boundaries.
+	 */
+	@Test
+	void testGetLast() {
+		List<PersistedString> entries = createEntries(500);
+		try (var persistor = this.getPersistor(0)) {
+			persistor.saveAll(entries);
+
+			assertThat(persistor.getLast(120)).containsExactlyElementsOf(entries.subList(380, 500));
+			assertThat(persistor.getLast(1000)).containsExactlyElementsOf(entries);
+		}
+	}
+
+	/**
+	 * Verifies that the retention deletes whole segments, oldest first.
+	 */
+	@Test
+	void testRetention() {
+		List<PersistedString> entries = createEntries(2000);
+		try (var persistor = this.getPersistor(3)) {
+			persistor.saveAll(entries);
+
+			assertThat(persistor.getSegments()).hasSize(3);
+			List<PersistedString> kept = persistor.get(entries.size());
+			assertThat(kept).isNotEmpty();
+			assertThat(entries).endsWith(kept.toArray(new PersistedString[0]));
+		}
+	}
+
+	/**
+	 * Verifies that the strings survive a reopen and that new strings are appended after them.
+	 */
+	@Test
+	void testReopen() {
+		List<PersistedString> entries = createEntries(300);
+		try (var persistor = this.getPersistor(0)) {
+			persistor.saveAll(entries.subList(0, 200));
+		}
+		try (var persistor = this.getPersistor(0)) {
+			persistor.saveAll(entries.subList(200, 300));
+			assertThat(persistor.get(entries.size())).containsExactlyElementsOf(entries);
+		}
+	}
+
+	/**
+	 * Verifies that an incomplete record at the end of an unsealed segment is discarded on open.
+	 */
+	@Test
+	void testIncompleteRecordIsDiscarded() throws IOException {
+		Instant instant = Instant.now();
+		Path segment = this.directory.resolve("log.0000000000.seg");
+		byte[] content = new byte[SEGMENT_SIZE];
+		byte[] records = (instant + ",Complete\n" + instant + ",Incompl").getBytes();
+		System.arraycopy(records, 0, content, 0, records.length);
+		Files.write(segment, content);
+
+		try (var persistor = this.getPersistor(0)) {
+			persistor.save(instant, "Next");
+			assertThat(persistor.get(10)).containsExactly(
+					new PersistedString(instant, "Complete"),
+					new PersistedString(instant, "Next"));
+		}
+	}
+
+	/**
+	 * Verifies that invalid strings are rejected without writing anything.
+	 */
+	@Test
+	void testInvalidLines() {
+		try (var persistor = this.getPersistor(0)) {
+			Instant instant = Instant.now();
+			assertThatThrownBy(() -> persistor.save(null, "Line")).isInstanceOf(IllegalArgumentException.class);
+			assertThatThrownBy(() -> persistor.save(instant, "x".repeat(SEGMENT_SIZE)))
+					.isInstanceOf(IllegalArgumentException.class);
+			assertThatThrownBy(() -> persistor.saveAll(List.of(new PersistedString(instant, "Valid"),
+					new PersistedString(instant, "\n".repeat(SEGMENT_SIZE / 2))))).isInstanceOf(IllegalArgumentException.class);
+
+			assertThat(persistor.get(10)).isEmpty();
+		}
+	}
+
+	/**
+	 * Verifies that strings containing line breaks, NUL characters and backslashes, e.g. multi-line messages or
+	 * messages in the human-readable format, are stored as one record each and read back unchanged.
+	 */
+	@Test
+	void testLinesWithLineBreaks() {
+		Instant instant = Instant.now();
+		List<PersistedString> expected = List.of(
+				new PersistedString(instant, "Exception\n\tat Main.main(Main.java:1)\r\n"),
+				new PersistedString(instant, "Timestamp: [" + instant + "]\nLog-Level: [INFO]\nMessage: [Text]\n"),
+				new PersistedString(instant, "Nul\0 and C:\\path\\n and \\"),
+				new PersistedString(instant, "Plain"));
+
+		try (var persistor = this.getPersistor(0)) {
+			persistor.save(instant, expected.get(0).getPayload());
+			persistor.saveAll(expected.subList(1, expected.size()));
+
+			assertThat(persistor.get(10)).containsExactlyElementsOf(expected);
+			assertThat(persistor.getLast(2)).containsExactlyElementsOf(expected.subList(2, 4));
+		}
+		try (var persistor = this.getPersistor(0)) {
+			assertThat(persistor.get(10)).containsExactlyElementsOf(expected);
+		}
+	}
+
+	/**
+	 * Verifies that encoded strings are saved across segment boundaries and invalid ones are rejected without
+	 * writing anything.
+	 */
+	@Test
+	void testSaveAllUtf8() {
+		Instant instant = Instant.now();
+		ByteBuffer lines = ByteBuffer.allocate(8 * 1024);
+		int[] lineEnds = new int[300];
+		List<PersistedString> expected = new ArrayList<>();
+		for (int i = 0; i < lineEnds.length; i++) {
+			String payload = "Encoded line " + i + " äöü";
+			lineEnds[i] = lines.put(payload.getBytes(StandardCharsets.UTF_8)).position();
+			expected.add(new PersistedString(instant, payload));
+		}
+		lines.flip();
+
+		try (var persistor = this.getPersistor(0)) {
+			persistor.saveAllUtf8(instant, lines, lineEnds, lineEnds.length);
+
+			assertThat(persistor.getSegments()).hasSizeGreaterThan(1);
+			assertThat(persistor.get(1000)).containsExactlyElementsOf(expected);
+
+			ByteBuffer invalid = ByteBuffer.wrap("ValidIn\nvalid".getBytes(StandardCharsets.UTF_8));
+			assertThatThrownBy(() -> persistor.saveAllUtf8(instant, invalid, new int[] {5, invalid.limit() + 1}, 2))
+					.isInstanceOf(IllegalArgumentException.class);
+			assertThat(persistor.get(1000)).hasSize(expected.size());
+		}
+	}
+
+	/**
+	 * Verifies that encoded strings containing line breaks do not fail the whole call, but are stored escaped and
+	 * read back unchanged.
+	 */
+	@Test
+	void testSaveAllUtf8WithLineBreaks() {
+		Instant instant = Instant.now();
+		ByteBuffer lines = ByteBuffer.wrap("ValidMulti\nline\r\näöü\\n\0".getBytes(StandardCharsets.UTF_8));
+
+		try (var persistor = this.getPersistor(0)) {
+			persistor.saveAllUtf8(instant, lines, new int[] {5, lines.limit()}, 2);
+
+			assertThat(persistor.get(10)).containsExactly(new PersistedString(instant, "Valid"),
+					new PersistedString(instant, "Multi\nline\r\näöü\\n\0"));
+		}
+	}
+
+	/**
+	 * Verifies that using the persistor without a file throws an exception.
+	 */
+	@Test
+	void testWithoutFile() {
+		SegmentedMappedStringPersistor persistor = new SegmentedMappedStringPersistor();
+		assertThatThrownBy(() -> persistor.save(Instant.now(), "Line")).isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -7,11 +7,16 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -48,6 +53,8 @@ class StringPersistorFileTest {
 	public void afterEach() {
 		try {
 			Files.delete(DEFAULT_PATH);
+			Files.deleteIfExists(Path.of(DEFAULT_PATH + TimeIndex.SUFFIX));
+			Files.deleteIfExists(Path.of(DEFAULT_PATH + KeyIndex.SUFFIX));
 			System.out.println("Deleted file");
 		} catch (IOException e) {
 			System.out.println("No file to delete created");
@@ -185,6 +192,231 @@ class StringPersistorFileTest {
 	}
 
 
+	/**
+	 * Verifies that {@link StringPersistorFile#saveAll} writes all lines in order.
+	 */
+	@Test
+	void testSaveAll() {
+		var persistor = this.getDefaultPersistor();
+		List<PersistedString> lines = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			lines.add(new PersistedString(Instant.now(), "Bulk line " + i));
+		}
+
+		persistor.saveAll(lines);
+
+		assertThat(persistor.get(Integer.MAX_VALUE)).isEqualTo(lines);
+	}
+
+	/**
+	 * Verifies that {@link StringPersistorFile#saveAll} rejects null entries without writing anything.
+	 */
+	@Test
+	void testSaveAllIllegalArguments() {
+		var persistor = this.getDefaultPersistor();
+		List<PersistedString> lines = new ArrayList<>();
+		lines.add(new PersistedString(Instant.now(), "Valid"));
+		lines.add(null);
+
+		assertThatThrownBy(() -> persistor.saveAll(null))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> persistor.saveAll(lines))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(persistor.get(Integer.MAX_VALUE).size()).isEqualTo(0);
+	}
+
+	/**
+	 * Verifies that {@link StringPersistorFile#saveAllUtf8} writes encoded lines in the same format as
+	 * {@link StringPersistorFile#saveAll} and in order with lines saved as strings.
+	 */
+	@Test
+	void testSaveAllUtf8() {
+		var persistor = this.getDefaultPersistor();
+		Instant instant = Instant.now();
+		List<String> payloads = List.of("Encoded line, with Umlaut: äöü", "", "x".repeat(100_000), "Last");
+		ByteBuffer lines = ByteBuffer.allocate(200_000).put("Skipped".getBytes(StandardCharsets.UTF_8));
+		int[] lineEnds = new int[payloads.size()];
+		int start = lines.position();
+		for (int i = 0; i < payloads.size(); i++) {
+			lineEnds[i] = lines.put(payloads.get(i).getBytes(StandardCharsets.UTF_8)).position();
+		}
+		lines.flip().position(start);
+
+		persistor.save(instant, "Before");
+		persistor.saveAllUtf8(instant, lines, lineEnds, payloads.size());
+		persistor.save(instant, "After");
+
+		List<PersistedString> expected = new ArrayList<>();
+		expected.add(new PersistedString(instant, "Before"));
+		payloads.forEach(payload -> expected.add(new PersistedString(instant, payload)));
+		expected.add(new PersistedString(instant, "After"));
+		assertThat(persistor.get(Integer.MAX_VALUE)).isEqualTo(expected);
+		assertThat(lines.position()).isEqualTo(start);
+
+		assertThatThrownBy(() -> persistor.saveAllUtf8(null, lines, lineEnds, 1))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> persistor.saveAllUtf8(instant, lines, new int[] {start + 2, start + 1}, 2))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/**
+	 * Verifies that {@link StringPersistorFile#stream} reads the lines saved before it was created, while further
+	 * lines are saved.
+	 */
+	@Test
+	void testStreamReadsSnapshot() {
+		var persistor = this.getDefaultPersistor();
+		List<PersistedString> lines = new ArrayList<>();
+		for (int i = 0; i < 1_000; i++) {
+			lines.add(new PersistedString(Instant.now(), "Line " + i + ", with Umlaut: äöü"));
+		}
+		persistor.saveAll(lines);
+
+		try (Stream<PersistedString> stream = persistor.stream()) {
+			persistor.save(Instant.now(), "Saved while reading");
+			assertThat(stream.toList()).isEqualTo(lines);
+		}
+		try (Stream<PersistedString> stream = persistor.stream()) {
+			assertThat(stream.count()).isEqualTo(1_001L);
+		}
+	}
+
+	/**
+	 * Verifies that {@link StringPersistorFile#getLast} returns the newest lines in order, including lines which
+	 * are longer than the blocks the file is read in, and ignores an incomplete line at the end of the file.
+	 */
+	@Test
+	void testGetLast() throws IOException {
+		var persistor = this.getDefaultPersistor();
+		List<PersistedString> lines = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			String payload = i % 500 == 0 ? "Long line " + i + " " + "ä".repeat(40_000) : "Line " + i;
+			lines.add(new PersistedString(Instant.now(), payload));
+		}
+		persistor.saveAll(lines);
+		Files.writeString(DEFAULT_PATH, Instant.now() + ",Incomplete", StandardOpenOption.APPEND);
+
+		assertThat(persistor.getLast(1)).isEqualTo(lines.subList(1_999, 2_000));
+		assertThat(persistor.getLast(501)).isEqualTo(lines.subList(1_499, 2_000));
+		assertThat(persistor.getLast(5_000)).isEqualTo(lines);
+		assertThat(persistor.getLast(0).size()).isEqualTo(0);
+	}
+
+	/**
+	 * Verifies that {@link StringPersistorFile#stream(Instant, Instant)} returns the lines of a time range with
+	 * and without the time index, and that a deleted index is rebuilt from the file.
+	 */
+	@Test
+	void testStreamTimeRange() throws IOException {
+		var persistor = new StringPersistorFile();
+		persistor.setTimeIndex(true);
+		persistor.setFile(DEFAULT_PATH);
+		Instant start = Instant.parse("2024-01-01T00:00:00Z");
+		List<PersistedString> lines = new ArrayList<>();
+		for (int batch = 0; batch < 5; batch++) {
+			List<PersistedString> batchLines = new ArrayList<>();
+			for (int i = 0; i < 3_000; i++) {
+				batchLines.add(new PersistedString(start.plusMillis(lines.size() + batchLines.size()), "Line " + i));
+			}
+			persistor.saveAll(batchLines);
+			lines.addAll(batchLines);
+		}
+		persistor.save(start.minusSeconds(1), "Late line");
+		assertTrue(Files.size(Path.of(DEFAULT_PATH + TimeIndex.SUFFIX)) > 0);
+
+		Instant from = start.plusMillis(5_000);
+		Instant to = start.plusMillis(7_999);
+		try (Stream<PersistedString> range = persistor.stream(from, to)) {
+			assertThat(range.toList()).isEqualTo(lines.subList(5_000, 8_000));
+		}
+		try (Stream<PersistedString> range = persistor.stream(start.minusSeconds(1), start.minusSeconds(1))) {
+			assertThat(range.toList()).isEqualTo(List.of(new PersistedString(start.minusSeconds(1), "Late line")));
+		}
+
+		persistor.close();
+		Files.delete(Path.of(DEFAULT_PATH + TimeIndex.SUFFIX));
+		persistor.setFile(DEFAULT_PATH);
+		try (Stream<PersistedString> range = persistor.stream(from, to)) {
+			assertThat(range.toList()).isEqualTo(lines.subList(5_000, 8_000));
+		}
+
+		persistor.setTimeIndex(false);
+		try (Stream<PersistedString> range = persistor.stream(from, to)) {
+			assertThat(range.toList()).isEqualTo(lines.subList(5_000, 8_000));
+		}
+		assertThatThrownBy(() -> persistor.stream(to, from))
+				.isInstanceOf(IllegalArgumentException.class);
+		persistor.close();
+	}
+
+	/**
+	 * Verifies that {@link StringPersistorFile#streamMatching(String...)} returns the lines saved with all given
+	 * keys, also after reopening the file, and that lines saved without the index are returned as candidates.
+	 */
+	@Test
+	void testStreamMatching() {
+		var persistor = new StringPersistorFile();
+		persistor.setKeyIndex(true);
+		persistor.setFile(DEFAULT_PATH);
+		List<PersistedString> lines = new ArrayList<>();
+		List<String[]> keys = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			lines.add(new PersistedString(Instant.now(), "Line " + i + (i % 7 == 0 ? " äö€" : "")));
+			keys.add(new String[] {"client=" + i % 3, "level=" + i % 2});
+		}
+		persistor.saveAll(lines.subList(0, 150), keys.subList(0, 150));
+		persistor.saveAll(lines.subList(150, 300), keys.subList(150, 300));
+		List<PersistedString> expected = new ArrayList<>();
+		for (int i = 0; i < 300; i += 6) {
+			expected.add(lines.get(i));
+		}
+
+		try (Stream<PersistedString> matching = persistor.streamMatching("client=0", "level=0")) {
+			assertThat(matching.toList()).isEqualTo(expected);
+		}
+		try (Stream<PersistedString> matching = persistor.streamMatching("client=unknown")) {
+			assertThat(matching.count()).isEqualTo(0L);
+		}
+
+		persistor.setKeyIndex(false);
+		PersistedString unindexed = new PersistedString(Instant.now(), "Unindexed line");
+		persistor.saveAll(List.of(unindexed), Collections.singletonList(new String[] {"client=1"}));
+		assertThatThrownBy(() -> persistor.streamMatching("client=0"))
+				.isInstanceOf(IllegalStateException.class);
+
+		persistor.setKeyIndex(true);
+		expected.add(unindexed);
+		try (Stream<PersistedString> matching = persistor.streamMatching("client=0", "level=0")) {
+			assertThat(matching.toList()).isEqualTo(expected);
+		}
+		assertThatThrownBy(() -> persistor.streamMatching())
+				.isInstanceOf(IllegalArgumentException.class);
+		persistor.close();
+	}
+
+	/**
+	 * Verifies that {@link StringPersistorFile#stream} fails without a file.
+	 */
+	@Test
+	void testStreamWithNoFileSpecified() {
+		var persistor = new StringPersistorFile();
+		assertThatThrownBy(persistor::stream)
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	/**
+	 * Verifies that lines are persisted when every commit is forced to the storage device.
+	 */
+	@Test
+	void testSaveWithFsyncDurability() {
+		var persistor = this.getDefaultPersistor();
+		persistor.setDurability(Durability.FSYNC);
+
+		persistor.save(Instant.now(), "Durable line");
+
+		assertThat(persistor.get(1).getFirst().getPayload()).isEqualTo("Durable line");
+	}
+
 
 	// -----------------------------------------------------
 	// Quality tests